@@ -21,6 +21,7 @@ import tech.pegasys.web3signer.dsl.signer.Signer;
 import tech.pegasys.web3signer.dsl.signer.SignerConfigurationBuilder;
 import tech.pegasys.web3signer.dsl.utils.MetadataFileHelpers;
 import tech.pegasys.web3signer.signing.KeyType;
+import tech.pegasys.web3signer.slashingprotection.ArgumentFactories.UInt64ArgumentFactory;
 import tech.pegasys.web3signer.slashingprotection.interchange.InterchangeJsonProvider;
 import tech.pegasys.web3signer.slashingprotection.interchange.model.SignedAttestation;
 import tech.pegasys.web3signer.slashingprotection.interchange.model.SignedBlock;
@@ -28,7 +29,6 @@ import tech.pegasys.web3signer.tests.AcceptanceTestBase;
 
 import java.io.File;
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.util.List;
@@ -118,9 +118,9 @@ public class SlashingImportAcceptanceTest extends AcceptanceTestBase {
     assertThat(signedAttestations).hasSize(1);
     assertThat(signedAttestations.get(0).get("validator_id")).isEqualTo(validatorId);
     assertThat(signedAttestations.get(0).get("source_epoch"))
-        .isEqualTo(BigDecimal.valueOf(attestation.getSourceEpoch().toLong()));
+        .isEqualTo(UInt64ArgumentFactory.toDbValue(attestation.getSourceEpoch()));
     assertThat(signedAttestations.get(0).get("target_epoch"))
-        .isEqualTo(BigDecimal.valueOf(attestation.getTargetEpoch().toLong()));
+        .isEqualTo(UInt64ArgumentFactory.toDbValue(attestation.getTargetEpoch()));
     assertThat(signedAttestations.get(0).get("signing_root"))
         .isEqualTo(attestation.getSigningRoot().toArray());
 
@@ -130,7 +130,7 @@ public class SlashingImportAcceptanceTest extends AcceptanceTestBase {
     assertThat(signedBlocks).hasSize(1);
     assertThat(signedBlocks.get(0).get("validator_id")).isEqualTo(validatorId);
     assertThat(signedBlocks.get(0).get("slot"))
-        .isEqualTo(BigDecimal.valueOf(block.getSlot().toLong()));
+        .isEqualTo(UInt64ArgumentFactory.toDbValue(block.getSlot()));
     assertThat(signedBlocks.get(0).get("signing_root")).isEqualTo(block.getSigningRoot().toArray());
   }
 }
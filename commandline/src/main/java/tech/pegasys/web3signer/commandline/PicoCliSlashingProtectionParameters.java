@@ -55,6 +55,23 @@ public class PicoCliSlashingProtectionParameters implements SlashingProtectionPa
       paramLabel = "<hikari configuration properties file>")
   private Path dbPoolConfigurationFile = null;
 
+  @Option(
+      names = {"--slashing-protection-db-replica-url"},
+      description =
+          "Optional jdbc url of a streaming replica of the slashing protection database used for "
+              + "exports and other reads which aren't part of signing",
+      paramLabel = "<jdbc url>",
+      arity = "1")
+  String dbReplicaUrl;
+
+  @Option(
+      names = {"--slashing-protection-db-replica-max-lag-milliseconds"},
+      description =
+          "Maximum replication lag in milliseconds before reads fall back to the primary slashing "
+              + "protection database (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  long dbReplicaMaxLagMilliseconds = 1000;
+
   @Option(
       names = {"--slashing-protection-pruning-enabled"},
       description =
@@ -92,6 +109,91 @@ public class PicoCliSlashingProtectionParameters implements SlashingProtectionPa
       arity = "1")
   boolean pruningAtBootEnabled = true;
 
+  @Option(
+      names = {"--slashing-protection-pruning-chunked-enabled"},
+      description =
+          "Set to true to prune validators in parallel, deleting in bounded chunks without holding "
+              + "the signing lock (default: ${DEFAULT-VALUE})",
+      paramLabel = "<BOOL>",
+      arity = "1")
+  boolean pruningChunkedEnabled = false;
+
+  @Option(
+      names = {"--slashing-protection-pruning-threads"},
+      description =
+          "Number of validators pruned in parallel, each using its own database connection, when "
+              + "chunked pruning is enabled (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  int pruningThreads = 4;
+
+  @Option(
+      names = {"--slashing-protection-pruning-chunk-size"},
+      description =
+          "Maximum number of rows deleted in each pruning transaction when chunked pruning is "
+              + "enabled (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  int pruningChunkSize = 1000;
+
+  @Option(
+      names = {"--slashing-protection-pruning-max-rows-per-second"},
+      description =
+          "Maximum number of rows deleted per second across all pruning threads when chunked "
+              + "pruning is enabled (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  long pruningMaxRowsPerSecond = 50_000;
+
+  @Option(
+      names = {"--slashing-protection-inline-pruning-enabled"},
+      description =
+          "Set to true to advance the low watermark and delete a bounded number of older entries "
+              + "for the validator each time a block or attestation is signed, keeping "
+              + "--slashing-protection-pruning-epochs-to-keep epochs (default: ${DEFAULT-VALUE})",
+      paramLabel = "<BOOL>",
+      arity = "1")
+  boolean inlinePruningEnabled = false;
+
+  @Option(
+      names = {"--slashing-protection-inline-pruning-max-rows"},
+      description =
+          "Maximum number of older entries deleted each time a block or attestation is signed when "
+              + "inline pruning is enabled (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  int inlinePruningMaxRows = 10;
+
+  @Option(
+      names = {"--slashing-protection-import-batch-size"},
+      description =
+          "Number of validators imported from an interchange file in each database transaction. "
+              + "When 0 the whole file is imported in a single transaction, otherwise batches that "
+              + "were committed are kept if the import fails (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  int importBatchSize = 0;
+
+  @Option(
+      names = {"--slashing-protection-import-threads"},
+      description =
+          "Number of batches of validators imported in parallel, each using its own database "
+              + "connection, when an import batch size is set (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  int importThreads = 1;
+
+  @Option(
+      names = {"--slashing-protection-import-staging-enabled"},
+      description =
+          "Merge imported interchange data using staging tables and set-based statements rather "
+              + "than checking each block and attestation individually (default: ${DEFAULT-VALUE})",
+      paramLabel = "<BOOL>",
+      arity = "1")
+  boolean importStagingEnabled = false;
+
+  @Option(
+      names = {"--slashing-protection-export-threads"},
+      description =
+          "Number of chunks of validators exported in parallel, each using its own database "
+              + "connection from the pool (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  int exportThreads = 1;
+
   @Option(
       names = {"--slashing-protection-db-health-check-timeout-milliseconds"},
       paramLabel = "<timeout in milliseconds>",
@@ -108,6 +210,234 @@ public class PicoCliSlashingProtectionParameters implements SlashingProtectionPa
       arity = "1")
   private long dbHealthCheckIntervalMilliseconds = 30000;
 
+  @Option(
+      names = {"--slashing-protection-history-cache-enabled"},
+      description =
+          "Set to true to decide slashing checks from an in memory copy of each validator's recent "
+              + "signing history, only writing new entries to the database. Requires shard leasing "
+              + "so that no other instance signs for the same validators (default: ${DEFAULT-VALUE})",
+      paramLabel = "<BOOL>",
+      arity = "1")
+  boolean historyCacheEnabled = false;
+
+  @Option(
+      names = {"--slashing-protection-history-cache-epochs"},
+      description =
+          "Number of epochs of signing history to hold in memory per validator when the history "
+              + "cache is enabled. Older requests are checked against the database "
+              + "(default: ${DEFAULT-VALUE})",
+      arity = "1")
+  long historyCacheEpochs = 32;
+
+  @Option(
+      names = {"--slashing-protection-attestation-batching-enabled"},
+      description =
+          "Set to true to evaluate concurrent attestation slashing checks together in a single "
+              + "database transaction (default: ${DEFAULT-VALUE})",
+      paramLabel = "<BOOL>",
+      arity = "1")
+  boolean attestationBatchingEnabled = false;
+
+  @Option(
+      names = {"--slashing-protection-attestation-batch-window-microseconds"},
+      description =
+          "Maximum time in microseconds to wait for further attestation slashing checks before "
+              + "evaluating a batch (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  long attestationBatchWindowMicroseconds = 500;
+
+  @Option(
+      names = {"--slashing-protection-attestation-batch-max-size"},
+      description =
+          "Maximum number of attestation slashing checks to evaluate in a single batch "
+              + "(default: ${DEFAULT-VALUE})",
+      arity = "1")
+  int attestationBatchMaxSize = 500;
+
+  @Option(
+      names = {"--slashing-protection-db-functions-enabled"},
+      description =
+          "Set to true to perform each slashing check, insert and watermark update with a single "
+              + "call to a database function (default: ${DEFAULT-VALUE})",
+      paramLabel = "<BOOL>",
+      arity = "1")
+  boolean dbFunctionsEnabled = false;
+
+  @Option(
+      names = {"--slashing-protection-enabled-status-cache-enabled"},
+      description =
+          "Set to true to hold each validator's enabled status in memory, kept in sync with other "
+              + "instances using database notifications, instead of querying it for each signing "
+              + "request (default: ${DEFAULT-VALUE})",
+      paramLabel = "<BOOL>",
+      arity = "1")
+  boolean enabledStatusCacheEnabled = false;
+
+  @Option(
+      names = {"--slashing-protection-reactive-client-enabled"},
+      description =
+          "Set to true to make block and attestation slashing checks with a non-blocking Postgres "
+              + "client on the event loops, so signing requests don't hold a worker thread while "
+              + "waiting for the database (default: ${DEFAULT-VALUE})",
+      paramLabel = "<BOOL>",
+      arity = "1")
+  boolean reactiveClientEnabled = false;
+
+  @Option(
+      names = {"--slashing-protection-reactive-client-pool-size"},
+      description =
+          "Maximum number of connections used by the non-blocking Postgres client "
+              + "(default: ${DEFAULT-VALUE})",
+      arity = "1")
+  int reactiveClientPoolSize = 10;
+
+  @Option(
+      names = {"--slashing-protection-slow-lock-wait-threshold-milliseconds"},
+      description =
+          "Time in milliseconds waiting for a validator lock above which the wait is counted as "
+              + "slow in the slashing protection metrics (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  long slowLockWaitThresholdMilliseconds = 100;
+
+  @Option(
+      names = {"--slashing-protection-concurrent-signing-enabled"},
+      description =
+          "Set to true to compute block and attestation signatures while the slashing protection "
+              + "check runs. A signature is still only returned once the check has permitted it "
+              + "(default: ${DEFAULT-VALUE})",
+      paramLabel = "<BOOL>",
+      arity = "1")
+  boolean concurrentSigningEnabled = false;
+
+  @Option(
+      names = {"--slashing-protection-signature-cache-enabled"},
+      description =
+          "Set to true to hold released block and attestation signatures in memory so retried "
+              + "signing requests are answered without signing or checking the slashing database "
+              + "again (default: ${DEFAULT-VALUE})",
+      paramLabel = "<BOOL>",
+      arity = "1")
+  boolean signatureCacheEnabled = false;
+
+  @Option(
+      names = {"--slashing-protection-signature-cache-size"},
+      description =
+          "Maximum number of signatures held in the signature cache (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  long signatureCacheSize = 10_000;
+
+  @Option(
+      names = {"--slashing-protection-signature-cache-expiry-seconds"},
+      description =
+          "Time in seconds a signature is held in the signature cache after it was released "
+              + "(default: ${DEFAULT-VALUE})",
+      arity = "1")
+  long signatureCacheExpirySeconds = 768;
+
+  @Option(
+      names = {"--slashing-protection-shard-leasing-enabled"},
+      description =
+          "Set to true to divide the validators between the instances sharing the slashing "
+              + "database, with each instance leasing shards of validators and only signing blocks "
+              + "and attestations for the validators in its shards. Requires the history cache "
+              + "(default: ${DEFAULT-VALUE})",
+      paramLabel = "<BOOL>",
+      arity = "1")
+  boolean shardLeasingEnabled = false;
+
+  @Option(
+      names = {"--slashing-protection-shard-count"},
+      description =
+          "Number of shards the validators are divided into when shard leasing is enabled. Must "
+              + "be the same for all instances sharing the database (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  int shardCount = 64;
+
+  @Option(
+      names = {"--slashing-protection-shard-lease-duration-milliseconds"},
+      description =
+          "Time in milliseconds a shard lease is held for without being renewed, after which "
+              + "another instance can take over its validators (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  long shardLeaseDurationMilliseconds = 10_000;
+
+  @Option(
+      names = {"--slashing-protection-registration-chunk-size"},
+      description =
+          "Maximum number of validator keys registered in the slashing database with a single "
+              + "statement when keys are loaded (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  int registrationChunkSize = 1000;
+
+  @Option(
+      names = {"--slashing-protection-registration-threads"},
+      description =
+          "Number of threads, each using its own database connection, registering chunks of "
+              + "validator keys in the slashing database (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  int registrationThreads = 4;
+
+  @Option(
+      names = {"--slashing-protection-surround-index-enabled"},
+      description =
+          "Set to true to find surround votes with the GiST index on attestation epoch ranges and "
+              + "have the database reject surround votes when the attestation is inserted. The "
+              + "index must have been created by migration V00017 (default: ${DEFAULT-VALUE})",
+      paramLabel = "<BOOL>",
+      arity = "1")
+  boolean surroundIndexEnabled = false;
+
+  @Option(
+      names = {"--slashing-protection-circuit-breaker-enabled"},
+      description =
+          "Set to true to reject block and attestation signing requests immediately while the "
+              + "slashing database is slow or failing, other signing requests are unaffected "
+              + "(default: ${DEFAULT-VALUE})",
+      paramLabel = "<BOOL>",
+      arity = "1")
+  boolean circuitBreakerEnabled = false;
+
+  @Option(
+      names = {"--slashing-protection-circuit-breaker-failure-rate-threshold"},
+      description =
+          "Percentage of failed or slow slashing checks in the window at which the circuit "
+              + "breaker opens (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  int circuitBreakerFailureRateThreshold = 50;
+
+  @Option(
+      names = {"--slashing-protection-circuit-breaker-slow-call-threshold-milliseconds"},
+      description =
+          "Time in milliseconds after which a slashing check is counted as slow by the circuit "
+              + "breaker (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  long circuitBreakerSlowCallThresholdMilliseconds = 1000;
+
+  @Option(
+      names = {"--slashing-protection-circuit-breaker-window-size"},
+      description =
+          "Number of most recent slashing checks the circuit breaker calculates the failure rate "
+              + "over (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  int circuitBreakerWindowSize = 100;
+
+  @Option(
+      names = {"--slashing-protection-circuit-breaker-open-duration-milliseconds"},
+      description =
+          "Time in milliseconds the circuit breaker stays open before a single slashing check is "
+              + "let through to probe for recovery (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  long circuitBreakerOpenDurationMilliseconds = 10_000;
+
+  @Option(
+      names = {"--slashing-protection-journal-path"},
+      description =
+          "Directory for an embedded append-only journal to use for slashing protection instead of "
+              + "a database. The journal can only be used by a single Web3Signer instance",
+      paramLabel = "<PATH>",
+      arity = "1")
+  private Path journalPath = null;
+
   @Override
   public boolean isEnabled() {
     return enabled;
@@ -133,6 +463,16 @@ public class PicoCliSlashingProtectionParameters implements SlashingProtectionPa
     return dbPoolConfigurationFile;
   }
 
+  @Override
+  public String getDbReplicaUrl() {
+    return dbReplicaUrl;
+  }
+
+  @Override
+  public long getDbReplicaMaxLagMilliseconds() {
+    return dbReplicaMaxLagMilliseconds;
+  }
+
   @Override
   public boolean isPruningEnabled() {
     return pruningEnabled;
@@ -172,4 +512,184 @@ public class PicoCliSlashingProtectionParameters implements SlashingProtectionPa
   public long getDbHealthCheckIntervalMilliseconds() {
     return dbHealthCheckIntervalMilliseconds;
   }
+
+  @Override
+  public boolean isHistoryCacheEnabled() {
+    return historyCacheEnabled;
+  }
+
+  @Override
+  public long getHistoryCacheEpochs() {
+    return historyCacheEpochs;
+  }
+
+  @Override
+  public boolean isAttestationBatchingEnabled() {
+    return attestationBatchingEnabled;
+  }
+
+  @Override
+  public long getAttestationBatchWindowMicroseconds() {
+    return attestationBatchWindowMicroseconds;
+  }
+
+  @Override
+  public int getAttestationBatchMaxSize() {
+    return attestationBatchMaxSize;
+  }
+
+  @Override
+  public boolean isDbFunctionsEnabled() {
+    return dbFunctionsEnabled;
+  }
+
+  @Override
+  public boolean isEnabledStatusCacheEnabled() {
+    return enabledStatusCacheEnabled;
+  }
+
+  @Override
+  public boolean isReactiveClientEnabled() {
+    return reactiveClientEnabled;
+  }
+
+  @Override
+  public int getReactiveClientPoolSize() {
+    return reactiveClientPoolSize;
+  }
+
+  @Override
+  public long getSlowLockWaitThresholdMilliseconds() {
+    return slowLockWaitThresholdMilliseconds;
+  }
+
+  @Override
+  public boolean isConcurrentSigningEnabled() {
+    return concurrentSigningEnabled;
+  }
+
+  @Override
+  public boolean isSignatureCacheEnabled() {
+    return signatureCacheEnabled;
+  }
+
+  @Override
+  public long getSignatureCacheSize() {
+    return signatureCacheSize;
+  }
+
+  @Override
+  public long getSignatureCacheExpirySeconds() {
+    return signatureCacheExpirySeconds;
+  }
+
+  @Override
+  public boolean isShardLeasingEnabled() {
+    return shardLeasingEnabled;
+  }
+
+  @Override
+  public int getShardCount() {
+    return shardCount;
+  }
+
+  @Override
+  public long getShardLeaseDurationMilliseconds() {
+    return shardLeaseDurationMilliseconds;
+  }
+
+  @Override
+  public int getRegistrationChunkSize() {
+    return registrationChunkSize;
+  }
+
+  @Override
+  public int getRegistrationThreads() {
+    return registrationThreads;
+  }
+
+  @Override
+  public boolean isSurroundIndexEnabled() {
+    return surroundIndexEnabled;
+  }
+
+  @Override
+  public boolean isCircuitBreakerEnabled() {
+    return circuitBreakerEnabled;
+  }
+
+  @Override
+  public int getCircuitBreakerFailureRateThreshold() {
+    return circuitBreakerFailureRateThreshold;
+  }
+
+  @Override
+  public long getCircuitBreakerSlowCallThresholdMilliseconds() {
+    return circuitBreakerSlowCallThresholdMilliseconds;
+  }
+
+  @Override
+  public int getCircuitBreakerWindowSize() {
+    return circuitBreakerWindowSize;
+  }
+
+  @Override
+  public long getCircuitBreakerOpenDurationMilliseconds() {
+    return circuitBreakerOpenDurationMilliseconds;
+  }
+
+  @Override
+  public Path getJournalPath() {
+    return journalPath;
+  }
+
+  @Override
+  public boolean isPruningChunkedEnabled() {
+    return pruningChunkedEnabled;
+  }
+
+  @Override
+  public int getPruningThreads() {
+    return pruningThreads;
+  }
+
+  @Override
+  public int getPruningChunkSize() {
+    return pruningChunkSize;
+  }
+
+  @Override
+  public long getPruningMaxRowsPerSecond() {
+    return pruningMaxRowsPerSecond;
+  }
+
+  @Override
+  public boolean isInlinePruningEnabled() {
+    return inlinePruningEnabled;
+  }
+
+  @Override
+  public int getInlinePruningMaxRows() {
+    return inlinePruningMaxRows;
+  }
+
+  @Override
+  public int getImportBatchSize() {
+    return importBatchSize;
+  }
+
+  @Override
+  public int getImportThreads() {
+    return importThreads;
+  }
+
+  @Override
+  public boolean isImportStagingEnabled() {
+    return importStagingEnabled;
+  }
+
+  @Override
+  public int getExportThreads() {
+    return exportThreads;
+  }
 }
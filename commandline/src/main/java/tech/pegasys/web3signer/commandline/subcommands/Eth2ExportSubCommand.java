@@ -16,13 +16,17 @@ import tech.pegasys.web3signer.core.InitializationException;
 import tech.pegasys.web3signer.slashingprotection.SlashingProtectionContext;
 import tech.pegasys.web3signer.slashingprotection.SlashingProtectionContextFactory;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.HelpCommand;
@@ -37,6 +41,7 @@ import picocli.CommandLine.Spec;
     subcommands = {HelpCommand.class},
     mixinStandardHelpOptions = true)
 public class Eth2ExportSubCommand implements Runnable {
+  private static final Logger LOG = LogManager.getLogger();
 
   @Spec private CommandSpec spec;
 
@@ -48,23 +53,44 @@ public class Eth2ExportSubCommand implements Runnable {
           "The file into which interchange formatted data is to exported from the slashing database")
   File output;
 
+  @Option(
+      names = "--gzip",
+      description = "Set to true to gzip compress the exported file (default: ${DEFAULT-VALUE})",
+      paramLabel = "<BOOL>",
+      arity = "1")
+  boolean gzip = false;
+
+  @Option(
+      names = "--since",
+      description =
+          "Only export signed data recorded since the checkpoint logged by a previous export",
+      paramLabel = "<CHECKPOINT>")
+  Long since;
+
   @Override
   public void run() {
     if (output == null) {
       throw new MissingParameterException(
           spec.commandLine(), spec.findOption("--to"), "--to has not been specified");
-    } else if (StringUtils.isEmpty(eth2Config.getSlashingProtectionParameters().getDbUrl())) {
+    } else if (StringUtils.isEmpty(eth2Config.getSlashingProtectionParameters().getDbUrl())
+        && eth2Config.getSlashingProtectionParameters().getJournalPath() == null) {
       throw new MissingParameterException(
           spec.parent().commandLine(),
           spec.findOption("--slashing-protection-db-url"),
           "--slashing-protection-db-url has not been specified");
     }
 
-    try (final OutputStream outStream = new FileOutputStream(output)) {
+    try (final OutputStream outStream = createOutputStream()) {
       final SlashingProtectionContext slashingProtectionContext =
           SlashingProtectionContextFactory.create(eth2Config.getSlashingProtectionParameters());
 
-      slashingProtectionContext.getSlashingProtection().exportData(outStream);
+      if (since == null) {
+        slashingProtectionContext.getSlashingProtection().exportData(outStream);
+      } else {
+        final long nextCheckpoint =
+            slashingProtectionContext.getSlashingProtection().exportDataSince(outStream, since);
+        LOG.info("Delta export complete, use --since={} for the next export", nextCheckpoint);
+      }
     } catch (final IOException e) {
       throw new UncheckedIOException("Unable to find output target file", e);
     } catch (final IllegalStateException e) {
@@ -74,4 +100,9 @@ public class Eth2ExportSubCommand implements Runnable {
           "Failed to initialise Slashing Protection: " + e.getMessage(), e);
     }
   }
+
+  private OutputStream createOutputStream() throws IOException {
+    final OutputStream fileStream = new BufferedOutputStream(new FileOutputStream(output));
+    return gzip ? new GZIPOutputStream(fileStream) : fileStream;
+  }
 }
@@ -16,11 +16,13 @@ import tech.pegasys.web3signer.core.InitializationException;
 import tech.pegasys.web3signer.slashingprotection.SlashingProtectionContext;
 import tech.pegasys.web3signer.slashingprotection.SlashingProtectionContextFactory;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.lang3.StringUtils;
 import picocli.CommandLine;
@@ -45,7 +47,7 @@ public class Eth2ImportSubCommand implements Runnable {
   @Option(
       names = "--from",
       description =
-          "The file from which the slashing protection database is to be imported. File is in interchange format")
+          "The file from which the slashing protection database is to be imported. File is in interchange format and may be gzip compressed")
   File from;
 
   @Override
@@ -53,14 +55,15 @@ public class Eth2ImportSubCommand implements Runnable {
     if (from == null) {
       throw new MissingParameterException(
           spec.commandLine(), spec.findOption("--from"), "--from has not been specified");
-    } else if (StringUtils.isEmpty(eth2Config.getSlashingProtectionParameters().getDbUrl())) {
+    } else if (StringUtils.isEmpty(eth2Config.getSlashingProtectionParameters().getDbUrl())
+        && eth2Config.getSlashingProtectionParameters().getJournalPath() == null) {
       throw new MissingParameterException(
           spec.parent().commandLine(),
           spec.findOption("--slashing-protection-db-url"),
           "--slashing-protection-db-url has not been specified");
     }
 
-    try (final InputStream inStream = new FileInputStream(from)) {
+    try (final InputStream inStream = createInputStream()) {
       final SlashingProtectionContext slashingProtectionContext =
           SlashingProtectionContextFactory.create(eth2Config.getSlashingProtectionParameters());
 
@@ -74,4 +77,12 @@ public class Eth2ImportSubCommand implements Runnable {
           "Failed to initialise Slashing Protection: " + e.getMessage(), e);
     }
   }
+
+  private InputStream createInputStream() throws IOException {
+    final InputStream fileStream = new BufferedInputStream(new FileInputStream(from));
+    fileStream.mark(2);
+    final int magic = fileStream.read() | (fileStream.read() << 8);
+    fileStream.reset();
+    return magic == GZIPInputStream.GZIP_MAGIC ? new GZIPInputStream(fileStream) : fileStream;
+  }
 }
@@ -184,16 +184,150 @@ public class Eth2SubCommand extends ModeSubCommand {
     }
 
     if (slashingProtectionParameters.isEnabled()
-        && slashingProtectionParameters.getDbUrl() == null) {
+        && slashingProtectionParameters.getDbUrl() == null
+        && slashingProtectionParameters.getJournalPath() == null) {
       throw new ParameterException(
           commandSpec.commandLine(), "Missing slashing protection database url");
     }
 
+    if (slashingProtectionParameters.getJournalPath() != null
+        && (slashingProtectionParameters.getDbUrl() != null
+            || slashingProtectionParameters.getDbReplicaUrl() != null
+            || slashingProtectionParameters.isHistoryCacheEnabled()
+            || slashingProtectionParameters.isAttestationBatchingEnabled()
+            || slashingProtectionParameters.isDbFunctionsEnabled()
+            || slashingProtectionParameters.isEnabledStatusCacheEnabled()
+            || slashingProtectionParameters.isReactiveClientEnabled()
+            || slashingProtectionParameters.isShardLeasingEnabled()
+            || slashingProtectionParameters.isSurroundIndexEnabled()
+            || slashingProtectionParameters.isCircuitBreakerEnabled()
+            || slashingProtectionParameters.isPruningChunkedEnabled()
+            || slashingProtectionParameters.isInlinePruningEnabled())) {
+      throw new ParameterException(
+          commandSpec.commandLine(),
+          "Slashing protection journal cannot be used with a slashing protection database or its options");
+    }
+
+    if (slashingProtectionParameters.isDbFunctionsEnabled()
+        && (slashingProtectionParameters.isHistoryCacheEnabled()
+            || slashingProtectionParameters.isAttestationBatchingEnabled())) {
+      throw new ParameterException(
+          commandSpec.commandLine(),
+          "Slashing protection database functions cannot be used with the history cache or attestation batching");
+    }
+
+    if (slashingProtectionParameters.isInlinePruningEnabled()
+        && (slashingProtectionParameters.isHistoryCacheEnabled()
+            || slashingProtectionParameters.isAttestationBatchingEnabled()
+            || slashingProtectionParameters.isDbFunctionsEnabled())) {
+      throw new ParameterException(
+          commandSpec.commandLine(),
+          "Slashing protection inline pruning cannot be used with the history cache, attestation batching or database functions");
+    }
+
+    if (slashingProtectionParameters.isReactiveClientEnabled()
+        && (slashingProtectionParameters.isHistoryCacheEnabled()
+            || slashingProtectionParameters.isAttestationBatchingEnabled()
+            || slashingProtectionParameters.isInlinePruningEnabled())) {
+      throw new ParameterException(
+          commandSpec.commandLine(),
+          "Slashing protection reactive client cannot be used with the history cache, attestation batching or inline pruning");
+    }
+
+    if (slashingProtectionParameters.isConcurrentSigningEnabled()
+        && slashingProtectionParameters.isReactiveClientEnabled()) {
+      throw new ParameterException(
+          commandSpec.commandLine(),
+          "Concurrent signing cannot be used with the slashing protection reactive client");
+    }
+
+    if (slashingProtectionParameters.isCircuitBreakerEnabled()
+        && slashingProtectionParameters.isReactiveClientEnabled()) {
+      throw new ParameterException(
+          commandSpec.commandLine(),
+          "Slashing protection circuit breaker cannot be used with the slashing protection reactive client");
+    }
+
+    if (slashingProtectionParameters.isShardLeasingEnabled()
+        && !slashingProtectionParameters.isHistoryCacheEnabled()) {
+      throw new ParameterException(
+          commandSpec.commandLine(),
+          "Slashing protection shard leasing requires the history cache to be enabled");
+    }
+
+    // the cache only sees another instance's signings when a validator is reloaded, so it is only
+    // safe while a shard lease keeps every other instance from signing for the same validators
+    if (slashingProtectionParameters.isHistoryCacheEnabled()
+        && !slashingProtectionParameters.isShardLeasingEnabled()) {
+      throw new ParameterException(
+          commandSpec.commandLine(),
+          "Slashing protection history cache requires shard leasing to be enabled");
+    }
+
     validatePositiveValue(
         slashingProtectionParameters.getPruningEpochsToKeep(), "Pruning epochsToKeep");
     validatePositiveValue(slashingProtectionParameters.getPruningInterval(), "Pruning interval");
     validatePositiveValue(
         slashingProtectionParameters.getPruningSlotsPerEpoch(), "Pruning slots per epoch");
+    validatePositiveValue(
+        slashingProtectionParameters.getHistoryCacheEpochs(), "History cache epochs");
+    validatePositiveValue(
+        slashingProtectionParameters.getAttestationBatchWindowMicroseconds(),
+        "Attestation batch window microseconds");
+    validatePositiveValue(
+        slashingProtectionParameters.getAttestationBatchMaxSize(), "Attestation batch max size");
+    validatePositiveValue(slashingProtectionParameters.getPruningThreads(), "Pruning threads");
+    validatePositiveValue(slashingProtectionParameters.getPruningChunkSize(), "Pruning chunk size");
+    validatePositiveValue(
+        slashingProtectionParameters.getPruningMaxRowsPerSecond(), "Pruning max rows per second");
+    validatePositiveValue(
+        slashingProtectionParameters.getInlinePruningMaxRows(), "Inline pruning max rows");
+    validatePositiveValue(slashingProtectionParameters.getImportThreads(), "Import threads");
+    validatePositiveValue(slashingProtectionParameters.getExportThreads(), "Export threads");
+    validatePositiveValue(
+        slashingProtectionParameters.getReactiveClientPoolSize(), "Reactive client pool size");
+    validatePositiveValue(
+        slashingProtectionParameters.getSlowLockWaitThresholdMilliseconds(),
+        "Slow lock wait threshold milliseconds");
+    validatePositiveValue(
+        slashingProtectionParameters.getSignatureCacheSize(), "Signature cache size");
+    validatePositiveValue(
+        slashingProtectionParameters.getSignatureCacheExpirySeconds(),
+        "Signature cache expiry seconds");
+    validatePositiveValue(slashingProtectionParameters.getShardCount(), "Shard count");
+    validatePositiveValue(
+        slashingProtectionParameters.getShardLeaseDurationMilliseconds(),
+        "Shard lease duration milliseconds");
+    validatePositiveValue(
+        slashingProtectionParameters.getRegistrationChunkSize(), "Registration chunk size");
+    validatePositiveValue(
+        slashingProtectionParameters.getRegistrationThreads(), "Registration threads");
+    validatePositiveValue(
+        slashingProtectionParameters.getDbReplicaMaxLagMilliseconds(),
+        "Database replica max lag milliseconds");
+    validatePositiveValue(
+        slashingProtectionParameters.getCircuitBreakerSlowCallThresholdMilliseconds(),
+        "Circuit breaker slow call threshold milliseconds");
+    validatePositiveValue(
+        slashingProtectionParameters.getCircuitBreakerWindowSize(), "Circuit breaker window size");
+    validatePositiveValue(
+        slashingProtectionParameters.getCircuitBreakerOpenDurationMilliseconds(),
+        "Circuit breaker open duration milliseconds");
+    if (slashingProtectionParameters.getCircuitBreakerFailureRateThreshold() < 1
+        || slashingProtectionParameters.getCircuitBreakerFailureRateThreshold() > 100) {
+      throw new ParameterException(
+          commandSpec.commandLine(),
+          String.format(
+              "Circuit breaker failure rate threshold must be between 1 and 100. Value was %d.",
+              slashingProtectionParameters.getCircuitBreakerFailureRateThreshold()));
+    }
+    if (slashingProtectionParameters.getImportBatchSize() < 0) {
+      throw new ParameterException(
+          commandSpec.commandLine(),
+          String.format(
+              "Import batch size must be 0 or more. Value was %d.",
+              slashingProtectionParameters.getImportBatchSize()));
+    }
 
     validateAzureParameters();
     validateKeystoreParameters(keystoreParameters);
@@ -185,6 +185,21 @@ class CommandlineParserTest {
             "Error parsing parameters: Pruning slots per epoch must be 1 or more. Value was 0.");
   }
 
+  @Test
+  void eth2SubcommandSlashingHistoryCacheRequiresShardLeasing() {
+    String cmdline = validBaseCommandOptions();
+    cmdline =
+        cmdline
+            + "eth2 --slashing-protection-db-url=jdbc:mock --slashing-protection-history-cache-enabled=true";
+
+    parser.registerSubCommands(new MockEth2SubCommand());
+    final int result = parser.parseCommandLine(cmdline.split(" "));
+    assertThat(result).isNotZero();
+    assertThat(commandError.toString())
+        .contains(
+            "Error parsing parameters: Slashing protection history cache requires shard leasing to be enabled");
+  }
+
   @Test
   void eth2SubcommandSlashingDatabaseUrlNotRequiredWhenSlashingDisabled() {
     String cmdline = validBaseCommandOptions();
@@ -36,6 +36,7 @@ import tech.pegasys.web3signer.core.service.http.handlers.keymanager.imports.Imp
 import tech.pegasys.web3signer.core.service.http.handlers.keymanager.list.ListKeystoresHandler;
 import tech.pegasys.web3signer.core.service.http.handlers.signing.SignerForIdentifier;
 import tech.pegasys.web3signer.core.service.http.handlers.signing.eth2.Eth2SignForIdentifierHandler;
+import tech.pegasys.web3signer.core.service.http.handlers.signing.eth2.SignatureCache;
 import tech.pegasys.web3signer.core.service.http.metrics.HttpApiMetrics;
 import tech.pegasys.web3signer.signing.AWSBulkLoadingArtifactSignerProvider;
 import tech.pegasys.web3signer.signing.ArtifactSigner;
@@ -59,6 +60,8 @@ import tech.pegasys.web3signer.signing.config.metadata.SignerOrigin;
 import tech.pegasys.web3signer.signing.config.metadata.interlock.InterlockKeyProvider;
 import tech.pegasys.web3signer.signing.config.metadata.parser.YamlSignerParser;
 import tech.pegasys.web3signer.signing.config.metadata.yubihsm.YubiHsmOpaqueDataProvider;
+import tech.pegasys.web3signer.slashingprotection.AsyncSlashingProtection;
+import tech.pegasys.web3signer.slashingprotection.CircuitBreakerSlashingProtection;
 import tech.pegasys.web3signer.slashingprotection.DbHealthCheck;
 import tech.pegasys.web3signer.slashingprotection.DbPrunerRunner;
 import tech.pegasys.web3signer.slashingprotection.DbValidatorManager;
@@ -66,16 +69,19 @@ import tech.pegasys.web3signer.slashingprotection.SlashingProtectionContext;
 import tech.pegasys.web3signer.slashingprotection.SlashingProtectionContextFactory;
 import tech.pegasys.web3signer.slashingprotection.SlashingProtectionParameters;
 import tech.pegasys.web3signer.slashingprotection.dao.ValidatorsDao;
+import tech.pegasys.web3signer.slashingprotection.journal.JournalValidatorManager;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.vertx.core.Vertx;
 import io.vertx.ext.healthchecks.Status;
 import io.vertx.ext.web.Router;
@@ -126,7 +132,9 @@ public class Eth2Runner extends Runner {
       final SlashingProtectionParameters slashingProtectionParameters) {
     if (slashingProtectionParameters.isEnabled()) {
       try {
-        return Optional.of(SlashingProtectionContextFactory.create(slashingProtectionParameters));
+        return Optional.of(
+            SlashingProtectionContextFactory.create(
+                slashingProtectionParameters, getMetricsSystem()));
       } catch (final IllegalStateException e) {
         throw new InitializationException(e.getMessage(), e);
       }
@@ -147,16 +155,61 @@ public class Eth2Runner extends Runner {
         context.getArtifactSignerProvider(),
         context.getErrorHandler(),
         context.getMetricsSystem(),
-        slashingProtectionContext);
+        slashingProtectionContext,
+        createAsyncSlashingProtection(context.getVertx()),
+        createConcurrentSigningExecutor(),
+        createSignatureCache(context.getMetricsSystem()));
     return context.getRouterBuilder().createRouter();
   }
 
+  private Optional<SignatureCache> createSignatureCache(final MetricsSystem metricsSystem) {
+    if (slashingProtectionContext.isEmpty()
+        || !slashingProtectionParameters.isSignatureCacheEnabled()) {
+      return Optional.empty();
+    }
+    return Optional.of(
+        new SignatureCache(
+            slashingProtectionParameters.getSignatureCacheSize(),
+            slashingProtectionParameters.getSignatureCacheExpirySeconds(),
+            metricsSystem));
+  }
+
+  private Optional<Executor> createConcurrentSigningExecutor() {
+    if (slashingProtectionContext.isEmpty()
+        || !slashingProtectionParameters.isConcurrentSigningEnabled()) {
+      return Optional.empty();
+    }
+    // signing is CPU bound so the pool is sized to the available processors
+    return Optional.of(
+        Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            new ThreadFactoryBuilder()
+                .setNameFormat("concurrent-signing-%d")
+                .setDaemon(true)
+                .build()));
+  }
+
+  private Optional<AsyncSlashingProtection> createAsyncSlashingProtection(final Vertx vertx) {
+    if (!slashingProtectionParameters.isReactiveClientEnabled()) {
+      return Optional.empty();
+    }
+    return slashingProtectionContext
+        .filter(SlashingProtectionContext::isDatabaseBacked)
+        .map(
+            context ->
+                SlashingProtectionContextFactory.createAsyncSlashingProtection(
+                    vertx, slashingProtectionParameters, context.getRegisteredValidators()));
+  }
+
   private void registerEth2Routes(
       final RouterBuilder routerBuilder,
       final ArtifactSignerProvider blsSignerProvider,
       final LogErrorHandler errorHandler,
       final MetricsSystem metricsSystem,
-      final Optional<SlashingProtectionContext> slashingProtectionContext) {
+      final Optional<SlashingProtectionContext> slashingProtectionContext,
+      final Optional<AsyncSlashingProtection> asyncSlashingProtection,
+      final Optional<Executor> concurrentSigningExecutor,
+      final Optional<SignatureCache> signatureCache) {
     final ObjectMapper objectMapper = SigningObjectMapperFactory.createObjectMapper();
 
     // security handler for keymanager endpoints
@@ -185,6 +238,10 @@ public class Eth2Runner extends Runner {
                     new HttpApiMetrics(metricsSystem, BLS, blsSignerProvider),
                     new SlashingProtectionMetrics(metricsSystem),
                     slashingProtectionContext.map(SlashingProtectionContext::getSlashingProtection),
+                    asyncSlashingProtection,
+                    concurrentSigningExecutor,
+                    signatureCache,
+                    slashingProtectionContext.flatMap(SlashingProtectionContext::getShardLeases),
                     objectMapper,
                     eth2Spec),
                 false))
@@ -242,6 +299,12 @@ public class Eth2Runner extends Runner {
     if (slashingProtectionContext.isPresent()) {
       final SlashingProtectionContext slashingProtectionContext =
           this.slashingProtectionContext.get();
+      if (!slashingProtectionContext.isDatabaseBacked()) {
+        return new JournalValidatorManager(
+            fileValidatorManager,
+            slashingProtectionContext.getRegisteredValidators(),
+            slashingProtectionContext.getSlashingProtection());
+      }
       return new DbValidatorManager(
           fileValidatorManager,
           slashingProtectionContext.getRegisteredValidators(),
@@ -338,7 +401,12 @@ public class Eth2Runner extends Runner {
     if (pruningEnabled && slashingProtectionContext.isPresent()) {
       scheduleAndExecuteInitialDbPruning();
     }
-    slashingProtectionContext.ifPresent(this::scheduleDbHealthCheck);
+    slashingProtectionContext
+        .filter(SlashingProtectionContext::isDatabaseBacked)
+        .ifPresent(this::scheduleDbHealthCheck);
+    slashingProtectionContext
+        .flatMap(SlashingProtectionContext::getCircuitBreaker)
+        .ifPresent(this::registerCircuitBreakerHealthCheck);
   }
 
   private void scheduleDbHealthCheck(final SlashingProtectionContext protectionContext) {
@@ -358,6 +426,17 @@ public class Eth2Runner extends Runner {
         promise -> promise.complete(dbHealthCheck.isDbUp() ? Status.OK() : Status.KO()));
   }
 
+  private void registerCircuitBreakerHealthCheck(
+      final CircuitBreakerSlashingProtection circuitBreaker) {
+    super.registerHealthCheckProcedure(
+        "slashing-protection-circuit-breaker",
+        promise ->
+            promise.complete(
+                circuitBreaker.getState() == CircuitBreakerSlashingProtection.State.CLOSED
+                    ? Status.OK()
+                    : Status.KO()));
+  }
+
   private void scheduleAndExecuteInitialDbPruning() {
     final DbPrunerRunner dbPrunerRunner =
         new DbPrunerRunner(
@@ -78,10 +78,18 @@ public abstract class Runner implements Runnable {
 
   protected final Config config;
 
+  private final MetricsEndpoint metricsEndpoint;
   private HealthCheckHandler healthCheckHandler;
 
   protected Runner(final Config config) {
     this.config = config;
+    this.metricsEndpoint =
+        new MetricsEndpoint(
+            config.isMetricsEnabled(),
+            config.getMetricsPort(),
+            config.getMetricsNetworkInterface(),
+            config.getMetricCategories(),
+            config.getMetricsHostAllowList());
   }
 
   @Override
@@ -91,15 +99,7 @@ public abstract class Runner implements Runnable {
       Configurator.setRootLevel(config.getLogLevel());
     }
 
-    final MetricsEndpoint metricsEndpoint =
-        new MetricsEndpoint(
-            config.isMetricsEnabled(),
-            config.getMetricsPort(),
-            config.getMetricsNetworkInterface(),
-            config.getMetricCategories(),
-            config.getMetricsHostAllowList());
-
-    final MetricsSystem metricsSystem = metricsEndpoint.getMetricsSystem();
+    final MetricsSystem metricsSystem = getMetricsSystem();
 
     final Vertx vertx = Vertx.vertx(createVertxOptions(metricsSystem));
     final LogErrorHandler errorHandler = new LogErrorHandler();
@@ -188,6 +188,10 @@ public abstract class Runner implements Runnable {
     }
   }
 
+  protected MetricsSystem getMetricsSystem() {
+    return metricsEndpoint.getMetricsSystem();
+  }
+
   private void createVersionMetric(MetricsSystem metricsSystem) {
     metricsSystem
         .createLabelledGauge(
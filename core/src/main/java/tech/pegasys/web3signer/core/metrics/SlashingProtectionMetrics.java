@@ -14,6 +14,8 @@ package tech.pegasys.web3signer.core.metrics;
 
 import static tech.pegasys.web3signer.common.Web3SignerMetricCategory.ETH2_SLASHING_PROTECTION;
 
+import java.util.concurrent.TimeUnit;
+
 import org.hyperledger.besu.plugin.services.MetricsSystem;
 import org.hyperledger.besu.plugin.services.metrics.Counter;
 import org.hyperledger.besu.plugin.services.metrics.LabelledMetric;
@@ -24,6 +26,8 @@ public class SlashingProtectionMetrics {
   private final Counter preventedSignings;
   private final Counter permittedSignings;
   private final LabelledMetric<OperationTimer> databaseTimer;
+  private final LabelledMetric<Counter> concurrentSignings;
+  private final LabelledMetric<Counter> concurrentSigningSavedTime;
 
   public SlashingProtectionMetrics(final MetricsSystem metricsSystem) {
     this.permittedSignings =
@@ -44,6 +48,20 @@ public class SlashingProtectionMetrics {
             "database_duration",
             "Time spent reading and writing to the slashing database while signing",
             "signingOperation");
+
+    this.concurrentSignings =
+        metricsSystem.createLabelledCounter(
+            ETH2_SLASHING_PROTECTION,
+            "concurrent_signings",
+            "The number of signatures computed while the slashing database check was running",
+            "signingOperation");
+
+    this.concurrentSigningSavedTime =
+        metricsSystem.createLabelledCounter(
+            ETH2_SLASHING_PROTECTION,
+            "concurrent_signing_saved_microseconds",
+            "Time saved by computing signatures while the slashing database check was running",
+            "signingOperation");
   }
 
   public void incrementSigningsPrevented() {
@@ -57,4 +75,11 @@ public class SlashingProtectionMetrics {
   public LabelledMetric<OperationTimer> getDatabaseTimer() {
     return databaseTimer;
   }
+
+  public void recordConcurrentSigning(final String signingOperation, final long savedNanos) {
+    concurrentSignings.labels(signingOperation).inc();
+    concurrentSigningSavedTime
+        .labels(signingOperation)
+        .inc(TimeUnit.NANOSECONDS.toMicros(Math.max(savedNanos, 0)));
+  }
 }
@@ -51,6 +51,16 @@ public class SignerForIdentifier<T extends ArtifactSignature> {
     return signerProvider.getSigner(identifier).map(signer -> formatSignature(signer.sign(data)));
   }
 
+  /**
+   * Checks whether a signer is available for the given identifier
+   *
+   * @param identifier The identifier of the signer.
+   * @return true if a signer is available for the identifier
+   */
+  public boolean isSignerAvailable(final String identifier) {
+    return signerProvider.getSigner(identifier).isPresent();
+  }
+
   /**
    * Converts hex string to bytes
    *
@@ -32,13 +32,22 @@ import tech.pegasys.web3signer.core.service.http.ArtifactType;
 import tech.pegasys.web3signer.core.service.http.handlers.signing.SignerForIdentifier;
 import tech.pegasys.web3signer.core.service.http.metrics.HttpApiMetrics;
 import tech.pegasys.web3signer.core.util.DepositSigningRootUtil;
+import tech.pegasys.web3signer.slashingprotection.AsyncSlashingProtection;
 import tech.pegasys.web3signer.slashingprotection.SlashingProtection;
+import tech.pegasys.web3signer.slashingprotection.SlashingProtectionUnavailableException;
+import tech.pegasys.web3signer.slashingprotection.ValidatorShardLeases;
 
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -54,6 +63,7 @@ import org.apache.tuweni.bytes.Bytes;
 import org.apache.tuweni.bytes.Bytes32;
 import org.apache.tuweni.units.bigints.UInt64;
 import org.hyperledger.besu.plugin.services.metrics.OperationTimer.TimingContext;
+import org.jdbi.v3.core.JdbiException;
 
 public class Eth2SignForIdentifierHandler implements Handler<RoutingContext> {
 
@@ -62,6 +72,10 @@ public class Eth2SignForIdentifierHandler implements Handler<RoutingContext> {
   private final HttpApiMetrics httpMetrics;
   private final SlashingProtectionMetrics slashingMetrics;
   private final Optional<SlashingProtection> slashingProtection;
+  private final Optional<AsyncSlashingProtection> asyncSlashingProtection;
+  private final Optional<Executor> concurrentSigningExecutor;
+  private final Optional<SignatureCache> signatureCache;
+  private final Optional<ValidatorShardLeases> shardLeases;
   private final ObjectMapper objectMapper;
   private final Spec eth2Spec;
   private final SigningRootUtil signingRootUtil;
@@ -69,18 +83,28 @@ public class Eth2SignForIdentifierHandler implements Handler<RoutingContext> {
   public static final int NOT_FOUND = 404;
   public static final int BAD_REQUEST = 400;
   public static final int SLASHING_PROTECTION_ENFORCED = 412;
+  public static final int VALIDATOR_NOT_SERVED = 421;
+  public static final int SLASHING_PROTECTION_UNAVAILABLE = 503;
 
   public Eth2SignForIdentifierHandler(
       final SignerForIdentifier<?> signerForIdentifier,
       final HttpApiMetrics httpMetrics,
       final SlashingProtectionMetrics slashingMetrics,
       final Optional<SlashingProtection> slashingProtection,
+      final Optional<AsyncSlashingProtection> asyncSlashingProtection,
+      final Optional<Executor> concurrentSigningExecutor,
+      final Optional<SignatureCache> signatureCache,
+      final Optional<ValidatorShardLeases> shardLeases,
       final ObjectMapper objectMapper,
       final Spec eth2Spec) {
     this.signerForIdentifier = signerForIdentifier;
     this.httpMetrics = httpMetrics;
     this.slashingMetrics = slashingMetrics;
     this.slashingProtection = slashingProtection;
+    this.asyncSlashingProtection = asyncSlashingProtection;
+    this.concurrentSigningExecutor = concurrentSigningExecutor;
+    this.signatureCache = signatureCache;
+    this.shardLeases = shardLeases;
     this.objectMapper = objectMapper;
     this.eth2Spec = eth2Spec;
     this.signingRootUtil = new SigningRootUtil(eth2Spec);
@@ -110,14 +134,66 @@ public class Eth2SignForIdentifierHandler implements Handler<RoutingContext> {
       }
 
       final String normalisedIdentifier = normaliseIdentifier(identifier);
-      if (slashingProtection.isPresent()) {
+      final Optional<String> slashingOperation = slashingOperation(eth2SigningRequestBody);
+      if (shardLeases.isPresent() && slashingOperation.isPresent()) {
+        final boolean servedHere;
+        try {
+          servedHere = shardLeases.get().isServedHere(Bytes.fromHexString(identifier));
+        } catch (final IllegalArgumentException e) {
+          handleInvalidRequest(routingContext, e);
+          return;
+        }
+        if (!servedHere) {
+          // leave the request for the instance leasing the validator's shard
+          LOG.debug("Validator {} is not in a shard leased by this instance", identifier);
+          routingContext.fail(VALIDATOR_NOT_SERVED);
+          return;
+        }
+      }
+
+      if (signatureCache.isPresent() && slashingOperation.isPresent()) {
+        // a retried request is answered with the signature already released for it, unless the
+        // validator can no longer be signed for, in which case the request is checked as usual
+        final Optional<String> cachedSignature =
+            signatureCache.get().get(slashingOperation.get(), normalisedIdentifier, signingRoot);
+        if (cachedSignature.isPresent()
+            && canReleaseCachedSignature(identifier, normalisedIdentifier)) {
+          respondWithSignature(routingContext, cachedSignature.get());
+          return;
+        }
+      }
+
+      if (asyncSlashingProtection.isPresent()) {
+        handleSigning(
+            routingContext,
+            signingRoot,
+            normalisedIdentifier,
+            signature ->
+                signWithAsyncSlashingProtection(
+                    routingContext,
+                    identifier,
+                    normalisedIdentifier,
+                    eth2SigningRequestBody,
+                    signingRoot,
+                    signature));
+      } else if (slashingProtection.isPresent()
+          && concurrentSigningExecutor.isPresent()
+          && slashingOperation.isPresent()) {
+        signConcurrentlyWithSlashingProtection(
+            routingContext, identifier, normalisedIdentifier, eth2SigningRequestBody, signingRoot);
+      } else if (slashingProtection.isPresent()) {
         handleSigning(
             routingContext,
             signingRoot,
             normalisedIdentifier,
             signature ->
                 signWithSlashingProtection(
-                    routingContext, identifier, eth2SigningRequestBody, signingRoot, signature));
+                    routingContext,
+                    identifier,
+                    normalisedIdentifier,
+                    eth2SigningRequestBody,
+                    signingRoot,
+                    signature));
       } else {
         handleSigning(
             routingContext,
@@ -128,6 +204,20 @@ public class Eth2SignForIdentifierHandler implements Handler<RoutingContext> {
     }
   }
 
+  private boolean canReleaseCachedSignature(
+      final String identifier, final String normalisedIdentifier) {
+    // the key may have been deleted or the validator disabled since the signature was released
+    try {
+      return signerForIdentifier.isSignerAvailable(normalisedIdentifier)
+          && slashingProtection
+              .map(sp -> sp.isEnabledValidator(Bytes.fromHexString(identifier)))
+              .orElse(true);
+    } catch (final RuntimeException e) {
+      LOG.debug("Unable to confirm validator {} can still sign", identifier, e);
+      return false;
+    }
+  }
+
   private void handleSigning(
       final RoutingContext routingContext,
       final Bytes signingRoot,
@@ -146,13 +236,14 @@ public class Eth2SignForIdentifierHandler implements Handler<RoutingContext> {
   private void signWithSlashingProtection(
       final RoutingContext routingContext,
       final String identifier,
+      final String normalisedIdentifier,
       final Eth2SigningRequestBody eth2SigningRequestBody,
       final Bytes signingRoot,
       final String signature) {
     try {
       if (maySign(Bytes.fromHexString(identifier), signingRoot, eth2SigningRequestBody)) {
-        slashingMetrics.incrementSigningsPermitted();
-        respondWithSignature(routingContext, signature);
+        respondWithPermittedSignature(
+            routingContext, normalisedIdentifier, eth2SigningRequestBody, signingRoot, signature);
       } else {
         slashingMetrics.incrementSigningsPrevented();
         LOG.debug("Signing not allowed due to slashing protection rules failing");
@@ -160,6 +251,154 @@ public class Eth2SignForIdentifierHandler implements Handler<RoutingContext> {
       }
     } catch (final IllegalArgumentException e) {
       handleInvalidRequest(routingContext, e);
+    } catch (final SlashingProtectionUnavailableException e) {
+      handleSlashingProtectionUnavailable(routingContext, e);
+    }
+  }
+
+  private void signConcurrentlyWithSlashingProtection(
+      final RoutingContext routingContext,
+      final String identifier,
+      final String normalisedIdentifier,
+      final Eth2SigningRequestBody eth2SigningRequestBody,
+      final Bytes signingRoot) {
+    if (!signerForIdentifier.isSignerAvailable(normalisedIdentifier)) {
+      httpMetrics.getMissingSignerCounter().inc();
+      routingContext.fail(NOT_FOUND);
+      return;
+    }
+
+    // the signature is computed while the slashing check runs but only released once permitted
+    final long start = System.nanoTime();
+    final AtomicLong signingNanos = new AtomicLong();
+    final CompletableFuture<Optional<String>> signatureFuture =
+        CompletableFuture.supplyAsync(
+            () -> {
+              final long signingStart = System.nanoTime();
+              try {
+                return signerForIdentifier.sign(normalisedIdentifier, signingRoot);
+              } finally {
+                signingNanos.set(System.nanoTime() - signingStart);
+              }
+            },
+            concurrentSigningExecutor.get());
+
+    final boolean permitted;
+    try {
+      permitted = maySign(Bytes.fromHexString(identifier), signingRoot, eth2SigningRequestBody);
+    } catch (final IllegalArgumentException e) {
+      handleInvalidRequest(routingContext, e);
+      return;
+    } catch (final SlashingProtectionUnavailableException e) {
+      handleSlashingProtectionUnavailable(routingContext, e);
+      return;
+    }
+    final long checkNanos = System.nanoTime() - start;
+
+    if (!permitted) {
+      slashingMetrics.incrementSigningsPrevented();
+      LOG.debug("Signing not allowed due to slashing protection rules failing");
+      routingContext.fail(SLASHING_PROTECTION_ENFORCED);
+      return;
+    }
+
+    final Optional<String> maybeSignature;
+    try {
+      maybeSignature = signatureFuture.join();
+    } catch (final CompletionException e) {
+      routingContext.fail(e.getCause());
+      return;
+    }
+    slashingMetrics.recordConcurrentSigning(
+        slashingOperation(eth2SigningRequestBody).orElseThrow(),
+        signingNanos.get() + checkNanos - (System.nanoTime() - start));
+
+    maybeSignature.ifPresentOrElse(
+        signature ->
+            respondWithPermittedSignature(
+                routingContext,
+                normalisedIdentifier,
+                eth2SigningRequestBody,
+                signingRoot,
+                signature),
+        () -> {
+          httpMetrics.getMissingSignerCounter().inc();
+          routingContext.fail(NOT_FOUND);
+        });
+  }
+
+  private void respondWithPermittedSignature(
+      final RoutingContext routingContext,
+      final String normalisedIdentifier,
+      final Eth2SigningRequestBody eth2SigningRequestBody,
+      final Bytes signingRoot,
+      final String signature) {
+    slashingMetrics.incrementSigningsPermitted();
+    if (slashingOperation(eth2SigningRequestBody).isPresent()) {
+      signatureCache.ifPresent(cache -> cache.put(normalisedIdentifier, signingRoot, signature));
+    }
+    respondWithSignature(routingContext, signature);
+  }
+
+  private Optional<String> slashingOperation(final Eth2SigningRequestBody eth2SigningRequestBody) {
+    switch (eth2SigningRequestBody.getType()) {
+      case BLOCK:
+      case BLOCK_V2:
+        return Optional.of("block");
+      case ATTESTATION:
+        return Optional.of("attestation");
+      default:
+        return Optional.empty();
+    }
+  }
+
+  private void signWithAsyncSlashingProtection(
+      final RoutingContext routingContext,
+      final String identifier,
+      final String normalisedIdentifier,
+      final Eth2SigningRequestBody eth2SigningRequestBody,
+      final Bytes signingRoot,
+      final String signature) {
+    final CompletableFuture<Boolean> maySign;
+    try {
+      maySign = maySignAsync(Bytes.fromHexString(identifier), signingRoot, eth2SigningRequestBody);
+    } catch (final IllegalArgumentException e) {
+      handleInvalidRequest(routingContext, e);
+      return;
+    }
+
+    // the response is sent once the database has replied, so this thread is released immediately
+    maySign.whenComplete(
+        (permitted, error) -> {
+          if (error != null) {
+            handleAsyncSlashingCheckFailure(routingContext, error);
+          } else if (permitted) {
+            respondWithPermittedSignature(
+                routingContext,
+                normalisedIdentifier,
+                eth2SigningRequestBody,
+                signingRoot,
+                signature);
+          } else {
+            slashingMetrics.incrementSigningsPrevented();
+            LOG.debug("Signing not allowed due to slashing protection rules failing");
+            routingContext.fail(SLASHING_PROTECTION_ENFORCED);
+          }
+        });
+  }
+
+  private void handleAsyncSlashingCheckFailure(
+      final RoutingContext routingContext, final Throwable error) {
+    // failures are mapped to the same responses as the blocking slashing check
+    final Throwable cause =
+        error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    if (cause instanceof SlashingProtectionUnavailableException) {
+      handleSlashingProtectionUnavailable(
+          routingContext, (SlashingProtectionUnavailableException) cause);
+    } else if (cause instanceof IllegalArgumentException) {
+      handleInvalidRequest(routingContext, (IllegalArgumentException) cause);
+    } else {
+      routingContext.fail(cause);
     }
   }
 
@@ -169,10 +408,33 @@ public class Eth2SignForIdentifierHandler implements Handler<RoutingContext> {
     routingContext.fail(BAD_REQUEST);
   }
 
+  private void handleSlashingProtectionUnavailable(
+      final RoutingContext routingContext, final SlashingProtectionUnavailableException e) {
+    // the signature is discarded, the validator client can retry once the database recovers
+    LOG.debug(e.getMessage());
+    routingContext.fail(SLASHING_PROTECTION_UNAVAILABLE);
+  }
+
   private boolean maySign(
       final Bytes publicKey,
       final Bytes signingRoot,
       final Eth2SigningRequestBody eth2SigningRequestBody) {
+    try {
+      return checkSlashingProtection(publicKey, signingRoot, eth2SigningRequestBody);
+    } catch (final JdbiException e) {
+      // reported the same as the reactive client, only a failed database call means unavailable
+      if (e.getCause() instanceof SQLException) {
+        throw new SlashingProtectionUnavailableException(
+            "Slashing protection database failed to evaluate signing check", e);
+      }
+      throw e;
+    }
+  }
+
+  private boolean checkSlashingProtection(
+      final Bytes publicKey,
+      final Bytes signingRoot,
+      final Eth2SigningRequestBody eth2SigningRequestBody) {
     final ForkInfo forkInfo = eth2SigningRequestBody.getForkInfo();
     switch (eth2SigningRequestBody.getType()) {
       case BLOCK:
@@ -200,20 +462,61 @@ public class Eth2SignForIdentifierHandler implements Handler<RoutingContext> {
     }
   }
 
+  private CompletableFuture<Boolean> maySignAsync(
+      final Bytes publicKey,
+      final Bytes signingRoot,
+      final Eth2SigningRequestBody eth2SigningRequestBody) {
+    final ForkInfo forkInfo = eth2SigningRequestBody.getForkInfo();
+    switch (eth2SigningRequestBody.getType()) {
+      case BLOCK:
+      case BLOCK_V2:
+        final UInt64 blockSlot = getBlockSlot(eth2SigningRequestBody);
+        return timeDatabaseCheck(
+            "block",
+            () ->
+                asyncSlashingProtection
+                    .get()
+                    .maySignBlock(
+                        publicKey, signingRoot, blockSlot, forkInfo.getGenesisValidatorsRoot()));
+      case ATTESTATION:
+        final AttestationData attestation = eth2SigningRequestBody.getAttestation();
+        return timeDatabaseCheck(
+            "attestation",
+            () ->
+                asyncSlashingProtection
+                    .get()
+                    .maySignAttestation(
+                        publicKey,
+                        signingRoot,
+                        toUInt64(attestation.source.epoch),
+                        toUInt64(attestation.target.epoch),
+                        forkInfo.getGenesisValidatorsRoot()));
+      default:
+        return CompletableFuture.completedFuture(true);
+    }
+  }
+
+  private CompletableFuture<Boolean> timeDatabaseCheck(
+      final String signingOperation, final Supplier<CompletableFuture<Boolean>> check) {
+    final TimingContext timingContext =
+        slashingMetrics.getDatabaseTimer().labels(signingOperation).startTimer();
+    return check.get().whenComplete((permitted, error) -> timingContext.stopTimer());
+  }
+
   private UInt64 getBlockSlot(final Eth2SigningRequestBody eth2SigningRequestBody) {
     final UInt64 blockSlot;
     if (eth2SigningRequestBody.getType() == ArtifactType.BLOCK) {
-      blockSlot = UInt64.valueOf(eth2SigningRequestBody.getBlock().slot.bigIntegerValue());
+      blockSlot = toUInt64(eth2SigningRequestBody.getBlock().slot);
     } else {
       final BlockRequest blockRequest = eth2SigningRequestBody.getBlockRequest();
       switch (blockRequest.getVersion()) {
         case PHASE0:
         case ALTAIR:
-          blockSlot = UInt64.valueOf(blockRequest.getBeaconBlock().slot.bigIntegerValue());
+          blockSlot = toUInt64(blockRequest.getBeaconBlock().slot);
           break;
         case BELLATRIX:
         default:
-          blockSlot = UInt64.valueOf(blockRequest.getBeaconBlockHeader().slot.bigIntegerValue());
+          blockSlot = toUInt64(blockRequest.getBeaconBlockHeader().slot);
           break;
       }
     }
@@ -357,7 +660,9 @@ public class Eth2SignForIdentifierHandler implements Handler<RoutingContext> {
   }
 
   private UInt64 toUInt64(final tech.pegasys.teku.infrastructure.unsigned.UInt64 uInt64) {
-    return UInt64.valueOf(uInt64.bigIntegerValue());
+    // longValue holds the unsigned bits, only values from 2^63 need the BigInteger conversion
+    final long value = uInt64.longValue();
+    return value >= 0 ? UInt64.valueOf(value) : UInt64.valueOf(uInt64.bigIntegerValue());
   }
 
   private void respondWithSignature(final RoutingContext routingContext, final String signature) {
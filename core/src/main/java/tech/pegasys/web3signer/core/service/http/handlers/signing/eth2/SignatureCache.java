@@ -0,0 +1,104 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.core.service.http.handlers.signing.eth2;
+
+import static tech.pegasys.web3signer.common.Web3SignerMetricCategory.ETH2_SLASHING_PROTECTION;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.tuweni.bytes.Bytes;
+import org.hyperledger.besu.plugin.services.MetricsSystem;
+import org.hyperledger.besu.plugin.services.metrics.Counter;
+import org.hyperledger.besu.plugin.services.metrics.LabelledMetric;
+
+/**
+ * Holds block and attestation signatures which have passed the slashing protection check, keyed by
+ * validator and signing root, so that retried signing requests can be answered without signing
+ * again or running the slashing protection check.
+ *
+ * <p>Only signatures which have been released are cached. Signing the same signing root again is
+ * always permitted by slashing protection, so returning the cached signature for it is safe. A
+ * cached signature is still only returned while the validator's key is loaded, the validator is
+ * enabled and its shard is leased by this instance.
+ */
+public class SignatureCache {
+  private static final String HIT = "hit";
+  private static final String MISS = "miss";
+
+  private final Cache<Key, String> signatures;
+  private final LabelledMetric<Counter> requestCounter;
+
+  public SignatureCache(
+      final long maximumSize, final long expirySeconds, final MetricsSystem metricsSystem) {
+    this.signatures =
+        CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(expirySeconds, TimeUnit.SECONDS)
+            .build();
+    this.requestCounter =
+        metricsSystem.createLabelledCounter(
+            ETH2_SLASHING_PROTECTION,
+            "signature_cache_requests",
+            "The number of signing requests looked up in the signature cache",
+            "signingOperation",
+            "result");
+    metricsSystem.createGauge(
+        ETH2_SLASHING_PROTECTION,
+        "signature_cache_size",
+        "Number of signatures held in the signature cache",
+        signatures::size);
+  }
+
+  public Optional<String> get(
+      final String signingOperation, final String identifier, final Bytes signingRoot) {
+    final Optional<String> signature =
+        Optional.ofNullable(signatures.getIfPresent(new Key(identifier, signingRoot)));
+    requestCounter.labels(signingOperation, signature.isPresent() ? HIT : MISS).inc();
+    return signature;
+  }
+
+  public void put(final String identifier, final Bytes signingRoot, final String signature) {
+    signatures.put(new Key(identifier, signingRoot), signature);
+  }
+
+  private static class Key {
+    private final String identifier;
+    private final Bytes signingRoot;
+
+    private Key(final String identifier, final Bytes signingRoot) {
+      this.identifier = identifier;
+      this.signingRoot = signingRoot;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final Key key = (Key) o;
+      return identifier.equals(key.identifier) && signingRoot.equals(key.signingRoot);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(identifier, signingRoot);
+    }
+  }
+}
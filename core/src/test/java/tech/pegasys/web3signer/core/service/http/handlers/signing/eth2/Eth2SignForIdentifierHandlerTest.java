@@ -0,0 +1,370 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.core.service.http.handlers.signing.eth2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static tech.pegasys.web3signer.core.service.http.handlers.signing.eth2.Eth2SignForIdentifierHandler.NOT_FOUND;
+import static tech.pegasys.web3signer.core.service.http.handlers.signing.eth2.Eth2SignForIdentifierHandler.SLASHING_PROTECTION_ENFORCED;
+import static tech.pegasys.web3signer.core.service.http.handlers.signing.eth2.Eth2SignForIdentifierHandler.SLASHING_PROTECTION_UNAVAILABLE;
+import static tech.pegasys.web3signer.core.service.http.handlers.signing.eth2.Eth2SignForIdentifierHandler.VALIDATOR_NOT_SERVED;
+
+import tech.pegasys.teku.api.schema.AttestationData;
+import tech.pegasys.teku.api.schema.Checkpoint;
+import tech.pegasys.teku.api.schema.Fork;
+import tech.pegasys.teku.infrastructure.bytes.Bytes4;
+import tech.pegasys.teku.infrastructure.unsigned.UInt64;
+import tech.pegasys.teku.spec.Spec;
+import tech.pegasys.teku.spec.TestSpecFactory;
+import tech.pegasys.web3signer.core.metrics.SlashingProtectionMetrics;
+import tech.pegasys.web3signer.core.service.http.ArtifactType;
+import tech.pegasys.web3signer.core.service.http.handlers.signing.SignerForIdentifier;
+import tech.pegasys.web3signer.core.service.http.metrics.HttpApiMetrics;
+import tech.pegasys.web3signer.slashingprotection.AsyncSlashingProtection;
+import tech.pegasys.web3signer.slashingprotection.SlashingProtection;
+import tech.pegasys.web3signer.slashingprotection.SlashingProtectionUnavailableException;
+import tech.pegasys.web3signer.slashingprotection.ValidatorShardLeases;
+
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.validation.RequestParameter;
+import io.vertx.ext.web.validation.RequestParameters;
+import io.vertx.ext.web.validation.ValidationHandler;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.bytes.Bytes32;
+import org.hyperledger.besu.metrics.noop.NoOpMetricsSystem;
+import org.jdbi.v3.core.ConnectionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class Eth2SignForIdentifierHandlerTest {
+  private static final String PUBLIC_KEY =
+      "0x989d34725a2bfc3f15105f3f5fc8741f436c25ee1ee4f948e425d6bcb8c56bce6e06c269635b7e985a7ffa639e2409bf";
+  private static final String SIGNATURE = "0xabcd";
+  private static final Spec SPEC = TestSpecFactory.createMinimalPhase0();
+
+  private final SignerForIdentifier<?> signerForIdentifier = mock(SignerForIdentifier.class);
+  private final SlashingProtection slashingProtection = mock(SlashingProtection.class);
+  private final AsyncSlashingProtection asyncSlashingProtection =
+      mock(AsyncSlashingProtection.class);
+  private final HttpApiMetrics httpMetrics = mock(HttpApiMetrics.class, RETURNS_DEEP_STUBS);
+  private final SlashingProtectionMetrics slashingMetrics =
+      mock(SlashingProtectionMetrics.class, RETURNS_DEEP_STUBS);
+  private final ObjectMapper objectMapper = mock(ObjectMapper.class);
+  private final RoutingContext routingContext = mock(RoutingContext.class, RETURNS_DEEP_STUBS);
+  private final HttpServerResponse response = mock(HttpServerResponse.class);
+  // signatures are computed on the calling thread so each check's outcome is deterministic
+  private final Executor concurrentSigningExecutor = Runnable::run;
+
+  private final SignatureCache signatureCache = new SignatureCache(10, 60, new NoOpMetricsSystem());
+
+  private Eth2SignForIdentifierHandler handler;
+
+  @BeforeEach
+  void setup() throws Exception {
+    final RequestParameters params = mock(RequestParameters.class);
+    final RequestParameter identifier = mock(RequestParameter.class);
+    when(identifier.toString()).thenReturn(PUBLIC_KEY);
+    when(params.pathParameter("identifier")).thenReturn(identifier);
+    when(params.body()).thenReturn(mock(RequestParameter.class));
+    when(routingContext.<RequestParameters>get(ValidationHandler.REQUEST_CONTEXT_KEY))
+        .thenReturn(params);
+    when(routingContext.response()).thenReturn(response);
+    when(response.putHeader(any(CharSequence.class), any(CharSequence.class)))
+        .thenReturn(response);
+    when(objectMapper.readValue(anyString(), eq(Eth2SigningRequestBody.class)))
+        .thenReturn(attestationRequest());
+
+    handler = createHandler(Optional.empty());
+  }
+
+  @Test
+  void unavailableAndNotServedResponsesUseDistinctStatusCodes() {
+    // a validator client retries elsewhere for a misdirected request but waits out an outage
+    assertThat(VALIDATOR_NOT_SERVED).isEqualTo(421);
+    assertThat(SLASHING_PROTECTION_UNAVAILABLE).isEqualTo(503);
+  }
+
+  @Test
+  void permittedCheckReleasesConcurrentlyComputedSignature() {
+    when(signerForIdentifier.isSignerAvailable(PUBLIC_KEY)).thenReturn(true);
+    when(signerForIdentifier.sign(eq(PUBLIC_KEY), any())).thenReturn(Optional.of(SIGNATURE));
+    when(slashingProtection.maySignAttestation(any(), any(), any(), any(), any()))
+        .thenReturn(true);
+
+    handler.handle(routingContext);
+
+    verify(response).end(SIGNATURE);
+    verify(slashingMetrics).incrementSigningsPermitted();
+  }
+
+  @Test
+  void rejectedCheckNeverReleasesConcurrentlyComputedSignature() {
+    when(signerForIdentifier.isSignerAvailable(PUBLIC_KEY)).thenReturn(true);
+    when(signerForIdentifier.sign(eq(PUBLIC_KEY), any())).thenReturn(Optional.of(SIGNATURE));
+    when(slashingProtection.maySignAttestation(any(), any(), any(), any(), any()))
+        .thenReturn(false);
+
+    handler.handle(routingContext);
+
+    verify(routingContext).fail(SLASHING_PROTECTION_ENFORCED);
+    verifyNoInteractions(response);
+    verify(slashingMetrics).incrementSigningsPrevented();
+    verify(slashingMetrics, never()).incrementSigningsPermitted();
+  }
+
+  @Test
+  void signerFailingAfterPermittedCheckKeepsRecordAndRespondsWithError() {
+    final RuntimeException signingFailure = new RuntimeException("signing failed");
+    when(signerForIdentifier.isSignerAvailable(PUBLIC_KEY)).thenReturn(true);
+    when(signerForIdentifier.sign(eq(PUBLIC_KEY), any())).thenThrow(signingFailure);
+    when(slashingProtection.maySignAttestation(any(), any(), any(), any(), any()))
+        .thenReturn(true);
+
+    handler.handle(routingContext);
+
+    verify(routingContext).fail(signingFailure);
+    verifyNoInteractions(response);
+    // the recorded attestation stays in place, a later request must not sign a conflicting one
+    verify(slashingProtection).maySignAttestation(any(), any(), any(), any(), any());
+    verifyNoMoreInteractions(slashingProtection);
+    verify(slashingMetrics, never()).incrementSigningsPermitted();
+  }
+
+  @Test
+  void signerRemovedAfterPermittedCheckRespondsNotFound() {
+    when(signerForIdentifier.isSignerAvailable(PUBLIC_KEY)).thenReturn(true);
+    when(signerForIdentifier.sign(eq(PUBLIC_KEY), any())).thenReturn(Optional.empty());
+    when(slashingProtection.maySignAttestation(any(), any(), any(), any(), any()))
+        .thenReturn(true);
+
+    handler.handle(routingContext);
+
+    verify(routingContext).fail(NOT_FOUND);
+    verify(httpMetrics.getMissingSignerCounter()).inc();
+    verify(slashingMetrics, never()).incrementSigningsPermitted();
+  }
+
+  @Test
+  void missingSignerIsRejectedWithoutWritingSlashingRecord() {
+    when(signerForIdentifier.isSignerAvailable(PUBLIC_KEY)).thenReturn(false);
+
+    handler.handle(routingContext);
+
+    verify(routingContext).fail(NOT_FOUND);
+    verify(httpMetrics.getMissingSignerCounter()).inc();
+    verifyNoInteractions(slashingProtection);
+    verify(signerForIdentifier, never()).sign(any(), any());
+  }
+
+  @Test
+  void cachedSignatureIsReleasedForRetriedRequest() {
+    handler = createHandler(Optional.of(signatureCache));
+    when(signerForIdentifier.isSignerAvailable(PUBLIC_KEY)).thenReturn(true);
+    when(signerForIdentifier.sign(eq(PUBLIC_KEY), any())).thenReturn(Optional.of(SIGNATURE));
+    when(slashingProtection.maySignAttestation(any(), any(), any(), any(), any()))
+        .thenReturn(true);
+    when(slashingProtection.isEnabledValidator(Bytes.fromHexString(PUBLIC_KEY))).thenReturn(true);
+
+    handler.handle(routingContext);
+    handler.handle(routingContext);
+
+    verify(response, times(2)).end(SIGNATURE);
+    verify(slashingProtection).maySignAttestation(any(), any(), any(), any(), any());
+  }
+
+  @Test
+  void cachedSignatureIsNotReleasedOnceSignerIsRemoved() {
+    handler = createHandler(Optional.of(signatureCache));
+    when(signerForIdentifier.isSignerAvailable(PUBLIC_KEY)).thenReturn(true, false);
+    when(signerForIdentifier.sign(eq(PUBLIC_KEY), any())).thenReturn(Optional.of(SIGNATURE));
+    when(slashingProtection.maySignAttestation(any(), any(), any(), any(), any()))
+        .thenReturn(true);
+
+    handler.handle(routingContext);
+    handler.handle(routingContext);
+
+    verify(response).end(SIGNATURE);
+    verify(routingContext).fail(NOT_FOUND);
+  }
+
+  @Test
+  void cachedSignatureIsNotReleasedOnceValidatorIsDisabled() {
+    handler = createHandler(Optional.of(signatureCache));
+    when(signerForIdentifier.isSignerAvailable(PUBLIC_KEY)).thenReturn(true);
+    when(signerForIdentifier.sign(eq(PUBLIC_KEY), any())).thenReturn(Optional.of(SIGNATURE));
+    when(slashingProtection.maySignAttestation(any(), any(), any(), any(), any()))
+        .thenReturn(true, false);
+    when(slashingProtection.isEnabledValidator(Bytes.fromHexString(PUBLIC_KEY))).thenReturn(false);
+
+    handler.handle(routingContext);
+    handler.handle(routingContext);
+
+    verify(response).end(SIGNATURE);
+    verify(routingContext).fail(SLASHING_PROTECTION_ENFORCED);
+  }
+
+  @Test
+  void cachedSignatureIsNotReleasedOnceShardLeaseIsLost() {
+    final ValidatorShardLeases shardLeases = mock(ValidatorShardLeases.class);
+    when(shardLeases.isServedHere(Bytes.fromHexString(PUBLIC_KEY))).thenReturn(true, false);
+    handler = createHandler(Optional.of(signatureCache), Optional.of(shardLeases));
+    when(signerForIdentifier.isSignerAvailable(PUBLIC_KEY)).thenReturn(true);
+    when(signerForIdentifier.sign(eq(PUBLIC_KEY), any())).thenReturn(Optional.of(SIGNATURE));
+    when(slashingProtection.maySignAttestation(any(), any(), any(), any(), any()))
+        .thenReturn(true);
+
+    handler.handle(routingContext);
+    handler.handle(routingContext);
+
+    verify(response).end(SIGNATURE);
+    verify(routingContext).fail(VALIDATOR_NOT_SERVED);
+  }
+
+  @Test
+  void permittedAsyncCheckReleasesSignature() {
+    handler = createAsyncHandler();
+    when(signerForIdentifier.sign(eq(PUBLIC_KEY), any())).thenReturn(Optional.of(SIGNATURE));
+    when(asyncSlashingProtection.maySignAttestation(any(), any(), any(), any(), any()))
+        .thenReturn(CompletableFuture.completedFuture(true));
+
+    handler.handle(routingContext);
+
+    verify(response).end(SIGNATURE);
+    verify(slashingMetrics).incrementSigningsPermitted();
+  }
+
+  @Test
+  void asyncCheckFailingAsUnavailableRespondsWithUnavailableStatus() {
+    handler = createAsyncHandler();
+    when(signerForIdentifier.sign(eq(PUBLIC_KEY), any())).thenReturn(Optional.of(SIGNATURE));
+    when(asyncSlashingProtection.maySignAttestation(any(), any(), any(), any(), any()))
+        .thenReturn(
+            CompletableFuture.failedFuture(
+                new SlashingProtectionUnavailableException("database unavailable")));
+
+    handler.handle(routingContext);
+
+    verify(routingContext).fail(SLASHING_PROTECTION_UNAVAILABLE);
+    verifyNoInteractions(response);
+  }
+
+  @Test
+  void asyncCheckFailingUnexpectedlyFailsRequestWithCause() {
+    handler = createAsyncHandler();
+    final RuntimeException failure = new RuntimeException("unexpected");
+    when(signerForIdentifier.sign(eq(PUBLIC_KEY), any())).thenReturn(Optional.of(SIGNATURE));
+    when(asyncSlashingProtection.maySignAttestation(any(), any(), any(), any(), any()))
+        .thenReturn(CompletableFuture.failedFuture(failure));
+
+    handler.handle(routingContext);
+
+    verify(routingContext).fail(failure);
+    verifyNoInteractions(response);
+  }
+
+  @Test
+  void blockingCheckFailingDatabaseCallRespondsWithUnavailableStatus() {
+    when(signerForIdentifier.isSignerAvailable(PUBLIC_KEY)).thenReturn(true);
+    when(signerForIdentifier.sign(eq(PUBLIC_KEY), any())).thenReturn(Optional.of(SIGNATURE));
+    when(slashingProtection.maySignAttestation(any(), any(), any(), any(), any()))
+        .thenThrow(new ConnectionException(new SQLException("connection refused")));
+
+    handler.handle(routingContext);
+
+    verify(routingContext).fail(SLASHING_PROTECTION_UNAVAILABLE);
+    verifyNoInteractions(response);
+  }
+
+  private Eth2SignForIdentifierHandler createAsyncHandler() {
+    return new Eth2SignForIdentifierHandler(
+        signerForIdentifier,
+        httpMetrics,
+        slashingMetrics,
+        Optional.of(slashingProtection),
+        Optional.of(asyncSlashingProtection),
+        Optional.empty(),
+        Optional.empty(),
+        Optional.empty(),
+        objectMapper,
+        SPEC);
+  }
+
+  private Eth2SignForIdentifierHandler createHandler(
+      final Optional<SignatureCache> signatureCache) {
+    return createHandler(signatureCache, Optional.empty());
+  }
+
+  private Eth2SignForIdentifierHandler createHandler(
+      final Optional<SignatureCache> signatureCache,
+      final Optional<ValidatorShardLeases> shardLeases) {
+    return new Eth2SignForIdentifierHandler(
+        signerForIdentifier,
+        httpMetrics,
+        slashingMetrics,
+        Optional.of(slashingProtection),
+        Optional.empty(),
+        Optional.of(concurrentSigningExecutor),
+        signatureCache,
+        shardLeases,
+        objectMapper,
+        SPEC);
+  }
+
+  private static Eth2SigningRequestBody attestationRequest() {
+    final Fork fork =
+        new Fork(
+            Bytes4.fromHexString("0x00000001"),
+            Bytes4.fromHexString("0x00000001"),
+            UInt64.valueOf(1));
+    final AttestationData attestationData =
+        new AttestationData(
+            UInt64.valueOf(32),
+            UInt64.ZERO,
+            Bytes32.ZERO,
+            new Checkpoint(UInt64.valueOf(10), Bytes32.ZERO),
+            new Checkpoint(UInt64.valueOf(20), Bytes32.ZERO));
+    return new Eth2SigningRequestBody(
+        ArtifactType.ATTESTATION,
+        null,
+        new ForkInfo(fork, Bytes32.ZERO),
+        null,
+        null,
+        attestationData,
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        null,
+        null);
+  }
+}
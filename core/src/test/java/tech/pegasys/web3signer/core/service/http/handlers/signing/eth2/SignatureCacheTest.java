@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.core.service.http.handlers.signing.eth2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.tuweni.bytes.Bytes;
+import org.hyperledger.besu.plugin.services.MetricsSystem;
+import org.hyperledger.besu.plugin.services.metrics.Counter;
+import org.hyperledger.besu.plugin.services.metrics.LabelledMetric;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SignatureCacheTest {
+  private static final String IDENTIFIER = "0x01";
+  private static final String OTHER_IDENTIFIER = "0x02";
+  private static final Bytes SIGNING_ROOT = Bytes.of(3);
+  private static final Bytes OTHER_SIGNING_ROOT = Bytes.of(4);
+  private static final String SIGNATURE = "0xabcd";
+
+  private final MetricsSystem metricsSystem = mock(MetricsSystem.class);
+  private final Counter counter = mock(Counter.class);
+
+  @SuppressWarnings("unchecked")
+  private final LabelledMetric<Counter> labelledCounter = mock(LabelledMetric.class);
+
+  private SignatureCache signatureCache;
+
+  @BeforeEach
+  void setup() {
+    when(metricsSystem.createLabelledCounter(any(), anyString(), anyString(), any()))
+        .thenReturn(labelledCounter);
+    when(labelledCounter.labels(any())).thenReturn(counter);
+    signatureCache = new SignatureCache(10, 60, metricsSystem);
+  }
+
+  @Test
+  void releasedSignatureIsReturnedForSameIdentifierAndSigningRoot() {
+    signatureCache.put(IDENTIFIER, SIGNING_ROOT, SIGNATURE);
+
+    assertThat(signatureCache.get("block", IDENTIFIER, SIGNING_ROOT)).contains(SIGNATURE);
+    verify(labelledCounter).labels("block", "hit");
+  }
+
+  @Test
+  void signatureIsNotReturnedForDifferentSigningRootOrIdentifier() {
+    signatureCache.put(IDENTIFIER, SIGNING_ROOT, SIGNATURE);
+
+    assertThat(signatureCache.get("attestation", IDENTIFIER, OTHER_SIGNING_ROOT)).isEmpty();
+    assertThat(signatureCache.get("attestation", OTHER_IDENTIFIER, SIGNING_ROOT)).isEmpty();
+    verify(labelledCounter, times(2)).labels("attestation", "miss");
+  }
+
+  @Test
+  void leastRecentlyUsedSignaturesAreEvictedAboveMaximumSize() {
+    final SignatureCache smallCache = new SignatureCache(1, 60, metricsSystem);
+    smallCache.put(IDENTIFIER, SIGNING_ROOT, SIGNATURE);
+    smallCache.put(IDENTIFIER, OTHER_SIGNING_ROOT, SIGNATURE);
+
+    assertThat(smallCache.get("block", IDENTIFIER, SIGNING_ROOT)).isEmpty();
+    assertThat(smallCache.get("block", IDENTIFIER, OTHER_SIGNING_ROOT)).contains(SIGNATURE);
+  }
+}
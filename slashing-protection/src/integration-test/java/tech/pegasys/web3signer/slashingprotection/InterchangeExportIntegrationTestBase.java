@@ -15,12 +15,17 @@ package tech.pegasys.web3signer.slashingprotection;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import tech.pegasys.web3signer.slashingprotection.dao.MetadataDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestation;
 import tech.pegasys.web3signer.slashingprotection.interchange.IncrementalExporter;
+import tech.pegasys.web3signer.slashingprotection.interchange.InterchangeV5Exporter;
 import tech.pegasys.web3signer.slashingprotection.interchange.model.SignedBlock;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -257,6 +262,106 @@ public class InterchangeExportIntegrationTestBase extends IntegrationTestBase {
         .hasSize(TOTAL_ATTESTATIONS_SIGNED + EPOCH_OFFSET - ATTESTATION_SLOT_WATER_MARK.intValue());
   }
 
+  @Test
+  void parallelExportMatchesSequentialExport() throws IOException {
+    final int VALIDATOR_COUNT = 1200;
+    jdbi.useTransaction(
+        h -> {
+          h.execute(
+              "INSERT INTO validators (id, public_key) "
+                  + "SELECT i, int4send(i) FROM generate_series(1, ?) AS i",
+              VALIDATOR_COUNT);
+          // slots and epochs are stored encoded so are inserted through the DAOs
+          final List<SignedAttestation> attestations = new ArrayList<>();
+          for (int validatorId = 1; validatorId <= VALIDATOR_COUNT; validatorId++) {
+            for (int i = 0; i <= 2; i++) {
+              signedBlocksDao.insertBlockProposal(
+                  h,
+                  new tech.pegasys.web3signer.slashingprotection.dao.SignedBlock(
+                      validatorId, UInt64.valueOf(i), Bytes.ofUnsignedInt(i)));
+              attestations.add(
+                  new SignedAttestation(
+                      validatorId,
+                      UInt64.valueOf(i),
+                      UInt64.valueOf(i + 1),
+                      Bytes.ofUnsignedInt(i)));
+            }
+            lowWatermarkDao.updateSlotWatermarkFor(h, validatorId, UInt64.ONE);
+            lowWatermarkDao.updateEpochWatermarksFor(h, validatorId, UInt64.ONE, UInt64.valueOf(2));
+          }
+          signedAttestationsDao.insertAttestations(h, attestations);
+        });
+
+    final String sequentialExport = exportWithThreads(1);
+    final String parallelExport = exportWithThreads(3);
+    assertThat(parallelExport).isEqualTo(sequentialExport);
+
+    final InterchangeV5Format outputObject =
+        mapper.readValue(parallelExport, InterchangeV5Format.class);
+    assertThat(outputObject.getSignedArtifacts()).hasSize(VALIDATOR_COUNT);
+    for (int i = 0; i < VALIDATOR_COUNT; i++) {
+      final SignedArtifacts signedArtifact = outputObject.getSignedArtifacts().get(i);
+      assertThat(signedArtifact.getPublicKey()).isEqualTo(String.format("0x%08x", i + 1));
+      assertThat(signedArtifact.getSignedBlocks()).hasSize(2);
+      assertThat(signedArtifact.getSignedAttestations()).hasSize(2);
+    }
+  }
+
+  @Test
+  void deltaExportOnlyContainsEntriesInsertedSinceCheckpoint() throws IOException {
+    for (int validatorId = 1; validatorId <= 2; validatorId++) {
+      slashingProtectionContext
+          .getRegisteredValidators()
+          .registerValidators(List.of(Bytes.of(validatorId)));
+      insertBlockAt(UInt64.valueOf(1), validatorId);
+      insertAttestationAt(UInt64.valueOf(1), UInt64.valueOf(2), validatorId);
+      final int id = validatorId;
+      jdbi.useTransaction(
+          h -> {
+            lowWatermarkDao.updateSlotWatermarkFor(h, id, UInt64.ZERO);
+            lowWatermarkDao.updateEpochWatermarksFor(h, id, UInt64.ZERO, UInt64.ZERO);
+          });
+    }
+
+    final ByteArrayOutputStream fullExport = new ByteArrayOutputStream();
+    final long checkpoint =
+        slashingProtectionContext.getSlashingProtection().exportDataSince(fullExport, 0);
+    final InterchangeV5Format fullExportObject =
+        mapper.readValue(fullExport.toString(StandardCharsets.UTF_8), InterchangeV5Format.class);
+    assertThat(fullExportObject.getSignedArtifacts()).hasSize(2);
+
+    insertBlockAt(UInt64.valueOf(5), 2);
+
+    final ByteArrayOutputStream deltaExport = new ByteArrayOutputStream();
+    final long nextCheckpoint =
+        slashingProtectionContext.getSlashingProtection().exportDataSince(deltaExport, checkpoint);
+    assertThat(nextCheckpoint).isGreaterThan(checkpoint);
+
+    final InterchangeV5Format deltaExportObject =
+        mapper.readValue(deltaExport.toString(StandardCharsets.UTF_8), InterchangeV5Format.class);
+    assertThat(deltaExportObject.getSignedArtifacts()).hasSize(1);
+    final SignedArtifacts signedArtifact = deltaExportObject.getSignedArtifacts().get(0);
+    assertThat(signedArtifact.getPublicKey()).isEqualTo("0x02");
+    assertThat(signedArtifact.getSignedBlocks())
+        .extracting(SignedBlock::getSlot)
+        .containsExactly(UInt64.valueOf(5));
+    assertThat(signedArtifact.getSignedAttestations()).isEmpty();
+  }
+
+  private String exportWithThreads(final int threads) throws IOException {
+    final ByteArrayOutputStream exportOutput = new ByteArrayOutputStream();
+    new InterchangeV5Exporter(
+            jdbi,
+            validators,
+            signedBlocksDao,
+            signedAttestationsDao,
+            new MetadataDao(),
+            lowWatermarkDao,
+            threads)
+        .exportData(exportOutput);
+    return exportOutput.toString(StandardCharsets.UTF_8);
+  }
+
   private InterchangeV5Format getExportObjectFromDatabase() throws IOException {
     final OutputStream exportOutput = new ByteArrayOutputStream();
     slashingProtectionContext.getSlashingProtection().exportData(exportOutput);
@@ -12,12 +12,18 @@
  */
 package tech.pegasys.web3signer.slashingprotection;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import tech.pegasys.web3signer.slashingprotection.dao.SignedBlock;
+
 import java.io.IOException;
 import java.net.URL;
+import java.util.List;
 
 import com.google.common.io.Resources;
+import org.apache.tuweni.bytes.Bytes32;
+import org.apache.tuweni.units.bigints.UInt64;
 import org.junit.jupiter.api.Test;
 
 public class InterchangeImportBadJsonFormattingIntegrationTestBase extends IntegrationTestBase {
@@ -42,6 +48,30 @@ public class InterchangeImportBadJsonFormattingIntegrationTestBase extends Integ
     assertDbIsEmpty(jdbi);
   }
 
+  @Test
+  void dataPrecedingMetadataIsImported() throws IOException {
+    final URL importFile = Resources.getResource("interchange/dataBeforeMetadata.json");
+    slashingProtectionContext.getSlashingProtection().importData(importFile.openStream());
+
+    final List<SignedBlock> blocksInDb = findAllBlocks();
+    assertThat(blocksInDb).hasSize(1);
+    assertThat(blocksInDb.get(0).getSlot()).isEqualTo(UInt64.valueOf(12345));
+  }
+
+  @Test
+  void dataPrecedingMismatchedMetadataIsNotImported() throws IOException {
+    insertGvr(Bytes32.ZERO);
+    final URL importFile = Resources.getResource("interchange/dataBeforeMetadata.json");
+    assertThatThrownBy(
+            () ->
+                slashingProtectionContext
+                    .getSlashingProtection()
+                    .importData(importFile.openStream()))
+        .isInstanceOf(RuntimeException.class)
+        .hasMessage("Failed to import database content");
+    assertThat(findAllBlocks()).isEmpty();
+  }
+
   @Test
   void emptyDataSectionInImportResultsInAnEmptyDatabase() throws IOException {
     final URL importFile = Resources.getResource("interchange/emptyDataArray.json");
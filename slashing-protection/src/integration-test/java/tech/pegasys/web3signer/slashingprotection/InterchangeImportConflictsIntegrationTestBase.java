@@ -15,10 +15,14 @@ package tech.pegasys.web3signer.slashingprotection;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestation;
+import tech.pegasys.web3signer.slashingprotection.dao.MetadataDao;
 import tech.pegasys.web3signer.slashingprotection.dao.SignedBlock;
+import tech.pegasys.web3signer.slashingprotection.interchange.InterchangeV5Importer;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
 
@@ -208,4 +212,47 @@ public class InterchangeImportConflictsIntegrationTestBase extends IntegrationTe
                 Bytes.fromHexString(
                     "0x4ff6f743a43f3b4f95350831aeaf0a122a1a392922c45d804280284a69eb850b")));
   }
+
+  @Test
+  void batchedParallelImportInsertsAllValidatorsAndMergesDuplicates() throws IOException {
+    final StringBuilder data = new StringBuilder();
+    for (int i = 0; i < 10; i++) {
+      // each validator appears twice so entries for the same key must be merged, not raced
+      for (int slot = 0; slot < 2; slot++) {
+        if (data.length() > 0) {
+          data.append(',');
+        }
+        data.append(
+            String.format(
+                "{\"pubkey\":\"%s\",\"signed_blocks\":[{\"slot\":\"%d\"}],"
+                    + "\"signed_attestations\":[]}",
+                Bytes.concatenate(Bytes.wrap(new byte[47]), Bytes.of(i)).toHexString(),
+                slot));
+      }
+    }
+    final String interchange =
+        String.format(
+            "{\"metadata\":{\"interchange_format_version\":\"5\","
+                + "\"genesis_validators_root\":\"%s\"},\"data\":[%s]}",
+            GENESIS_VALIDATORS_ROOT, data);
+
+    final InterchangeV5Importer importer =
+        new InterchangeV5Importer(
+            jdbi,
+            validators,
+            signedBlocksDao,
+            signedAttestationsDao,
+            new MetadataDao(),
+            lowWatermarkDao,
+            3,
+            4,
+            false);
+    importer.importData(new ByteArrayInputStream(interchange.getBytes(StandardCharsets.UTF_8)));
+
+    assertThat(findAllBlocks()).hasSize(20);
+    for (int validatorId = 1; validatorId <= 10; validatorId++) {
+      assertThat(fetchBlocks(validatorId)).hasSize(2);
+      assertThat(getWatermark(validatorId).getSlot()).isEqualTo(UInt64.ZERO);
+    }
+  }
 }
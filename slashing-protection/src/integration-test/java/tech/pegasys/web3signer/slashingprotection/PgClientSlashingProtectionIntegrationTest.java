@@ -0,0 +1,122 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import static db.DatabaseUtil.PASSWORD;
+import static db.DatabaseUtil.USERNAME;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Vertx;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.bytes.Bytes32;
+import org.apache.tuweni.units.bigints.UInt64;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PgClientSlashingProtectionIntegrationTest extends IntegrationTestBase {
+  private static final Bytes PUBLIC_KEY = Bytes.of(1);
+  private static final Bytes SIGNING_ROOT = Bytes.of(2);
+  private static final Bytes OTHER_SIGNING_ROOT = Bytes.of(3);
+
+  private Vertx vertx;
+  private PgClientSlashingProtection asyncSlashingProtection;
+
+  @BeforeEach
+  void setupAsyncSlashingProtection() {
+    vertx = Vertx.vertx();
+    slashingProtectionContext.getRegisteredValidators().registerValidators(List.of(PUBLIC_KEY));
+    asyncSlashingProtection =
+        new PgClientSlashingProtection(
+            PgClientSlashingProtection.createPool(vertx, databaseUrl, USERNAME, PASSWORD, 2),
+            slashingProtectionContext.getRegisteredValidators());
+  }
+
+  @AfterEach
+  void tearDownAsyncSlashingProtection() {
+    asyncSlashingProtection.close();
+    vertx.close();
+  }
+
+  @Test
+  void blockIsPermittedOnceForSlot() throws Exception {
+    assertThat(maySignBlock(SIGNING_ROOT, 5)).isTrue();
+    assertThat(maySignBlock(SIGNING_ROOT, 5)).isTrue();
+    assertThat(maySignBlock(OTHER_SIGNING_ROOT, 5)).isFalse();
+
+    assertThat(findAllBlocks()).hasSize(1);
+  }
+
+  @Test
+  void surroundingAttestationIsRejected() throws Exception {
+    assertThat(
+            await(
+                asyncSlashingProtection.maySignAttestation(
+                    PUBLIC_KEY, SIGNING_ROOT, UInt64.valueOf(5), UInt64.valueOf(6), GVR)))
+        .isTrue();
+    assertThat(
+            await(
+                asyncSlashingProtection.maySignAttestation(
+                    PUBLIC_KEY, SIGNING_ROOT, UInt64.valueOf(4), UInt64.valueOf(7), GVR)))
+        .isFalse();
+
+    assertThat(findAllAttestations()).hasSize(1);
+  }
+
+  @Test
+  void signingIsRejectedForDifferentGenesisValidatorsRoot() throws Exception {
+    final Bytes32 otherGvr = Bytes32.leftPad(Bytes.of(4));
+    assertThat(
+            await(
+                asyncSlashingProtection.maySignBlock(
+                    PUBLIC_KEY, SIGNING_ROOT, UInt64.valueOf(5), otherGvr)))
+        .isFalse();
+
+    assertThat(findAllBlocks()).isEmpty();
+  }
+
+  @Test
+  void databaseFailureCompletesCheckAsUnavailable() {
+    final PgClientSlashingProtection unreachable =
+        new PgClientSlashingProtection(
+            PgClientSlashingProtection.createPool(
+                vertx, "jdbc:postgresql://localhost:1/web3signer", USERNAME, PASSWORD, 2),
+            slashingProtectionContext.getRegisteredValidators());
+    try {
+      assertThatThrownBy(
+              () ->
+                  await(
+                      unreachable.maySignBlock(
+                          PUBLIC_KEY, SIGNING_ROOT, UInt64.valueOf(5), GVR)))
+          .isInstanceOf(ExecutionException.class)
+          .hasCauseInstanceOf(SlashingProtectionUnavailableException.class);
+    } finally {
+      unreachable.close();
+    }
+  }
+
+  private boolean maySignBlock(final Bytes signingRoot, final long slot) throws Exception {
+    return await(
+        asyncSlashingProtection.maySignBlock(PUBLIC_KEY, signingRoot, UInt64.valueOf(slot), GVR));
+  }
+
+  private static boolean await(final CompletableFuture<Boolean> result) throws Exception {
+    return result.get(10, TimeUnit.SECONDS);
+  }
+}
@@ -21,10 +21,13 @@ import tech.pegasys.web3signer.slashingprotection.dao.SignedBlock;
 import tech.pegasys.web3signer.slashingprotection.dao.SigningWatermark;
 
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import dsl.TestSlashingProtectionParameters;
 import org.apache.tuweni.bytes.Bytes;
 import org.apache.tuweni.units.bigints.UInt64;
+import org.hyperledger.besu.metrics.noop.NoOpMetricsSystem;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
@@ -192,4 +195,77 @@ public class PruningIntegrationTest extends IntegrationTestBase {
     assertThat(getWatermark(1).getSourceEpoch()).isEqualTo(UInt64.valueOf(9));
     assertThat(getWatermark(1).getTargetEpoch()).isEqualTo(UInt64.valueOf(10));
   }
+
+  @Test
+  void chunkedPruningPrunesDataForAllValidators() {
+    final SlashingProtectionContext slashingProtectionContext =
+        SlashingProtectionContextFactory.create(
+            new TestSlashingProtectionParameters(databaseUrl, USERNAME, PASSWORD, 5, 1));
+    for (int validatorId = 1; validatorId <= 3; validatorId++) {
+      insertValidatorAndCreateSlashingData(
+          slashingProtectionContext.getRegisteredValidators(), 10, 10, validatorId);
+    }
+    final ChunkedDbPruner chunkedDbPruner =
+        new ChunkedDbPruner(
+            jdbi,
+            signedBlocksDao,
+            signedAttestationsDao,
+            lowWatermarkDao,
+            2,
+            3,
+            1000,
+            new NoOpMetricsSystem());
+    final Set<Integer> prunedValidators = ConcurrentHashMap.newKeySet();
+
+    chunkedDbPruner.prune(Set.of(1, 2, 3), 5, 1, prunedValidators::add);
+
+    assertThat(prunedValidators).containsExactlyInAnyOrder(1, 2, 3);
+    for (int validatorId = 1; validatorId <= 3; validatorId++) {
+      assertThat(fetchAttestations(validatorId)).hasSize(5);
+      assertThat(fetchBlocks(validatorId)).hasSize(5);
+      assertThat(getWatermark(validatorId))
+          .isEqualToComparingFieldByField(
+              new SigningWatermark(
+                  validatorId, UInt64.valueOf(5), UInt64.valueOf(5), UInt64.valueOf(5)));
+    }
+  }
+
+  @Test
+  void inlinePruningDeletesBoundedNumberOfRowsPerSign() {
+    final SlashingProtectionContext slashingProtectionContext =
+        SlashingProtectionContextFactory.create(
+            new TestSlashingProtectionParameters(databaseUrl, USERNAME, PASSWORD, 5, 1));
+    insertValidatorAndCreateSlashingData(
+        slashingProtectionContext.getRegisteredValidators(), 10, 10, 1);
+    final InlinePruner inlinePruner =
+        new InlinePruner(
+            signedBlocksDao,
+            signedAttestationsDao,
+            lowWatermarkDao,
+            5,
+            1,
+            3,
+            new NoOpMetricsSystem());
+
+    jdbi.useTransaction(
+        h -> {
+          inlinePruner.pruneBlocks(h, 1, UInt64.valueOf(9));
+          inlinePruner.pruneAttestations(h, 1, UInt64.valueOf(9));
+        });
+
+    assertThat(fetchBlocks(1)).hasSize(7);
+    assertThat(fetchAttestations(1)).hasSize(7);
+    assertThat(getWatermark(1))
+        .isEqualToComparingFieldByField(
+            new SigningWatermark(1, UInt64.valueOf(5), UInt64.valueOf(5), UInt64.valueOf(5)));
+
+    jdbi.useTransaction(
+        h -> {
+          inlinePruner.pruneBlocks(h, 1, UInt64.valueOf(9));
+          inlinePruner.pruneAttestations(h, 1, UInt64.valueOf(9));
+        });
+
+    assertThat(fetchBlocks(1)).hasSize(5);
+    assertThat(fetchAttestations(1)).hasSize(5);
+  }
 }
@@ -237,6 +237,11 @@ public class PruningRunnerIntegrationTest extends IntegrationTestBase {
       delegate.exportDataWithFilter(output, pubkeys);
     }
 
+    @Override
+    public long exportDataSince(final OutputStream output, final long checkpoint) {
+      return delegate.exportDataSince(output, checkpoint);
+    }
+
     @Override
     public IncrementalExporter createIncrementalExporter(final OutputStream out) {
       return delegate.createIncrementalExporter(out);
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import static db.DatabaseUtil.PASSWORD;
+import static db.DatabaseUtil.USERNAME;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.hyperledger.besu.metrics.noop.NoOpMetricsSystem;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Test;
+
+public class ReadReplicaRouterIntegrationTest extends IntegrationTestBase {
+
+  @Test
+  void readsAreRoutedToReplicaWhichIsNotBehind() {
+    final Jdbi replicaJdbi = Jdbi.create(databaseUrl, USERNAME, PASSWORD);
+    final ReadReplicaRouter router =
+        new ReadReplicaRouter(jdbi, replicaJdbi, jdbi, 1000, new NoOpMetricsSystem());
+
+    assertThat(router.lagTolerantJdbi()).isSameAs(replicaJdbi);
+    assertThat(router.consistentJdbi()).isSameAs(replicaJdbi);
+  }
+
+  @Test
+  void readsFallBackToPrimaryWhenReplicaIsUnavailable() {
+    final Jdbi replicaJdbi = Jdbi.create("jdbc:postgresql://localhost:1/web3signer");
+    final ReadReplicaRouter router =
+        new ReadReplicaRouter(jdbi, replicaJdbi, jdbi, 1000, new NoOpMetricsSystem());
+
+    assertThat(router.lagTolerantJdbi()).isSameAs(jdbi);
+    assertThat(router.consistentJdbi()).isSameAs(jdbi);
+  }
+
+  @Test
+  void lagTolerantReadsFallBackToPrimaryWhenPrimaryPositionIsUnavailable() {
+    final Jdbi replicaJdbi = Jdbi.create(databaseUrl, USERNAME, PASSWORD);
+    final Jdbi walPositionJdbi = Jdbi.create("jdbc:postgresql://localhost:1/web3signer");
+    final ReadReplicaRouter router =
+        new ReadReplicaRouter(jdbi, replicaJdbi, walPositionJdbi, 1000, new NoOpMetricsSystem());
+
+    assertThat(router.lagTolerantJdbi()).isSameAs(jdbi);
+  }
+}
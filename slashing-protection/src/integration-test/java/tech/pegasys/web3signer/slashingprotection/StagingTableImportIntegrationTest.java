@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.web3signer.slashingprotection.dao.MetadataDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestation;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedBlock;
+import tech.pegasys.web3signer.slashingprotection.dao.SigningWatermark;
+import tech.pegasys.web3signer.slashingprotection.interchange.InterchangeV5Importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import com.google.common.io.Resources;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.units.bigints.UInt64;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class StagingTableImportIntegrationTest extends IntegrationTestBase {
+
+  private static final Bytes PUBLIC_KEY =
+      Bytes.fromHexString(
+          "0xb845089a1457f811bfc000588fbb4e713669be8ce060ea6be3c6ece09afc3794106c91ca73acda5e5457122d58723bed");
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "singleValidBlock.json",
+        "singleValidAttestation.json",
+        "conflictingBlocks.json",
+        "duplicateBlocks.json",
+        "duplicateAttestation.json",
+        "multipleNullSigningRootBlock.json",
+        "multipleNullSigningRootAttestation.json"
+      })
+  void stagedImportMatchesRowByRowImport(final String file) throws IOException {
+    final DatabaseContent rowByRow = importTwiceIntoPopulatedDatabase(file, false);
+    resetDatabase();
+    final DatabaseContent staged = importTwiceIntoPopulatedDatabase(file, true);
+
+    assertThat(staged.blocks)
+        .usingRecursiveFieldByFieldElementComparator()
+        .isEqualTo(rowByRow.blocks);
+    assertThat(staged.attestations)
+        .usingRecursiveFieldByFieldElementComparator()
+        .isEqualTo(rowByRow.attestations);
+    assertThat(staged.watermarks)
+        .usingRecursiveFieldByFieldElementComparator()
+        .isEqualTo(rowByRow.watermarks);
+  }
+
+  private DatabaseContent importTwiceIntoPopulatedDatabase(
+      final String file, final boolean stagingEnabled) throws IOException {
+    // existing entries without a signing root in the first slot and target epoch of each file
+    insertValidator(PUBLIC_KEY, 1);
+    jdbi.useTransaction(
+        h -> {
+          signedBlocksDao.insertBlockProposal(h, new SignedBlock(1, UInt64.valueOf(12345), null));
+          signedAttestationsDao.insertAttestation(
+              h, new SignedAttestation(1, UInt64.valueOf(5), UInt64.valueOf(6), null));
+          lowWatermarkDao.updateSlotWatermarkFor(h, 1, UInt64.valueOf(12000));
+          lowWatermarkDao.updateEpochWatermarksFor(h, 1, UInt64.valueOf(3), UInt64.valueOf(4));
+        });
+
+    final InterchangeV5Importer importer =
+        new InterchangeV5Importer(
+            jdbi,
+            validators,
+            signedBlocksDao,
+            signedAttestationsDao,
+            new MetadataDao(),
+            lowWatermarkDao,
+            0,
+            1,
+            stagingEnabled);
+    for (int i = 0; i < 2; i++) {
+      try (final InputStream input = Resources.getResource("interchange/" + file).openStream()) {
+        importer.importData(input);
+      }
+    }
+
+    return new DatabaseContent(
+        query(
+            "SELECT validator_id, slot, signing_root FROM signed_blocks "
+                + "ORDER BY validator_id, slot, signing_root",
+            SignedBlock.class),
+        query(
+            "SELECT validator_id, source_epoch, target_epoch, signing_root "
+                + "FROM signed_attestations ORDER BY validator_id, target_epoch, signing_root",
+            SignedAttestation.class),
+        query(
+            "SELECT validator_id, slot, source_epoch, target_epoch "
+                + "FROM low_watermarks ORDER BY validator_id",
+            SigningWatermark.class));
+  }
+
+  private <T> List<T> query(final String sql, final Class<T> type) {
+    return jdbi.withHandle(h -> h.createQuery(sql).mapToBean(type).list());
+  }
+
+  private void resetDatabase() {
+    jdbi.useHandle(
+        h ->
+            h.execute(
+                "TRUNCATE signed_blocks, signed_attestations, low_watermarks, validators "
+                    + "RESTART IDENTITY CASCADE"));
+  }
+
+  private static class DatabaseContent {
+    private final List<SignedBlock> blocks;
+    private final List<SignedAttestation> attestations;
+    private final List<SigningWatermark> watermarks;
+
+    private DatabaseContent(
+        final List<SignedBlock> blocks,
+        final List<SignedAttestation> attestations,
+        final List<SigningWatermark> watermarks) {
+      this.blocks = blocks;
+      this.attestations = attestations;
+      this.watermarks = watermarks;
+    }
+  }
+}
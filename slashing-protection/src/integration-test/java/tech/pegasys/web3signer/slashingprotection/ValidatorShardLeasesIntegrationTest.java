@@ -0,0 +1,170 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import tech.pegasys.web3signer.slashingprotection.dao.HighWatermarkDao;
+import tech.pegasys.web3signer.slashingprotection.dao.MetadataDao;
+import tech.pegasys.web3signer.slashingprotection.dao.ValidatorShardLeasesDao;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.units.bigints.UInt64;
+import org.hyperledger.besu.metrics.noop.NoOpMetricsSystem;
+import org.junit.jupiter.api.Test;
+
+public class ValidatorShardLeasesIntegrationTest extends IntegrationTestBase {
+  private static final int SHARD_COUNT = 4;
+  private static final long LEASE_MILLIS = 500;
+
+  @Test
+  void singleInstanceServesAllValidators() {
+    final ValidatorShardLeases leases = createLeases(SHARD_COUNT);
+    leases.heartbeat();
+
+    assertThat(IntStream.range(0, SHARD_COUNT * 2)).allMatch(leases::isServedHere);
+  }
+
+  @Test
+  void shardsAreRebalancedBetweenInstancesWithoutOverlap() throws InterruptedException {
+    final ValidatorShardLeases first = createLeases(SHARD_COUNT);
+    final ValidatorShardLeases second = createLeases(SHARD_COUNT);
+    first.heartbeat();
+    second.heartbeat();
+    assertThat(IntStream.range(0, SHARD_COUNT)).noneMatch(second::isServedHere);
+
+    // the first instance stops serving its surplus shards which the second claims once expired
+    first.heartbeat();
+    assertThat(IntStream.range(0, SHARD_COUNT).filter(first::isServedHere)).hasSize(2);
+    heartbeatFor(LEASE_MILLIS * 2, first, second);
+
+    assertThat(IntStream.range(0, SHARD_COUNT).filter(second::isServedHere)).hasSize(2);
+    assertThat(IntStream.range(0, SHARD_COUNT))
+        .allMatch(id -> first.isServedHere(id) != second.isServedHere(id));
+  }
+
+  @Test
+  void shardsOfInstanceWhichStopsHeartbeatingAreTakenOver() throws InterruptedException {
+    final ValidatorShardLeases first = createLeases(SHARD_COUNT);
+    final ValidatorShardLeases second = createLeases(SHARD_COUNT);
+    first.heartbeat();
+    second.heartbeat();
+
+    Thread.sleep(LEASE_MILLIS);
+    second.heartbeat();
+
+    assertThat(IntStream.range(0, SHARD_COUNT)).noneMatch(first::isServedHere);
+    assertThat(IntStream.range(0, SHARD_COUNT)).allMatch(second::isServedHere);
+  }
+
+  @Test
+  void requestOutlivingLeaseIsDecidedByDatabase() throws InterruptedException {
+    final Bytes publicKey = Bytes.of(1);
+    final RegisteredValidators registeredValidators =
+        new RegisteredValidators(jdbi, validators, new PublicKeyIndex());
+    registeredValidators.registerValidators(List.of(publicKey));
+    final int validatorId = registeredValidators.mustGetValidatorIdForPublicKey(publicKey);
+    final ValidatorHistoryCache historyCache =
+        new ValidatorHistoryCache(
+            jdbi, signedBlocksDao, signedAttestationsDao, lowWatermarkDao, 100, 32);
+    final ValidatorShardLeases leases =
+        new ValidatorShardLeases(
+            jdbi,
+            new ValidatorShardLeasesDao(),
+            registeredValidators,
+            Optional.of(historyCache),
+            SHARD_COUNT,
+            LEASE_MILLIS,
+            new NoOpMetricsSystem());
+    final DbSlashingProtection slashingProtection =
+        createSlashingProtection(registeredValidators, historyCache, leases);
+    leases.heartbeat();
+    historyCache.warmUp(List.of(validatorId));
+
+    // the lease lapses while the request is in flight and another instance signs meanwhile
+    Thread.sleep(LEASE_MILLIS);
+    insertAttestationAt(UInt64.valueOf(10), UInt64.valueOf(20), validatorId);
+
+    assertThat(
+            slashingProtection.maySignAttestation(
+                publicKey, Bytes.of(1), UInt64.valueOf(9), UInt64.valueOf(21), GVR))
+        .isFalse();
+    assertThat(fetchAttestations(validatorId)).hasSize(1);
+  }
+
+  @Test
+  void startFailsWhenShardCountDoesNotMatchDatabase() {
+    jdbi.useHandle(h -> new ValidatorShardLeasesDao().createShards(h, SHARD_COUNT));
+
+    assertThatThrownBy(() -> createLeases(SHARD_COUNT * 2).start())
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("shard count");
+  }
+
+  private void heartbeatFor(final long millis, final ValidatorShardLeases... instances)
+      throws InterruptedException {
+    final long end = System.currentTimeMillis() + millis;
+    while (System.currentTimeMillis() < end) {
+      for (final ValidatorShardLeases instance : instances) {
+        instance.heartbeat();
+      }
+      Thread.sleep(LEASE_MILLIS / 5);
+    }
+  }
+
+  private DbSlashingProtection createSlashingProtection(
+      final RegisteredValidators registeredValidators,
+      final ValidatorHistoryCache historyCache,
+      final ValidatorShardLeases leases) {
+    return new DbSlashingProtection(
+        jdbi,
+        jdbi,
+        validators,
+        signedBlocksDao,
+        signedAttestationsDao,
+        new MetadataDao(),
+        lowWatermarkDao,
+        new HighWatermarkDao(),
+        1,
+        1,
+        registeredValidators,
+        Optional.of(historyCache),
+        Optional.empty(),
+        Optional.empty(),
+        Optional.empty(),
+        Optional.empty(),
+        Optional.empty(),
+        Optional.of(leases),
+        SigningPhaseMetrics.NO_OP,
+        0,
+        1,
+        false,
+        1);
+  }
+
+  private ValidatorShardLeases createLeases(final int shardCount) {
+    return new ValidatorShardLeases(
+        jdbi,
+        new ValidatorShardLeasesDao(),
+        new RegisteredValidators(jdbi, validators, new PublicKeyIndex()),
+        Optional.empty(),
+        shardCount,
+        LEASE_MILLIS,
+        new NoOpMetricsSystem());
+  }
+}
@@ -12,7 +12,6 @@
  */
 package tech.pegasys.web3signer.slashingprotection;
 
-import java.math.BigDecimal;
 import java.sql.Types;
 
 import org.apache.tuweni.bytes.Bytes;
@@ -38,13 +37,22 @@ public class ArgumentFactories {
   public static class UInt64ArgumentFactory extends AbstractArgumentFactory<UInt64> {
 
     public UInt64ArgumentFactory() {
-      super(Types.NUMERIC);
+      super(Types.BIGINT);
     }
 
     @Override
     protected Argument build(final UInt64 value, final ConfigRegistry config) {
-      return (position, statement, ctx) ->
-          statement.setBigDecimal(position, new BigDecimal(value.toBigInteger()));
+      final long dbValue = toDbValue(value);
+      return (position, statement, ctx) -> statement.setLong(position, dbValue);
+    }
+
+    /**
+     * Slots and epochs are stored as BIGINT offset by -2^63 so that the whole unsigned range fits
+     * and the order of values is preserved, which is the unsigned value with its sign bit flipped.
+     */
+    public static long toDbValue(final UInt64 value) {
+      final long unsignedValue = value.fitsLong() ? value.toLong() : value.toBytes().toLong();
+      return unsignedValue ^ Long.MIN_VALUE;
     }
   }
 }
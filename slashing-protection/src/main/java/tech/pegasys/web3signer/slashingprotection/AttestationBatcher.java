@@ -0,0 +1,343 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import static org.jdbi.v3.core.transaction.TransactionIsolationLevel.READ_COMMITTED;
+import static tech.pegasys.web3signer.common.Web3SignerMetricCategory.ETH2_SLASHING_PROTECTION;
+
+import tech.pegasys.web3signer.slashingprotection.DbLocker.LockType;
+import tech.pegasys.web3signer.slashingprotection.dao.AttestationSlashingStatus;
+import tech.pegasys.web3signer.slashingprotection.dao.LowWatermarkDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestation;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestationsDao;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.units.bigints.UInt64;
+import org.hyperledger.besu.plugin.services.MetricsSystem;
+import org.hyperledger.besu.plugin.services.metrics.Counter;
+import org.hyperledger.besu.plugin.services.metrics.OperationTimer;
+import org.hyperledger.besu.plugin.services.metrics.OperationTimer.TimingContext;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+
+/**
+ * Coalesces concurrent attestation slashing checks so that they are evaluated together in a single
+ * database transaction.
+ *
+ * <p>Requests are collected until either the batch window has elapsed since the first request of
+ * the batch arrived or the maximum batch size is reached. A batch holds at most one request per
+ * validator, further requests for the same validator are carried over to the next batch. Callers
+ * wait at most the result timeout for their batch to be evaluated, and any failure evaluating a
+ * batch fails every request waiting on it.
+ */
+public class AttestationBatcher {
+  private static final Logger LOG = LogManager.getLogger();
+  static final Duration DEFAULT_RESULT_TIMEOUT = Duration.ofSeconds(30);
+
+  private final Jdbi jdbi;
+  private final SignedAttestationsDao signedAttestationsDao;
+  private final LowWatermarkDao lowWatermarkDao;
+  private final long batchWindowNanos;
+  private final int maxBatchSize;
+  private final Duration resultTimeout;
+  private final LinkedBlockingDeque<PendingAttestation> pendingAttestations =
+      new LinkedBlockingDeque<>();
+
+  private final Counter batchCounter;
+  private final Counter batchedChecksCounter;
+  private final OperationTimer batchTimer;
+
+  public AttestationBatcher(
+      final Jdbi jdbi,
+      final SignedAttestationsDao signedAttestationsDao,
+      final LowWatermarkDao lowWatermarkDao,
+      final long batchWindowMicroseconds,
+      final int maxBatchSize,
+      final MetricsSystem metricsSystem) {
+    this(
+        jdbi,
+        signedAttestationsDao,
+        lowWatermarkDao,
+        batchWindowMicroseconds,
+        maxBatchSize,
+        DEFAULT_RESULT_TIMEOUT,
+        metricsSystem);
+  }
+
+  AttestationBatcher(
+      final Jdbi jdbi,
+      final SignedAttestationsDao signedAttestationsDao,
+      final LowWatermarkDao lowWatermarkDao,
+      final long batchWindowMicroseconds,
+      final int maxBatchSize,
+      final Duration resultTimeout,
+      final MetricsSystem metricsSystem) {
+    this.jdbi = jdbi;
+    this.signedAttestationsDao = signedAttestationsDao;
+    this.lowWatermarkDao = lowWatermarkDao;
+    this.batchWindowNanos = TimeUnit.MICROSECONDS.toNanos(batchWindowMicroseconds);
+    this.maxBatchSize = maxBatchSize;
+    this.resultTimeout = resultTimeout;
+
+    metricsSystem.createGauge(
+        ETH2_SLASHING_PROTECTION,
+        "attestation_batch_window_microseconds",
+        "Configured time attestation checks are collected for before being evaluated as a batch",
+        () -> batchWindowMicroseconds);
+    metricsSystem.createGauge(
+        ETH2_SLASHING_PROTECTION,
+        "attestation_batch_max_size",
+        "Configured maximum number of attestation checks evaluated in a batch",
+        () -> maxBatchSize);
+    metricsSystem.createGauge(
+        ETH2_SLASHING_PROTECTION,
+        "attestation_batch_pending",
+        "Number of attestation checks waiting to be batched",
+        pendingAttestations::size);
+    this.batchCounter =
+        metricsSystem.createCounter(
+            ETH2_SLASHING_PROTECTION,
+            "attestation_batches",
+            "The number of attestation check batches evaluated");
+    this.batchedChecksCounter =
+        metricsSystem.createCounter(
+            ETH2_SLASHING_PROTECTION,
+            "attestation_batched_checks",
+            "The number of attestation checks evaluated in batches");
+    this.batchTimer =
+        metricsSystem.createTimer(
+            ETH2_SLASHING_PROTECTION,
+            "attestation_batch_duration",
+            "Time spent evaluating a batch of attestation checks in the slashing database");
+  }
+
+  public void start() {
+    new ThreadFactoryBuilder()
+        .setNameFormat("slashing-protection-attestation-batcher")
+        .setDaemon(true)
+        .build()
+        .newThread(this::run)
+        .start();
+  }
+
+  public boolean maySignAttestation(
+      final Bytes publicKey,
+      final int validatorId,
+      final Bytes signingRoot,
+      final UInt64 sourceEpoch,
+      final UInt64 targetEpoch) {
+    final PendingAttestation pendingAttestation =
+        new PendingAttestation(
+            publicKey, new SignedAttestation(validatorId, sourceEpoch, targetEpoch, signingRoot));
+    pendingAttestations.add(pendingAttestation);
+    try {
+      return pendingAttestation.result.get(resultTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (final InterruptedException e) {
+      pendingAttestations.remove(pendingAttestation);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for attestation slashing check", e);
+    } catch (final TimeoutException e) {
+      // a check already taken into a batch may still be recorded, which only withholds a signature
+      pendingAttestations.remove(pendingAttestation);
+      throw new IllegalStateException(
+          "Timed out waiting for attestation slashing check after " + resultTimeout, e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Attestation slashing check failed", e.getCause());
+    }
+  }
+
+  private void run() {
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        final Map<Integer, PendingAttestation> batch = collectBatch();
+        process(new ArrayList<>(batch.values()));
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (final Throwable t) {
+        LOG.error("Unexpected error processing attestation slashing checks", t);
+        failPending(t);
+      }
+    }
+    failPending(new IllegalStateException("Attestation batcher has stopped"));
+  }
+
+  private void failPending(final Throwable cause) {
+    final List<PendingAttestation> failed = new ArrayList<>();
+    pendingAttestations.drainTo(failed);
+    failed.forEach(pending -> pending.result.completeExceptionally(cause));
+  }
+
+  private Map<Integer, PendingAttestation> collectBatch() throws InterruptedException {
+    final Map<Integer, PendingAttestation> batch = new LinkedHashMap<>();
+    final List<PendingAttestation> carriedOver = new ArrayList<>();
+
+    PendingAttestation next = pendingAttestations.take();
+    final long deadline = System.nanoTime() + batchWindowNanos;
+    while (next != null) {
+      if (batch.putIfAbsent(next.signedAttestation.getValidatorId(), next) != null) {
+        carriedOver.add(next);
+      }
+      if (batch.size() >= maxBatchSize) {
+        break;
+      }
+      final long remaining = deadline - System.nanoTime();
+      next = remaining > 0 ? pendingAttestations.poll(remaining, TimeUnit.NANOSECONDS) : null;
+    }
+
+    // requeue in arrival order so duplicates are checked against this batch's inserts
+    for (int i = carriedOver.size() - 1; i >= 0; i--) {
+      pendingAttestations.addFirst(carriedOver.get(i));
+    }
+    return batch;
+  }
+
+  private void process(final List<PendingAttestation> batch) {
+    batchCounter.inc();
+    batchedChecksCounter.inc(batch.size());
+    try (final TimingContext ignored = batchTimer.startTimer()) {
+      final Map<Integer, Boolean> results =
+          jdbi.inTransaction(READ_COMMITTED, handle -> checkAndInsert(handle, batch));
+      batch.forEach(
+          pending ->
+              pending.result.complete(
+                  results.getOrDefault(pending.signedAttestation.getValidatorId(), false)));
+    } catch (final Throwable t) {
+      batch.forEach(pending -> pending.result.completeExceptionally(t));
+    }
+  }
+
+  private Map<Integer, Boolean> checkAndInsert(
+      final Handle handle, final List<PendingAttestation> batch) {
+    final List<SignedAttestation> signedAttestations =
+        batch.stream().map(p -> p.signedAttestation).collect(Collectors.toList());
+    final List<Integer> validatorIds =
+        signedAttestations.stream()
+            .map(SignedAttestation::getValidatorId)
+            .collect(Collectors.toList());
+    DbLocker.lockForValidators(handle, LockType.ATTESTATION, validatorIds);
+
+    final Map<Integer, AttestationSlashingStatus> statuses =
+        signedAttestationsDao.findSlashingStatusForAttestations(handle, signedAttestations).stream()
+            .collect(Collectors.toMap(AttestationSlashingStatus::getValidatorId, s -> s));
+
+    final Map<Integer, Boolean> results = new HashMap<>();
+    final List<SignedAttestation> inserts = new ArrayList<>();
+    for (final PendingAttestation pending : batch) {
+      final SignedAttestation attestation = pending.signedAttestation;
+      final AttestationSlashingStatus status = statuses.get(attestation.getValidatorId());
+      final boolean permitted =
+          status != null && isPermitted(pending.publicKey, attestation, status);
+      results.put(attestation.getValidatorId(), permitted);
+      if (permitted && !status.isAlreadyExists()) {
+        inserts.add(attestation);
+        if (status.getWatermarkSourceEpoch() == null && status.getWatermarkTargetEpoch() == null) {
+          lowWatermarkDao.updateEpochWatermarksFor(
+              handle,
+              attestation.getValidatorId(),
+              attestation.getSourceEpoch(),
+              attestation.getTargetEpoch());
+        }
+      }
+    }
+
+    if (!inserts.isEmpty()) {
+      signedAttestationsDao.insertAttestations(handle, inserts);
+    }
+    return results;
+  }
+
+  private boolean isPermitted(
+      final Bytes publicKey,
+      final SignedAttestation attestation,
+      final AttestationSlashingStatus status) {
+    final UInt64 sourceEpoch = attestation.getSourceEpoch();
+    final UInt64 targetEpoch = attestation.getTargetEpoch();
+
+    if (!status.isEnabled()) {
+      LOG.warn(
+          "Signing attempted for disabled validator {}. To sign with this validator"
+              + " you must import the validator keystore using the key manager import API",
+          publicKey);
+      return false;
+    }
+
+    if (sourceEpoch.compareTo(targetEpoch) > 0) {
+      LOG.warn(
+          "Detected sourceEpoch {} greater than targetEpoch {} for {}",
+          sourceEpoch,
+          targetEpoch,
+          publicKey);
+      return false;
+    }
+
+    if (status.getWatermarkSourceEpoch() != null
+        && sourceEpoch.compareTo(status.getWatermarkSourceEpoch()) < 0) {
+      LOG.warn(
+          "Attestation source epoch {} is below minimum existing attestation source epoch {}",
+          sourceEpoch,
+          status.getWatermarkSourceEpoch());
+      return false;
+    }
+
+    if (status.getWatermarkTargetEpoch() != null
+        && targetEpoch.compareTo(status.getWatermarkTargetEpoch()) < 0) {
+      LOG.warn(
+          "Attestation target epoch {} is below minimum existing attestation target epoch {}",
+          targetEpoch,
+          status.getWatermarkTargetEpoch());
+      return false;
+    }
+
+    if (status.isConflicts() || status.isSurrounded() || status.isSurrounds()) {
+      LOG.warn(
+          "Detected slashable attestation signingRoot={} sourceEpoch={} targetEpoch={} publicKey={}",
+          attestation.getSigningRoot(),
+          sourceEpoch,
+          targetEpoch,
+          publicKey);
+      return false;
+    }
+
+    return true;
+  }
+
+  private static class PendingAttestation {
+    private final Bytes publicKey;
+    private final SignedAttestation signedAttestation;
+    private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+    private PendingAttestation(final Bytes publicKey, final SignedAttestation signedAttestation) {
+      this.publicKey = publicKey;
+      this.signedAttestation = signedAttestation;
+    }
+  }
+}
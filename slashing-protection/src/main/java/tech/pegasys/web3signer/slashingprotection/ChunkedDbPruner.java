@@ -0,0 +1,197 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.jdbi.v3.core.transaction.TransactionIsolationLevel.READ_UNCOMMITTED;
+import static tech.pegasys.web3signer.common.Web3SignerMetricCategory.ETH2_SLASHING_PROTECTION;
+
+import tech.pegasys.web3signer.slashingprotection.dao.LowWatermarkDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestationsDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedBlocksDao;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hyperledger.besu.plugin.services.MetricsSystem;
+import org.hyperledger.besu.plugin.services.metrics.Counter;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+
+/**
+ * Prunes validators in parallel, deleting signed data below the watermark in bounded chunks.
+ *
+ * <p>The signing lock is only held while a validator's watermark is moved. Rows below the
+ * watermark are then deleted in separate short transactions of at most chunk size rows, skipping
+ * rows locked by other pruners such as another instance sharing the database. Deletes across all
+ * pruning threads are limited to the configured number of rows per second.
+ */
+public class ChunkedDbPruner {
+  private static final Logger LOG = LogManager.getLogger();
+
+  private final Jdbi jdbi;
+  private final DbPruner dbPruner;
+  private final SignedBlocksDao signedBlocksDao;
+  private final SignedAttestationsDao signedAttestationsDao;
+  private final int threads;
+  private final int chunkSize;
+  private final RateLimiter rateLimiter;
+  private final AtomicLong validatorsRemaining = new AtomicLong();
+
+  private final Counter prunedValidatorsCounter;
+  private final Counter failedValidatorsCounter;
+  private final Counter deletedBlocksCounter;
+  private final Counter deletedAttestationsCounter;
+
+  public ChunkedDbPruner(
+      final Jdbi jdbi,
+      final SignedBlocksDao signedBlocksDao,
+      final SignedAttestationsDao signedAttestationsDao,
+      final LowWatermarkDao lowWatermarkDao,
+      final int threads,
+      final int chunkSize,
+      final long maxRowsPerSecond,
+      final MetricsSystem metricsSystem) {
+    checkArgument(threads > 0, "threads must be a positive value, but was %s", threads);
+    checkArgument(chunkSize > 0, "chunkSize must be a positive value, but was %s", chunkSize);
+    checkArgument(
+        maxRowsPerSecond > 0,
+        "maxRowsPerSecond must be a positive value, but was %s",
+        maxRowsPerSecond);
+    this.jdbi = jdbi;
+    this.dbPruner = new DbPruner(jdbi, signedBlocksDao, signedAttestationsDao, lowWatermarkDao);
+    this.signedBlocksDao = signedBlocksDao;
+    this.signedAttestationsDao = signedAttestationsDao;
+    this.threads = threads;
+    this.chunkSize = chunkSize;
+    this.rateLimiter = RateLimiter.create(maxRowsPerSecond);
+
+    metricsSystem.createGauge(
+        ETH2_SLASHING_PROTECTION,
+        "pruning_validators_remaining",
+        "Number of validators still to be pruned in the current pruning run",
+        validatorsRemaining::get);
+    this.prunedValidatorsCounter =
+        metricsSystem.createCounter(
+            ETH2_SLASHING_PROTECTION,
+            "pruning_validators_pruned",
+            "The number of validators that have been pruned");
+    this.failedValidatorsCounter =
+        metricsSystem.createCounter(
+            ETH2_SLASHING_PROTECTION,
+            "pruning_validators_failed",
+            "The number of validators that failed to be pruned");
+    this.deletedBlocksCounter =
+        metricsSystem.createCounter(
+            ETH2_SLASHING_PROTECTION,
+            "pruning_blocks_deleted",
+            "The number of signed blocks deleted by pruning");
+    this.deletedAttestationsCounter =
+        metricsSystem.createCounter(
+            ETH2_SLASHING_PROTECTION,
+            "pruning_attestations_deleted",
+            "The number of signed attestations deleted by pruning");
+  }
+
+  /**
+   * Prunes each of the validators, returning once all have been attempted. A validator which fails
+   * to be pruned is logged and skipped until the next pruning run.
+   *
+   * @param validatorPruned called with the id of each validator once it has been pruned
+   */
+  public void prune(
+      final Collection<Integer> validatorIds,
+      final long epochsToKeep,
+      final long slotsPerEpoch,
+      final IntConsumer validatorPruned) {
+    checkArgument(
+        epochsToKeep > 0, "epochsToKeep must be a positive value, but was %s", epochsToKeep);
+    checkArgument(
+        slotsPerEpoch > 0, "slotsPerEpoch must be a positive value, but was %s", slotsPerEpoch);
+    final long slotsToKeep = epochsToKeep * slotsPerEpoch;
+    final List<Callable<Void>> tasks =
+        validatorIds.stream()
+            .map(
+                validatorId ->
+                    (Callable<Void>)
+                        () -> {
+                          pruneValidator(validatorId, epochsToKeep, slotsToKeep, validatorPruned);
+                          return null;
+                        })
+            .collect(Collectors.toList());
+
+    final ExecutorService executorService =
+        Executors.newFixedThreadPool(
+            threads,
+            new ThreadFactoryBuilder()
+                .setNameFormat("slashing-protection-pruner-%d")
+                .setDaemon(true)
+                .build());
+    validatorsRemaining.set(tasks.size());
+    try {
+      executorService.invokeAll(tasks);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOG.warn("Pruning interrupted with {} validators remaining", validatorsRemaining.get());
+    } finally {
+      executorService.shutdownNow();
+      validatorsRemaining.set(0);
+    }
+  }
+
+  private void pruneValidator(
+      final int validatorId,
+      final long epochsToKeep,
+      final long slotsToKeep,
+      final IntConsumer validatorPruned) {
+    try {
+      if (dbPruner.moveBlockWatermark(validatorId, slotsToKeep)) {
+        deleteInChunks(
+            h -> signedBlocksDao.deleteBlocksBelowWatermark(h, validatorId, chunkSize),
+            deletedBlocksCounter);
+      }
+      if (dbPruner.moveAttestationWatermark(validatorId, epochsToKeep)) {
+        deleteInChunks(
+            h -> signedAttestationsDao.deleteAttestationsBelowWatermark(h, validatorId, chunkSize),
+            deletedAttestationsCounter);
+      }
+      prunedValidatorsCounter.inc();
+      validatorPruned.accept(validatorId);
+    } catch (final RuntimeException e) {
+      failedValidatorsCounter.inc();
+      LOG.warn("Pruning failed for validator {}", validatorId, e);
+    } finally {
+      validatorsRemaining.decrementAndGet();
+    }
+  }
+
+  private void deleteInChunks(final ToIntFunction<Handle> deleteChunk, final Counter counter) {
+    int deleted;
+    do {
+      rateLimiter.acquire(chunkSize);
+      deleted = jdbi.inTransaction(READ_UNCOMMITTED, deleteChunk::applyAsInt);
+      counter.inc(deleted);
+    } while (deleted == chunkSize && !Thread.currentThread().isInterrupted());
+  }
+}
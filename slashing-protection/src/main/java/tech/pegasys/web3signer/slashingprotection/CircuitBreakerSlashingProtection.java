@@ -0,0 +1,326 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import static tech.pegasys.web3signer.common.Web3SignerMetricCategory.ETH2_SLASHING_PROTECTION;
+
+import tech.pegasys.web3signer.slashingprotection.interchange.IncrementalExporter;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.bytes.Bytes32;
+import org.apache.tuweni.units.bigints.UInt64;
+import org.hyperledger.besu.plugin.services.MetricsSystem;
+import org.hyperledger.besu.plugin.services.metrics.Counter;
+import org.hyperledger.besu.plugin.services.metrics.LabelledMetric;
+import org.jdbi.v3.core.JdbiException;
+
+/**
+ * Circuit breaker around the block and attestation slashing checks, so that signing requests fail
+ * fast while the slashing database is degraded instead of queueing for connections and tying up
+ * the request threads. All other operations are passed straight to the delegate.
+ *
+ * <p>The outcome of the last window size checks is recorded, with a check counted as bad if it
+ * failed with a database error or took longer than the slow call threshold. A check still in
+ * flight after the slow call threshold is counted as bad straight away so a database which stops
+ * responding is detected before its checks time out. Once the window is full and the percentage
+ * of bad checks reaches the failure rate threshold the breaker opens and checks are rejected with
+ * a {@link SlashingProtectionUnavailableException}. After the open duration a single probe check
+ * is let through, closing the breaker if it completes in time and opening it again otherwise.
+ */
+public class CircuitBreakerSlashingProtection implements SlashingProtection {
+  private static final Logger LOG = LogManager.getLogger();
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final SlashingProtection delegate;
+  private final int failureRateThreshold;
+  private final long slowCallThresholdNanos;
+  private final long openDurationNanos;
+  private final LongSupplier nanoTime;
+  private final boolean[] outcomes;
+  private final Set<Check> inFlight = new LinkedHashSet<>();
+  private final LabelledMetric<Counter> rejectedCounter;
+  private final LabelledMetric<Counter> transitionCounter;
+
+  private State state = State.CLOSED;
+  private long generation;
+  private long openedAt;
+  private boolean probeInFlight;
+  private int recordedChecks;
+  private int badChecks;
+  private int nextOutcome;
+
+  public CircuitBreakerSlashingProtection(
+      final SlashingProtection delegate,
+      final int failureRateThreshold,
+      final long slowCallThresholdMilliseconds,
+      final int windowSize,
+      final long openDurationMilliseconds,
+      final MetricsSystem metricsSystem) {
+    this(
+        delegate,
+        failureRateThreshold,
+        slowCallThresholdMilliseconds,
+        windowSize,
+        openDurationMilliseconds,
+        metricsSystem,
+        System::nanoTime);
+  }
+
+  @VisibleForTesting
+  CircuitBreakerSlashingProtection(
+      final SlashingProtection delegate,
+      final int failureRateThreshold,
+      final long slowCallThresholdMilliseconds,
+      final int windowSize,
+      final long openDurationMilliseconds,
+      final MetricsSystem metricsSystem,
+      final LongSupplier nanoTime) {
+    this.delegate = delegate;
+    this.failureRateThreshold = failureRateThreshold;
+    this.slowCallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowCallThresholdMilliseconds);
+    this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMilliseconds);
+    this.outcomes = new boolean[windowSize];
+    this.nanoTime = nanoTime;
+
+    metricsSystem.createGauge(
+        ETH2_SLASHING_PROTECTION,
+        "circuit_breaker_state",
+        "State of the slashing database circuit breaker: 0 closed, 1 open, 2 half open",
+        () -> getState().ordinal());
+    this.rejectedCounter =
+        metricsSystem.createLabelledCounter(
+            ETH2_SLASHING_PROTECTION,
+            "circuit_breaker_rejected_checks",
+            "The number of slashing checks rejected without consulting the slashing database",
+            "operation");
+    this.transitionCounter =
+        metricsSystem.createLabelledCounter(
+            ETH2_SLASHING_PROTECTION,
+            "circuit_breaker_transitions",
+            "The number of times the slashing database circuit breaker entered a state",
+            "state");
+  }
+
+  @Override
+  public boolean maySignAttestation(
+      final Bytes publicKey,
+      final Bytes signingRoot,
+      final UInt64 sourceEpoch,
+      final UInt64 targetEpoch,
+      final Bytes32 genesisValidatorsRoot) {
+    return check(
+        SigningPhaseMetrics.ATTESTATION,
+        () ->
+            delegate.maySignAttestation(
+                publicKey, signingRoot, sourceEpoch, targetEpoch, genesisValidatorsRoot));
+  }
+
+  @Override
+  public boolean maySignBlock(
+      final Bytes publicKey,
+      final Bytes signingRoot,
+      final UInt64 blockSlot,
+      final Bytes32 genesisValidatorsRoot) {
+    return check(
+        SigningPhaseMetrics.BLOCK,
+        () -> delegate.maySignBlock(publicKey, signingRoot, blockSlot, genesisValidatorsRoot));
+  }
+
+  public synchronized State getState() {
+    halfOpenIfDue(nanoTime.getAsLong());
+    return state;
+  }
+
+  private boolean check(final String operation, final BooleanSupplier slashingCheck) {
+    final Check check = admit(operation);
+    boolean failed = false;
+    try {
+      return slashingCheck.getAsBoolean();
+    } catch (final JdbiException e) {
+      failed = true;
+      throw e;
+    } finally {
+      complete(check, failed);
+    }
+  }
+
+  private synchronized Check admit(final String operation) {
+    final long now = nanoTime.getAsLong();
+    recordStaleChecks(now);
+    halfOpenIfDue(now);
+    if (state == State.OPEN || (state == State.HALF_OPEN && probeInFlight)) {
+      rejectedCounter.labels(operation).inc();
+      throw new SlashingProtectionUnavailableException(
+          "Slashing protection database is degraded, " + operation + " signing is rejected");
+    }
+    probeInFlight = state == State.HALF_OPEN;
+    final Check check = new Check(now, generation);
+    inFlight.add(check);
+    return check;
+  }
+
+  private synchronized void complete(final Check check, final boolean failed) {
+    // a check already counted as slow while in flight is not recorded again
+    if (inFlight.remove(check)) {
+      final long now = nanoTime.getAsLong();
+      record(check, failed || now - check.start >= slowCallThresholdNanos, now);
+    }
+  }
+
+  private void recordStaleChecks(final long now) {
+    // checks are held in the order they started so the stale checks are at the front
+    final Iterator<Check> checks = inFlight.iterator();
+    while (checks.hasNext()) {
+      final Check check = checks.next();
+      if (now - check.start < slowCallThresholdNanos) {
+        break;
+      }
+      checks.remove();
+      record(check, true, now);
+    }
+  }
+
+  private void record(final Check check, final boolean bad, final long now) {
+    if (check.generation != generation) {
+      // started before the last state change so says nothing about the current state
+      return;
+    }
+    if (state == State.HALF_OPEN) {
+      transitionTo(bad ? State.OPEN : State.CLOSED, now);
+      return;
+    }
+
+    if (recordedChecks == outcomes.length) {
+      if (outcomes[nextOutcome]) {
+        badChecks--;
+      }
+    } else {
+      recordedChecks++;
+    }
+    outcomes[nextOutcome] = bad;
+    if (bad) {
+      badChecks++;
+    }
+    nextOutcome = (nextOutcome + 1) % outcomes.length;
+
+    if (recordedChecks == outcomes.length
+        && badChecks * 100L >= (long) failureRateThreshold * recordedChecks) {
+      transitionTo(State.OPEN, now);
+    }
+  }
+
+  private void halfOpenIfDue(final long now) {
+    if (state == State.OPEN && now - openedAt >= openDurationNanos) {
+      transitionTo(State.HALF_OPEN, now);
+    }
+  }
+
+  private void transitionTo(final State newState, final long now) {
+    if (newState == State.OPEN) {
+      LOG.warn(
+          "Slashing protection database is degraded, rejecting block and attestation signing for {} ms",
+          TimeUnit.NANOSECONDS.toMillis(openDurationNanos));
+      openedAt = now;
+    } else if (newState == State.CLOSED) {
+      LOG.info("Slashing protection database has recovered, block and attestation signing resumed");
+    } else {
+      LOG.debug("Probing slashing protection database for recovery");
+    }
+    state = newState;
+    generation++;
+    probeInFlight = false;
+    recordedChecks = 0;
+    badChecks = 0;
+    nextOutcome = 0;
+    transitionCounter.labels(newState.name().toLowerCase(Locale.ROOT)).inc();
+  }
+
+  @Override
+  public boolean hasSlashingProtectionDataFor(final Bytes publicKey) {
+    return delegate.hasSlashingProtectionDataFor(publicKey);
+  }
+
+  @Override
+  public void exportData(final OutputStream output) {
+    delegate.exportData(output);
+  }
+
+  @Override
+  public void exportDataWithFilter(final OutputStream output, final List<String> pubkeys) {
+    delegate.exportDataWithFilter(output, pubkeys);
+  }
+
+  @Override
+  public long exportDataSince(final OutputStream output, final long checkpoint) {
+    return delegate.exportDataSince(output, checkpoint);
+  }
+
+  @Override
+  public IncrementalExporter createIncrementalExporter(final OutputStream out) {
+    return delegate.createIncrementalExporter(out);
+  }
+
+  @Override
+  public void importData(final InputStream input) {
+    delegate.importData(input);
+  }
+
+  @Override
+  public void importDataWithFilter(final InputStream input, final List<String> pubkeys) {
+    delegate.importDataWithFilter(input, pubkeys);
+  }
+
+  @Override
+  public void prune() {
+    delegate.prune();
+  }
+
+  @Override
+  public boolean isEnabledValidator(final Bytes publicKey) {
+    return delegate.isEnabledValidator(publicKey);
+  }
+
+  @Override
+  public void updateValidatorEnabledStatus(final Bytes publicKey, final boolean enabled) {
+    delegate.updateValidatorEnabledStatus(publicKey, enabled);
+  }
+
+  private static class Check {
+    private final long start;
+    private final long generation;
+
+    private Check(final long start, final long generation) {
+      this.start = start;
+      this.generation = generation;
+    }
+  }
+}
@@ -65,10 +65,18 @@ public class ColumnMappers {
 
       return Optional.of(
           (ColumnMapper<UInt64>)
-              (r, columnNumber, ctx) ->
-                  r.getBigDecimal(columnNumber) == null
-                      ? null
-                      : UInt64.valueOf(r.getBigDecimal(columnNumber).toBigInteger()));
+              (r, columnNumber, ctx) -> {
+                final long dbValue = r.getLong(columnNumber);
+                return r.wasNull() ? null : fromDbValue(dbValue);
+              });
+    }
+
+    /** Reverses {@link ArgumentFactories.UInt64ArgumentFactory#toDbValue(UInt64)}. */
+    public static UInt64 fromDbValue(final long dbValue) {
+      final long unsignedValue = dbValue ^ Long.MIN_VALUE;
+      return unsignedValue >= 0
+          ? UInt64.valueOf(unsignedValue)
+          : UInt64.fromBytes(Bytes.ofUnsignedLong(unsignedValue));
     }
   }
 }
@@ -58,14 +58,39 @@ public class DbConnection {
       final String username,
       final String password,
       final Path configurationFile) {
+    // we only need 1 connection in pool for pruning
+    return createPruningConnection(jdbcUrl, username, password, configurationFile, 1);
+  }
+
+  public static Jdbi createPruningConnection(
+      final String jdbcUrl,
+      final String username,
+      final String password,
+      final Path configurationFile,
+      final int poolSize) {
     final HikariDataSource datasource =
         createDataSource(jdbcUrl, username, password, configurationFile);
-    datasource.setMaximumPoolSize(1); // we only need 1 connection in pool for pruning
+    datasource.setMaximumPoolSize(poolSize);
     final Jdbi jdbi = Jdbi.create(datasource);
     configureJdbi(jdbi);
     return jdbi;
   }
 
+  public static Jdbi createReadReplicaConnection(
+      final String jdbcUrl,
+      final String username,
+      final String password,
+      final Path configurationFile) {
+    final HikariConfig hikariConfig =
+        createHikariConfig(jdbcUrl, username, password, configurationFile);
+    hikariConfig.setReadOnly(true);
+    // a replica which is down must not prevent startup as reads fall back to the primary
+    hikariConfig.setInitializationFailTimeout(-1);
+    final Jdbi jdbi = Jdbi.create(new HikariDataSource(hikariConfig));
+    configureJdbi(jdbi);
+    return jdbi;
+  }
+
   public static void configureJdbi(final Jdbi jdbi) {
     jdbi.getConfig(Arguments.class)
         .register(new BytesArgumentFactory())
@@ -82,6 +107,15 @@ public class DbConnection {
       final String username,
       final String password,
       final Path hikariConfigurationFile) {
+    return new HikariDataSource(
+        createHikariConfig(jdbcUrl, username, password, hikariConfigurationFile));
+  }
+
+  private static HikariConfig createHikariConfig(
+      final String jdbcUrl,
+      final String username,
+      final String password,
+      final Path hikariConfigurationFile) {
     final Properties hikariConfigurationProperties =
         loadHikariConfigurationProperties(hikariConfigurationFile);
 
@@ -94,7 +128,7 @@ public class DbConnection {
       hikariConfig.setPassword(password);
     }
 
-    return new HikariDataSource(hikariConfig);
+    return hikariConfig;
   }
 
   @VisibleForTesting
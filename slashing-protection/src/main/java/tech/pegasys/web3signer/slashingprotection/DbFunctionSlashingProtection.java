@@ -0,0 +1,175 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import tech.pegasys.web3signer.slashingprotection.dao.MetadataDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SlashingCheckDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SlashingCheckVerdict;
+import tech.pegasys.web3signer.slashingprotection.interchange.IncrementalExporter;
+import tech.pegasys.web3signer.slashingprotection.validator.GenesisValidatorRootValidator;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.bytes.Bytes32;
+import org.apache.tuweni.units.bigints.UInt64;
+import org.jdbi.v3.core.Jdbi;
+
+/**
+ * Slashing protection which performs the lock, slashing checks, insert and watermark update for a
+ * signing request with a single call to a database function, so the advisory lock is only held
+ * for one round trip. All other operations are handled by the delegate.
+ */
+public class DbFunctionSlashingProtection implements SlashingProtection {
+  private static final Logger LOG = LogManager.getLogger();
+
+  private final Jdbi jdbi;
+  private final RegisteredValidators registeredValidators;
+  private final SlashingCheckDao slashingCheckDao;
+  private final GenesisValidatorRootValidator gvrValidator;
+  private final SlashingProtection delegate;
+
+  public DbFunctionSlashingProtection(
+      final Jdbi jdbi,
+      final RegisteredValidators registeredValidators,
+      final SlashingCheckDao slashingCheckDao,
+      final MetadataDao metadataDao,
+      final SlashingProtection delegate) {
+    this.jdbi = jdbi;
+    this.registeredValidators = registeredValidators;
+    this.slashingCheckDao = slashingCheckDao;
+    this.gvrValidator = new GenesisValidatorRootValidator(jdbi, metadataDao);
+    this.delegate = delegate;
+  }
+
+  @Override
+  public boolean maySignAttestation(
+      final Bytes publicKey,
+      final Bytes signingRoot,
+      final UInt64 sourceEpoch,
+      final UInt64 targetEpoch,
+      final Bytes32 genesisValidatorsRoot) {
+    final int validatorId = registeredValidators.mustGetValidatorIdForPublicKey(publicKey);
+
+    if (!gvrValidator.checkGenesisValidatorsRootAndInsertIfEmpty(genesisValidatorsRoot)) {
+      return false;
+    }
+
+    // a single statement runs in its own transaction so no explicit transaction is needed
+    final SlashingCheckVerdict verdict =
+        jdbi.withHandle(
+            handle ->
+                slashingCheckDao.checkAndInsertAttestation(
+                    handle, validatorId, signingRoot, sourceEpoch, targetEpoch));
+    if (!verdict.isPermitted()) {
+      logRejection(
+          verdict,
+          publicKey,
+          String.format(
+              "attestation signingRoot=%s sourceEpoch=%s targetEpoch=%s",
+              signingRoot, sourceEpoch, targetEpoch));
+    }
+    return verdict.isPermitted();
+  }
+
+  @Override
+  public boolean maySignBlock(
+      final Bytes publicKey,
+      final Bytes signingRoot,
+      final UInt64 blockSlot,
+      final Bytes32 genesisValidatorsRoot) {
+    final int validatorId = registeredValidators.mustGetValidatorIdForPublicKey(publicKey);
+
+    if (!gvrValidator.checkGenesisValidatorsRootAndInsertIfEmpty(genesisValidatorsRoot)) {
+      return false;
+    }
+
+    final SlashingCheckVerdict verdict =
+        jdbi.withHandle(
+            handle ->
+                slashingCheckDao.checkAndInsertBlock(handle, validatorId, signingRoot, blockSlot));
+    if (!verdict.isPermitted()) {
+      final String signingRequest =
+          String.format("block signingRoot=%s slot=%s", signingRoot, blockSlot);
+      logRejection(verdict, publicKey, signingRequest);
+    }
+    return verdict.isPermitted();
+  }
+
+  static void logRejection(
+      final SlashingCheckVerdict verdict, final Bytes publicKey, final String signingRequest) {
+    if (verdict == SlashingCheckVerdict.VALIDATOR_DISABLED) {
+      LOG.warn(
+          "Signing attempted for disabled validator {}. To sign with this validator"
+              + " you must import the validator keystore using the key manager import API",
+          publicKey);
+    } else {
+      LOG.warn(
+          "Detected slashable {} publicKey={} verdict={}", signingRequest, publicKey, verdict);
+    }
+  }
+
+  @Override
+  public boolean hasSlashingProtectionDataFor(final Bytes publicKey) {
+    return delegate.hasSlashingProtectionDataFor(publicKey);
+  }
+
+  @Override
+  public void exportData(final OutputStream output) {
+    delegate.exportData(output);
+  }
+
+  @Override
+  public void exportDataWithFilter(final OutputStream output, final List<String> pubkeys) {
+    delegate.exportDataWithFilter(output, pubkeys);
+  }
+
+  @Override
+  public long exportDataSince(final OutputStream output, final long checkpoint) {
+    return delegate.exportDataSince(output, checkpoint);
+  }
+
+  @Override
+  public IncrementalExporter createIncrementalExporter(final OutputStream out) {
+    return delegate.createIncrementalExporter(out);
+  }
+
+  @Override
+  public void importData(final InputStream input) {
+    delegate.importData(input);
+  }
+
+  @Override
+  public void importDataWithFilter(final InputStream input, final List<String> pubkeys) {
+    delegate.importDataWithFilter(input, pubkeys);
+  }
+
+  @Override
+  public void prune() {
+    delegate.prune();
+  }
+
+  @Override
+  public boolean isEnabledValidator(final Bytes publicKey) {
+    return delegate.isEnabledValidator(publicKey);
+  }
+
+  @Override
+  public void updateValidatorEnabledStatus(final Bytes publicKey, final boolean enabled) {
+    delegate.updateValidatorEnabledStatus(publicKey, enabled);
+  }
+}
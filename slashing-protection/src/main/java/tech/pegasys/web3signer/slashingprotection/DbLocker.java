@@ -12,6 +12,9 @@
  */
 package tech.pegasys.web3signer.slashingprotection;
 
+import java.util.ArrayList;
+import java.util.Collection;
+
 import org.jdbi.v3.core.Handle;
 
 public class DbLocker {
@@ -26,6 +29,18 @@ public class DbLocker {
     handle.execute("SELECT pg_advisory_xact_lock(?, ?)", lockType.ordinal(), validatorId);
   }
 
+  public static void lockForValidators(
+      final Handle handle, final LockType lockType, final Collection<Integer> validatorIds) {
+    // locks are always taken in validator id order to avoid deadlocks between batches
+    handle
+        .createUpdate(
+            "SELECT pg_advisory_xact_lock(:lock_type, id) FROM validators "
+                + "WHERE id IN (<validator_ids>) ORDER BY id")
+        .bind("lock_type", lockType.ordinal())
+        .bindList("validator_ids", new ArrayList<>(validatorIds))
+        .execute();
+  }
+
   public static void lockAllForValidator(final Handle handle, final int validatorId) {
     for (LockType type : LockType.values()) {
       lockForValidator(handle, type, validatorId);
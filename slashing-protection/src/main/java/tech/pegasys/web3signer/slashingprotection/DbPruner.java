@@ -60,20 +60,26 @@ public class DbPruner {
   }
 
   private void pruneBlocks(final int validatorId, final long slotsToKeep) {
-    final boolean hasWatermark =
-        jdbi.inTransaction(
-            READ_UNCOMMITTED,
-            h -> {
-              lockForValidator(h, LockType.BLOCK, validatorId);
-              return moveWatermarkForBlock(validatorId, slotsToKeep, h);
-            });
-
-    if (hasWatermark) {
+    if (moveBlockWatermark(validatorId, slotsToKeep)) {
       jdbi.useTransaction(
           READ_UNCOMMITTED, h -> signedBlocksDao.deleteBlocksBelowWatermark(h, validatorId));
     }
   }
 
+  /**
+   * Moves the slot watermark up to the pruning point while holding the block signing lock.
+   *
+   * @return true if blocks below the watermark can be deleted
+   */
+  boolean moveBlockWatermark(final int validatorId, final long slotsToKeep) {
+    return jdbi.inTransaction(
+        READ_UNCOMMITTED,
+        h -> {
+          lockForValidator(h, LockType.BLOCK, validatorId);
+          return moveWatermarkForBlock(validatorId, slotsToKeep, h);
+        });
+  }
+
   private boolean moveWatermarkForBlock(
       final int validatorId, final long slotsToKeep, final Handle handle) {
     final Optional<UInt64> watermarkSlot =
@@ -92,21 +98,27 @@ public class DbPruner {
   }
 
   private void pruneAttestations(final int validatorId, final long epochsToKeep) {
-    final boolean hasWatermark =
-        jdbi.inTransaction(
-            READ_UNCOMMITTED,
-            h -> {
-              lockForValidator(h, LockType.ATTESTATION, validatorId);
-              return moveWatermarkForAttestation(validatorId, epochsToKeep, h);
-            });
-
-    if (hasWatermark) {
+    if (moveAttestationWatermark(validatorId, epochsToKeep)) {
       jdbi.useTransaction(
           READ_UNCOMMITTED,
           h -> signedAttestationsDao.deleteAttestationsBelowWatermark(h, validatorId));
     }
   }
 
+  /**
+   * Moves the epoch watermarks up to the pruning point while holding the attestation signing lock.
+   *
+   * @return true if attestations below the watermark can be deleted
+   */
+  boolean moveAttestationWatermark(final int validatorId, final long epochsToKeep) {
+    return jdbi.inTransaction(
+        READ_UNCOMMITTED,
+        h -> {
+          lockForValidator(h, LockType.ATTESTATION, validatorId);
+          return moveWatermarkForAttestation(validatorId, epochsToKeep, h);
+        });
+  }
+
   private boolean moveWatermarkForAttestation(
       final int validatorId, final long epochsToKeep, final Handle h) {
     final Optional<UInt64> watermarkEpoch =
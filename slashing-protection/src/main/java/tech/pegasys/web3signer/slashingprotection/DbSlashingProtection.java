@@ -14,12 +14,19 @@ package tech.pegasys.web3signer.slashingprotection;
 
 import static org.jdbi.v3.core.transaction.TransactionIsolationLevel.READ_COMMITTED;
 import static tech.pegasys.web3signer.slashingprotection.DbLocker.lockForValidator;
+import static tech.pegasys.web3signer.slashingprotection.SigningPhaseMetrics.ATTESTATION;
+import static tech.pegasys.web3signer.slashingprotection.SigningPhaseMetrics.BLOCK;
 
 import tech.pegasys.web3signer.slashingprotection.DbLocker.LockType;
+import tech.pegasys.web3signer.slashingprotection.SigningPhaseMetrics.Phase;
+import tech.pegasys.web3signer.slashingprotection.dao.HighWatermarkDao;
 import tech.pegasys.web3signer.slashingprotection.dao.LowWatermarkDao;
 import tech.pegasys.web3signer.slashingprotection.dao.MetadataDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestation;
 import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestationsDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedBlock;
 import tech.pegasys.web3signer.slashingprotection.dao.SignedBlocksDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SigningWatermark;
 import tech.pegasys.web3signer.slashingprotection.dao.ValidatorsDao;
 import tech.pegasys.web3signer.slashingprotection.interchange.EmptyDataIncrementalInterchangeV5Exporter;
 import tech.pegasys.web3signer.slashingprotection.interchange.IncrementalExporter;
@@ -42,6 +49,7 @@ import org.apache.logging.log4j.Logger;
 import org.apache.tuweni.bytes.Bytes;
 import org.apache.tuweni.bytes.Bytes32;
 import org.apache.tuweni.units.bigints.UInt64;
+import org.hyperledger.besu.plugin.services.metrics.OperationTimer.TimingContext;
 import org.jdbi.v3.core.Handle;
 import org.jdbi.v3.core.Jdbi;
 
@@ -54,11 +62,20 @@ public class DbSlashingProtection implements SlashingProtection {
   private final SignedAttestationsDao signedAttestationsDao;
   private final InterchangeManager interchangeManager;
   private final LowWatermarkDao lowWatermarkDao;
+  private final HighWatermarkDao highWatermarkDao;
   private final GenesisValidatorRootValidator gvrValidator;
   private final DbPruner dbPruner;
   private final long pruningEpochsToKeep;
   private final long pruningSlotsPerEpoch;
   private final RegisteredValidators registeredValidators;
+  private final Optional<ValidatorHistoryCache> historyCache;
+  private final Optional<AttestationBatcher> attestationBatcher;
+  private final Optional<ValidatorEnabledStatusCache> enabledStatusCache;
+  private final Optional<ChunkedDbPruner> chunkedPruner;
+  private final Optional<InlinePruner> inlinePruner;
+  private final Optional<ReadReplicaRouter> readReplicaRouter;
+  private final Optional<ValidatorShardLeases> shardLeases;
+  private final SigningPhaseMetrics phaseMetrics;
 
   public DbSlashingProtection(
       final Jdbi jdbi,
@@ -71,25 +88,89 @@ public class DbSlashingProtection implements SlashingProtection {
       final long pruningEpochsToKeep,
       final long pruningSlotsPerEpoch,
       final RegisteredValidators registeredValidators) {
+    this(
+        jdbi,
+        pruningJdbi,
+        validatorsDao,
+        signedBlocksDao,
+        signedAttestationsDao,
+        metadataDao,
+        lowWatermarkDao,
+        new HighWatermarkDao(),
+        pruningEpochsToKeep,
+        pruningSlotsPerEpoch,
+        registeredValidators,
+        Optional.empty(),
+        Optional.empty(),
+        Optional.empty(),
+        Optional.empty(),
+        Optional.empty(),
+        Optional.empty(),
+        Optional.empty(),
+        SigningPhaseMetrics.NO_OP,
+        0,
+        1,
+        false,
+        1);
+  }
+
+  public DbSlashingProtection(
+      final Jdbi jdbi,
+      final Jdbi pruningJdbi,
+      final ValidatorsDao validatorsDao,
+      final SignedBlocksDao signedBlocksDao,
+      final SignedAttestationsDao signedAttestationsDao,
+      final MetadataDao metadataDao,
+      final LowWatermarkDao lowWatermarkDao,
+      final HighWatermarkDao highWatermarkDao,
+      final long pruningEpochsToKeep,
+      final long pruningSlotsPerEpoch,
+      final RegisteredValidators registeredValidators,
+      final Optional<ValidatorHistoryCache> historyCache,
+      final Optional<AttestationBatcher> attestationBatcher,
+      final Optional<ValidatorEnabledStatusCache> enabledStatusCache,
+      final Optional<ChunkedDbPruner> chunkedPruner,
+      final Optional<InlinePruner> inlinePruner,
+      final Optional<ReadReplicaRouter> readReplicaRouter,
+      final Optional<ValidatorShardLeases> shardLeases,
+      final SigningPhaseMetrics phaseMetrics,
+      final int importBatchSize,
+      final int importThreads,
+      final boolean importStagingEnabled,
+      final int exportThreads) {
     this.jdbi = jdbi;
     this.validatorsDao = validatorsDao;
     this.signedBlocksDao = signedBlocksDao;
     this.signedAttestationsDao = signedAttestationsDao;
     this.lowWatermarkDao = lowWatermarkDao;
+    this.highWatermarkDao = highWatermarkDao;
     this.registeredValidators = registeredValidators;
     this.gvrValidator = new GenesisValidatorRootValidator(jdbi, metadataDao);
     this.interchangeManager =
         new InterchangeV5Manager(
             jdbi,
+            () -> readReplicaRouter.map(ReadReplicaRouter::consistentJdbi).orElse(jdbi),
             validatorsDao,
             signedBlocksDao,
             signedAttestationsDao,
             metadataDao,
-            lowWatermarkDao);
+            lowWatermarkDao,
+            importBatchSize,
+            importThreads,
+            importStagingEnabled,
+            exportThreads);
     this.dbPruner =
         new DbPruner(pruningJdbi, signedBlocksDao, signedAttestationsDao, lowWatermarkDao);
     this.pruningEpochsToKeep = pruningEpochsToKeep;
     this.pruningSlotsPerEpoch = pruningSlotsPerEpoch;
+    this.historyCache = historyCache;
+    this.attestationBatcher = attestationBatcher;
+    this.enabledStatusCache = enabledStatusCache;
+    this.chunkedPruner = chunkedPruner;
+    this.inlinePruner = inlinePruner;
+    this.readReplicaRouter = readReplicaRouter;
+    this.shardLeases = shardLeases;
+    this.phaseMetrics = phaseMetrics;
   }
 
   @Override
@@ -97,6 +178,7 @@ public class DbSlashingProtection implements SlashingProtection {
     try {
       LOG.info("Importing slashing protection database");
       interchangeManager.importData(input);
+      historyCache.ifPresent(ValidatorHistoryCache::invalidateAll);
       LOG.info("Import complete");
     } catch (final IOException | UnsupportedOperationException | IllegalArgumentException e) {
       throw new RuntimeException("Failed to import database content", e);
@@ -108,6 +190,7 @@ public class DbSlashingProtection implements SlashingProtection {
     try {
       LOG.info("Importing slashing protection database for keys: " + String.join(",", pubkeys));
       interchangeManager.importDataWithFilter(input, pubkeys);
+      historyCache.ifPresent(ValidatorHistoryCache::invalidateAll);
       LOG.info("Import complete");
     } catch (final IOException | UnsupportedOperationException | IllegalArgumentException e) {
       throw new RuntimeException("Failed to import database content", e);
@@ -136,6 +219,18 @@ public class DbSlashingProtection implements SlashingProtection {
     }
   }
 
+  @Override
+  public long exportDataSince(final OutputStream output, final long checkpoint) {
+    try {
+      LOG.info("Exporting slashing protection database since checkpoint {}", checkpoint);
+      final long nextCheckpoint = interchangeManager.exportDataSince(output, checkpoint);
+      LOG.info("Export complete, next checkpoint is {}", nextCheckpoint);
+      return nextCheckpoint;
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to export database content", e);
+    }
+  }
+
   @Override
   public IncrementalExporter createIncrementalExporter(final OutputStream out) {
     // when GVR is empty, there is no slashing data to export, hence return a No-Op exporter that
@@ -161,20 +256,55 @@ public class DbSlashingProtection implements SlashingProtection {
       final Bytes32 genesisValidatorsRoot) {
     final int validatorId = registeredValidators.mustGetValidatorIdForPublicKey(publicKey);
 
-    if (!gvrValidator.checkGenesisValidatorsRootAndInsertIfEmpty(genesisValidatorsRoot)) {
+    if (!phaseMetrics.time(
+        ATTESTATION,
+        Phase.GVR,
+        () -> gvrValidator.checkGenesisValidatorsRootAndInsertIfEmpty(genesisValidatorsRoot))) {
       return false;
     }
 
+    if (historyCache.isPresent()) {
+      return historyCache
+          .get()
+          .maySignAttestation(
+              validatorId,
+              publicKey,
+              signingRoot,
+              sourceEpoch,
+              targetEpoch,
+              (attestation, alreadyExists, watermarkIsEmpty) ->
+                  persistAttestation(
+                      publicKey, validatorId, attestation, alreadyExists, watermarkIsEmpty),
+              () ->
+                  maySignAttestationFromDb(
+                      publicKey, signingRoot, sourceEpoch, targetEpoch, validatorId));
+    }
+
+    return maySignAttestationFromDb(publicKey, signingRoot, sourceEpoch, targetEpoch, validatorId);
+  }
+
+  private boolean maySignAttestationFromDb(
+      final Bytes publicKey,
+      final Bytes signingRoot,
+      final UInt64 sourceEpoch,
+      final UInt64 targetEpoch,
+      final int validatorId) {
+    if (attestationBatcher.isPresent()) {
+      return attestationBatcher
+          .get()
+          .maySignAttestation(publicKey, validatorId, signingRoot, sourceEpoch, targetEpoch);
+    }
+
+    final TimingContext connectionTimer = phaseMetrics.startTimer(ATTESTATION, Phase.CONNECTION);
     return jdbi.inTransaction(
         READ_COMMITTED,
         handle -> {
-          lockForValidator(handle, LockType.ATTESTATION, validatorId);
+          connectionTimer.stopTimer();
+          phaseMetrics.lockForValidator(handle, LockType.ATTESTATION, validatorId);
 
-          if (!isEnabled(handle, validatorId)) {
-            LOG.warn(
-                "Signing attempted for disabled validator {}. To sign with this validator"
-                    + " you must import the validator keystore using the key manager import API",
-                publicKey);
+          final boolean cachedAsEnabled = isCachedAsEnabled(validatorId);
+          if (!cachedAsEnabled && !isEnabled(handle, ATTESTATION, validatorId)) {
+            logDisabledValidator(publicKey);
             return false;
           }
 
@@ -187,21 +317,139 @@ public class DbSlashingProtection implements SlashingProtection {
                   targetEpoch,
                   validatorId,
                   signedAttestationsDao,
-                  lowWatermarkDao);
+                  lowWatermarkDao,
+                  phaseMetrics);
 
           if (attestationValidator.sourceGreaterThanTargetEpoch()) {
             return false;
           }
 
           if (attestationValidator.hasSourceOlderThanWatermark()
-              || attestationValidator.hasTargetOlderThanWatermark()
-              || attestationValidator.directlyConflictsWithExistingEntry()
-              || attestationValidator.isSurroundedByExistingAttestation()
-              || attestationValidator.surroundsExistingAttestation()) {
+              || attestationValidator.hasTargetOlderThanWatermark()) {
+            return false;
+          }
+
+          // nothing already signed can conflict with, surround or be surrounded by an attestation
+          // ahead of the high watermark so none of the queries for these are needed
+          if (isAheadOfHighWatermark(handle, validatorId, sourceEpoch, targetEpoch)) {
+            return insertAttestation(
+                handle, attestationValidator, publicKey, validatorId, targetEpoch, cachedAsEnabled);
+          }
+
+          if (attestationValidator.directlyConflictsWithExistingEntry()) {
+            return false;
+          }
+
+          // with the surround index the insert rejects surround votes itself, an existing
+          // attestation isn't inserted again so must still be checked beforehand
+          final boolean alreadyExists = attestationValidator.alreadyExists();
+          final boolean surroundCheckedOnInsert =
+              signedAttestationsDao.isSurroundIndexEnabled() && !alreadyExists;
+          if (!surroundCheckedOnInsert
+              && (attestationValidator.isSurroundedByExistingAttestation()
+                  || attestationValidator.surroundsExistingAttestation())) {
+            return false;
+          }
+          if (alreadyExists) {
+            return true;
+          }
+          if (!surroundCheckedOnInsert) {
+            return insertAttestation(
+                handle, attestationValidator, publicKey, validatorId, targetEpoch, cachedAsEnabled);
+          }
+
+          if (!attestationValidator.persistIfEnabledAndNotSurrounding()) {
+            if (isEnabled(handle, validatorId)) {
+              LOG.warn(
+                  "Detected surround vote for attestation signingRoot={} sourceEpoch={} targetEpoch={} publicKey={}",
+                  signingRoot,
+                  sourceEpoch,
+                  targetEpoch,
+                  publicKey);
+            } else {
+              logDisabledValidator(publicKey);
+            }
+            return false;
+          }
+          inlinePruner.ifPresent(
+              pruner -> pruner.pruneAttestations(handle, validatorId, targetEpoch));
+          return true;
+        });
+  }
+
+  private boolean isAheadOfHighWatermark(
+      final Handle handle,
+      final int validatorId,
+      final UInt64 sourceEpoch,
+      final UInt64 targetEpoch) {
+    final Optional<SigningWatermark> highWatermark =
+        phaseMetrics.time(
+            ATTESTATION,
+            Phase.WATERMARK,
+            () -> highWatermarkDao.findHighWatermarkForValidator(handle, validatorId));
+    return highWatermark
+        .filter(watermark -> watermark.getSourceEpoch() != null)
+        .map(
+            watermark ->
+                sourceEpoch.compareTo(watermark.getSourceEpoch()) >= 0
+                    && targetEpoch.compareTo(watermark.getTargetEpoch()) > 0)
+        .orElse(false);
+  }
+
+  private boolean insertAttestation(
+      final Handle handle,
+      final AttestationValidator attestationValidator,
+      final Bytes publicKey,
+      final int validatorId,
+      final UInt64 targetEpoch,
+      final boolean cachedAsEnabled) {
+    if (!cachedAsEnabled) {
+      attestationValidator.persist();
+    } else if (!attestationValidator.persistIfEnabled()) {
+      logDisabledValidator(publicKey);
+      return false;
+    }
+    inlinePruner.ifPresent(pruner -> pruner.pruneAttestations(handle, validatorId, targetEpoch));
+    return true;
+  }
+
+  private boolean persistAttestation(
+      final Bytes publicKey,
+      final int validatorId,
+      final SignedAttestation attestation,
+      final boolean alreadyExists,
+      final boolean watermarkIsEmpty) {
+    final TimingContext connectionTimer = phaseMetrics.startTimer(ATTESTATION, Phase.CONNECTION);
+    return jdbi.inTransaction(
+        READ_COMMITTED,
+        handle -> {
+          connectionTimer.stopTimer();
+          phaseMetrics.lockForValidator(handle, LockType.ATTESTATION, validatorId);
+          verifyShardStillLeased(validatorId);
+
+          final boolean cachedAsEnabled = isCachedAsEnabled(validatorId);
+          if (!cachedAsEnabled && !isEnabled(handle, ATTESTATION, validatorId)) {
+            logDisabledValidator(publicKey);
             return false;
           }
-          if (!attestationValidator.alreadyExists()) {
-            attestationValidator.persist();
+
+          if (!alreadyExists) {
+            if (!cachedAsEnabled) {
+              phaseMetrics.time(
+                  ATTESTATION,
+                  Phase.INSERT,
+                  () -> signedAttestationsDao.insertAttestation(handle, attestation));
+            } else if (!phaseMetrics.time(
+                ATTESTATION,
+                Phase.INSERT,
+                () -> signedAttestationsDao.insertAttestationIfEnabled(handle, attestation))) {
+              logDisabledValidator(publicKey);
+              return false;
+            }
+            if (watermarkIsEmpty) {
+              lowWatermarkDao.updateEpochWatermarksFor(
+                  handle, validatorId, attestation.getSourceEpoch(), attestation.getTargetEpoch());
+            }
           }
           return true;
         });
@@ -214,41 +462,159 @@ public class DbSlashingProtection implements SlashingProtection {
       final UInt64 blockSlot,
       final Bytes32 genesisValidatorsRoot) {
     final int validatorId = registeredValidators.mustGetValidatorIdForPublicKey(publicKey);
-    if (!gvrValidator.checkGenesisValidatorsRootAndInsertIfEmpty(genesisValidatorsRoot)) {
+    if (!phaseMetrics.time(
+        BLOCK,
+        Phase.GVR,
+        () -> gvrValidator.checkGenesisValidatorsRootAndInsertIfEmpty(genesisValidatorsRoot))) {
       return false;
     }
+
+    if (historyCache.isPresent()) {
+      return historyCache
+          .get()
+          .maySignBlock(
+              validatorId,
+              publicKey,
+              signingRoot,
+              blockSlot,
+              (block, alreadyExists, watermarkIsEmpty) ->
+                  persistBlock(publicKey, validatorId, block, alreadyExists, watermarkIsEmpty),
+              () -> maySignBlockFromDb(publicKey, signingRoot, blockSlot, validatorId));
+    }
+
+    return maySignBlockFromDb(publicKey, signingRoot, blockSlot, validatorId);
+  }
+
+  private boolean maySignBlockFromDb(
+      final Bytes publicKey,
+      final Bytes signingRoot,
+      final UInt64 blockSlot,
+      final int validatorId) {
+    final TimingContext connectionTimer = phaseMetrics.startTimer(BLOCK, Phase.CONNECTION);
     return jdbi.inTransaction(
         READ_COMMITTED,
         h -> {
-          lockForValidator(h, LockType.BLOCK, validatorId);
+          connectionTimer.stopTimer();
+          phaseMetrics.lockForValidator(h, LockType.BLOCK, validatorId);
 
-          if (!isEnabled(h, validatorId)) {
-            LOG.warn(
-                "Signing attempted for disabled validator {}. To sign with this validator"
-                    + " you must import the validator keystore using the key manager import API",
-                publicKey);
+          final boolean cachedAsEnabled = isCachedAsEnabled(validatorId);
+          if (!cachedAsEnabled && !isEnabled(h, BLOCK, validatorId)) {
+            logDisabledValidator(publicKey);
             return false;
           }
 
           final BlockValidator blockValidator =
               new BlockValidator(
-                  h, signingRoot, blockSlot, validatorId, signedBlocksDao, lowWatermarkDao);
+                  h,
+                  signingRoot,
+                  blockSlot,
+                  validatorId,
+                  signedBlocksDao,
+                  lowWatermarkDao,
+                  phaseMetrics);
+
+          if (blockValidator.isOlderThanWatermark()) {
+            return false;
+          }
 
-          if (blockValidator.isOlderThanWatermark()
-              || blockValidator.directlyConflictsWithExistingEntry()) {
+          // nothing already signed can conflict with a block above the high watermark
+          final boolean aboveHighWatermark = isAboveHighWatermark(h, validatorId, blockSlot);
+          if (!aboveHighWatermark && blockValidator.directlyConflictsWithExistingEntry()) {
             return false;
           }
-          if (!blockValidator.alreadyExists()) {
-            blockValidator.persist();
+          if (aboveHighWatermark || !blockValidator.alreadyExists()) {
+            if (!cachedAsEnabled) {
+              blockValidator.persist();
+            } else if (!blockValidator.persistIfEnabled()) {
+              logDisabledValidator(publicKey);
+              return false;
+            }
+            inlinePruner.ifPresent(pruner -> pruner.pruneBlocks(h, validatorId, blockSlot));
           }
           return true;
         });
   }
 
+  private boolean isAboveHighWatermark(
+      final Handle handle, final int validatorId, final UInt64 blockSlot) {
+    final Optional<SigningWatermark> highWatermark =
+        phaseMetrics.time(
+            BLOCK,
+            Phase.WATERMARK,
+            () -> highWatermarkDao.findHighWatermarkForValidator(handle, validatorId));
+    return highWatermark
+        .filter(watermark -> watermark.getSlot() != null)
+        .map(watermark -> blockSlot.compareTo(watermark.getSlot()) > 0)
+        .orElse(false);
+  }
+
+  private boolean persistBlock(
+      final Bytes publicKey,
+      final int validatorId,
+      final SignedBlock block,
+      final boolean alreadyExists,
+      final boolean watermarkIsEmpty) {
+    final TimingContext connectionTimer = phaseMetrics.startTimer(BLOCK, Phase.CONNECTION);
+    return jdbi.inTransaction(
+        READ_COMMITTED,
+        handle -> {
+          connectionTimer.stopTimer();
+          phaseMetrics.lockForValidator(handle, LockType.BLOCK, validatorId);
+          verifyShardStillLeased(validatorId);
+
+          final boolean cachedAsEnabled = isCachedAsEnabled(validatorId);
+          if (!cachedAsEnabled && !isEnabled(handle, BLOCK, validatorId)) {
+            logDisabledValidator(publicKey);
+            return false;
+          }
+
+          if (!alreadyExists) {
+            if (!cachedAsEnabled) {
+              phaseMetrics.time(
+                  BLOCK, Phase.INSERT, () -> signedBlocksDao.insertBlockProposal(handle, block));
+            } else if (!phaseMetrics.time(
+                BLOCK,
+                Phase.INSERT,
+                () -> signedBlocksDao.insertBlockProposalIfEnabled(handle, block))) {
+              logDisabledValidator(publicKey);
+              return false;
+            }
+            if (watermarkIsEmpty) {
+              lowWatermarkDao.updateSlotWatermarkFor(handle, validatorId, block.getSlot());
+            }
+          }
+          return true;
+        });
+  }
+
+  /**
+   * The cached history is only complete while this instance holds the validator's shard lease. A
+   * request which outlived the lease may have been decided on history missing what another
+   * instance signed since, so it is failed here, under the validator lock, and the cache reverts
+   * to the full database check.
+   */
+  private void verifyShardStillLeased(final int validatorId) {
+    if (shardLeases.isPresent() && !shardLeases.get().isServedHere(validatorId)) {
+      throw new IllegalStateException(
+          "Shard lease for validator " + validatorId + " lapsed before signing was recorded");
+    }
+  }
+
   @Override
   public void prune() {
     final Set<Integer> validatorKeys = registeredValidators.validatorIds();
     LOG.info("Pruning slashing protection database for {} validators", validatorKeys.size());
+    if (chunkedPruner.isPresent()) {
+      chunkedPruner
+          .get()
+          .prune(
+              validatorKeys,
+              pruningEpochsToKeep,
+              pruningSlotsPerEpoch,
+              v -> historyCache.ifPresent(cache -> cache.invalidate(v)));
+      LOG.info("Pruning slashing protection database complete");
+      return;
+    }
     final AtomicInteger pruningCount = new AtomicInteger();
     validatorKeys.forEach(
         v -> {
@@ -258,6 +624,7 @@ public class DbSlashingProtection implements SlashingProtection {
               validatorKeys::size,
               () -> registeredValidators.getPublicKeyForValidatorId(v));
           dbPruner.pruneForValidator(v, pruningEpochsToKeep, pruningSlotsPerEpoch);
+          historyCache.ifPresent(cache -> cache.invalidate(v));
         });
     LOG.info("Pruning slashing protection database complete");
   }
@@ -269,8 +636,11 @@ public class DbSlashingProtection implements SlashingProtection {
     return maybeValidatorId
         .map(
             validatorId ->
-                jdbi.inTransaction(
-                    READ_COMMITTED, handle -> validatorsDao.hasSigned(handle, validatorId)))
+                readReplicaRouter
+                    .map(ReadReplicaRouter::lagTolerantJdbi)
+                    .orElse(jdbi)
+                    .inTransaction(
+                        READ_COMMITTED, handle -> validatorsDao.hasSigned(handle, validatorId)))
         .orElse(false);
   }
 
@@ -295,4 +665,21 @@ public class DbSlashingProtection implements SlashingProtection {
   private boolean isEnabled(final Handle handle, final int validatorId) {
     return validatorsDao.isEnabled(handle, validatorId);
   }
+
+  private boolean isEnabled(final Handle handle, final String operation, final int validatorId) {
+    return phaseMetrics.time(
+        operation, Phase.ENABLED_CHECK, () -> validatorsDao.isEnabled(handle, validatorId));
+  }
+
+  private boolean isCachedAsEnabled(final int validatorId) {
+    // signed data must then be inserted conditionally as the cache may lag a disable
+    return enabledStatusCache.map(cache -> cache.isEnabled(validatorId)).orElse(false);
+  }
+
+  private void logDisabledValidator(final Bytes publicKey) {
+    LOG.warn(
+        "Signing attempted for disabled validator {}. To sign with this validator"
+            + " you must import the validator keystore using the key manager import API",
+        publicKey);
+  }
 }
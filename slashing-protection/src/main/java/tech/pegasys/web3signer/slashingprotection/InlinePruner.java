@@ -0,0 +1,152 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static tech.pegasys.web3signer.common.Web3SignerMetricCategory.ETH2_SLASHING_PROTECTION;
+
+import tech.pegasys.web3signer.slashingprotection.dao.LowWatermarkDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestationsDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedBlocksDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SigningWatermark;
+
+import java.util.Optional;
+
+import org.apache.tuweni.units.bigints.UInt64;
+import org.hyperledger.besu.plugin.services.MetricsSystem;
+import org.hyperledger.besu.plugin.services.metrics.Counter;
+import org.jdbi.v3.core.Handle;
+
+/**
+ * Prunes a validator's signed data as part of each signing transaction, so the database stays at a
+ * steady size without a separate pruning run.
+ *
+ * <p>After a new block or attestation is inserted the low watermark is advanced to keep the
+ * configured number of epochs below the newly signed entry, and at most a bounded number of rows
+ * below the watermark are deleted. Callers must hold the validator's signing lock.
+ */
+public class InlinePruner {
+  private final SignedBlocksDao signedBlocksDao;
+  private final SignedAttestationsDao signedAttestationsDao;
+  private final LowWatermarkDao lowWatermarkDao;
+  private final long epochsToKeep;
+  private final long slotsToKeep;
+  private final int maxRowsPerSign;
+
+  private final Counter prunedBlockSignsCounter;
+  private final Counter reclaimedBlocksCounter;
+  private final Counter prunedAttestationSignsCounter;
+  private final Counter reclaimedAttestationsCounter;
+
+  public InlinePruner(
+      final SignedBlocksDao signedBlocksDao,
+      final SignedAttestationsDao signedAttestationsDao,
+      final LowWatermarkDao lowWatermarkDao,
+      final long epochsToKeep,
+      final long slotsPerEpoch,
+      final int maxRowsPerSign,
+      final MetricsSystem metricsSystem) {
+    checkArgument(
+        epochsToKeep > 0, "epochsToKeep must be a positive value, but was %s", epochsToKeep);
+    checkArgument(
+        slotsPerEpoch > 0, "slotsPerEpoch must be a positive value, but was %s", slotsPerEpoch);
+    checkArgument(
+        maxRowsPerSign > 0, "maxRowsPerSign must be a positive value, but was %s", maxRowsPerSign);
+    this.signedBlocksDao = signedBlocksDao;
+    this.signedAttestationsDao = signedAttestationsDao;
+    this.lowWatermarkDao = lowWatermarkDao;
+    this.epochsToKeep = epochsToKeep;
+    this.slotsToKeep = epochsToKeep * slotsPerEpoch;
+    this.maxRowsPerSign = maxRowsPerSign;
+
+    this.prunedBlockSignsCounter =
+        metricsSystem.createCounter(
+            ETH2_SLASHING_PROTECTION,
+            "inline_pruning_block_signs",
+            "The number of signed blocks which pruned older blocks inline");
+    this.reclaimedBlocksCounter =
+        metricsSystem.createCounter(
+            ETH2_SLASHING_PROTECTION,
+            "inline_pruning_blocks_reclaimed",
+            "The number of signed blocks deleted by inline pruning");
+    this.prunedAttestationSignsCounter =
+        metricsSystem.createCounter(
+            ETH2_SLASHING_PROTECTION,
+            "inline_pruning_attestation_signs",
+            "The number of signed attestations which pruned older attestations inline");
+    this.reclaimedAttestationsCounter =
+        metricsSystem.createCounter(
+            ETH2_SLASHING_PROTECTION,
+            "inline_pruning_attestations_reclaimed",
+            "The number of signed attestations deleted by inline pruning");
+  }
+
+  public void pruneBlocks(final Handle handle, final int validatorId, final UInt64 signedSlot) {
+    final Optional<UInt64> watermarkSlot =
+        lowWatermarkDao
+            .findLowWatermarkForValidator(handle, validatorId)
+            .map(SigningWatermark::getSlot);
+    if (watermarkSlot.isEmpty()) {
+      return;
+    }
+
+    final UInt64 pruningPoint = pruningPoint(signedSlot, slotsToKeep);
+    if (pruningPoint.compareTo(watermarkSlot.get()) > 0) {
+      signedBlocksDao
+          .findNearestBlockWithSlot(handle, validatorId, pruningPoint)
+          .ifPresent(
+              block -> lowWatermarkDao.updateSlotWatermarkFor(handle, validatorId, block.getSlot()));
+    }
+
+    final int deleted =
+        signedBlocksDao.deleteBlocksBelowWatermark(handle, validatorId, maxRowsPerSign);
+    prunedBlockSignsCounter.inc();
+    reclaimedBlocksCounter.inc(deleted);
+  }
+
+  public void pruneAttestations(
+      final Handle handle, final int validatorId, final UInt64 signedTargetEpoch) {
+    final Optional<UInt64> watermarkEpoch =
+        lowWatermarkDao
+            .findLowWatermarkForValidator(handle, validatorId)
+            .map(SigningWatermark::getTargetEpoch);
+    if (watermarkEpoch.isEmpty()) {
+      return;
+    }
+
+    final UInt64 pruningPoint = pruningPoint(signedTargetEpoch, epochsToKeep);
+    if (pruningPoint.compareTo(watermarkEpoch.get()) > 0) {
+      signedAttestationsDao
+          .findNearestAttestationWithTargetEpoch(handle, validatorId, pruningPoint)
+          .ifPresent(
+              attestation ->
+                  lowWatermarkDao.updateEpochWatermarksFor(
+                      handle,
+                      validatorId,
+                      attestation.getSourceEpoch(),
+                      attestation.getTargetEpoch()));
+    }
+
+    final int deleted =
+        signedAttestationsDao.deleteAttestationsBelowWatermark(handle, validatorId, maxRowsPerSign);
+    prunedAttestationSignsCounter.inc();
+    reclaimedAttestationsCounter.inc(deleted);
+  }
+
+  private static UInt64 pruningPoint(final UInt64 highpoint, final long amountToKeep) {
+    // add one as we remove below the watermark
+    return highpoint.compareTo(UInt64.valueOf(amountToKeep)) < 0
+        ? UInt64.ZERO
+        : highpoint.subtract(amountToKeep).add(1);
+  }
+}
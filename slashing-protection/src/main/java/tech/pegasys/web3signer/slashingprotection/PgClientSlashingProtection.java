@@ -0,0 +1,217 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+import static org.apache.commons.lang3.StringUtils.removeStart;
+
+import tech.pegasys.web3signer.slashingprotection.ArgumentFactories.UInt64ArgumentFactory;
+import tech.pegasys.web3signer.slashingprotection.dao.SlashingCheckVerdict;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxException;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.pgclient.PgException;
+import io.vertx.pgclient.PgPool;
+import io.vertx.sqlclient.PoolOptions;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.Tuple;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.bytes.Bytes32;
+import org.apache.tuweni.units.bigints.UInt64;
+
+/**
+ * Slashing checks made with the reactive Postgres client on the Vert.x event loops, so no thread
+ * is blocked while the database evaluates a check. Each check is a single call to the same
+ * database functions as {@link DbFunctionSlashingProtection}. A check which can't reach the
+ * database, or which the database fails to evaluate, completes with a {@link
+ * SlashingProtectionUnavailableException}; any other failure is passed through unchanged.
+ */
+public class PgClientSlashingProtection implements AsyncSlashingProtection {
+  private static final Logger LOG = LogManager.getLogger();
+  private static final String JDBC_URL_PREFIX = "jdbc:";
+
+  private final PgPool pool;
+  private final RegisteredValidators registeredValidators;
+  // the database value can't change once set so only needs verifying once
+  private volatile Bytes32 verifiedGenesisValidatorsRoot;
+
+  public PgClientSlashingProtection(
+      final PgPool pool, final RegisteredValidators registeredValidators) {
+    this.pool = pool;
+    this.registeredValidators = registeredValidators;
+  }
+
+  public static PgPool createPool(
+      final Vertx vertx,
+      final String jdbcUrl,
+      final String username,
+      final String password,
+      final int poolSize) {
+    final PgConnectOptions connectOptions =
+        PgConnectOptions.fromUri(removeStart(jdbcUrl, JDBC_URL_PREFIX));
+    if (!isEmpty(username)) {
+      connectOptions.setUser(username);
+    }
+    if (!isEmpty(password)) {
+      connectOptions.setPassword(password);
+    }
+    return PgPool.pool(vertx, connectOptions, new PoolOptions().setMaxSize(poolSize));
+  }
+
+  @Override
+  public CompletableFuture<Boolean> maySignAttestation(
+      final Bytes publicKey,
+      final Bytes signingRoot,
+      final UInt64 sourceEpoch,
+      final UInt64 targetEpoch,
+      final Bytes32 genesisValidatorsRoot) {
+    final int validatorId = registeredValidators.mustGetValidatorIdForPublicKey(publicKey);
+    return checkGenesisValidatorsRootAndInsertIfEmpty(genesisValidatorsRoot)
+        .compose(
+            validGvr -> {
+              if (!validGvr) {
+                return Future.succeededFuture(false);
+              }
+              return pool
+                  .preparedQuery("SELECT check_and_insert_attestation($1, $2, $3, $4)")
+                  .execute(
+                      Tuple.of(
+                          validatorId,
+                          toBuffer(signingRoot),
+                          UInt64ArgumentFactory.toDbValue(sourceEpoch),
+                          UInt64ArgumentFactory.toDbValue(targetEpoch)))
+                  .map(PgClientSlashingProtection::toVerdict)
+                  .map(
+                      verdict -> {
+                        if (!verdict.isPermitted()) {
+                          DbFunctionSlashingProtection.logRejection(
+                              verdict,
+                              publicKey,
+                              String.format(
+                                  "attestation signingRoot=%s sourceEpoch=%s targetEpoch=%s",
+                                  signingRoot, sourceEpoch, targetEpoch));
+                        }
+                        return verdict.isPermitted();
+                      });
+            })
+        .recover(PgClientSlashingProtection::mapDatabaseFailure)
+        .toCompletionStage()
+        .toCompletableFuture();
+  }
+
+  @Override
+  public CompletableFuture<Boolean> maySignBlock(
+      final Bytes publicKey,
+      final Bytes signingRoot,
+      final UInt64 blockSlot,
+      final Bytes32 genesisValidatorsRoot) {
+    final int validatorId = registeredValidators.mustGetValidatorIdForPublicKey(publicKey);
+    return checkGenesisValidatorsRootAndInsertIfEmpty(genesisValidatorsRoot)
+        .compose(
+            validGvr -> {
+              if (!validGvr) {
+                return Future.succeededFuture(false);
+              }
+              return pool
+                  .preparedQuery("SELECT check_and_insert_block($1, $2, $3)")
+                  .execute(
+                      Tuple.of(
+                          validatorId,
+                          toBuffer(signingRoot),
+                          UInt64ArgumentFactory.toDbValue(blockSlot)))
+                  .map(PgClientSlashingProtection::toVerdict)
+                  .map(
+                      verdict -> {
+                        if (!verdict.isPermitted()) {
+                          DbFunctionSlashingProtection.logRejection(
+                              verdict,
+                              publicKey,
+                              String.format(
+                                  "block signingRoot=%s slot=%s", signingRoot, blockSlot));
+                        }
+                        return verdict.isPermitted();
+                      });
+            })
+        .recover(PgClientSlashingProtection::mapDatabaseFailure)
+        .toCompletionStage()
+        .toCompletableFuture();
+  }
+
+  public void close() {
+    pool.close();
+  }
+
+  private Future<Boolean> checkGenesisValidatorsRootAndInsertIfEmpty(
+      final Bytes32 genesisValidatorsRoot) {
+    if (genesisValidatorsRoot.equals(verifiedGenesisValidatorsRoot)) {
+      return Future.succeededFuture(true);
+    }
+
+    // a concurrent insert of a different value is seen by the select rather than failing
+    return pool
+        .withTransaction(
+            connection ->
+                connection
+                    .preparedQuery(
+                        "INSERT INTO metadata (id, genesis_validators_root) VALUES (1, $1) "
+                            + "ON CONFLICT (id) DO NOTHING")
+                    .execute(Tuple.of(toBuffer(genesisValidatorsRoot)))
+                    .compose(
+                        ignored ->
+                            connection
+                                .query("SELECT genesis_validators_root FROM metadata WHERE id = 1")
+                                .execute()))
+        .map(
+            rows -> {
+              final Bytes32 dbGvr = Bytes32.wrap(rows.iterator().next().getBuffer(0).getBytes());
+              if (!dbGvr.equals(genesisValidatorsRoot)) {
+                LOG.warn(
+                    "Supplied genesis validators root {} does not match value in database",
+                    genesisValidatorsRoot);
+                return false;
+              }
+              verifiedGenesisValidatorsRoot = genesisValidatorsRoot;
+              return true;
+            });
+  }
+
+  private static Future<Boolean> mapDatabaseFailure(final Throwable error) {
+    // errors from the server, closed connections and failed connects mean the database couldn't
+    // evaluate the check, anything else is a fault in the check itself and reported as such
+    if (error instanceof PgException
+        || error instanceof VertxException
+        || error instanceof IOException) {
+      return Future.failedFuture(
+          new SlashingProtectionUnavailableException(
+              "Slashing protection database failed to evaluate signing check", error));
+    }
+    return Future.failedFuture(error);
+  }
+
+  private static SlashingCheckVerdict toVerdict(final RowSet<Row> rows) {
+    return SlashingCheckVerdict.fromCode(rows.iterator().next().getInteger(0));
+  }
+
+  private static Buffer toBuffer(final Bytes bytes) {
+    return Buffer.buffer(bytes.toArrayUnsafe());
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import org.apache.tuweni.bytes.Bytes;
+
+/**
+ * Index from validator public key to validator id held in a few flat primitive arrays instead of
+ * an object per key, so that it adds little to the heap or to garbage collection work for
+ * instances with many keys.
+ *
+ * <p>Keys are stored back to back in a single byte array and found through an open addressing
+ * table using linear probing. A dense array indexed by validator id refers back to the key.
+ * Looking up a validator id doesn't allocate.
+ *
+ * <p>Entries are only ever appended. Writers are serialised and publish each change through a
+ * volatile snapshot holding the entry count, so readers don't take a lock. Readers ignore entries
+ * beyond the count of the snapshot they read, which makes it safe for a writer to append to arrays
+ * that older snapshots share.
+ */
+public class PublicKeyIndex {
+  public static final int NOT_FOUND = -1;
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int PUBLIC_KEY_LENGTH = 48;
+
+  private volatile Snapshot snapshot =
+      new Snapshot(
+          new int[INITIAL_CAPACITY * 2],
+          new byte[INITIAL_CAPACITY * PUBLIC_KEY_LENGTH],
+          new int[INITIAL_CAPACITY + 1],
+          new int[INITIAL_CAPACITY],
+          new int[INITIAL_CAPACITY],
+          0);
+
+  /** Returns the validator id for the public key or {@link #NOT_FOUND} if it isn't indexed. */
+  public int get(final Bytes publicKey) {
+    final Snapshot current = snapshot;
+    final int entry = current.findEntry(publicKey);
+    return entry == NOT_FOUND ? NOT_FOUND : current.validatorIds[entry];
+  }
+
+  public Optional<Bytes> getPublicKey(final int validatorId) {
+    final Snapshot current = snapshot;
+    if (validatorId < 0 || validatorId >= current.entriesByValidatorId.length) {
+      return Optional.empty();
+    }
+    final int entry = current.entriesByValidatorId[validatorId] - 1;
+    if (entry < 0 || entry >= current.count) {
+      return Optional.empty();
+    }
+    return Optional.of(
+        Bytes.wrap(
+            Arrays.copyOfRange(
+                current.keys, current.keyOffsets[entry], current.keyOffsets[entry + 1])));
+  }
+
+  public boolean contains(final Bytes publicKey) {
+    return snapshot.findEntry(publicKey) != NOT_FOUND;
+  }
+
+  public int size() {
+    return snapshot.count;
+  }
+
+  public Set<Integer> validatorIds() {
+    final Snapshot current = snapshot;
+    final Set<Integer> validatorIds = new HashSet<>(current.count);
+    for (int entry = 0; entry < current.count; entry++) {
+      validatorIds.add(current.validatorIds[entry]);
+    }
+    return validatorIds;
+  }
+
+  public synchronized void put(final Bytes publicKey, final int validatorId) {
+    Snapshot current = snapshot;
+    final int existing = current.findEntry(publicKey);
+    if (existing != NOT_FOUND) {
+      final int previousId = current.validatorIds[existing];
+      if (previousId != validatorId) {
+        current.entriesByValidatorId[previousId] = 0;
+        current = withValidatorIdCapacity(current, validatorId);
+        current.validatorIds[existing] = validatorId;
+        current.entriesByValidatorId[validatorId] = existing + 1;
+        snapshot = current.withCount(current.count);
+      }
+      return;
+    }
+
+    current = withEntryCapacity(current, publicKey.size());
+    current = withValidatorIdCapacity(current, validatorId);
+    final int entry = current.count;
+    final int keyOffset = current.keyOffsets[entry];
+    System.arraycopy(publicKey.toArrayUnsafe(), 0, current.keys, keyOffset, publicKey.size());
+    current.keyOffsets[entry + 1] = keyOffset + publicKey.size();
+    current.validatorIds[entry] = validatorId;
+    current.entriesByValidatorId[validatorId] = entry + 1;
+    current.table[current.freeSlotFor(publicKey)] = entry + 1;
+    // publishing the snapshot makes the appended entry visible to readers
+    snapshot = current.withCount(entry + 1);
+  }
+
+  private static Snapshot withEntryCapacity(final Snapshot current, final int keyLength) {
+    final int entries = current.count + 1;
+    final int keysLength = current.keyOffsets[current.count] + keyLength;
+    if (entries * 2 <= current.table.length
+        && entries < current.keyOffsets.length
+        && keysLength <= current.keys.length) {
+      return current;
+    }
+
+    final int entryCapacity = Math.max(current.validatorIds.length, entries * 2);
+    final Snapshot grown =
+        new Snapshot(
+            new int[Math.max(current.table.length, Integer.highestOneBit(entries * 2) * 2)],
+            Arrays.copyOf(current.keys, Math.max(current.keys.length, keysLength * 2)),
+            Arrays.copyOf(current.keyOffsets, entryCapacity + 1),
+            Arrays.copyOf(current.validatorIds, entryCapacity),
+            current.entriesByValidatorId,
+            current.count);
+    // the table is rebuilt as older snapshots still probe the previous one
+    for (int entry = 0; entry < current.count; entry++) {
+      grown.table[grown.freeSlotFor(grown.keyAt(entry))] = entry + 1;
+    }
+    return grown;
+  }
+
+  private static Snapshot withValidatorIdCapacity(final Snapshot current, final int validatorId) {
+    if (validatorId < current.entriesByValidatorId.length) {
+      return current;
+    }
+    return new Snapshot(
+        current.table,
+        current.keys,
+        current.keyOffsets,
+        current.validatorIds,
+        Arrays.copyOf(
+            current.entriesByValidatorId,
+            Math.max(validatorId + 1, current.entriesByValidatorId.length * 2)),
+        current.count);
+  }
+
+  private static int hash(final Bytes publicKey) {
+    int hash = 1;
+    for (int i = 0; i < publicKey.size(); i++) {
+      hash = 31 * hash + publicKey.get(i);
+    }
+    // spread the bits as the table index only uses the low bits
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    return hash ^ (hash >>> 16);
+  }
+
+  private static class Snapshot {
+    // entry index + 1 for each used slot, 0 for an empty slot
+    private final int[] table;
+    private final byte[] keys;
+    // entry i's key is keys[keyOffsets[i], keyOffsets[i + 1])
+    private final int[] keyOffsets;
+    private final int[] validatorIds;
+    // entry index + 1 for each validator id, 0 if the id isn't indexed
+    private final int[] entriesByValidatorId;
+    private final int count;
+
+    private Snapshot(
+        final int[] table,
+        final byte[] keys,
+        final int[] keyOffsets,
+        final int[] validatorIds,
+        final int[] entriesByValidatorId,
+        final int count) {
+      this.table = table;
+      this.keys = keys;
+      this.keyOffsets = keyOffsets;
+      this.validatorIds = validatorIds;
+      this.entriesByValidatorId = entriesByValidatorId;
+      this.count = count;
+    }
+
+    private Snapshot withCount(final int count) {
+      return new Snapshot(table, keys, keyOffsets, validatorIds, entriesByValidatorId, count);
+    }
+
+    private int findEntry(final Bytes publicKey) {
+      final int mask = table.length - 1;
+      for (int slot = hash(publicKey) & mask; ; slot = (slot + 1) & mask) {
+        final int entry = table[slot] - 1;
+        // entries appended after this snapshot was published are treated as empty slots
+        if (entry < 0 || entry >= count) {
+          return NOT_FOUND;
+        }
+        if (keyEquals(entry, publicKey)) {
+          return entry;
+        }
+      }
+    }
+
+    private int freeSlotFor(final Bytes publicKey) {
+      final int mask = table.length - 1;
+      int slot = hash(publicKey) & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    private boolean keyEquals(final int entry, final Bytes publicKey) {
+      final int offset = keyOffsets[entry];
+      final int length = keyOffsets[entry + 1] - offset;
+      if (length != publicKey.size()) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (keys[offset + i] != publicKey.get(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private Bytes keyAt(final int entry) {
+      return Bytes.wrap(keys, keyOffsets[entry], keyOffsets[entry + 1] - keyOffsets[entry]);
+    }
+  }
+}
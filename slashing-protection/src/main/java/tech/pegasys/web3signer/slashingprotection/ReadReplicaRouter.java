@@ -0,0 +1,160 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import static tech.pegasys.web3signer.common.Web3SignerMetricCategory.ETH2_SLASHING_PROTECTION;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hyperledger.besu.plugin.services.MetricsSystem;
+import org.hyperledger.besu.plugin.services.metrics.Counter;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+
+/**
+ * Routes reads which aren't part of signing to a streaming replica of the slashing protection
+ * database, leaving the primary's connection pool for signing.
+ *
+ * <p>Reads fall back to the primary when the replica can't be reached or is further behind the
+ * primary than the configured maximum lag.
+ */
+public class ReadReplicaRouter {
+  private static final Logger LOG = LogManager.getLogger();
+  private static final long CATCH_UP_POLL_MILLISECONDS = 10;
+
+  private final Jdbi primaryJdbi;
+  private final Jdbi replicaJdbi;
+  private final Jdbi walPositionJdbi;
+  private final long maxLagMilliseconds;
+  private final Counter replicaReadsCounter;
+  private final Counter primaryFallbacksCounter;
+
+  /**
+   * @param walPositionJdbi connection to the primary used to read its current WAL position, this
+   *     shouldn't be the pool used for signing
+   */
+  public ReadReplicaRouter(
+      final Jdbi primaryJdbi,
+      final Jdbi replicaJdbi,
+      final Jdbi walPositionJdbi,
+      final long maxLagMilliseconds,
+      final MetricsSystem metricsSystem) {
+    this.primaryJdbi = primaryJdbi;
+    this.replicaJdbi = replicaJdbi;
+    this.walPositionJdbi = walPositionJdbi;
+    this.maxLagMilliseconds = maxLagMilliseconds;
+    this.replicaReadsCounter =
+        metricsSystem.createCounter(
+            ETH2_SLASHING_PROTECTION,
+            "db_replica_reads",
+            "The number of reads routed to the slashing protection database replica");
+    this.primaryFallbacksCounter =
+        metricsSystem.createCounter(
+            ETH2_SLASHING_PROTECTION,
+            "db_replica_primary_fallbacks",
+            "The number of reads which fell back to the primary as the replica was lagging or "
+                + "unavailable");
+  }
+
+  /**
+   * Returns the Jdbi for reads which can be up to the maximum lag behind the primary. A replica
+   * which hasn't replayed up to the primary's current WAL position is lagging by the age of its
+   * last replayed transaction, so a replica disconnected from the primary isn't treated as current.
+   */
+  public Jdbi lagTolerantJdbi() {
+    try {
+      final String walPosition = walPositionJdbi.withHandle(ReadReplicaRouter::findWalPosition);
+      final long lag =
+          replicaJdbi.withHandle(h -> findReplicationLagMilliseconds(h, walPosition));
+      if (lag <= maxLagMilliseconds) {
+        return replica();
+      }
+      LOG.debug("Slashing protection database replica is {} ms behind the primary", lag);
+    } catch (final RuntimeException e) {
+      LOG.debug("Unable to determine slashing protection database replica lag", e);
+    }
+    return primary();
+  }
+
+  /**
+   * Returns the Jdbi for reads which must see everything committed to the primary before the call,
+   * such as exports. The replica is used once it has replayed up to the primary's current WAL
+   * position, waiting at most the maximum lag for it to do so.
+   */
+  public Jdbi consistentJdbi() {
+    try {
+      final String walPosition = walPositionJdbi.withHandle(ReadReplicaRouter::findWalPosition);
+      final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxLagMilliseconds);
+      while (!replicaJdbi.withHandle(h -> hasReplayed(h, walPosition))) {
+        if (System.nanoTime() - deadline >= 0) {
+          LOG.debug("Slashing protection database replica has not replayed to {}", walPosition);
+          return primary();
+        }
+        Thread.sleep(CATCH_UP_POLL_MILLISECONDS);
+      }
+      return replica();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (final RuntimeException e) {
+      LOG.debug("Unable to determine slashing protection database replica position", e);
+    }
+    return primary();
+  }
+
+  private Jdbi replica() {
+    replicaReadsCounter.inc();
+    return replicaJdbi;
+  }
+
+  private Jdbi primary() {
+    primaryFallbacksCounter.inc();
+    return primaryJdbi;
+  }
+
+  private static long findReplicationLagMilliseconds(
+      final Handle handle, final String walPosition) {
+    // a replica which has replayed up to the primary's position isn't lagging however old its last
+    // replayed transaction is, and a database which isn't a standby is never behind
+    return handle
+        .createQuery(
+            "SELECT COALESCE("
+                + "CASE WHEN NOT pg_is_in_recovery() "
+                + "OR pg_last_wal_replay_lsn() >= CAST(:position AS pg_lsn) THEN 0 "
+                + "ELSE CAST(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 "
+                + "AS BIGINT) END, "
+                + Long.MAX_VALUE
+                + ")")
+        .bind("position", walPosition)
+        .mapTo(Long.class)
+        .one();
+  }
+
+  private static String findWalPosition(final Handle handle) {
+    return handle
+        .createQuery("SELECT CAST(pg_current_wal_lsn() AS TEXT)")
+        .mapTo(String.class)
+        .one();
+  }
+
+  private static boolean hasReplayed(final Handle handle, final String walPosition) {
+    return handle
+        .createQuery(
+            "SELECT NOT pg_is_in_recovery() "
+                + "OR COALESCE(pg_last_wal_replay_lsn() >= CAST(:position AS pg_lsn), false)")
+        .bind("position", walPosition)
+        .mapTo(Boolean.class)
+        .one();
+  }
+}
@@ -13,72 +13,189 @@
 package tech.pegasys.web3signer.slashingprotection;
 
 import static org.jdbi.v3.core.transaction.TransactionIsolationLevel.READ_COMMITTED;
+import static tech.pegasys.web3signer.common.Web3SignerMetricCategory.ETH2_SLASHING_PROTECTION;
 
 import tech.pegasys.web3signer.slashingprotection.dao.Validator;
 import tech.pegasys.web3signer.slashingprotection.dao.ValidatorsDao;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.tuweni.bytes.Bytes;
+import org.hyperledger.besu.metrics.noop.NoOpMetricsSystem;
+import org.hyperledger.besu.plugin.services.MetricsSystem;
+import org.hyperledger.besu.plugin.services.metrics.Counter;
+import org.hyperledger.besu.plugin.services.metrics.OperationTimer;
+import org.hyperledger.besu.plugin.services.metrics.OperationTimer.TimingContext;
 import org.jdbi.v3.core.Jdbi;
 
 public class RegisteredValidators {
   private static final Logger LOG = LogManager.getLogger();
-  private final BiMap<Bytes, Integer> registeredValidators;
-  private final Jdbi jdbi;
-  private final ValidatorsDao validatorsDao;
+  private static final int DEFAULT_REGISTRATION_CHUNK_SIZE = 1000;
+  private final PublicKeyIndex registeredValidators;
+  private final Function<List<Bytes>, List<Validator>> validatorRegistrar;
+  private final Optional<ValidatorHistoryCache> historyCache;
+  private final int registrationChunkSize;
+  private final int registrationThreads;
+  private final OperationTimer registrationTimer;
+  private final OperationTimer registrationChunkTimer;
+  private final Counter registeredValidatorsCounter;
+
+  public RegisteredValidators(
+      final Function<List<Bytes>, List<Validator>> validatorRegistrar,
+      final PublicKeyIndex registeredValidators,
+      final Optional<ValidatorHistoryCache> historyCache,
+      final int registrationChunkSize,
+      final int registrationThreads,
+      final MetricsSystem metricsSystem) {
+    this.validatorRegistrar = validatorRegistrar;
+    this.registeredValidators = registeredValidators;
+    this.historyCache = historyCache;
+    this.registrationChunkSize = registrationChunkSize;
+    this.registrationThreads = registrationThreads;
+    this.registrationTimer =
+        metricsSystem.createTimer(
+            ETH2_SLASHING_PROTECTION,
+            "validator_registration_duration",
+            "Time spent registering newly loaded validators in the slashing database");
+    this.registrationChunkTimer =
+        metricsSystem.createTimer(
+            ETH2_SLASHING_PROTECTION,
+            "validator_registration_chunk_duration",
+            "Time spent registering a single chunk of validators in the slashing database");
+    this.registeredValidatorsCounter =
+        metricsSystem.createCounter(
+            ETH2_SLASHING_PROTECTION,
+            "registered_validators",
+            "The number of validators registered in the slashing database");
+  }
 
   public RegisteredValidators(
       final Jdbi jdbi,
       final ValidatorsDao validatorsDao,
-      final BiMap<Bytes, Integer> registeredValidators) {
-    this.jdbi = jdbi;
-    this.validatorsDao = validatorsDao;
-    this.registeredValidators = registeredValidators;
+      final PublicKeyIndex registeredValidators) {
+    this(
+        databaseRegistrar(jdbi, validatorsDao),
+        registeredValidators,
+        Optional.empty(),
+        DEFAULT_REGISTRATION_CHUNK_SIZE,
+        1,
+        new NoOpMetricsSystem());
   }
 
-  public RegisteredValidators(final Jdbi jdbi, final ValidatorsDao validatorsDao) {
-    this(jdbi, validatorsDao, HashBiMap.create());
+  static Function<List<Bytes>, List<Validator>> databaseRegistrar(
+      final Jdbi jdbi, final ValidatorsDao validatorsDao) {
+    return validators ->
+        jdbi.inTransaction(READ_COMMITTED, h -> validatorsDao.registerValidators(h, validators));
   }
 
   public Set<Integer> validatorIds() {
-    return Collections.unmodifiableSet(registeredValidators.values());
+    return Collections.unmodifiableSet(registeredValidators.validatorIds());
   }
 
   public Optional<Bytes> getPublicKeyForValidatorId(final int validatorId) {
-    return Optional.ofNullable(registeredValidators.inverse().get(validatorId));
+    return registeredValidators.getPublicKey(validatorId);
   }
 
   public Optional<Integer> getValidatorIdForPublicKey(final Bytes publicKey) {
-    return Optional.ofNullable(registeredValidators.get(publicKey));
+    final int validatorId = registeredValidators.get(publicKey);
+    return validatorId == PublicKeyIndex.NOT_FOUND ? Optional.empty() : Optional.of(validatorId);
   }
 
   public int mustGetValidatorIdForPublicKey(final Bytes publicKey) {
-    final Optional<Integer> validatorId = getValidatorIdForPublicKey(publicKey);
-    if (validatorId.isEmpty()) {
+    final int validatorId = registeredValidators.get(publicKey);
+    if (validatorId == PublicKeyIndex.NOT_FOUND) {
       throw new IllegalStateException("Unregistered validator for " + publicKey);
     }
-    return validatorId.get();
+    return validatorId;
   }
 
   public void registerValidators(final List<Bytes> validators) {
-    if (validators.isEmpty()) {
+    // on reload only the newly loaded keys need registering
+    final List<Bytes> unregisteredValidators =
+        validators.stream()
+            .distinct()
+            .filter(publicKey -> !registeredValidators.contains(publicKey))
+            .collect(Collectors.toList());
+    if (unregisteredValidators.isEmpty()) {
       return;
     }
 
-    final List<Validator> registeredValidatorsList =
-        jdbi.inTransaction(READ_COMMITTED, h -> validatorsDao.registerValidators(h, validators));
+    final List<Validator> registeredValidatorsList;
+    try (final TimingContext ignored = registrationTimer.startTimer()) {
+      registeredValidatorsList = registerInChunks(unregisteredValidators);
+    }
+    registeredValidatorsCounter.inc(registeredValidatorsList.size());
 
-    LOG.info("Validators registered successfully in database:{}", registeredValidatorsList.size());
+    LOG.info("Validators registered successfully:{}", registeredValidatorsList.size());
 
     registeredValidatorsList.forEach(
         validator -> registeredValidators.put(validator.getPublicKey(), validator.getId()));
+
+    historyCache.ifPresent(
+        cache ->
+            cache.warmUp(
+                registeredValidatorsList.stream()
+                    .map(Validator::getId)
+                    .collect(Collectors.toList())));
+  }
+
+  private List<Validator> registerInChunks(final List<Bytes> validators) {
+    final List<List<Bytes>> chunks = Lists.partition(validators, registrationChunkSize);
+    if (chunks.size() == 1 || registrationThreads == 1) {
+      return chunks.stream()
+          .flatMap(chunk -> registerChunk(chunk).stream())
+          .collect(Collectors.toList());
+    }
+
+    final ExecutorService executorService =
+        Executors.newFixedThreadPool(
+            Math.min(registrationThreads, chunks.size()),
+            new ThreadFactoryBuilder()
+                .setNameFormat("slashing-protection-validator-registration-%d")
+                .setDaemon(true)
+                .build());
+    try {
+      final List<Future<List<Validator>>> results =
+          executorService.invokeAll(
+              chunks.stream()
+                  .map(chunk -> (Callable<List<Validator>>) () -> registerChunk(chunk))
+                  .collect(Collectors.toList()));
+      final List<Validator> registered = new ArrayList<>(validators.size());
+      for (final Future<List<Validator>> result : results) {
+        registered.addAll(result.get());
+      }
+      return registered;
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted registering validators", e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Failed to register validators", e.getCause());
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private List<Validator> registerChunk(final List<Bytes> chunk) {
+    try (final TimingContext ignored = registrationChunkTimer.startTimer()) {
+      return validatorRegistrar.apply(chunk);
+    }
   }
 }
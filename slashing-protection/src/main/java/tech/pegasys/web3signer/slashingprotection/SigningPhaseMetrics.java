@@ -0,0 +1,104 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import static tech.pegasys.web3signer.common.Web3SignerMetricCategory.ETH2_SLASHING_PROTECTION;
+
+import tech.pegasys.web3signer.slashingprotection.DbLocker.LockType;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.hyperledger.besu.metrics.noop.NoOpMetricsSystem;
+import org.hyperledger.besu.plugin.services.MetricsSystem;
+import org.hyperledger.besu.plugin.services.metrics.Counter;
+import org.hyperledger.besu.plugin.services.metrics.LabelledMetric;
+import org.hyperledger.besu.plugin.services.metrics.OperationTimer;
+import org.hyperledger.besu.plugin.services.metrics.OperationTimer.TimingContext;
+import org.jdbi.v3.core.Handle;
+
+/**
+ * Times the individual phases of a block or attestation slashing check so that latency spikes in
+ * the overall database timer can be attributed to connection checkout, lock contention or one of
+ * the slashing queries.
+ */
+public class SigningPhaseMetrics {
+  public static final String BLOCK = "block";
+  public static final String ATTESTATION = "attestation";
+
+  public static final SigningPhaseMetrics NO_OP =
+      new SigningPhaseMetrics(new NoOpMetricsSystem(), Long.MAX_VALUE);
+
+  public enum Phase {
+    GVR,
+    CONNECTION,
+    LOCK,
+    ENABLED_CHECK,
+    WATERMARK,
+    CONFLICT,
+    SURROUND,
+    INSERT;
+
+    private final String label = name().toLowerCase(Locale.ROOT);
+  }
+
+  private final LabelledMetric<OperationTimer> phaseTimer;
+  private final LabelledMetric<Counter> slowLockWaitCounter;
+  private final long slowLockWaitThresholdNanos;
+
+  public SigningPhaseMetrics(
+      final MetricsSystem metricsSystem, final long slowLockWaitThresholdMilliseconds) {
+    this.phaseTimer =
+        metricsSystem.createLabelledTimer(
+            ETH2_SLASHING_PROTECTION,
+            "signing_phase_duration",
+            "Time spent in each phase of a slashing protection check",
+            "operation",
+            "phase");
+    this.slowLockWaitCounter =
+        metricsSystem.createLabelledCounter(
+            ETH2_SLASHING_PROTECTION,
+            "slow_lock_waits",
+            "The number of validator lock acquisitions that waited longer than the threshold",
+            "operation");
+    this.slowLockWaitThresholdNanos =
+        TimeUnit.MILLISECONDS.toNanos(slowLockWaitThresholdMilliseconds);
+  }
+
+  public TimingContext startTimer(final String operation, final Phase phase) {
+    return phaseTimer.labels(operation, phase.label).startTimer();
+  }
+
+  public <T> T time(final String operation, final Phase phase, final Supplier<T> action) {
+    try (final TimingContext ignored = startTimer(operation, phase)) {
+      return action.get();
+    }
+  }
+
+  public void time(final String operation, final Phase phase, final Runnable action) {
+    try (final TimingContext ignored = startTimer(operation, phase)) {
+      action.run();
+    }
+  }
+
+  public void lockForValidator(
+      final Handle handle, final LockType lockType, final int validatorId) {
+    final String operation = lockType == LockType.BLOCK ? BLOCK : ATTESTATION;
+    final long start = System.nanoTime();
+    time(operation, Phase.LOCK, () -> DbLocker.lockForValidator(handle, lockType, validatorId));
+    if (System.nanoTime() - start > slowLockWaitThresholdNanos) {
+      slowLockWaitCounter.labels(operation).inc();
+    }
+  }
+}
@@ -40,6 +40,15 @@ public interface SlashingProtection {
 
   void exportDataWithFilter(OutputStream output, List<String> pubkeys);
 
+  /**
+   * Exports the entries recorded since a checkpoint returned by a previous delta export, or all
+   * entries when the checkpoint is 0. The output is in interchange format so it can be imported
+   * with {@link #importData(InputStream)}.
+   *
+   * @return the checkpoint to export the next delta from
+   */
+  long exportDataSince(OutputStream output, long checkpoint);
+
   IncrementalExporter createIncrementalExporter(OutputStream out);
 
   void importData(InputStream output);
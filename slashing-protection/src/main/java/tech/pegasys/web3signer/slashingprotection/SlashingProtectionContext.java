@@ -12,6 +12,8 @@
  */
 package tech.pegasys.web3signer.slashingprotection;
 
+import java.util.Optional;
+
 import org.jdbi.v3.core.Jdbi;
 
 public class SlashingProtectionContext {
@@ -20,16 +22,61 @@ public class SlashingProtectionContext {
   private final Jdbi pruningJdbi;
   private final RegisteredValidators registeredValidators;
   private final SlashingProtection slashingProtection;
+  private final Optional<ValidatorShardLeases> shardLeases;
+  private final Optional<CircuitBreakerSlashingProtection> circuitBreaker;
 
   public SlashingProtectionContext(
       final Jdbi slashingProtectionJdbi,
       final Jdbi pruningJdbi,
       final RegisteredValidators registeredValidators,
-      final SlashingProtection slashingProtection) {
+      final SlashingProtection slashingProtection,
+      final Optional<ValidatorShardLeases> shardLeases,
+      final Optional<CircuitBreakerSlashingProtection> circuitBreaker) {
     this.slashingProtectionJdbi = slashingProtectionJdbi;
     this.pruningJdbi = pruningJdbi;
     this.registeredValidators = registeredValidators;
     this.slashingProtection = slashingProtection;
+    this.shardLeases = shardLeases;
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  public SlashingProtectionContext(
+      final Jdbi slashingProtectionJdbi,
+      final Jdbi pruningJdbi,
+      final RegisteredValidators registeredValidators,
+      final SlashingProtection slashingProtection,
+      final Optional<ValidatorShardLeases> shardLeases) {
+    this(
+        slashingProtectionJdbi,
+        pruningJdbi,
+        registeredValidators,
+        slashingProtection,
+        shardLeases,
+        Optional.empty());
+  }
+
+  public SlashingProtectionContext(
+      final Jdbi slashingProtectionJdbi,
+      final Jdbi pruningJdbi,
+      final RegisteredValidators registeredValidators,
+      final SlashingProtection slashingProtection) {
+    this(
+        slashingProtectionJdbi,
+        pruningJdbi,
+        registeredValidators,
+        slashingProtection,
+        Optional.empty());
+  }
+
+  /** Context for slashing protection which isn't backed by a database. */
+  public SlashingProtectionContext(
+      final RegisteredValidators registeredValidators,
+      final SlashingProtection slashingProtection) {
+    this(null, null, registeredValidators, slashingProtection);
+  }
+
+  public boolean isDatabaseBacked() {
+    return slashingProtectionJdbi != null;
   }
 
   public Jdbi getSlashingProtectionJdbi() {
@@ -47,4 +94,14 @@ public class SlashingProtectionContext {
   public SlashingProtection getSlashingProtection() {
     return slashingProtection;
   }
+
+  /** Leases restricting which validators this instance signs for, if shard leasing is enabled. */
+  public Optional<ValidatorShardLeases> getShardLeases() {
+    return shardLeases;
+  }
+
+  /** Circuit breaker around the slashing checks, if it is enabled. */
+  public Optional<CircuitBreakerSlashingProtection> getCircuitBreaker() {
+    return circuitBreaker;
+  }
 }
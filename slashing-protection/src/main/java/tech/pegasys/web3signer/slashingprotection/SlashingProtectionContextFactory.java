@@ -12,21 +12,41 @@
  */
 package tech.pegasys.web3signer.slashingprotection;
 
+import static org.apache.commons.lang3.StringUtils.isEmpty;
 import static tech.pegasys.web3signer.slashingprotection.dao.DatabaseVersionDao.EXPECTED_DATABASE_VERSION;
 
 import tech.pegasys.web3signer.slashingprotection.dao.DatabaseVersionDao;
+import tech.pegasys.web3signer.slashingprotection.dao.HighWatermarkDao;
 import tech.pegasys.web3signer.slashingprotection.dao.LowWatermarkDao;
 import tech.pegasys.web3signer.slashingprotection.dao.MetadataDao;
 import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestationsDao;
 import tech.pegasys.web3signer.slashingprotection.dao.SignedBlocksDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SlashingCheckDao;
+import tech.pegasys.web3signer.slashingprotection.dao.ValidatorShardLeasesDao;
 import tech.pegasys.web3signer.slashingprotection.dao.ValidatorsDao;
+import tech.pegasys.web3signer.slashingprotection.journal.JournalSlashingProtection;
 
+import java.util.Optional;
+
+import io.vertx.core.Vertx;
+import org.hyperledger.besu.metrics.noop.NoOpMetricsSystem;
+import org.hyperledger.besu.plugin.services.MetricsSystem;
 import org.jdbi.v3.core.Jdbi;
 
 public class SlashingProtectionContextFactory {
 
   public static SlashingProtectionContext create(
       final SlashingProtectionParameters slashingProtectionParameters) {
+    return create(slashingProtectionParameters, new NoOpMetricsSystem());
+  }
+
+  public static SlashingProtectionContext create(
+      final SlashingProtectionParameters slashingProtectionParameters,
+      final MetricsSystem metricsSystem) {
+    if (slashingProtectionParameters.getJournalPath() != null) {
+      return createJournalContext(slashingProtectionParameters, metricsSystem);
+    }
+
     final Jdbi jdbi =
         DbConnection.createConnection(
             slashingProtectionParameters.getDbUrl(),
@@ -41,24 +61,195 @@ public class SlashingProtectionContextFactory {
             slashingProtectionParameters.getDbUrl(),
             slashingProtectionParameters.getDbUsername(),
             slashingProtectionParameters.getDbPassword(),
-            slashingProtectionParameters.getDbPoolConfigurationFile());
+            slashingProtectionParameters.getDbPoolConfigurationFile(),
+            slashingProtectionParameters.isPruningChunkedEnabled()
+                ? slashingProtectionParameters.getPruningThreads()
+                : 1);
 
     final ValidatorsDao validatorsDao = new ValidatorsDao();
-    final RegisteredValidators registeredValidators = new RegisteredValidators(jdbi, validatorsDao);
+    final SignedBlocksDao signedBlocksDao = new SignedBlocksDao();
+    final SignedAttestationsDao signedAttestationsDao =
+        new SignedAttestationsDao(slashingProtectionParameters.isSurroundIndexEnabled());
+    if (signedAttestationsDao.isSurroundIndexEnabled()) {
+      verifySurroundIndex(jdbi, signedAttestationsDao);
+    }
+    final LowWatermarkDao lowWatermarkDao = new LowWatermarkDao();
+    final Optional<ValidatorHistoryCache> historyCache =
+        slashingProtectionParameters.isHistoryCacheEnabled()
+            ? Optional.of(
+                new ValidatorHistoryCache(
+                    jdbi,
+                    signedBlocksDao,
+                    signedAttestationsDao,
+                    lowWatermarkDao,
+                    slashingProtectionParameters.getHistoryCacheEpochs(),
+                    slashingProtectionParameters.getPruningSlotsPerEpoch()))
+            : Optional.empty();
+    final Optional<AttestationBatcher> attestationBatcher =
+        slashingProtectionParameters.isAttestationBatchingEnabled()
+            ? Optional.of(
+                new AttestationBatcher(
+                    jdbi,
+                    signedAttestationsDao,
+                    lowWatermarkDao,
+                    slashingProtectionParameters.getAttestationBatchWindowMicroseconds(),
+                    slashingProtectionParameters.getAttestationBatchMaxSize(),
+                    metricsSystem))
+            : Optional.empty();
+    attestationBatcher.ifPresent(AttestationBatcher::start);
+    final Optional<ValidatorEnabledStatusCache> enabledStatusCache =
+        slashingProtectionParameters.isEnabledStatusCacheEnabled()
+            ? Optional.of(new ValidatorEnabledStatusCache(jdbi, validatorsDao))
+            : Optional.empty();
+    enabledStatusCache.ifPresent(ValidatorEnabledStatusCache::start);
+    final Optional<ChunkedDbPruner> chunkedPruner =
+        slashingProtectionParameters.isPruningChunkedEnabled()
+            ? Optional.of(
+                new ChunkedDbPruner(
+                    pruningJdbi,
+                    signedBlocksDao,
+                    signedAttestationsDao,
+                    lowWatermarkDao,
+                    slashingProtectionParameters.getPruningThreads(),
+                    slashingProtectionParameters.getPruningChunkSize(),
+                    slashingProtectionParameters.getPruningMaxRowsPerSecond(),
+                    metricsSystem))
+            : Optional.empty();
+    final Optional<InlinePruner> inlinePruner =
+        slashingProtectionParameters.isInlinePruningEnabled()
+            ? Optional.of(
+                new InlinePruner(
+                    signedBlocksDao,
+                    signedAttestationsDao,
+                    lowWatermarkDao,
+                    slashingProtectionParameters.getPruningEpochsToKeep(),
+                    slashingProtectionParameters.getPruningSlotsPerEpoch(),
+                    slashingProtectionParameters.getInlinePruningMaxRows(),
+                    metricsSystem))
+            : Optional.empty();
+    final Optional<ReadReplicaRouter> readReplicaRouter =
+        isEmpty(slashingProtectionParameters.getDbReplicaUrl())
+            ? Optional.empty()
+            : Optional.of(
+                new ReadReplicaRouter(
+                    jdbi,
+                    DbConnection.createReadReplicaConnection(
+                        slashingProtectionParameters.getDbReplicaUrl(),
+                        slashingProtectionParameters.getDbUsername(),
+                        slashingProtectionParameters.getDbPassword(),
+                        slashingProtectionParameters.getDbPoolConfigurationFile()),
+                    pruningJdbi,
+                    slashingProtectionParameters.getDbReplicaMaxLagMilliseconds(),
+                    metricsSystem));
+    final RegisteredValidators registeredValidators =
+        new RegisteredValidators(
+            RegisteredValidators.databaseRegistrar(jdbi, validatorsDao),
+            new PublicKeyIndex(),
+            historyCache,
+            slashingProtectionParameters.getRegistrationChunkSize(),
+            slashingProtectionParameters.getRegistrationThreads(),
+            metricsSystem);
+    final MetadataDao metadataDao = new MetadataDao();
+    final Optional<ValidatorShardLeases> shardLeases =
+        slashingProtectionParameters.isShardLeasingEnabled()
+            ? Optional.of(
+                new ValidatorShardLeases(
+                    jdbi,
+                    new ValidatorShardLeasesDao(),
+                    registeredValidators,
+                    historyCache,
+                    slashingProtectionParameters.getShardCount(),
+                    slashingProtectionParameters.getShardLeaseDurationMilliseconds(),
+                    metricsSystem))
+            : Optional.empty();
     final DbSlashingProtection dbSlashingProtection =
         new DbSlashingProtection(
             jdbi,
             pruningJdbi,
             validatorsDao,
-            new SignedBlocksDao(),
-            new SignedAttestationsDao(),
-            new MetadataDao(),
-            new LowWatermarkDao(),
+            signedBlocksDao,
+            signedAttestationsDao,
+            metadataDao,
+            lowWatermarkDao,
+            new HighWatermarkDao(),
             slashingProtectionParameters.getPruningEpochsToKeep(),
             slashingProtectionParameters.getPruningSlotsPerEpoch(),
-            registeredValidators);
+            registeredValidators,
+            historyCache,
+            attestationBatcher,
+            enabledStatusCache,
+            chunkedPruner,
+            inlinePruner,
+            readReplicaRouter,
+            shardLeases,
+            new SigningPhaseMetrics(
+                metricsSystem, slashingProtectionParameters.getSlowLockWaitThresholdMilliseconds()),
+            slashingProtectionParameters.getImportBatchSize(),
+            slashingProtectionParameters.getImportThreads(),
+            slashingProtectionParameters.isImportStagingEnabled(),
+            slashingProtectionParameters.getExportThreads());
+    final SlashingProtection databaseSlashingProtection =
+        slashingProtectionParameters.isDbFunctionsEnabled()
+            ? new DbFunctionSlashingProtection(
+                jdbi,
+                registeredValidators,
+                new SlashingCheckDao(),
+                metadataDao,
+                dbSlashingProtection)
+            : dbSlashingProtection;
+    final Optional<CircuitBreakerSlashingProtection> circuitBreaker =
+        slashingProtectionParameters.isCircuitBreakerEnabled()
+            ? Optional.of(
+                new CircuitBreakerSlashingProtection(
+                    databaseSlashingProtection,
+                    slashingProtectionParameters.getCircuitBreakerFailureRateThreshold(),
+                    slashingProtectionParameters.getCircuitBreakerSlowCallThresholdMilliseconds(),
+                    slashingProtectionParameters.getCircuitBreakerWindowSize(),
+                    slashingProtectionParameters.getCircuitBreakerOpenDurationMilliseconds(),
+                    metricsSystem))
+            : Optional.empty();
+    final SlashingProtection slashingProtection =
+        circuitBreaker.isPresent() ? circuitBreaker.get() : databaseSlashingProtection;
+    shardLeases.ifPresent(ValidatorShardLeases::start);
     return new SlashingProtectionContext(
-        jdbi, pruningJdbi, registeredValidators, dbSlashingProtection);
+        jdbi, pruningJdbi, registeredValidators, slashingProtection, shardLeases, circuitBreaker);
+  }
+
+  /**
+   * Creates slashing checks made with the reactive Postgres client, which must be created with the
+   * Vert.x instance handling signing requests.
+   */
+  public static AsyncSlashingProtection createAsyncSlashingProtection(
+      final Vertx vertx,
+      final SlashingProtectionParameters slashingProtectionParameters,
+      final RegisteredValidators registeredValidators) {
+    return new PgClientSlashingProtection(
+        PgClientSlashingProtection.createPool(
+            vertx,
+            slashingProtectionParameters.getDbUrl(),
+            slashingProtectionParameters.getDbUsername(),
+            slashingProtectionParameters.getDbPassword(),
+            slashingProtectionParameters.getReactiveClientPoolSize()),
+        registeredValidators);
+  }
+
+  private static SlashingProtectionContext createJournalContext(
+      final SlashingProtectionParameters slashingProtectionParameters,
+      final MetricsSystem metricsSystem) {
+    final JournalSlashingProtection journalSlashingProtection =
+        new JournalSlashingProtection(
+            slashingProtectionParameters.getJournalPath(),
+            slashingProtectionParameters.getPruningEpochsToKeep(),
+            slashingProtectionParameters.getPruningSlotsPerEpoch());
+    final RegisteredValidators registeredValidators =
+        new RegisteredValidators(
+            journalSlashingProtection::registerValidators,
+            new PublicKeyIndex(),
+            Optional.empty(),
+            slashingProtectionParameters.getRegistrationChunkSize(),
+            1,
+            metricsSystem);
+    return new SlashingProtectionContext(registeredValidators, journalSlashingProtection);
   }
 
   private static void verifyVersion(final Jdbi jdbi) {
@@ -81,4 +272,13 @@ public class SlashingProtectionContextFactory {
       throw new IllegalStateException(errorMsg);
     }
   }
+
+  private static void verifySurroundIndex(
+      final Jdbi jdbi, final SignedAttestationsDao signedAttestationsDao) {
+    if (!jdbi.withHandle(signedAttestationsDao::hasSurroundIndex)) {
+      throw new IllegalStateException(
+          "Slashing protection surround index is enabled but the signed_attestations_epoch_range "
+              + "index does not exist, please create it as described in migration V00017");
+    }
+  }
 }
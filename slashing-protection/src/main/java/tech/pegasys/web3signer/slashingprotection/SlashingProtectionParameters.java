@@ -27,6 +27,11 @@ public interface SlashingProtectionParameters {
 
   Path getDbPoolConfigurationFile();
 
+  /** JDBC url of a streaming replica used for reads which aren't part of signing, or null. */
+  String getDbReplicaUrl();
+
+  long getDbReplicaMaxLagMilliseconds();
+
   boolean isPruningEnabled();
 
   long getPruningEpochsToKeep();
@@ -39,7 +44,81 @@ public interface SlashingProtectionParameters {
 
   boolean isPruningAtBootEnabled();
 
+  boolean isPruningChunkedEnabled();
+
+  int getPruningThreads();
+
+  int getPruningChunkSize();
+
+  long getPruningMaxRowsPerSecond();
+
+  boolean isInlinePruningEnabled();
+
+  int getInlinePruningMaxRows();
+
+  /** Number of validators imported per transaction, or 0 to import in a single transaction. */
+  int getImportBatchSize();
+
+  int getImportThreads();
+
+  boolean isImportStagingEnabled();
+
+  int getExportThreads();
+
   long getDbHealthCheckTimeoutMilliseconds();
 
   long getDbHealthCheckIntervalMilliseconds();
+
+  boolean isHistoryCacheEnabled();
+
+  long getHistoryCacheEpochs();
+
+  boolean isAttestationBatchingEnabled();
+
+  long getAttestationBatchWindowMicroseconds();
+
+  int getAttestationBatchMaxSize();
+
+  boolean isDbFunctionsEnabled();
+
+  boolean isEnabledStatusCacheEnabled();
+
+  boolean isReactiveClientEnabled();
+
+  int getReactiveClientPoolSize();
+
+  long getSlowLockWaitThresholdMilliseconds();
+
+  boolean isConcurrentSigningEnabled();
+
+  boolean isSignatureCacheEnabled();
+
+  long getSignatureCacheSize();
+
+  long getSignatureCacheExpirySeconds();
+
+  boolean isShardLeasingEnabled();
+
+  int getShardCount();
+
+  long getShardLeaseDurationMilliseconds();
+
+  int getRegistrationChunkSize();
+
+  int getRegistrationThreads();
+
+  boolean isSurroundIndexEnabled();
+
+  boolean isCircuitBreakerEnabled();
+
+  int getCircuitBreakerFailureRateThreshold();
+
+  long getCircuitBreakerSlowCallThresholdMilliseconds();
+
+  int getCircuitBreakerWindowSize();
+
+  long getCircuitBreakerOpenDurationMilliseconds();
+
+  /** Directory for the journal backend, or null if slashing protection uses the database. */
+  Path getJournalPath();
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import tech.pegasys.web3signer.slashingprotection.dao.ValidatorsDao;
+
+import java.sql.SQLException;
+import java.util.BitSet;
+import java.util.List;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+/**
+ * In memory record of which validators are enabled, kept up to date across all instances sharing
+ * the slashing database by listening for the notifications raised when a validator's enabled
+ * status changes.
+ *
+ * <p>Only a positive answer is served from memory. Signed data for a validator cached as enabled
+ * must be inserted with a statement that also checks the enabled flag, so a validator disabled by
+ * another instance can't have new signed data recorded before its notification arrives. While the
+ * listening connection is down no validator is reported as enabled and callers use the database.
+ */
+public class ValidatorEnabledStatusCache {
+  private static final Logger LOG = LogManager.getLogger();
+  static final String CHANNEL = "validator_enabled_status";
+  private static final int NOTIFICATION_POLL_TIMEOUT_MILLIS = 1000;
+  private static final long RECONNECT_DELAY_MILLIS = 5000;
+
+  private final Jdbi jdbi;
+  private final ValidatorsDao validatorsDao;
+  private final BitSet enabledValidators = new BitSet();
+  private boolean listening;
+
+  public ValidatorEnabledStatusCache(final Jdbi jdbi, final ValidatorsDao validatorsDao) {
+    this.jdbi = jdbi;
+    this.validatorsDao = validatorsDao;
+  }
+
+  public void start() {
+    new ThreadFactoryBuilder()
+        .setNameFormat("slashing-protection-validator-status-listener")
+        .setDaemon(true)
+        .build()
+        .newThread(this::listen)
+        .start();
+  }
+
+  public synchronized boolean isEnabled(final int validatorId) {
+    return listening && enabledValidators.get(validatorId);
+  }
+
+  private void listen() {
+    while (!Thread.currentThread().isInterrupted()) {
+      try (final Handle handle = jdbi.open()) {
+        // listen before loading so no change made after the load can be missed
+        handle.execute("LISTEN " + CHANNEL);
+        final PGConnection connection = handle.getConnection().unwrap(PGConnection.class);
+        load(validatorsDao.findEnabledValidatorIds(handle));
+        LOG.info("Listening for validator enabled status changes");
+
+        while (!Thread.currentThread().isInterrupted()) {
+          final PGNotification[] notifications =
+              connection.getNotifications(NOTIFICATION_POLL_TIMEOUT_MILLIS);
+          if (notifications != null) {
+            for (final PGNotification notification : notifications) {
+              apply(notification.getParameter());
+            }
+          }
+        }
+      } catch (final SQLException | RuntimeException e) {
+        stopListening();
+        LOG.warn(
+            "Unable to listen for validator enabled status changes, using database until reconnected",
+            e);
+        try {
+          Thread.sleep(RECONNECT_DELAY_MILLIS);
+        } catch (final InterruptedException ie) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+    stopListening();
+  }
+
+  synchronized void load(final List<Integer> enabledValidatorIds) {
+    enabledValidators.clear();
+    enabledValidatorIds.forEach(enabledValidators::set);
+    listening = true;
+  }
+
+  synchronized void apply(final String payload) {
+    final String[] parts = payload.split(",");
+    if (parts.length != 2) {
+      LOG.warn("Ignoring invalid validator enabled status notification {}", payload);
+      return;
+    }
+    try {
+      enabledValidators.set(Integer.parseInt(parts[0]), Boolean.parseBoolean(parts[1]));
+    } catch (final NumberFormatException e) {
+      LOG.warn("Ignoring invalid validator enabled status notification {}", payload);
+    }
+  }
+
+  private synchronized void stopListening() {
+    listening = false;
+    enabledValidators.clear();
+  }
+}
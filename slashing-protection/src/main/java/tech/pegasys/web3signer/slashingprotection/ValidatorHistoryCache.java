@@ -0,0 +1,247 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import static org.jdbi.v3.core.transaction.TransactionIsolationLevel.READ_COMMITTED;
+import static tech.pegasys.web3signer.slashingprotection.DbLocker.lockForValidator;
+
+import tech.pegasys.web3signer.slashingprotection.DbLocker.LockType;
+import tech.pegasys.web3signer.slashingprotection.ValidatorSlashingHistory.CheckResult;
+import tech.pegasys.web3signer.slashingprotection.dao.LowWatermarkDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestation;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestationsDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedBlock;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedBlocksDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SigningWatermark;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.units.bigints.UInt64;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+
+/**
+ * Write-through cache of the recent slashing protection history for each registered validator.
+ *
+ * <p>Slashing checks are decided from memory and only the resulting insert is sent to the
+ * database. Requests which reach below the cached window, or whose insert fails, are delegated to
+ * the supplied database check. The cache assumes this instance is the only signer for its
+ * validators; history written by other instances is only picked up when a validator's entry is
+ * reloaded. It is therefore only used together with {@link ValidatorShardLeases}, which reloads a
+ * validator's history whenever its shard is leased.
+ */
+public class ValidatorHistoryCache {
+  private static final Logger LOG = LogManager.getLogger();
+
+  private final Jdbi jdbi;
+  private final SignedBlocksDao signedBlocksDao;
+  private final SignedAttestationsDao signedAttestationsDao;
+  private final LowWatermarkDao lowWatermarkDao;
+  private final long epochsToKeep;
+  private final long slotsToKeep;
+  private final Map<Integer, ValidatorSlashingHistory> histories = new ConcurrentHashMap<>();
+
+  @FunctionalInterface
+  public interface Persister<T> {
+    /**
+     * Writes the signed data to the database, returning false if signing must not proceed.
+     *
+     * @param signedData the permitted signed attestation or block
+     * @param alreadyExists true if the database already holds a matching entry
+     * @param watermarkIsEmpty true if the low watermark must be initialised from the signed data
+     */
+    boolean persist(T signedData, boolean alreadyExists, boolean watermarkIsEmpty);
+  }
+
+  public ValidatorHistoryCache(
+      final Jdbi jdbi,
+      final SignedBlocksDao signedBlocksDao,
+      final SignedAttestationsDao signedAttestationsDao,
+      final LowWatermarkDao lowWatermarkDao,
+      final long epochsToKeep,
+      final long slotsPerEpoch) {
+    this.jdbi = jdbi;
+    this.signedBlocksDao = signedBlocksDao;
+    this.signedAttestationsDao = signedAttestationsDao;
+    this.lowWatermarkDao = lowWatermarkDao;
+    this.epochsToKeep = epochsToKeep;
+    this.slotsToKeep = epochsToKeep * slotsPerEpoch;
+  }
+
+  public void warmUp(final Collection<Integer> validatorIds) {
+    LOG.info("Loading slashing protection history cache for {} validators", validatorIds.size());
+    validatorIds.forEach(
+        validatorId -> {
+          final ValidatorSlashingHistory history = historyFor(validatorId);
+          synchronized (history.attestationLock()) {
+            synchronized (history.blockLock()) {
+              if (!history.isAttestationHistoryLoaded() || !history.isBlockHistoryLoaded()) {
+                jdbi.useTransaction(
+                    READ_COMMITTED,
+                    h -> {
+                      loadAttestationHistory(h, validatorId, history);
+                      loadBlockHistory(h, validatorId, history);
+                    });
+              }
+            }
+          }
+        });
+    LOG.info("Slashing protection history cache loaded");
+  }
+
+  public void invalidate(final int validatorId) {
+    final ValidatorSlashingHistory history = histories.get(validatorId);
+    if (history != null) {
+      synchronized (history.attestationLock()) {
+        history.invalidateAttestationHistory();
+      }
+      synchronized (history.blockLock()) {
+        history.invalidateBlockHistory();
+      }
+    }
+  }
+
+  public void invalidateAll() {
+    histories.keySet().forEach(this::invalidate);
+  }
+
+  public boolean maySignAttestation(
+      final int validatorId,
+      final Bytes publicKey,
+      final Bytes signingRoot,
+      final UInt64 sourceEpoch,
+      final UInt64 targetEpoch,
+      final Persister<SignedAttestation> persister,
+      final BooleanSupplier databaseCheck) {
+    final ValidatorSlashingHistory history = historyFor(validatorId);
+    synchronized (history.attestationLock()) {
+      if (!history.isAttestationHistoryLoaded()) {
+        jdbi.useTransaction(READ_COMMITTED, h -> loadAttestationHistory(h, validatorId, history));
+      }
+
+      final SignedAttestation signedAttestation =
+          new SignedAttestation(validatorId, sourceEpoch, targetEpoch, signingRoot);
+      final CheckResult result =
+          history.checkAttestation(publicKey, signingRoot, sourceEpoch, targetEpoch);
+      switch (result) {
+        case REJECTED:
+          return false;
+        case UNKNOWN:
+          final boolean permitted = databaseCheck.getAsBoolean();
+          if (permitted) {
+            history.recordAttestation(signedAttestation);
+          }
+          return permitted;
+        default:
+          try {
+            final boolean persisted =
+                persister.persist(
+                    signedAttestation,
+                    result == CheckResult.PERMITTED_EXISTING,
+                    history.hasEmptyEpochWatermark());
+            if (persisted && result == CheckResult.PERMITTED_NEW) {
+              history.recordAttestation(signedAttestation);
+            }
+            return persisted;
+          } catch (final RuntimeException e) {
+            LOG.debug(
+                "Cached attestation history for validator {} is stale, using database", publicKey, e);
+            history.invalidateAttestationHistory();
+            return databaseCheck.getAsBoolean();
+          }
+      }
+    }
+  }
+
+  public boolean maySignBlock(
+      final int validatorId,
+      final Bytes publicKey,
+      final Bytes signingRoot,
+      final UInt64 blockSlot,
+      final Persister<SignedBlock> persister,
+      final BooleanSupplier databaseCheck) {
+    final ValidatorSlashingHistory history = historyFor(validatorId);
+    synchronized (history.blockLock()) {
+      if (!history.isBlockHistoryLoaded()) {
+        jdbi.useTransaction(READ_COMMITTED, h -> loadBlockHistory(h, validatorId, history));
+      }
+
+      final SignedBlock signedBlock = new SignedBlock(validatorId, blockSlot, signingRoot);
+      final CheckResult result = history.checkBlock(signingRoot, blockSlot);
+      switch (result) {
+        case REJECTED:
+          return false;
+        case UNKNOWN:
+          final boolean permitted = databaseCheck.getAsBoolean();
+          if (permitted) {
+            history.recordBlock(signedBlock);
+          }
+          return permitted;
+        default:
+          try {
+            final boolean persisted =
+                persister.persist(
+                    signedBlock,
+                    result == CheckResult.PERMITTED_EXISTING,
+                    history.hasEmptySlotWatermark());
+            if (persisted && result == CheckResult.PERMITTED_NEW) {
+              history.recordBlock(signedBlock);
+            }
+            return persisted;
+          } catch (final RuntimeException e) {
+            LOG.debug(
+                "Cached block history for validator {} is stale, using database", publicKey, e);
+            history.invalidateBlockHistory();
+            return databaseCheck.getAsBoolean();
+          }
+      }
+    }
+  }
+
+  private ValidatorSlashingHistory historyFor(final int validatorId) {
+    return histories.computeIfAbsent(
+        validatorId, id -> new ValidatorSlashingHistory(id, epochsToKeep, slotsToKeep));
+  }
+
+  private void loadAttestationHistory(
+      final Handle handle, final int validatorId, final ValidatorSlashingHistory history) {
+    // lock so that in-flight signings from other instances are visible once loaded
+    lockForValidator(handle, LockType.ATTESTATION, validatorId);
+    final Optional<SigningWatermark> watermark =
+        lowWatermarkDao.findLowWatermarkForValidator(handle, validatorId);
+    final UInt64 floor =
+        history.attestationFloorFor(signedAttestationsDao.findMaxTargetEpoch(handle, validatorId));
+    history.loadAttestationHistory(
+        watermark,
+        floor,
+        signedAttestationsDao.findAttestationsWithTargetEpochAtLeast(handle, validatorId, floor),
+        signedAttestationsDao.hasAttestationWithSourceAfterTarget(handle, validatorId));
+  }
+
+  private void loadBlockHistory(
+      final Handle handle, final int validatorId, final ValidatorSlashingHistory history) {
+    lockForValidator(handle, LockType.BLOCK, validatorId);
+    final Optional<SigningWatermark> watermark =
+        lowWatermarkDao.findLowWatermarkForValidator(handle, validatorId);
+    final UInt64 floor = history.blockFloorFor(signedBlocksDao.findMaxSlot(handle, validatorId));
+    history.loadBlockHistory(
+        watermark, floor, signedBlocksDao.findBlocksWithSlotAtLeast(handle, validatorId, floor));
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import static org.jdbi.v3.core.transaction.TransactionIsolationLevel.READ_COMMITTED;
+import static tech.pegasys.web3signer.common.Web3SignerMetricCategory.ETH2_SLASHING_PROTECTION;
+
+import tech.pegasys.web3signer.slashingprotection.dao.ValidatorShardLeasesDao;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.tuweni.bytes.Bytes;
+import org.hyperledger.besu.plugin.services.MetricsSystem;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+
+/**
+ * Divides the validators between the instances sharing the slashing database, so each validator is
+ * only signed for by the instance holding the lease on its shard. A validator's shard is its id
+ * modulo the shard count.
+ *
+ * <p>Each instance heartbeats a few times per lease duration, renewing its leases and claiming
+ * unowned or expired shards up to its fair share of the live instances. Shards above the fair share
+ * stop being served immediately but are left to expire rather than released, so requests already
+ * in flight finish before another instance can claim them. An instance which can't reach the
+ * database stops serving its shards when its leases would have expired.
+ *
+ * <p>The history of the validators in a newly leased shard is reloaded from the database, as
+ * another instance may have signed for them, and is then held in memory while the lease is kept.
+ * The lease is checked again under the validator lock when a signing is recorded, so a request
+ * which outlives the lease is decided by the database rather than the held history.
+ */
+public class ValidatorShardLeases {
+  private static final Logger LOG = LogManager.getLogger();
+  private static final int HEARTBEATS_PER_LEASE = 3;
+
+  private final Jdbi jdbi;
+  private final ValidatorShardLeasesDao validatorShardLeasesDao;
+  private final RegisteredValidators registeredValidators;
+  private final Optional<ValidatorHistoryCache> historyCache;
+  private final int shardCount;
+  private final long leaseMillis;
+  private final String instanceId = UUID.randomUUID().toString();
+  private final ScheduledExecutorService heartbeatExecutor =
+      Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder()
+              .setNameFormat("slashing-protection-shard-leases")
+              .setDaemon(true)
+              .build());
+  private final ExecutorService warmUpExecutor =
+      Executors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder()
+              .setNameFormat("slashing-protection-shard-warm-up")
+              .setDaemon(true)
+              .build());
+
+  private volatile LeasedShards leasedShards = new LeasedShards(Set.of(), 0);
+
+  public ValidatorShardLeases(
+      final Jdbi jdbi,
+      final ValidatorShardLeasesDao validatorShardLeasesDao,
+      final RegisteredValidators registeredValidators,
+      final Optional<ValidatorHistoryCache> historyCache,
+      final int shardCount,
+      final long leaseMillis,
+      final MetricsSystem metricsSystem) {
+    this.jdbi = jdbi;
+    this.validatorShardLeasesDao = validatorShardLeasesDao;
+    this.registeredValidators = registeredValidators;
+    this.historyCache = historyCache;
+    this.shardCount = shardCount;
+    this.leaseMillis = leaseMillis;
+
+    metricsSystem.createGauge(
+        ETH2_SLASHING_PROTECTION,
+        "leased_validator_shards",
+        "Number of validator shards this instance currently signs for",
+        () -> leasedShards.shards.size());
+  }
+
+  public void start() {
+    final int existingShardCount =
+        jdbi.inTransaction(
+            READ_COMMITTED,
+            h -> {
+              validatorShardLeasesDao.createShards(h, shardCount);
+              return validatorShardLeasesDao.findShardCount(h);
+            });
+    if (existingShardCount != shardCount) {
+      throw new IllegalStateException(
+          String.format(
+              "Slashing protection shard count (%s) does not match the %s shards leased in the database",
+              shardCount, existingShardCount));
+    }
+    LOG.info("Leasing validator shards as slashing protection instance {}", instanceId);
+    final long heartbeatMillis = Math.max(leaseMillis / HEARTBEATS_PER_LEASE, 1);
+    heartbeatExecutor.scheduleWithFixedDelay(
+        this::heartbeat, 0, heartbeatMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns true if this instance holds the lease for the validator's shard. Validators which
+   * aren't registered are reported as served so that the request fails as an unknown signer.
+   */
+  public boolean isServedHere(final Bytes publicKey) {
+    return registeredValidators
+        .getValidatorIdForPublicKey(publicKey)
+        .map(this::isServedHere)
+        .orElse(true);
+  }
+
+  public boolean isServedHere(final int validatorId) {
+    final LeasedShards current = leasedShards;
+    return System.nanoTime() - current.validUntilNanos < 0
+        && current.shards.contains(shardFor(validatorId));
+  }
+
+  void heartbeat() {
+    // measured before the database sets the expiry so the local lease ends first
+    final long validUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(leaseMillis);
+    try {
+      final Set<Integer> claimed = new HashSet<>();
+      final Set<Integer> shards =
+          jdbi.inTransaction(READ_COMMITTED, h -> renewAndClaimLeases(h, claimed));
+      reloadHistory(claimed);
+      leasedShards = new LeasedShards(Set.copyOf(shards), validUntilNanos);
+      if (!claimed.isEmpty()) {
+        LOG.info("Leased validator shards {}, now signing for {} shards", claimed, shards.size());
+      }
+    } catch (final RuntimeException e) {
+      LOG.warn("Failed to renew validator shard leases", e);
+    }
+  }
+
+  private Set<Integer> renewAndClaimLeases(final Handle handle, final Set<Integer> claimed) {
+    validatorShardLeasesDao.heartbeat(handle, instanceId, leaseMillis);
+    final int liveInstances = Math.max(validatorShardLeasesDao.countLiveInstances(handle), 1);
+    final int fairShare = (shardCount + liveInstances - 1) / liveInstances;
+
+    final List<Integer> leased = validatorShardLeasesDao.findLeasedShards(handle, instanceId);
+    final List<Integer> kept = leased.subList(0, Math.min(fairShare, leased.size()));
+    if (kept.size() < leased.size()) {
+      final List<Integer> surplus = leased.subList(kept.size(), leased.size());
+      stopServing(surplus);
+      LOG.info("Leaving validator shards {} to expire to rebalance", surplus);
+    }
+
+    final Set<Integer> shards =
+        new HashSet<>(validatorShardLeasesDao.renewLeases(handle, instanceId, kept, leaseMillis));
+    if (shards.size() < fairShare) {
+      // includes shards whose lease lapsed, another instance may have signed for them meanwhile
+      claimed.addAll(
+          validatorShardLeasesDao.claimLeases(
+              handle, instanceId, fairShare - shards.size(), leaseMillis));
+      shards.addAll(claimed);
+    }
+    return shards;
+  }
+
+  private void stopServing(final List<Integer> shards) {
+    final LeasedShards current = leasedShards;
+    final Set<Integer> remaining = new HashSet<>(current.shards);
+    shards.forEach(remaining::remove);
+    leasedShards = new LeasedShards(Set.copyOf(remaining), current.validUntilNanos);
+  }
+
+  private void reloadHistory(final Set<Integer> shards) {
+    if (shards.isEmpty() || historyCache.isEmpty()) {
+      return;
+    }
+    final List<Integer> validatorIds =
+        registeredValidators.validatorIds().stream()
+            .filter(validatorId -> shards.contains(shardFor(validatorId)))
+            .collect(Collectors.toList());
+    // drop anything held from an earlier lease before the shard is served again
+    validatorIds.forEach(historyCache.get()::invalidate);
+    warmUpExecutor.execute(
+        () -> {
+          try {
+            historyCache.get().warmUp(validatorIds);
+          } catch (final RuntimeException e) {
+            LOG.warn("Failed to load history for leased validator shards {}", shards, e);
+          }
+        });
+  }
+
+  private int shardFor(final int validatorId) {
+    return Math.floorMod(validatorId, shardCount);
+  }
+
+  private static class LeasedShards {
+    private final Set<Integer> shards;
+    private final long validUntilNanos;
+
+    private LeasedShards(final Set<Integer> shards, final long validUntilNanos) {
+      this.shards = shards;
+      this.validUntilNanos = validUntilNanos;
+    }
+  }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestation;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedBlock;
+import tech.pegasys.web3signer.slashingprotection.dao.SigningWatermark;
+
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.units.bigints.UInt64;
+
+/**
+ * In memory copy of the recent slashing protection history of a single validator.
+ *
+ * <p>All signed attestations with a target epoch at or above the attestation floor and all signed
+ * blocks with a slot at or above the block floor are held, along with the low watermarks. Checks
+ * which reach below a floor can't be answered from memory and are reported as {@link
+ * CheckResult#UNKNOWN}. Imported history can hold attestations with a source after their target.
+ * The floor doesn't bound the attestations these can be surrounded by, so every attestation check
+ * for a validator holding one is reported as unknown.
+ *
+ * <p>Attestation and block state are guarded by {@link #attestationLock()} and {@link
+ * #blockLock()} respectively, which callers must hold for the duration of a check and the
+ * subsequent record.
+ */
+class ValidatorSlashingHistory {
+  private static final Logger LOG = LogManager.getLogger();
+
+  enum CheckResult {
+    PERMITTED_NEW,
+    PERMITTED_EXISTING,
+    REJECTED,
+    UNKNOWN
+  }
+
+  private final int validatorId;
+  private final long epochsToKeep;
+  private final long slotsToKeep;
+
+  private final Object attestationLock = new Object();
+  private final NavigableMap<UInt64, SignedAttestation> attestations = new TreeMap<>();
+  private boolean attestationsLoaded;
+  private UInt64 attestationFloor = UInt64.ZERO;
+  private UInt64 sourceEpochWatermark;
+  private UInt64 targetEpochWatermark;
+  private UInt64 maxSourceEpoch;
+  private UInt64 maxTargetEpoch;
+  private boolean hasSourceAfterTarget;
+
+  private final Object blockLock = new Object();
+  private final NavigableMap<UInt64, SignedBlock> blocks = new TreeMap<>();
+  private boolean blocksLoaded;
+  private UInt64 blockFloor = UInt64.ZERO;
+  private UInt64 slotWatermark;
+
+  ValidatorSlashingHistory(final int validatorId, final long epochsToKeep, final long slotsToKeep) {
+    this.validatorId = validatorId;
+    this.epochsToKeep = epochsToKeep;
+    this.slotsToKeep = slotsToKeep;
+  }
+
+  Object attestationLock() {
+    return attestationLock;
+  }
+
+  Object blockLock() {
+    return blockLock;
+  }
+
+  boolean isAttestationHistoryLoaded() {
+    return attestationsLoaded;
+  }
+
+  boolean isBlockHistoryLoaded() {
+    return blocksLoaded;
+  }
+
+  UInt64 attestationFloorFor(final Optional<UInt64> maxTargetEpoch) {
+    return maxTargetEpoch.map(max -> floorFor(max, epochsToKeep)).orElse(UInt64.ZERO);
+  }
+
+  UInt64 blockFloorFor(final Optional<UInt64> maxSlot) {
+    return maxSlot.map(max -> floorFor(max, slotsToKeep)).orElse(UInt64.ZERO);
+  }
+
+  void loadAttestationHistory(
+      final Optional<SigningWatermark> watermark,
+      final UInt64 floor,
+      final List<SignedAttestation> signedAttestations,
+      final boolean hasSourceAfterTarget) {
+    attestations.clear();
+    maxSourceEpoch = null;
+    maxTargetEpoch = null;
+    attestationFloor = floor;
+    sourceEpochWatermark = watermark.map(SigningWatermark::getSourceEpoch).orElse(null);
+    targetEpochWatermark = watermark.map(SigningWatermark::getTargetEpoch).orElse(null);
+    this.hasSourceAfterTarget = hasSourceAfterTarget;
+    signedAttestations.forEach(this::addAttestation);
+    attestationsLoaded = true;
+  }
+
+  void loadBlockHistory(
+      final Optional<SigningWatermark> watermark,
+      final UInt64 floor,
+      final List<SignedBlock> signedBlocks) {
+    blocks.clear();
+    blockFloor = floor;
+    slotWatermark = watermark.map(SigningWatermark::getSlot).orElse(null);
+    signedBlocks.forEach(block -> blocks.put(block.getSlot(), block));
+    blocksLoaded = true;
+  }
+
+  void invalidateAttestationHistory() {
+    attestations.clear();
+    attestationsLoaded = false;
+  }
+
+  void invalidateBlockHistory() {
+    blocks.clear();
+    blocksLoaded = false;
+  }
+
+  boolean hasEmptyEpochWatermark() {
+    return sourceEpochWatermark == null && targetEpochWatermark == null;
+  }
+
+  boolean hasEmptySlotWatermark() {
+    return slotWatermark == null;
+  }
+
+  CheckResult checkAttestation(
+      final Bytes publicKey,
+      final Bytes signingRoot,
+      final UInt64 sourceEpoch,
+      final UInt64 targetEpoch) {
+    if (sourceEpoch.compareTo(targetEpoch) > 0) {
+      LOG.warn(
+          "Detected sourceEpoch {} greater than targetEpoch {} for {}",
+          sourceEpoch,
+          targetEpoch,
+          publicKey);
+      return CheckResult.REJECTED;
+    }
+
+    if (sourceEpochWatermark != null && sourceEpoch.compareTo(sourceEpochWatermark) < 0) {
+      LOG.warn(
+          "Attestation source epoch {} is below minimum existing attestation source epoch {}",
+          sourceEpoch,
+          sourceEpochWatermark);
+      return CheckResult.REJECTED;
+    }
+
+    if (targetEpochWatermark != null && targetEpoch.compareTo(targetEpochWatermark) < 0) {
+      LOG.warn(
+          "Attestation target epoch {} is below minimum existing attestation target epoch {}",
+          targetEpoch,
+          targetEpochWatermark);
+      return CheckResult.REJECTED;
+    }
+
+    // any attestation this could surround or be surrounded by has a target above the source epoch,
+    // unless it was imported with a source after its target
+    if (hasSourceAfterTarget || sourceEpoch.compareTo(attestationFloor) < 0) {
+      return CheckResult.UNKNOWN;
+    }
+
+    final SignedAttestation existing = attestations.get(targetEpoch);
+    if (existing != null && !existing.getSigningRoot().map(signingRoot::equals).orElse(false)) {
+      return CheckResult.REJECTED;
+    }
+
+    if (!isAheadOfAllAttestations(sourceEpoch, targetEpoch)) {
+      if (isSurroundedByExistingAttestation(sourceEpoch, targetEpoch)) {
+        LOG.warn(
+            "Detected surrounding attestations for attestation signingRoot={} sourceEpoch={} targetEpoch={} publicKey={}",
+            signingRoot,
+            sourceEpoch,
+            targetEpoch,
+            publicKey);
+        return CheckResult.REJECTED;
+      }
+      if (surroundsExistingAttestation(sourceEpoch, targetEpoch)) {
+        LOG.warn(
+            "Detected surrounded attestations for attestation signingRoot={} sourceEpoch={} targetEpoch={} publicKey={}",
+            signingRoot,
+            sourceEpoch,
+            targetEpoch,
+            publicKey);
+        return CheckResult.REJECTED;
+      }
+    }
+
+    return existing == null ? CheckResult.PERMITTED_NEW : CheckResult.PERMITTED_EXISTING;
+  }
+
+  void recordAttestation(final SignedAttestation signedAttestation) {
+    if (hasEmptyEpochWatermark()) {
+      sourceEpochWatermark = signedAttestation.getSourceEpoch();
+      targetEpochWatermark = signedAttestation.getTargetEpoch();
+    }
+    if (signedAttestation.getTargetEpoch().compareTo(attestationFloor) < 0) {
+      return;
+    }
+    addAttestation(signedAttestation);
+
+    final UInt64 newFloor = floorFor(maxTargetEpoch, epochsToKeep);
+    if (newFloor.compareTo(attestationFloor) > 0) {
+      attestations.headMap(newFloor, false).clear();
+      attestationFloor = newFloor;
+    }
+  }
+
+  CheckResult checkBlock(final Bytes signingRoot, final UInt64 blockSlot) {
+    if (slotWatermark != null && blockSlot.compareTo(slotWatermark) < 0) {
+      LOG.warn("Block slot {} is below minimum existing block slot {}", blockSlot, slotWatermark);
+      return CheckResult.REJECTED;
+    }
+
+    if (blockSlot.compareTo(blockFloor) < 0) {
+      return CheckResult.UNKNOWN;
+    }
+
+    final SignedBlock existing = blocks.get(blockSlot);
+    if (existing == null) {
+      return CheckResult.PERMITTED_NEW;
+    }
+    return existing.getSigningRoot().map(signingRoot::equals).orElse(false)
+        ? CheckResult.PERMITTED_EXISTING
+        : CheckResult.REJECTED;
+  }
+
+  void recordBlock(final SignedBlock signedBlock) {
+    if (hasEmptySlotWatermark()) {
+      slotWatermark = signedBlock.getSlot();
+    }
+    if (signedBlock.getSlot().compareTo(blockFloor) < 0) {
+      return;
+    }
+    blocks.put(signedBlock.getSlot(), signedBlock);
+
+    final UInt64 newFloor = floorFor(blocks.lastKey(), slotsToKeep);
+    if (newFloor.compareTo(blockFloor) > 0) {
+      blocks.headMap(newFloor, false).clear();
+      blockFloor = newFloor;
+    }
+  }
+
+  private void addAttestation(final SignedAttestation signedAttestation) {
+    attestations.put(signedAttestation.getTargetEpoch(), signedAttestation);
+    if (maxSourceEpoch == null || signedAttestation.getSourceEpoch().compareTo(maxSourceEpoch) > 0) {
+      maxSourceEpoch = signedAttestation.getSourceEpoch();
+    }
+    if (maxTargetEpoch == null || signedAttestation.getTargetEpoch().compareTo(maxTargetEpoch) > 0) {
+      maxTargetEpoch = signedAttestation.getTargetEpoch();
+    }
+  }
+
+  private boolean isAheadOfAllAttestations(final UInt64 sourceEpoch, final UInt64 targetEpoch) {
+    // an attestation at or after every existing source and target can't be part of a surround vote
+    return maxTargetEpoch == null
+        || (sourceEpoch.compareTo(maxSourceEpoch) >= 0
+            && targetEpoch.compareTo(maxTargetEpoch) >= 0);
+  }
+
+  private boolean isSurroundedByExistingAttestation(
+      final UInt64 sourceEpoch, final UInt64 targetEpoch) {
+    return attestations.tailMap(targetEpoch, false).values().stream()
+        .anyMatch(a -> a.getSourceEpoch().compareTo(sourceEpoch) < 0);
+  }
+
+  private boolean surroundsExistingAttestation(
+      final UInt64 sourceEpoch, final UInt64 targetEpoch) {
+    if (sourceEpoch.compareTo(targetEpoch) >= 0) {
+      return false;
+    }
+    return attestations.subMap(sourceEpoch, false, targetEpoch, false).values().stream()
+        .anyMatch(a -> a.getSourceEpoch().compareTo(sourceEpoch) > 0);
+  }
+
+  private static UInt64 floorFor(final UInt64 highpoint, final long amountToKeep) {
+    return highpoint.compareTo(UInt64.valueOf(amountToKeep)) <= 0
+        ? UInt64.ZERO
+        : highpoint.subtract(amountToKeep);
+  }
+
+  @Override
+  public String toString() {
+    return "ValidatorSlashingHistory{validatorId=" + validatorId + '}';
+  }
+}
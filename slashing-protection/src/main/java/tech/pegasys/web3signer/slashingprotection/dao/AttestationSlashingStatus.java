@@ -0,0 +1,93 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection.dao;
+
+import org.apache.tuweni.units.bigints.UInt64;
+
+public class AttestationSlashingStatus {
+  private int validatorId;
+  private boolean enabled;
+  private UInt64 watermarkSourceEpoch;
+  private UInt64 watermarkTargetEpoch;
+  private boolean alreadyExists;
+  private boolean conflicts;
+  private boolean surrounded;
+  private boolean surrounds;
+
+  // needed for JDBI bean mapping
+  public AttestationSlashingStatus() {}
+
+  public int getValidatorId() {
+    return validatorId;
+  }
+
+  public void setValidatorId(final int validatorId) {
+    this.validatorId = validatorId;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(final boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public UInt64 getWatermarkSourceEpoch() {
+    return watermarkSourceEpoch;
+  }
+
+  public void setWatermarkSourceEpoch(final UInt64 watermarkSourceEpoch) {
+    this.watermarkSourceEpoch = watermarkSourceEpoch;
+  }
+
+  public UInt64 getWatermarkTargetEpoch() {
+    return watermarkTargetEpoch;
+  }
+
+  public void setWatermarkTargetEpoch(final UInt64 watermarkTargetEpoch) {
+    this.watermarkTargetEpoch = watermarkTargetEpoch;
+  }
+
+  public boolean isAlreadyExists() {
+    return alreadyExists;
+  }
+
+  public void setAlreadyExists(final boolean alreadyExists) {
+    this.alreadyExists = alreadyExists;
+  }
+
+  public boolean isConflicts() {
+    return conflicts;
+  }
+
+  public void setConflicts(final boolean conflicts) {
+    this.conflicts = conflicts;
+  }
+
+  public boolean isSurrounded() {
+    return surrounded;
+  }
+
+  public void setSurrounded(final boolean surrounded) {
+    this.surrounded = surrounded;
+  }
+
+  public boolean isSurrounds() {
+    return surrounds;
+  }
+
+  public void setSurrounds(final boolean surrounds) {
+    this.surrounds = surrounds;
+  }
+}
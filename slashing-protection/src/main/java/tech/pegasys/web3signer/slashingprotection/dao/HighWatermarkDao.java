@@ -0,0 +1,35 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection.dao;
+
+import java.util.Optional;
+
+import org.jdbi.v3.core.Handle;
+
+/**
+ * The highest slot and epochs signed by each validator, which are maintained by database triggers
+ * when signed blocks and attestations are inserted.
+ */
+public class HighWatermarkDao {
+
+  public Optional<SigningWatermark> findHighWatermarkForValidator(
+      final Handle handle, final int validatorId) {
+    return handle
+        .createQuery(
+            "SELECT validator_id, slot, source_epoch, target_epoch "
+                + "FROM high_watermarks WHERE validator_id = ?")
+        .bind(0, validatorId)
+        .mapToBean(SigningWatermark.class)
+        .findFirst();
+  }
+}
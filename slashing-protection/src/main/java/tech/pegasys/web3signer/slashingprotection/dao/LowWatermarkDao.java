@@ -13,6 +13,7 @@
 package tech.pegasys.web3signer.slashingprotection.dao;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.apache.tuweni.units.bigints.UInt64;
 import org.jdbi.v3.core.Handle;
@@ -30,6 +31,13 @@ public class LowWatermarkDao {
         .findFirst();
   }
 
+  public Stream<SigningWatermark> findAllLowWatermarks(final Handle handle) {
+    return handle
+        .createQuery("SELECT validator_id, slot, source_epoch, target_epoch FROM low_watermarks")
+        .mapToBean(SigningWatermark.class)
+        .stream();
+  }
+
   public void updateEpochWatermarksFor(
       final Handle handle,
       final int validatorId,
@@ -21,8 +21,29 @@ import java.util.stream.Stream;
 import org.apache.tuweni.bytes.Bytes;
 import org.apache.tuweni.units.bigints.UInt64;
 import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.statement.PreparedBatch;
 
 public class SignedAttestationsDao {
+  private static final String EPOCH_RANGE =
+      "int8range(LEAST(a.source_epoch, a.target_epoch), a.target_epoch)";
+
+  private final boolean surroundIndexEnabled;
+
+  public SignedAttestationsDao() {
+    this(false);
+  }
+
+  /**
+   * @param surroundIndexEnabled whether surround checks are made with the GiST index on attestation
+   *     epoch ranges created by migration V00017
+   */
+  public SignedAttestationsDao(final boolean surroundIndexEnabled) {
+    this.surroundIndexEnabled = surroundIndexEnabled;
+  }
+
+  public boolean isSurroundIndexEnabled() {
+    return surroundIndexEnabled;
+  }
 
   public List<SignedAttestation> findAttestationsForEpochWithDifferentSigningRoot(
       final Handle handle,
@@ -68,14 +89,15 @@ public class SignedAttestationsDao {
       final UInt64 targetEpoch) {
     return handle
         .createQuery(
-            "SELECT validator_id, source_epoch, target_epoch, signing_root "
-                + "FROM signed_attestations "
-                + "WHERE validator_id = ? AND source_epoch < ? AND target_epoch > ? "
-                + "ORDER BY target_epoch DESC "
+            "SELECT a.validator_id, a.source_epoch, a.target_epoch, a.signing_root "
+                + "FROM signed_attestations a "
+                + "WHERE a.validator_id = :validator_id AND "
+                + surroundingPredicate(":source_epoch", ":target_epoch")
+                + " ORDER BY a.target_epoch DESC "
                 + "LIMIT 1")
-        .bind(0, validatorId)
-        .bind(1, sourceEpoch)
-        .bind(2, targetEpoch)
+        .bind("validator_id", validatorId)
+        .bind("source_epoch", sourceEpoch)
+        .bind("target_epoch", targetEpoch)
         .mapToBean(SignedAttestation.class)
         .list();
   }
@@ -87,14 +109,15 @@ public class SignedAttestationsDao {
       final UInt64 targetEpoch) {
     return handle
         .createQuery(
-            "SELECT validator_id, source_epoch, target_epoch, signing_root "
-                + "FROM signed_attestations "
-                + "WHERE validator_id = ? AND source_epoch > ? AND target_epoch < ? "
-                + "ORDER BY target_epoch DESC "
+            "SELECT a.validator_id, a.source_epoch, a.target_epoch, a.signing_root "
+                + "FROM signed_attestations a "
+                + "WHERE a.validator_id = :validator_id AND "
+                + surroundedPredicate(":source_epoch", ":target_epoch")
+                + " ORDER BY a.target_epoch DESC "
                 + "LIMIT 1")
-        .bind(0, validatorId)
-        .bind(1, sourceEpoch)
-        .bind(2, targetEpoch)
+        .bind("validator_id", validatorId)
+        .bind("source_epoch", sourceEpoch)
+        .bind("target_epoch", targetEpoch)
         .mapToBean(SignedAttestation.class)
         .list();
   }
@@ -110,6 +133,104 @@ public class SignedAttestationsDao {
         .execute();
   }
 
+  /**
+   * Inserts the attestation only if the validator is enabled as of the start of the statement,
+   * returning whether it was inserted.
+   */
+  public boolean insertAttestationIfEnabled(
+      final Handle handle, final SignedAttestation signedAttestation) {
+    return handle
+            .createUpdate(
+                "INSERT INTO signed_attestations (validator_id, signing_root, source_epoch, target_epoch) "
+                    + "SELECT ?, ?, ?, ? WHERE EXISTS (SELECT 1 FROM validators WHERE id = ? AND enabled)")
+            .bind(0, signedAttestation.getValidatorId())
+            .bind(1, signedAttestation.getSigningRoot())
+            .bind(2, signedAttestation.getSourceEpoch())
+            .bind(3, signedAttestation.getTargetEpoch())
+            .bind(4, signedAttestation.getValidatorId())
+            .execute()
+        > 0;
+  }
+
+  /**
+   * Inserts the attestation only if the validator is enabled as of the start of the statement and
+   * the attestation neither surrounds nor is surrounded by an existing attestation, returning
+   * whether it was inserted. The surround checks are made by the insert so they needn't be made
+   * separately beforehand.
+   */
+  public boolean insertAttestationIfEnabledAndNotSurrounding(
+      final Handle handle, final SignedAttestation signedAttestation) {
+    return handle
+            .createUpdate(
+                "INSERT INTO signed_attestations (validator_id, signing_root, source_epoch, target_epoch) "
+                    + "SELECT :validator_id, :signing_root, :source_epoch, :target_epoch "
+                    + "WHERE EXISTS (SELECT 1 FROM validators WHERE id = :validator_id AND enabled) "
+                    + "AND NOT EXISTS (SELECT 1 FROM signed_attestations a "
+                    + "WHERE a.validator_id = :validator_id AND "
+                    + surroundingPredicate(":source_epoch", ":target_epoch")
+                    + ") AND NOT EXISTS (SELECT 1 FROM signed_attestations a "
+                    + "WHERE a.validator_id = :validator_id AND "
+                    + surroundedPredicate(":source_epoch", ":target_epoch")
+                    + ")")
+            .bind("validator_id", signedAttestation.getValidatorId())
+            .bind("signing_root", signedAttestation.getSigningRoot())
+            .bind("source_epoch", signedAttestation.getSourceEpoch())
+            .bind("target_epoch", signedAttestation.getTargetEpoch())
+            .execute()
+        > 0;
+  }
+
+  public void insertAttestations(
+      final Handle handle, final List<SignedAttestation> signedAttestations) {
+    final PreparedBatch batch =
+        handle.prepareBatch(
+            "INSERT INTO signed_attestations (validator_id, signing_root, source_epoch, target_epoch) VALUES (?, ?, ?, ?)");
+    signedAttestations.forEach(
+        signedAttestation ->
+            batch
+                .bind(0, signedAttestation.getValidatorId())
+                .bind(1, signedAttestation.getSigningRoot())
+                .bind(2, signedAttestation.getSourceEpoch())
+                .bind(3, signedAttestation.getTargetEpoch())
+                .add());
+    batch.execute();
+  }
+
+  /**
+   * Evaluates the slashing conditions for a set of attestations in a single query. There must be
+   * at most one attestation per validator.
+   */
+  public List<AttestationSlashingStatus> findSlashingStatusForAttestations(
+      final Handle handle, final List<SignedAttestation> signedAttestations) {
+    return handle
+        .createQuery(
+            "WITH requests (validator_id, source_epoch, target_epoch, signing_root) AS (VALUES <requests>) "
+                + "SELECT r.validator_id, v.enabled, "
+                + "w.source_epoch AS watermark_source_epoch, w.target_epoch AS watermark_target_epoch, "
+                + "EXISTS (SELECT 1 FROM signed_attestations a WHERE a.validator_id = r.validator_id "
+                + "AND a.target_epoch = r.target_epoch AND a.signing_root = r.signing_root) AS already_exists, "
+                + "EXISTS (SELECT 1 FROM signed_attestations a WHERE a.validator_id = r.validator_id "
+                + "AND a.target_epoch = r.target_epoch "
+                + "AND (a.signing_root <> r.signing_root OR a.signing_root IS NULL)) AS conflicts, "
+                + "EXISTS (SELECT 1 FROM signed_attestations a WHERE a.validator_id = r.validator_id "
+                + "AND "
+                + surroundingPredicate("r.source_epoch", "r.target_epoch")
+                + ") AS surrounded, "
+                + "EXISTS (SELECT 1 FROM signed_attestations a WHERE a.validator_id = r.validator_id "
+                + "AND "
+                + surroundedPredicate("r.source_epoch", "r.target_epoch")
+                + ") AS surrounds "
+                + "FROM requests r "
+                + "JOIN validators v ON v.id = r.validator_id "
+                + "LEFT JOIN low_watermarks w ON w.validator_id = r.validator_id")
+        .bindBeanList(
+            "requests",
+            signedAttestations,
+            List.of("validatorId", "sourceEpoch", "targetEpoch", "signingRoot"))
+        .mapToBean(AttestationSlashingStatus.class)
+        .list();
+  }
+
   public Stream<SignedAttestation> findAllAttestationsSignedBy(
       final Handle handle, final int validatorId) {
     return handle
@@ -121,6 +242,45 @@ public class SignedAttestationsDao {
         .stream();
   }
 
+  /**
+   * Streams the attestations at or above both epoch low watermarks of each validator inserted by a
+   * transaction at or after the checkpoint, ordered by validator and target epoch. Rows are fetched
+   * through a cursor when used within a transaction.
+   */
+  public Stream<SignedAttestation> findAttestationsAboveWatermarkFor(
+      final Handle handle,
+      final List<Integer> validatorIds,
+      final long checkpoint,
+      final int fetchSize) {
+    return handle
+        .createQuery(
+            "SELECT a.validator_id, a.source_epoch, a.target_epoch, a.signing_root "
+                + "FROM signed_attestations a "
+                + "JOIN low_watermarks w ON w.validator_id = a.validator_id "
+                + "WHERE a.validator_id IN (<validator_ids>) "
+                + "AND a.source_epoch >= w.source_epoch AND a.target_epoch >= w.target_epoch "
+                + "AND COALESCE(a.insert_txid, 0) >= :checkpoint "
+                + "ORDER BY a.validator_id, a.target_epoch")
+        .bindList("validator_ids", validatorIds)
+        .bind("checkpoint", checkpoint)
+        .setFetchSize(fetchSize)
+        .mapToBean(SignedAttestation.class)
+        .stream();
+  }
+
+  public List<SignedAttestation> findAttestationsWithTargetEpochAtLeast(
+      final Handle handle, final int validatorId, final UInt64 targetEpoch) {
+    return handle
+        .createQuery(
+            "SELECT validator_id, source_epoch, target_epoch, signing_root "
+                + "FROM signed_attestations "
+                + "WHERE validator_id = ? AND target_epoch >= ?")
+        .bind(0, validatorId)
+        .bind(1, targetEpoch)
+        .mapToBean(SignedAttestation.class)
+        .list();
+  }
+
   public void deleteAttestationsBelowWatermark(final Handle handle, final int validatorId) {
     handle
         .createUpdate(
@@ -131,6 +291,27 @@ public class SignedAttestationsDao {
         .execute();
   }
 
+  /**
+   * Deletes at most limit attestations below the watermark, skipping any rows locked by another
+   * pruner.
+   *
+   * @return the number of attestations deleted
+   */
+  public int deleteAttestationsBelowWatermark(
+      final Handle handle, final int validatorId, final int limit) {
+    return handle
+        .createUpdate(
+            "DELETE FROM signed_attestations "
+                + "WHERE validator_id = :validator_id AND target_epoch IN ("
+                + "SELECT target_epoch FROM signed_attestations "
+                + "WHERE validator_id = :validator_id "
+                + "AND target_epoch < (SELECT target_epoch FROM low_watermarks WHERE validator_id = :validator_id) "
+                + "LIMIT :limit FOR UPDATE SKIP LOCKED)")
+        .bind("validator_id", validatorId)
+        .bind("limit", limit)
+        .execute();
+  }
+
   public Optional<UInt64> findMaxTargetEpoch(final Handle handle, final int validatorId) {
     return handle
         .createQuery("SELECT max(target_epoch) FROM signed_attestations WHERE validator_id = ?")
@@ -139,6 +320,16 @@ public class SignedAttestationsDao {
         .findFirst();
   }
 
+  public boolean hasAttestationWithSourceAfterTarget(final Handle handle, final int validatorId) {
+    return handle
+        .createQuery(
+            "SELECT EXISTS (SELECT 1 FROM signed_attestations "
+                + "WHERE validator_id = ? AND source_epoch > target_epoch)")
+        .bind(0, validatorId)
+        .mapTo(Boolean.class)
+        .one();
+  }
+
   public Optional<SignedAttestation> findNearestAttestationWithTargetEpoch(
       final Handle handle, final int validatorId, final UInt64 targetEpoch) {
     return handle
@@ -153,4 +344,49 @@ public class SignedAttestationsDao {
         .mapToBean(SignedAttestation.class)
         .findFirst();
   }
+
+  /** Whether the GiST index on attestation epoch ranges created by migration V00017 exists. */
+  public boolean hasSurroundIndex(final Handle handle) {
+    return handle
+        .createQuery(
+            "SELECT EXISTS (SELECT 1 FROM pg_indexes "
+                + "WHERE tablename = 'signed_attestations' "
+                + "AND indexname = 'signed_attestations_epoch_range')")
+        .mapTo(Boolean.class)
+        .one();
+  }
+
+  /**
+   * Condition on signed_attestations aliased as a that the attestation surrounds the given epochs.
+   * With the surround index its range must contain [source, target], which the index answers,
+   * before the epochs are compared. The upper bound is unbounded for the maximum target epoch,
+   * which nothing can surround, as it can't be incremented.
+   */
+  private String surroundingPredicate(final String sourceEpoch, final String targetEpoch) {
+    final String epochs =
+        String.format("a.source_epoch < %s AND a.target_epoch > %s", sourceEpoch, targetEpoch);
+    if (!surroundIndexEnabled) {
+      return epochs;
+    }
+    return String.format(
+        "%s @> int8range(LEAST(%s, %s), NULLIF(%s, %d), '[]') AND %s",
+        EPOCH_RANGE, sourceEpoch, targetEpoch, targetEpoch, Long.MAX_VALUE, epochs);
+  }
+
+  /**
+   * Condition on signed_attestations aliased as a that the attestation is surrounded by the given
+   * epochs. With the surround index its range must be contained by (source, target), which the
+   * index answers, before the epochs are compared. That range is empty if the source isn't before
+   * the target and then only attestations with empty ranges are compared.
+   */
+  private String surroundedPredicate(final String sourceEpoch, final String targetEpoch) {
+    final String epochs =
+        String.format("a.source_epoch > %s AND a.target_epoch < %s", sourceEpoch, targetEpoch);
+    if (!surroundIndexEnabled) {
+      return epochs;
+    }
+    return String.format(
+        "%s <@ int8range(LEAST(%s, %s), %s, '()') AND %s",
+        EPOCH_RANGE, sourceEpoch, targetEpoch, targetEpoch, epochs);
+  }
 }
@@ -64,6 +64,23 @@ public class SignedBlocksDao {
         .execute();
   }
 
+  /**
+   * Inserts the block only if the validator is enabled as of the start of the statement, returning
+   * whether it was inserted.
+   */
+  public boolean insertBlockProposalIfEnabled(final Handle handle, final SignedBlock signedBlock) {
+    return handle
+            .createUpdate(
+                "INSERT INTO signed_blocks (validator_id, slot, signing_root) "
+                    + "SELECT ?, ?, ? WHERE EXISTS (SELECT 1 FROM validators WHERE id = ? AND enabled)")
+            .bind(0, signedBlock.getValidatorId())
+            .bind(1, signedBlock.getSlot())
+            .bind(2, signedBlock.getSigningRoot())
+            .bind(3, signedBlock.getValidatorId())
+            .execute()
+        > 0;
+  }
+
   public Stream<SignedBlock> findAllBlockSignedBy(final Handle handle, final int validatorId) {
     return handle
         .createQuery(
@@ -73,6 +90,42 @@ public class SignedBlocksDao {
         .stream();
   }
 
+  /**
+   * Streams the blocks at or above the slot low watermark of each validator inserted by a
+   * transaction at or after the checkpoint, ordered by validator and slot. Rows are fetched through
+   * a cursor when used within a transaction.
+   */
+  public Stream<SignedBlock> findBlocksAboveWatermarkFor(
+      final Handle handle,
+      final List<Integer> validatorIds,
+      final long checkpoint,
+      final int fetchSize) {
+    return handle
+        .createQuery(
+            "SELECT b.validator_id, b.slot, b.signing_root FROM signed_blocks b "
+                + "JOIN low_watermarks w ON w.validator_id = b.validator_id "
+                + "WHERE b.validator_id IN (<validator_ids>) AND b.slot >= w.slot "
+                + "AND COALESCE(b.insert_txid, 0) >= :checkpoint "
+                + "ORDER BY b.validator_id, b.slot")
+        .bindList("validator_ids", validatorIds)
+        .bind("checkpoint", checkpoint)
+        .setFetchSize(fetchSize)
+        .mapToBean(SignedBlock.class)
+        .stream();
+  }
+
+  public List<SignedBlock> findBlocksWithSlotAtLeast(
+      final Handle handle, final int validatorId, final UInt64 slot) {
+    return handle
+        .createQuery(
+            "SELECT validator_id, slot, signing_root FROM signed_blocks "
+                + "WHERE validator_id = ? AND slot >= ?")
+        .bind(0, validatorId)
+        .bind(1, slot)
+        .mapToBean(SignedBlock.class)
+        .list();
+  }
+
   public void deleteBlocksBelowWatermark(final Handle handle, final int validatorId) {
     handle
         .createUpdate(
@@ -83,6 +136,26 @@ public class SignedBlocksDao {
         .execute();
   }
 
+  /**
+   * Deletes at most limit blocks below the watermark, skipping any rows locked by another pruner.
+   *
+   * @return the number of blocks deleted
+   */
+  public int deleteBlocksBelowWatermark(
+      final Handle handle, final int validatorId, final int limit) {
+    return handle
+        .createUpdate(
+            "DELETE FROM signed_blocks "
+                + "WHERE validator_id = :validator_id AND slot IN ("
+                + "SELECT slot FROM signed_blocks "
+                + "WHERE validator_id = :validator_id "
+                + "AND slot < (SELECT slot FROM low_watermarks WHERE validator_id = :validator_id) "
+                + "LIMIT :limit FOR UPDATE SKIP LOCKED)")
+        .bind("validator_id", validatorId)
+        .bind("limit", limit)
+        .execute();
+  }
+
   public Optional<UInt64> findMaxSlot(final Handle handle, final int validatorId) {
     return handle
         .createQuery("SELECT max(slot) FROM signed_blocks WHERE validator_id = ?")
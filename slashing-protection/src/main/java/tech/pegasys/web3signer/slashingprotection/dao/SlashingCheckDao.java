@@ -0,0 +1,56 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection.dao;
+
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.units.bigints.UInt64;
+import org.jdbi.v3.core.Handle;
+
+/**
+ * Performs the complete slashing check, insert and watermark update for a signing request in a
+ * single call to a database function. The functions take the same advisory locks as {@link
+ * tech.pegasys.web3signer.slashingprotection.DbLocker}.
+ */
+public class SlashingCheckDao {
+
+  public SlashingCheckVerdict checkAndInsertAttestation(
+      final Handle handle,
+      final int validatorId,
+      final Bytes signingRoot,
+      final UInt64 sourceEpoch,
+      final UInt64 targetEpoch) {
+    final int code =
+        handle
+            .createQuery("SELECT check_and_insert_attestation(?, ?, ?, ?)")
+            .bind(0, validatorId)
+            .bind(1, signingRoot)
+            .bind(2, sourceEpoch)
+            .bind(3, targetEpoch)
+            .mapTo(Integer.class)
+            .one();
+    return SlashingCheckVerdict.fromCode(code);
+  }
+
+  public SlashingCheckVerdict checkAndInsertBlock(
+      final Handle handle, final int validatorId, final Bytes signingRoot, final UInt64 slot) {
+    final int code =
+        handle
+            .createQuery("SELECT check_and_insert_block(?, ?, ?)")
+            .bind(0, validatorId)
+            .bind(1, signingRoot)
+            .bind(2, slot)
+            .mapTo(Integer.class)
+            .one();
+    return SlashingCheckVerdict.fromCode(code);
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection.dao;
+
+import java.util.Arrays;
+
+/** Result codes of the check_and_insert_attestation and check_and_insert_block functions. */
+public enum SlashingCheckVerdict {
+  SIGNED(0),
+  ALREADY_SIGNED(1),
+  VALIDATOR_DISABLED(2),
+  SOURCE_GREATER_THAN_TARGET(3),
+  SOURCE_BELOW_WATERMARK(4),
+  TARGET_BELOW_WATERMARK(5),
+  CONFLICTS_WITH_EXISTING(6),
+  SURROUNDED_BY_EXISTING(7),
+  SURROUNDS_EXISTING(8),
+  SLOT_BELOW_WATERMARK(9);
+
+  private final int code;
+
+  SlashingCheckVerdict(final int code) {
+    this.code = code;
+  }
+
+  public int getCode() {
+    return code;
+  }
+
+  public boolean isPermitted() {
+    return this == SIGNED || this == ALREADY_SIGNED;
+  }
+
+  public static SlashingCheckVerdict fromCode(final int code) {
+    return Arrays.stream(values())
+        .filter(verdict -> verdict.code == code)
+        .findFirst()
+        .orElseThrow(
+            () -> new IllegalStateException("Unknown slashing check verdict code " + code));
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection.dao;
+
+import java.util.List;
+
+import org.jdbi.v3.core.Handle;
+
+public class ValidatorShardLeasesDao {
+
+  public void createShards(final Handle handle, final int shardCount) {
+    handle
+        .createUpdate(
+            "INSERT INTO validator_shard_leases (shard) "
+                + "SELECT generate_series(0, :shardCount - 1) ON CONFLICT DO NOTHING")
+        .bind("shardCount", shardCount)
+        .execute();
+  }
+
+  public int findShardCount(final Handle handle) {
+    return handle
+        .createQuery("SELECT count(*) FROM validator_shard_leases")
+        .mapTo(Integer.class)
+        .one();
+  }
+
+  public void heartbeat(final Handle handle, final String instanceId, final long leaseMillis) {
+    handle
+        .createUpdate(
+            "INSERT INTO signer_instances (instance_id, expires_at) "
+                + "VALUES (:instanceId, now() + :leaseMillis * INTERVAL '1 millisecond') "
+                + "ON CONFLICT (instance_id) DO UPDATE SET expires_at = excluded.expires_at")
+        .bind("instanceId", instanceId)
+        .bind("leaseMillis", leaseMillis)
+        .execute();
+  }
+
+  /** Counts the instances with a current heartbeat, removing those whose heartbeat has expired. */
+  public int countLiveInstances(final Handle handle) {
+    handle.execute("DELETE FROM signer_instances WHERE expires_at <= now()");
+    return handle
+        .createQuery("SELECT count(*) FROM signer_instances")
+        .mapTo(Integer.class)
+        .one();
+  }
+
+  public List<Integer> findLeasedShards(final Handle handle, final String instanceId) {
+    return handle
+        .createQuery(
+            "SELECT shard FROM validator_shard_leases "
+                + "WHERE owner = :instanceId AND expires_at > now() ORDER BY shard")
+        .bind("instanceId", instanceId)
+        .mapTo(Integer.class)
+        .list();
+  }
+
+  public List<Integer> renewLeases(
+      final Handle handle,
+      final String instanceId,
+      final List<Integer> shards,
+      final long leaseMillis) {
+    if (shards.isEmpty()) {
+      return List.of();
+    }
+    return handle
+        .createQuery(
+            "UPDATE validator_shard_leases "
+                + "SET expires_at = now() + :leaseMillis * INTERVAL '1 millisecond' "
+                + "WHERE owner = :instanceId AND expires_at > now() AND shard IN (<shards>) "
+                + "RETURNING shard")
+        .bind("instanceId", instanceId)
+        .bind("leaseMillis", leaseMillis)
+        .bindList("shards", shards)
+        .mapTo(Integer.class)
+        .list();
+  }
+
+  /** Leases up to the limit of the shards which are unowned or whose lease has expired. */
+  public List<Integer> claimLeases(
+      final Handle handle, final String instanceId, final int limit, final long leaseMillis) {
+    return handle
+        .createQuery(
+            "UPDATE validator_shard_leases "
+                + "SET owner = :instanceId, "
+                + "expires_at = now() + :leaseMillis * INTERVAL '1 millisecond' "
+                + "WHERE shard IN (SELECT shard FROM validator_shard_leases "
+                + "WHERE expires_at <= now() ORDER BY shard LIMIT :limit FOR UPDATE SKIP LOCKED) "
+                + "RETURNING shard")
+        .bind("instanceId", instanceId)
+        .bind("leaseMillis", leaseMillis)
+        .bind("limit", limit)
+        .mapTo(Integer.class)
+        .list();
+  }
+}
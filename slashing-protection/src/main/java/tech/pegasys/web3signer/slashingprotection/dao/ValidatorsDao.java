@@ -13,6 +13,7 @@
 package tech.pegasys.web3signer.slashingprotection.dao;
 
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -24,22 +25,21 @@ public class ValidatorsDao {
 
   public List<Validator> registerValidators(final Handle handle, final List<Bytes> validators) {
     // adapted from https://stackoverflow.com/a/66704110/535610
+    // keys are bound as a single bytea[] parameter so the statement doesn't grow with the keys
+    final byte[][] publicKeys =
+        validators.stream().map(Bytes::toArrayUnsafe).toArray(byte[][]::new);
     return handle
         .createQuery(
-            String.format(
-                "SELECT v_id as id, v_public_key as public_key FROM upsert_validators(array[%s])",
-                buildArrayArgument(validators)))
+            "SELECT v_id as id, v_public_key as public_key FROM upsert_validators(:publicKeys)")
+        .bind(
+            "publicKeys",
+            (position, statement, ctx) ->
+                statement.setArray(
+                    position, statement.getConnection().createArrayOf("bytea", publicKeys)))
         .mapToBean(Validator.class)
         .list();
   }
 
-  private String buildArrayArgument(final List<Bytes> validators) {
-    return validators.stream()
-        .map(Bytes::toUnprefixedHexString)
-        .map(hex -> String.format("decode('%s','hex')", hex))
-        .collect(Collectors.joining(","));
-  }
-
   public List<Validator> retrieveValidators(
       final Handle handle, @BindList("publicKeys") final List<Bytes> publicKeys) {
     return handle
@@ -57,6 +57,18 @@ public class ValidatorsDao {
         .stream();
   }
 
+  /** Finds validators with blocks or attestations inserted at or after the checkpoint. */
+  public Set<Integer> findValidatorIdsWithEntriesSince(final Handle handle, final long checkpoint) {
+    return handle
+        .createQuery(
+            "SELECT validator_id FROM signed_blocks WHERE insert_txid >= :checkpoint "
+                + "UNION SELECT validator_id FROM signed_attestations "
+                + "WHERE insert_txid >= :checkpoint")
+        .bind("checkpoint", checkpoint)
+        .mapTo(Integer.class)
+        .collect(Collectors.toSet());
+  }
+
   public boolean isEnabled(final Handle handle, final int validatorId) {
     return handle
         .createQuery("SELECT enabled FROM validators WHERE id = ?")
@@ -66,6 +78,13 @@ public class ValidatorsDao {
         .orElse(false);
   }
 
+  public List<Integer> findEnabledValidatorIds(final Handle handle) {
+    return handle
+        .createQuery("SELECT id FROM validators WHERE enabled")
+        .mapTo(Integer.class)
+        .list();
+  }
+
   public void setEnabled(final Handle handle, final int validatorId, final boolean enabled) {
     handle
         .createUpdate("UPDATE validators SET enabled = :enabled WHERE id = :validator_id")
@@ -27,5 +27,7 @@ public interface InterchangeManager {
 
   void exportDataWithFilter(OutputStream output, List<String> pubkeys) throws IOException;
 
+  long exportDataSince(OutputStream out, long checkpoint) throws IOException;
+
   IncrementalExporter createIncrementalExporter(OutputStream out) throws IOException;
 }
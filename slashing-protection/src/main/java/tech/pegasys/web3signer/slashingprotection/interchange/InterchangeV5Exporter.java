@@ -14,7 +14,9 @@ package tech.pegasys.web3signer.slashingprotection.interchange;
 
 import tech.pegasys.web3signer.slashingprotection.dao.LowWatermarkDao;
 import tech.pegasys.web3signer.slashingprotection.dao.MetadataDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestation;
 import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestationsDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedBlock;
 import tech.pegasys.web3signer.slashingprotection.dao.SignedBlocksDao;
 import tech.pegasys.web3signer.slashingprotection.dao.SigningWatermark;
 import tech.pegasys.web3signer.slashingprotection.dao.Validator;
@@ -23,18 +25,39 @@ import tech.pegasys.web3signer.slashingprotection.interchange.model.Metadata;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.StringWriter;
 import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.tuweni.bytes.Bytes;
 import org.apache.tuweni.bytes.Bytes32;
 import org.jdbi.v3.core.Handle;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.transaction.TransactionIsolationLevel;
 
 public class InterchangeV5Exporter {
 
@@ -42,12 +65,16 @@ public class InterchangeV5Exporter {
 
   static final String FORMAT_VERSION = "5";
 
-  private final Jdbi jdbi;
+  private static final int VALIDATORS_PER_CHUNK = 500;
+  private static final int FETCH_SIZE = 1000;
+
+  private final Supplier<Jdbi> jdbiSupplier;
   private final ValidatorsDao validatorsDao;
   private final SignedBlocksDao signedBlocksDao;
   private final SignedAttestationsDao signedAttestationsDao;
   private final MetadataDao metadataDao;
   private final LowWatermarkDao lowWatermarkDao;
+  private final int threads;
   private static final ObjectMapper JSON_MAPPER = new InterchangeJsonProvider().getJsonMapper();
 
   public InterchangeV5Exporter(
@@ -57,16 +84,69 @@ public class InterchangeV5Exporter {
       final SignedAttestationsDao signedAttestationsDao,
       final MetadataDao metadataDao,
       final LowWatermarkDao lowWatermarkDao) {
-    this.jdbi = jdbi;
+    this(
+        jdbi,
+        validatorsDao,
+        signedBlocksDao,
+        signedAttestationsDao,
+        metadataDao,
+        lowWatermarkDao,
+        1);
+  }
+
+  /** @param threads number of chunks of validators serialised in parallel */
+  public InterchangeV5Exporter(
+      final Jdbi jdbi,
+      final ValidatorsDao validatorsDao,
+      final SignedBlocksDao signedBlocksDao,
+      final SignedAttestationsDao signedAttestationsDao,
+      final MetadataDao metadataDao,
+      final LowWatermarkDao lowWatermarkDao,
+      final int threads) {
+    this(
+        () -> jdbi,
+        validatorsDao,
+        signedBlocksDao,
+        signedAttestationsDao,
+        metadataDao,
+        lowWatermarkDao,
+        threads);
+  }
+
+  /**
+   * @param jdbiSupplier supplies the database connection for each export, allowing exports to be
+   *     read from a replica
+   * @param threads number of chunks of validators serialised in parallel
+   */
+  public InterchangeV5Exporter(
+      final Supplier<Jdbi> jdbiSupplier,
+      final ValidatorsDao validatorsDao,
+      final SignedBlocksDao signedBlocksDao,
+      final SignedAttestationsDao signedAttestationsDao,
+      final MetadataDao metadataDao,
+      final LowWatermarkDao lowWatermarkDao,
+      final int threads) {
+    this.jdbiSupplier = jdbiSupplier;
     this.validatorsDao = validatorsDao;
     this.signedBlocksDao = signedBlocksDao;
     this.signedAttestationsDao = signedAttestationsDao;
     this.metadataDao = metadataDao;
     this.lowWatermarkDao = lowWatermarkDao;
+    this.threads = threads;
   }
 
   public void exportData(final OutputStream out) throws IOException {
-    exportInternal(out, Optional.empty());
+    exportInternal(out, Optional.empty(), 0);
+  }
+
+  /**
+   * Exports the entries inserted since a checkpoint returned by a previous export, or all entries
+   * when the checkpoint is 0. Entries close to the checkpoint may be exported by both exports.
+   *
+   * @return the checkpoint to export the next delta from
+   */
+  public long exportDataSince(final OutputStream out, final long checkpoint) throws IOException {
+    return exportInternal(out, Optional.empty(), checkpoint);
   }
 
   public IncrementalExporter createIncrementalExporter(final OutputStream out) throws IOException {
@@ -74,19 +154,24 @@ public class InterchangeV5Exporter {
   }
 
   public void exportDataWithFilter(OutputStream out, List<String> pubkeys) throws IOException {
-    exportInternal(out, Optional.of(pubkeys));
+    exportInternal(out, Optional.of(pubkeys), 0);
   }
 
-  private void exportInternal(final OutputStream out, final Optional<List<String>> pubkeys)
+  private long exportInternal(
+      final OutputStream out, final Optional<List<String>> pubkeys, final long checkpoint)
       throws IOException {
+    // the snapshot shared by the export's connections must be from a single database
+    final Jdbi jdbi = jdbiSupplier.get();
     try (final JsonGenerator jsonGenerator = JSON_MAPPER.getFactory().createGenerator(out)) {
-      startInterchangeExport(jsonGenerator);
-      populateInterchangeData(jsonGenerator, pubkeys);
+      startInterchangeExport(jdbi, jsonGenerator);
+      final long nextCheckpoint = populateInterchangeData(jdbi, jsonGenerator, pubkeys, checkpoint);
       finaliseInterchangeExport(jsonGenerator);
+      return nextCheckpoint;
     }
   }
 
-  private void startInterchangeExport(final JsonGenerator jsonGenerator) throws IOException {
+  private void startInterchangeExport(final Jdbi jdbi, final JsonGenerator jsonGenerator)
+      throws IOException {
     final Optional<Bytes32> gvr = jdbi.inTransaction(metadataDao::findGenesisValidatorsRoot);
     if (gvr.isEmpty()) {
       throw new RuntimeException("No genesis validators root for slashing protection data");
@@ -110,24 +195,219 @@ public class InterchangeV5Exporter {
     jsonGenerator.writeEndObject();
   }
 
-  private void populateInterchangeData(
-      final JsonGenerator jsonGenerator, final Optional<List<String>> pubkeys) {
-    jdbi.useTransaction(
-        h ->
-            validatorsDao
-                .findAllValidators(h)
-                .forEach(
-                    validator -> {
-                      try {
-                        populateValidatorRecord(h, validator, jsonGenerator, pubkeys);
-                      } catch (final IOException e) {
-                        throw new UncheckedIOException(
-                            "Failed to construct a validator entry in json", e);
-                      }
-                    }));
+  /**
+   * Exports validators in chunks which are serialised in parallel and written in order of
+   * validator id. Each chunk is read on its own connection using a snapshot exported from the
+   * coordinating transaction, so the export is as consistent as reading in a single transaction.
+   *
+   * <p>Returns the oldest transaction in flight when the snapshot was taken. Every entry inserted
+   * by an earlier transaction is included in this export.
+   */
+  private long populateInterchangeData(
+      final Jdbi jdbi,
+      final JsonGenerator jsonGenerator,
+      final Optional<List<String>> pubkeys,
+      final long checkpoint)
+      throws IOException {
+    final ExecutorService executor =
+        Executors.newFixedThreadPool(
+            threads,
+            new ThreadFactoryBuilder()
+                .setNameFormat("slashing-protection-export-%d")
+                .setDaemon(true)
+                .build());
+    try {
+      return jdbi.inTransaction(
+          TransactionIsolationLevel.REPEATABLE_READ,
+          h -> {
+            final String snapshot =
+                h.createQuery("SELECT pg_export_snapshot()").mapTo(String.class).one();
+            final long nextCheckpoint =
+                h.createQuery("SELECT txid_snapshot_xmin(txid_current_snapshot())")
+                    .mapTo(Long.class)
+                    .one();
+            final List<List<ValidatorExport>> chunks =
+                Lists.partition(
+                    findValidatorsToExport(h, pubkeys, checkpoint), VALIDATORS_PER_CHUNK);
+
+            // bounds the number of serialised chunks held in memory
+            final Deque<Future<List<String>>> pendingChunks = new ArrayDeque<>();
+            for (final List<ValidatorExport> chunk : chunks) {
+              pendingChunks.add(
+                  executor.submit(() -> serialiseChunk(jdbi, snapshot, chunk, checkpoint)));
+              if (pendingChunks.size() >= threads * 2) {
+                writeChunk(jsonGenerator, pendingChunks.remove());
+              }
+            }
+            while (!pendingChunks.isEmpty()) {
+              writeChunk(jsonGenerator, pendingChunks.remove());
+            }
+            return nextCheckpoint;
+          });
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private List<ValidatorExport> findValidatorsToExport(
+      final Handle handle, final Optional<List<String>> pubkeys, final long checkpoint) {
+    final Optional<Set<Integer>> validatorsWithEntries =
+        checkpoint > 0
+            ? Optional.of(validatorsDao.findValidatorIdsWithEntriesSince(handle, checkpoint))
+            : Optional.empty();
+    final Map<Integer, SigningWatermark> watermarks;
+    try (final Stream<SigningWatermark> stream = lowWatermarkDao.findAllLowWatermarks(handle)) {
+      watermarks =
+          stream.collect(Collectors.toMap(SigningWatermark::getValidatorId, Function.identity()));
+    }
+    final List<Validator> validators;
+    try (final Stream<Validator> stream = validatorsDao.findAllValidators(handle)) {
+      validators =
+          stream.sorted(Comparator.comparingInt(Validator::getId)).collect(Collectors.toList());
+    }
+
+    final List<ValidatorExport> validatorsToExport = new ArrayList<>();
+    for (final Validator validator : validators) {
+      if (validatorsWithEntries.isPresent()
+          && !validatorsWithEntries.get().contains(validator.getId())) {
+        continue;
+      }
+      final String publicKey = validator.getPublicKey().toHexString();
+      if (pubkeys.isPresent() && !pubkeys.get().contains(publicKey)) {
+        LOG.info("Skipping data export for validator " + publicKey);
+        continue;
+      }
+      final SigningWatermark watermark = watermarks.get(validator.getId());
+      if (watermark == null) {
+        LOG.warn(
+            "No low watermark available, producing empty export for validator {}",
+            validator.getPublicKey());
+        continue;
+      }
+      validatorsToExport.add(new ValidatorExport(validator, watermark));
+    }
+    return validatorsToExport;
+  }
+
+  private List<String> serialiseChunk(
+      final Jdbi jdbi,
+      final String snapshot,
+      final List<ValidatorExport> chunk,
+      final long checkpoint)
+      throws IOException {
+    final List<Integer> validatorIds =
+        chunk.stream().map(v -> v.validator.getId()).collect(Collectors.toList());
+    return jdbi.inTransaction(
+        TransactionIsolationLevel.REPEATABLE_READ,
+        h -> {
+          h.execute("SET TRANSACTION SNAPSHOT '" + snapshot + "'");
+          try (final Stream<SignedBlock> blocks =
+                  signedBlocksDao.findBlocksAboveWatermarkFor(
+                      h, validatorIds, checkpoint, FETCH_SIZE);
+              final Stream<SignedAttestation> attestations =
+                  signedAttestationsDao.findAttestationsAboveWatermarkFor(
+                      h, validatorIds, checkpoint, FETCH_SIZE)) {
+            final PeekingIterator<SignedBlock> blockIterator =
+                Iterators.peekingIterator(blocks.iterator());
+            final PeekingIterator<SignedAttestation> attestationIterator =
+                Iterators.peekingIterator(attestations.iterator());
+            final List<String> serialised = new ArrayList<>(chunk.size());
+            for (final ValidatorExport validatorExport : chunk) {
+              final int validatorId = validatorExport.validator.getId();
+              // a delta only includes validators with entries since the checkpoint
+              if (checkpoint > 0
+                  && !hasEntriesFor(validatorId, blockIterator, SignedBlock::getValidatorId)
+                  && !hasEntriesFor(
+                      validatorId, attestationIterator, SignedAttestation::getValidatorId)) {
+                continue;
+              }
+              serialised.add(
+                  serialiseValidator(validatorExport, blockIterator, attestationIterator));
+            }
+            return serialised;
+          }
+        });
+  }
+
+  private static <T> boolean hasEntriesFor(
+      final int validatorId,
+      final PeekingIterator<T> entries,
+      final ToIntFunction<T> validatorIdFunction) {
+    return entries.hasNext() && validatorIdFunction.applyAsInt(entries.peek()) == validatorId;
+  }
+
+  private String serialiseValidator(
+      final ValidatorExport validatorExport,
+      final PeekingIterator<SignedBlock> blocks,
+      final PeekingIterator<SignedAttestation> attestations)
+      throws IOException {
+    final Validator validator = validatorExport.validator;
+    final SigningWatermark watermark = validatorExport.watermark;
+    LOG.info("Exporting entries for validator {}", validator.getPublicKey().toHexString());
+
+    final StringWriter writer = new StringWriter();
+    try (final JsonGenerator jsonGenerator = JSON_MAPPER.getFactory().createGenerator(writer)) {
+      jsonGenerator.writeStartObject();
+      jsonGenerator.writeStringField("pubkey", validator.getPublicKey().toHexString());
+
+      jsonGenerator.writeArrayFieldStart("signed_blocks");
+      if (watermark.getSlot() == null) {
+        LOG.warn(
+            "No block slot low watermark exists for {}, producing empty block listing",
+            validator.getPublicKey());
+      }
+      while (blocks.hasNext() && blocks.peek().getValidatorId() == validator.getId()) {
+        final SignedBlock block = blocks.next();
+        JSON_MAPPER.writeValue(
+            jsonGenerator,
+            new tech.pegasys.web3signer.slashingprotection.interchange.model.SignedBlock(
+                block.getSlot(), block.getSigningRoot().orElse(null)));
+      }
+      jsonGenerator.writeEndArray();
+
+      jsonGenerator.writeArrayFieldStart("signed_attestations");
+      if (watermark.getSourceEpoch() == null || watermark.getTargetEpoch() == null) {
+        LOG.warn(
+            "Missing attestation low watermark for {}, producing empty attestation listing",
+            validator.getPublicKey());
+      }
+      while (attestations.hasNext() && attestations.peek().getValidatorId() == validator.getId()) {
+        final SignedAttestation attestation = attestations.next();
+        JSON_MAPPER.writeValue(
+            jsonGenerator,
+            new tech.pegasys.web3signer.slashingprotection.interchange.model.SignedAttestation(
+                attestation.getSourceEpoch(),
+                attestation.getTargetEpoch(),
+                attestation.getSigningRoot().orElse(null)));
+      }
+      jsonGenerator.writeEndArray();
+
+      jsonGenerator.writeEndObject();
+    }
+    return writer.toString();
+  }
+
+  private void writeChunk(final JsonGenerator jsonGenerator, final Future<List<String>> chunk)
+      throws IOException {
+    final List<String> serialisedValidators;
+    try {
+      serialisedValidators = chunk.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted exporting slashing protection data", e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Failed to export slashing protection data", e.getCause());
+    }
+    for (final String serialisedValidator : serialisedValidators) {
+      jsonGenerator.writeRawValue(serialisedValidator);
+    }
   }
 
   protected void populateInterchangeData(final JsonGenerator jsonGenerator, final String pubkey) {
+    final Jdbi jdbi = jdbiSupplier.get();
     jdbi.useTransaction(
         h ->
             validatorsDao.retrieveValidators(h, List.of(Bytes.fromHexString(pubkey))).stream()
@@ -256,13 +536,23 @@ public class InterchangeV5Exporter {
     jsonGenerator.writeEndArray();
   }
 
+  private static class ValidatorExport {
+    private final Validator validator;
+    private final SigningWatermark watermark;
+
+    private ValidatorExport(final Validator validator, final SigningWatermark watermark) {
+      this.validator = validator;
+      this.watermark = watermark;
+    }
+  }
+
   public class IncrementalInterchangeV5Exporter implements IncrementalExporter {
     final JsonGenerator jsonGenerator;
 
     public IncrementalInterchangeV5Exporter(final OutputStream outputStream) throws IOException {
       LOG.info("Exporting slashing protection database");
       jsonGenerator = JSON_MAPPER.getFactory().createGenerator(outputStream);
-      startInterchangeExport(jsonGenerator);
+      startInterchangeExport(jdbiSupplier.get(), jsonGenerator);
     }
 
     @Override
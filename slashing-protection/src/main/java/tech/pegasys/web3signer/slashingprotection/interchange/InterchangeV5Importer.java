@@ -23,15 +23,31 @@ import tech.pegasys.web3signer.slashingprotection.validator.GenesisValidatorRoot
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.tuweni.bytes.Bytes;
@@ -51,6 +67,9 @@ public class InterchangeV5Importer {
   private final SignedAttestationsDao signedAttestationsDao;
   private final MetadataDao metadataDao;
   private final LowWatermarkDao lowWatermarkDao;
+  private final int batchSize;
+  private final int threads;
+  private final boolean stagingEnabled;
   private static final JsonMapper JSON_MAPPER = new InterchangeJsonProvider().getJsonMapper();
 
   public InterchangeV5Importer(
@@ -60,12 +79,44 @@ public class InterchangeV5Importer {
       final SignedAttestationsDao signedAttestationsDao,
       final MetadataDao metadataDao,
       final LowWatermarkDao lowWatermarkDao) {
+    this(
+        jdbi,
+        validatorsDao,
+        signedBlocksDao,
+        signedAttestationsDao,
+        metadataDao,
+        lowWatermarkDao,
+        0,
+        1,
+        false);
+  }
+
+  /**
+   * @param batchSize number of validators imported in each transaction, or 0 to import all
+   *     validators in a single transaction
+   * @param threads number of batches imported in parallel when importing in batches
+   * @param stagingEnabled merge validators through staging tables using set-based statements
+   *     rather than checking each block and attestation individually
+   */
+  public InterchangeV5Importer(
+      final Jdbi jdbi,
+      final ValidatorsDao validatorsDao,
+      final SignedBlocksDao signedBlocksDao,
+      final SignedAttestationsDao signedAttestationsDao,
+      final MetadataDao metadataDao,
+      final LowWatermarkDao lowWatermarkDao,
+      final int batchSize,
+      final int threads,
+      final boolean stagingEnabled) {
     this.jdbi = jdbi;
     this.validatorsDao = validatorsDao;
     this.signedBlocksDao = signedBlocksDao;
     this.signedAttestationsDao = signedAttestationsDao;
     this.metadataDao = metadataDao;
     this.lowWatermarkDao = lowWatermarkDao;
+    this.batchSize = batchSize;
+    this.threads = threads;
+    this.stagingEnabled = stagingEnabled;
   }
 
   public void importData(final InputStream input) throws IOException {
@@ -74,49 +125,241 @@ public class InterchangeV5Importer {
 
   public void importDataWithFilter(final InputStream input, final List<String> pubkeys)
       throws IOException {
-    importDataInternal(input, Optional.of(pubkeys));
+    importDataInternal(input, Optional.of(Set.copyOf(pubkeys)));
   }
 
-  private void importDataInternal(final InputStream input, final Optional<List<String>> pubkeys)
+  private void importDataInternal(final InputStream input, final Optional<Set<String>> pubkeys)
       throws IOException {
+    Optional<Path> spooledData = Optional.empty();
     try (final JsonParser jsonParser = JSON_MAPPER.getFactory().createParser(input)) {
-      final ObjectNode rootNode = JSON_MAPPER.readTree(jsonParser);
+      if (jsonParser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IllegalArgumentException("Interchange content is not a json object");
+      }
 
-      final JsonNode metadataJsonNode = rootNode.get("metadata");
-      final Metadata metadata = JSON_MAPPER.treeToValue(metadataJsonNode, Metadata.class);
+      boolean metadataVerified = false;
+      while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+        final String fieldName = jsonParser.getCurrentName();
+        jsonParser.nextToken();
+        if (fieldName.equals("metadata")) {
+          verifyMetadata(JSON_MAPPER.readValue(jsonParser, Metadata.class));
+          metadataVerified = true;
+        } else if (fieldName.equals("data")) {
+          if (jsonParser.currentToken() != JsonToken.START_ARRAY) {
+            throw new UnsupportedOperationException(
+                "Property 'data' has value that is not of type ArrayNode");
+          }
+          // validators are imported as they are parsed, so data ahead of the metadata is held on
+          // disk until the metadata has been verified
+          if (metadataVerified) {
+            importValidatorArray(jsonParser, pubkeys);
+          } else {
+            if (spooledData.isPresent()) {
+              Files.delete(spooledData.get());
+            }
+            spooledData = Optional.of(spoolData(jsonParser));
+          }
+        } else {
+          jsonParser.skipChildren();
+        }
+      }
 
-      if (!metadata.getFormatVersion().equals(FORMAT_VERSION)) {
-        throw new IllegalStateException(
-            "Expecting an interchange_format_version of " + FORMAT_VERSION);
+      if (!metadataVerified) {
+        throw new IllegalArgumentException("Interchange metadata is missing");
       }
 
-      final Bytes32 gvr = Bytes32.wrap(metadata.getGenesisValidatorsRoot());
-      final GenesisValidatorRootValidator genesisValidatorRootValidator =
-          new GenesisValidatorRootValidator(jdbi, metadataDao);
-      if (!genesisValidatorRootValidator.checkGenesisValidatorsRootAndInsertIfEmpty(gvr)) {
-        throw new IllegalArgumentException(
-            String.format(
-                "Supplied genesis validators root %s does not match value in database", gvr));
+      if (spooledData.isPresent()) {
+        try (final JsonParser spooledParser =
+            JSON_MAPPER.getFactory().createParser(spooledData.get().toFile())) {
+          spooledParser.nextToken();
+          importValidatorArray(spooledParser, pubkeys);
+        }
+      }
+    } finally {
+      if (spooledData.isPresent()) {
+        Files.deleteIfExists(spooledData.get());
       }
+    }
+  }
+
+  private void importValidatorArray(
+      final JsonParser jsonParser, final Optional<Set<String>> pubkeys) throws IOException {
+    if (batchSize > 0) {
+      importValidatorsInBatches(jsonParser, pubkeys);
+    } else {
+      importValidators(jsonParser, pubkeys);
+    }
+  }
+
+  private Path spoolData(final JsonParser jsonParser) throws IOException {
+    final Path spooledData = Files.createTempFile("slashing-protection-import", ".json");
+    try (final JsonGenerator generator =
+        JSON_MAPPER.getFactory().createGenerator(spooledData.toFile(), JsonEncoding.UTF8)) {
+      generator.copyCurrentStructure(jsonParser);
+    } catch (final IOException | RuntimeException e) {
+      Files.deleteIfExists(spooledData);
+      throw e;
+    }
+    return spooledData;
+  }
 
-      final ArrayNode dataNode = rootNode.withArray("data");
-      jdbi.useTransaction(
-          h -> {
-            for (int i = 0; i < dataNode.size(); i++) {
-              try {
-                final JsonNode validatorNode = dataNode.get(i);
-                parseValidator(h, validatorNode, pubkeys);
-              } catch (final IllegalArgumentException e) {
-                LOG.error("Failed to parse validator {}, due to {}", i, e.getMessage());
-                throw e;
-              }
+  private void verifyMetadata(final Metadata metadata) {
+    if (!metadata.getFormatVersion().equals(FORMAT_VERSION)) {
+      throw new IllegalStateException(
+          "Expecting an interchange_format_version of " + FORMAT_VERSION);
+    }
+
+    final Bytes32 gvr = Bytes32.wrap(metadata.getGenesisValidatorsRoot());
+    final GenesisValidatorRootValidator genesisValidatorRootValidator =
+        new GenesisValidatorRootValidator(jdbi, metadataDao);
+    if (!genesisValidatorRootValidator.checkGenesisValidatorsRootAndInsertIfEmpty(gvr)) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Supplied genesis validators root %s does not match value in database", gvr));
+    }
+  }
+
+  private void importValidators(final JsonParser jsonParser, final Optional<Set<String>> pubkeys)
+      throws IOException {
+    jdbi.useTransaction(
+        h -> {
+          final Optional<StagingTableImporter> stagingImporter = createStagingImporter(h);
+          int i = 0;
+          while (jsonParser.nextToken() != JsonToken.END_ARRAY) {
+            final JsonNode validatorNode = JSON_MAPPER.readTree(jsonParser);
+            importValidator(h, validatorNode, i++, pubkeys, stagingImporter);
+          }
+          stagingImporter.ifPresent(StagingTableImporter::flush);
+        });
+  }
+
+  /**
+   * Imports validators in transactions of at most batchSize validators, committing each batch
+   * independently. Validators are assigned to a lane by public key and each lane imports its
+   * batches in order, so repeated entries for a validator are never imported concurrently.
+   */
+  private void importValidatorsInBatches(
+      final JsonParser jsonParser, final Optional<Set<String>> pubkeys) throws IOException {
+    final List<ExecutorService> lanes = new ArrayList<>();
+    final List<List<IndexedValidatorNode>> pendingBatches = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      lanes.add(
+          Executors.newSingleThreadExecutor(
+              new ThreadFactoryBuilder()
+                  .setNameFormat("slashing-protection-import-" + i)
+                  .setDaemon(true)
+                  .build()));
+      pendingBatches.add(new ArrayList<>());
+    }
+    // bounds the number of parsed validators held in memory
+    final Semaphore batchesInFlight = new Semaphore(threads * 2);
+    final AtomicReference<Exception> failure = new AtomicReference<>();
+    final List<Future<?>> batches = new ArrayList<>();
+
+    try {
+      int i = 0;
+      while (failure.get() == null && jsonParser.nextToken() != JsonToken.END_ARRAY) {
+        final JsonNode validatorNode = JSON_MAPPER.readTree(jsonParser);
+        final int lane = laneFor(validatorNode);
+        final List<IndexedValidatorNode> batch = pendingBatches.get(lane);
+        batch.add(new IndexedValidatorNode(i++, validatorNode));
+        if (batch.size() >= batchSize) {
+          batches.add(
+              submitBatch(
+                  lanes.get(lane), List.copyOf(batch), pubkeys, batchesInFlight, failure));
+          batch.clear();
+        }
+      }
+      for (int lane = 0; lane < threads; lane++) {
+        final List<IndexedValidatorNode> batch = pendingBatches.get(lane);
+        if (failure.get() == null && !batch.isEmpty()) {
+          batches.add(
+              submitBatch(
+                  lanes.get(lane), List.copyOf(batch), pubkeys, batchesInFlight, failure));
+        }
+      }
+      for (final Future<?> batch : batches) {
+        batch.get();
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted importing slashing protection data", e);
+    } catch (final ExecutionException e) {
+      // batches record their own failures so only errors reach here
+      throw new IllegalStateException("Failed to import slashing protection data", e.getCause());
+    } finally {
+      lanes.forEach(ExecutorService::shutdownNow);
+    }
+
+    final Exception e = failure.get();
+    if (e instanceof IOException) {
+      throw (IOException) e;
+    } else if (e != null) {
+      throw (RuntimeException) e;
+    }
+  }
+
+  private Future<?> submitBatch(
+      final ExecutorService lane,
+      final List<IndexedValidatorNode> batch,
+      final Optional<Set<String>> pubkeys,
+      final Semaphore batchesInFlight,
+      final AtomicReference<Exception> failure)
+      throws InterruptedException {
+    batchesInFlight.acquire();
+    final Callable<Void> importBatch =
+        () -> {
+          try {
+            if (failure.get() == null) {
+              jdbi.useTransaction(
+                  h -> {
+                    final Optional<StagingTableImporter> stagingImporter = createStagingImporter(h);
+                    for (final IndexedValidatorNode validator : batch) {
+                      importValidator(h, validator.node, validator.index, pubkeys, stagingImporter);
+                    }
+                    stagingImporter.ifPresent(StagingTableImporter::flush);
+                  });
             }
-          });
+          } catch (final IOException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+          } finally {
+            batchesInFlight.release();
+          }
+          return null;
+        };
+    return lane.submit(importBatch);
+  }
+
+  private Optional<StagingTableImporter> createStagingImporter(final Handle handle) {
+    return stagingEnabled
+        ? Optional.of(new StagingTableImporter(handle, JSON_MAPPER, validatorsDao))
+        : Optional.empty();
+  }
+
+  private int laneFor(final JsonNode validatorNode) {
+    final String pubkey = validatorNode.path("pubkey").asText("").toLowerCase(Locale.ROOT);
+    return Math.floorMod(pubkey.hashCode(), threads);
+  }
+
+  private void importValidator(
+      final Handle handle,
+      final JsonNode validatorNode,
+      final int index,
+      final Optional<Set<String>> pubkeys,
+      final Optional<StagingTableImporter> stagingImporter)
+      throws JsonProcessingException {
+    try {
+      parseValidator(handle, validatorNode, pubkeys, stagingImporter);
+    } catch (final IllegalArgumentException e) {
+      LOG.error("Failed to parse validator {}, due to {}", index, e.getMessage());
+      throw e;
     }
   }
 
   private void parseValidator(
-      final Handle handle, final JsonNode node, final Optional<List<String>> pubkeys)
+      final Handle handle,
+      final JsonNode node,
+      final Optional<Set<String>> pubkeys,
+      final Optional<StagingTableImporter> stagingImporter)
       throws JsonProcessingException {
     if (node.isArray()) {
       throw new IllegalStateException("Element of 'data' was not an object");
@@ -128,6 +371,15 @@ public class InterchangeV5Importer {
       LOG.info("Skipping data import for validator " + pubKey);
       return;
     }
+    if (stagingImporter.isPresent()) {
+      stagingImporter
+          .get()
+          .stage(
+              Bytes.fromHexString(pubKey),
+              parentNode.withArray("signed_blocks"),
+              parentNode.withArray("signed_attestations"));
+      return;
+    }
     final List<Validator> validators =
         validatorsDao.registerValidators(handle, List.of(Bytes.fromHexString(pubKey)));
     if (validators.isEmpty()) {
@@ -161,4 +413,14 @@ public class InterchangeV5Importer {
 
     attestationImporter.importFrom(signedAttestationNode);
   }
+
+  private static class IndexedValidatorNode {
+    private final int index;
+    private final JsonNode node;
+
+    private IndexedValidatorNode(final int index, final JsonNode node) {
+      this.index = index;
+      this.node = node;
+    }
+  }
 }
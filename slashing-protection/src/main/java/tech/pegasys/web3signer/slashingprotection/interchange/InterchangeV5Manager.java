@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.jdbi.v3.core.Jdbi;
 
@@ -37,14 +38,66 @@ public class InterchangeV5Manager implements InterchangeManager {
       final SignedAttestationsDao signedAttestationsDao,
       final MetadataDao metadataDao,
       final LowWatermarkDao lowWatermarkDao) {
+    this(
+        jdbi,
+        validatorsDao,
+        signedBlocksDao,
+        signedAttestationsDao,
+        metadataDao,
+        lowWatermarkDao,
+        0,
+        1,
+        false,
+        1);
+  }
+
+  public InterchangeV5Manager(
+      final Jdbi jdbi,
+      final ValidatorsDao validatorsDao,
+      final SignedBlocksDao signedBlocksDao,
+      final SignedAttestationsDao signedAttestationsDao,
+      final MetadataDao metadataDao,
+      final LowWatermarkDao lowWatermarkDao,
+      final int importBatchSize,
+      final int importThreads,
+      final boolean importStagingEnabled,
+      final int exportThreads) {
+    this(
+        jdbi,
+        () -> jdbi,
+        validatorsDao,
+        signedBlocksDao,
+        signedAttestationsDao,
+        metadataDao,
+        lowWatermarkDao,
+        importBatchSize,
+        importThreads,
+        importStagingEnabled,
+        exportThreads);
+  }
+
+  /** @param exportJdbi supplies the database connection for each export */
+  public InterchangeV5Manager(
+      final Jdbi jdbi,
+      final Supplier<Jdbi> exportJdbi,
+      final ValidatorsDao validatorsDao,
+      final SignedBlocksDao signedBlocksDao,
+      final SignedAttestationsDao signedAttestationsDao,
+      final MetadataDao metadataDao,
+      final LowWatermarkDao lowWatermarkDao,
+      final int importBatchSize,
+      final int importThreads,
+      final boolean importStagingEnabled,
+      final int exportThreads) {
     exporter =
         new InterchangeV5Exporter(
-            jdbi,
+            exportJdbi,
             validatorsDao,
             signedBlocksDao,
             signedAttestationsDao,
             metadataDao,
-            lowWatermarkDao);
+            lowWatermarkDao,
+            exportThreads);
     importer =
         new InterchangeV5Importer(
             jdbi,
@@ -52,7 +105,10 @@ public class InterchangeV5Manager implements InterchangeManager {
             signedBlocksDao,
             signedAttestationsDao,
             metadataDao,
-            lowWatermarkDao);
+            lowWatermarkDao,
+            importBatchSize,
+            importThreads,
+            importStagingEnabled);
   }
 
   @Override
@@ -77,6 +133,11 @@ public class InterchangeV5Manager implements InterchangeManager {
     exporter.exportDataWithFilter(out, pubkeys);
   }
 
+  @Override
+  public long exportDataSince(final OutputStream out, final long checkpoint) throws IOException {
+    return exporter.exportDataSince(out, checkpoint);
+  }
+
   @Override
   public IncrementalExporter createIncrementalExporter(final OutputStream out) throws IOException {
     return exporter.createIncrementalExporter(out);
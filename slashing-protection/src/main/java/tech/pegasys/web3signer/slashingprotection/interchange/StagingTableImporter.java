@@ -0,0 +1,278 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection.interchange;
+
+import tech.pegasys.web3signer.slashingprotection.ArgumentFactories.UInt64ArgumentFactory;
+import tech.pegasys.web3signer.slashingprotection.dao.Validator;
+import tech.pegasys.web3signer.slashingprotection.dao.ValidatorsDao;
+import tech.pegasys.web3signer.slashingprotection.interchange.model.SignedAttestation;
+import tech.pegasys.web3signer.slashingprotection.interchange.model.SignedBlock;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.units.bigints.UInt64;
+import org.jdbi.v3.core.Handle;
+import org.postgresql.PGConnection;
+
+/**
+ * Merges interchange data using set-based statements instead of checking each entry individually.
+ *
+ * <p>Staged validators are registered together, their blocks and attestations are copied into
+ * temporary staging tables and then merged with a few statements per flush. The result is the same
+ * as importing each validator in turn with {@link BlockImporter} and {@link AttestationImporter}:
+ * an entry is skipped if an entry already exists for the slot or target epoch, earlier entries in
+ * the file take precedence over later ones and the low watermarks are only ever raised to the
+ * lowest entry imported for each validator entry.
+ */
+public class StagingTableImporter {
+
+  private static final Logger LOG = LogManager.getLogger();
+
+  // bounds the number of entries held in memory before they are merged
+  private static final int MAX_STAGED_VALIDATORS = 1000;
+
+  private static final String CREATE_BLOCKS_STAGING_TABLE =
+      "CREATE TEMPORARY TABLE IF NOT EXISTS import_signed_blocks ("
+          + "validator_id INTEGER NOT NULL, entry INTEGER NOT NULL, ordinal INTEGER NOT NULL, "
+          + "slot BIGINT NOT NULL, signing_root BYTEA, "
+          + "imported BOOLEAN NOT NULL DEFAULT FALSE) ON COMMIT DELETE ROWS";
+  private static final String CREATE_ATTESTATIONS_STAGING_TABLE =
+      "CREATE TEMPORARY TABLE IF NOT EXISTS import_signed_attestations ("
+          + "validator_id INTEGER NOT NULL, entry INTEGER NOT NULL, ordinal INTEGER NOT NULL, "
+          + "source_epoch BIGINT NOT NULL, target_epoch BIGINT NOT NULL, "
+          + "signing_root BYTEA, imported BOOLEAN NOT NULL DEFAULT FALSE) ON COMMIT DELETE ROWS";
+
+  // an entry is imported unless the slot already has an entry, or for an entry without a signing
+  // root unless the slot already has an entry without a signing root
+  private static final String MARK_IMPORTED_BLOCKS =
+      "UPDATE import_signed_blocks s SET imported = TRUE "
+          + "WHERE NOT EXISTS (SELECT 1 FROM signed_blocks b "
+          + "WHERE b.validator_id = s.validator_id AND b.slot = s.slot "
+          + "AND (s.signing_root IS NOT NULL OR b.signing_root IS NULL)) "
+          + "AND NOT EXISTS (SELECT 1 FROM import_signed_blocks e "
+          + "WHERE e.validator_id = s.validator_id AND e.slot = s.slot AND e.ordinal < s.ordinal "
+          + "AND (s.signing_root IS NOT NULL OR e.signing_root IS NULL))";
+  private static final String INSERT_IMPORTED_BLOCKS =
+      "INSERT INTO signed_blocks (validator_id, slot, signing_root) "
+          + "SELECT validator_id, slot, signing_root FROM import_signed_blocks "
+          + "WHERE imported ORDER BY ordinal";
+  private static final String UPDATE_SLOT_WATERMARKS =
+      "INSERT INTO low_watermarks (validator_id, slot) "
+          + "SELECT validator_id, MAX(min_slot) FROM ("
+          + "SELECT validator_id, MIN(slot) AS min_slot FROM import_signed_blocks "
+          + "WHERE imported GROUP BY validator_id, entry) AS e GROUP BY validator_id "
+          + "ON CONFLICT (validator_id) "
+          + "DO UPDATE SET slot = GREATEST(low_watermarks.slot, EXCLUDED.slot)";
+
+  private static final String MARK_IMPORTED_ATTESTATIONS =
+      "UPDATE import_signed_attestations s SET imported = TRUE "
+          + "WHERE NOT EXISTS (SELECT 1 FROM signed_attestations a "
+          + "WHERE a.validator_id = s.validator_id AND a.target_epoch = s.target_epoch "
+          + "AND (s.signing_root IS NOT NULL OR a.signing_root IS NULL)) "
+          + "AND NOT EXISTS (SELECT 1 FROM import_signed_attestations e "
+          + "WHERE e.validator_id = s.validator_id AND e.target_epoch = s.target_epoch "
+          + "AND e.ordinal < s.ordinal AND (s.signing_root IS NOT NULL OR e.signing_root IS NULL))";
+  private static final String INSERT_IMPORTED_ATTESTATIONS =
+      "INSERT INTO signed_attestations (validator_id, source_epoch, target_epoch, signing_root) "
+          + "SELECT validator_id, source_epoch, target_epoch, signing_root "
+          + "FROM import_signed_attestations WHERE imported ORDER BY ordinal";
+  private static final String UPDATE_EPOCH_WATERMARKS =
+      "INSERT INTO low_watermarks (validator_id, source_epoch, target_epoch) "
+          + "SELECT validator_id, MAX(min_source_epoch), MAX(min_target_epoch) FROM ("
+          + "SELECT validator_id, MIN(source_epoch) AS min_source_epoch, "
+          + "MIN(target_epoch) AS min_target_epoch FROM import_signed_attestations "
+          + "WHERE imported GROUP BY validator_id, entry) AS e GROUP BY validator_id "
+          + "ON CONFLICT (validator_id) DO UPDATE SET "
+          + "source_epoch = GREATEST(low_watermarks.source_epoch, EXCLUDED.source_epoch), "
+          + "target_epoch = GREATEST(low_watermarks.target_epoch, EXCLUDED.target_epoch)";
+
+  private final Handle handle;
+  private final ObjectMapper mapper;
+  private final ValidatorsDao validatorsDao;
+  private final List<StagedValidator> stagedValidators = new ArrayList<>();
+  private boolean stagingTablesCreated = false;
+
+  public StagingTableImporter(
+      final Handle handle, final ObjectMapper mapper, final ValidatorsDao validatorsDao) {
+    this.handle = handle;
+    this.mapper = mapper;
+    this.validatorsDao = validatorsDao;
+  }
+
+  public void stage(
+      final Bytes publicKey,
+      final ArrayNode signedBlocksNode,
+      final ArrayNode signedAttestationsNode)
+      throws JsonProcessingException {
+    final List<SignedBlock> blocks = new ArrayList<>(signedBlocksNode.size());
+    for (int i = 0; i < signedBlocksNode.size(); i++) {
+      blocks.add(mapper.treeToValue(signedBlocksNode.get(i), SignedBlock.class));
+    }
+    final List<SignedAttestation> attestations = new ArrayList<>(signedAttestationsNode.size());
+    for (int i = 0; i < signedAttestationsNode.size(); i++) {
+      attestations.add(mapper.treeToValue(signedAttestationsNode.get(i), SignedAttestation.class));
+    }
+    stagedValidators.add(new StagedValidator(publicKey, blocks, attestations));
+
+    if (stagedValidators.size() >= MAX_STAGED_VALIDATORS) {
+      flush();
+    }
+  }
+
+  /** Merges all staged entries, must be called before the transaction is committed. */
+  public void flush() {
+    if (stagedValidators.isEmpty()) {
+      return;
+    }
+    if (!stagingTablesCreated) {
+      handle.execute(CREATE_BLOCKS_STAGING_TABLE);
+      handle.execute(CREATE_ATTESTATIONS_STAGING_TABLE);
+      stagingTablesCreated = true;
+    }
+
+    final List<Bytes> publicKeys =
+        stagedValidators.stream().map(v -> v.publicKey).distinct().collect(Collectors.toList());
+    final Map<Bytes, Integer> validatorIds = new HashMap<>();
+    for (final Validator validator : validatorsDao.registerValidators(handle, publicKeys)) {
+      validatorIds.put(validator.getPublicKey(), validator.getId());
+    }
+
+    final StringBuilder blocksCsv = new StringBuilder();
+    final StringBuilder attestationsCsv = new StringBuilder();
+    int blockCount = 0;
+    int attestationCount = 0;
+    for (int entry = 0; entry < stagedValidators.size(); entry++) {
+      final StagedValidator staged = stagedValidators.get(entry);
+      final Integer validatorId = validatorIds.get(staged.publicKey);
+      if (validatorId == null) {
+        throw new IllegalStateException("Unable to register validator " + staged.publicKey);
+      }
+      for (final SignedBlock block : staged.blocks) {
+        appendRow(
+            blocksCsv,
+            validatorId,
+            entry,
+            blockCount++,
+            decimal(block.getSlot()),
+            bytea(block.getSigningRoot()));
+      }
+      for (final SignedAttestation attestation : staged.attestations) {
+        appendRow(
+            attestationsCsv,
+            validatorId,
+            entry,
+            attestationCount++,
+            decimal(attestation.getSourceEpoch()),
+            decimal(attestation.getTargetEpoch()),
+            bytea(attestation.getSigningRoot()));
+      }
+    }
+    stagedValidators.clear();
+
+    if (blockCount > 0) {
+      copyIn(
+          "COPY import_signed_blocks (validator_id, entry, ordinal, slot, signing_root) "
+              + "FROM STDIN WITH (FORMAT csv)",
+          blocksCsv);
+      final int imported = handle.execute(MARK_IMPORTED_BLOCKS);
+      handle.execute(INSERT_IMPORTED_BLOCKS);
+      handle.execute(UPDATE_SLOT_WATERMARKS);
+      logSkipped("blocks", blockCount, imported);
+    }
+    if (attestationCount > 0) {
+      copyIn(
+          "COPY import_signed_attestations "
+              + "(validator_id, entry, ordinal, source_epoch, target_epoch, signing_root) "
+              + "FROM STDIN WITH (FORMAT csv)",
+          attestationsCsv);
+      final int imported = handle.execute(MARK_IMPORTED_ATTESTATIONS);
+      handle.execute(INSERT_IMPORTED_ATTESTATIONS);
+      handle.execute(UPDATE_EPOCH_WATERMARKS);
+      logSkipped("attestations", attestationCount, imported);
+    }
+    // cleared so entries of the next flush are compared against the merged tables only
+    handle.execute("TRUNCATE import_signed_blocks, import_signed_attestations");
+  }
+
+  private void copyIn(final String sql, final StringBuilder csv) {
+    try {
+      handle
+          .getConnection()
+          .unwrap(PGConnection.class)
+          .getCopyAPI()
+          .copyIn(sql, new StringReader(csv.toString()));
+    } catch (final SQLException | IOException e) {
+      throw new IllegalStateException("Failed to copy interchange data into staging table", e);
+    }
+  }
+
+  private void logSkipped(final String type, final int staged, final int imported) {
+    if (staged > imported) {
+      LOG.warn(
+          "{} of {} {} already exist or conflict with existing entries, not imported",
+          staged - imported,
+          staged,
+          type);
+    }
+  }
+
+  private static void appendRow(
+      final StringBuilder csv,
+      final int validatorId,
+      final int entry,
+      final int ordinal,
+      final String... values) {
+    csv.append(validatorId).append(',').append(entry).append(',').append(ordinal);
+    for (final String value : values) {
+      // an unquoted empty value is read as null
+      csv.append(',').append(value);
+    }
+    csv.append('\n');
+  }
+
+  private static String decimal(final UInt64 value) {
+    return Long.toString(UInt64ArgumentFactory.toDbValue(value));
+  }
+
+  private static String bytea(final Bytes value) {
+    return value == null ? "" : "\\x" + value.toUnprefixedHexString();
+  }
+
+  private static class StagedValidator {
+    private final Bytes publicKey;
+    private final List<SignedBlock> blocks;
+    private final List<SignedAttestation> attestations;
+
+    private StagedValidator(
+        final Bytes publicKey,
+        final List<SignedBlock> blocks,
+        final List<SignedAttestation> attestations) {
+      this.publicKey = publicKey;
+      this.blocks = blocks;
+      this.attestations = attestations;
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection.journal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.units.bigints.UInt64;
+
+/**
+ * Fixed size memory mapped file holding a validator's enabled status, low watermarks and the
+ * minimum and maximum slots and epochs present in its journal.
+ *
+ * <p>Each value has a presence bit in the flags word so that an unset value is distinguishable
+ * from zero. Updates are only guaranteed to be on disk once {@link #force()} has been called.
+ */
+class JournalIndex implements AutoCloseable {
+  private static final int SIZE = 128;
+  private static final int FORMAT_VERSION = 1;
+
+  private static final int VERSION_OFFSET = 0;
+  private static final int FLAGS_OFFSET = 4;
+
+  static final int SLOT_WATERMARK = 0;
+  static final int SOURCE_EPOCH_WATERMARK = 1;
+  static final int TARGET_EPOCH_WATERMARK = 2;
+  static final int MIN_SLOT = 3;
+  static final int MAX_SLOT = 4;
+  static final int MIN_TARGET_EPOCH = 5;
+  static final int MAX_SOURCE_EPOCH = 6;
+  static final int MAX_TARGET_EPOCH = 7;
+  private static final int VALUE_COUNT = 8;
+  private static final int DISABLED_FLAG = 1 << VALUE_COUNT;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+
+  private JournalIndex(final FileChannel channel, final MappedByteBuffer buffer) {
+    this.channel = channel;
+    this.buffer = buffer;
+  }
+
+  static JournalIndex open(final Path path) throws IOException {
+    final FileChannel channel =
+        FileChannel.open(
+            path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      final boolean created = channel.size() == 0;
+      final MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, SIZE);
+      if (created) {
+        buffer.putInt(VERSION_OFFSET, FORMAT_VERSION);
+        buffer.putInt(FLAGS_OFFSET, 0);
+        buffer.force();
+      } else if (buffer.getInt(VERSION_OFFSET) != FORMAT_VERSION) {
+        throw new IllegalStateException(
+            "Unsupported slashing protection journal index version in " + path);
+      }
+      return new JournalIndex(channel, buffer);
+    } catch (final IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  synchronized boolean isEnabled() {
+    return (flags() & DISABLED_FLAG) == 0;
+  }
+
+  synchronized void setEnabled(final boolean enabled) {
+    final int flags = flags();
+    buffer.putInt(FLAGS_OFFSET, enabled ? flags & ~DISABLED_FLAG : flags | DISABLED_FLAG);
+  }
+
+  synchronized Optional<UInt64> get(final int value) {
+    if ((flags() & (1 << value)) == 0) {
+      return Optional.empty();
+    }
+    return Optional.of(UInt64.fromBytes(Bytes.ofUnsignedLong(buffer.getLong(offsetOf(value)))));
+  }
+
+  synchronized void set(final int value, final UInt64 newValue) {
+    buffer.putLong(offsetOf(value), newValue.toBytes().toLong());
+    buffer.putInt(FLAGS_OFFSET, flags() | (1 << value));
+  }
+
+  synchronized void clear(final int value) {
+    buffer.putInt(FLAGS_OFFSET, flags() & ~(1 << value));
+  }
+
+  synchronized void force() {
+    buffer.force();
+  }
+
+  private int flags() {
+    return buffer.getInt(FLAGS_OFFSET);
+  }
+
+  private static int offsetOf(final int value) {
+    return FLAGS_OFFSET + Integer.BYTES + value * Long.BYTES;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,560 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection.journal;
+
+import static tech.pegasys.web3signer.slashingprotection.journal.ValidatorJournal.JOURNAL_SUFFIX;
+
+import tech.pegasys.web3signer.slashingprotection.SlashingProtection;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestation;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedBlock;
+import tech.pegasys.web3signer.slashingprotection.dao.SigningWatermark;
+import tech.pegasys.web3signer.slashingprotection.dao.Validator;
+import tech.pegasys.web3signer.slashingprotection.interchange.EmptyDataIncrementalInterchangeV5Exporter;
+import tech.pegasys.web3signer.slashingprotection.interchange.IncrementalExporter;
+import tech.pegasys.web3signer.slashingprotection.interchange.InterchangeJsonProvider;
+import tech.pegasys.web3signer.slashingprotection.interchange.model.Metadata;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.bytes.Bytes32;
+import org.apache.tuweni.units.bigints.UInt64;
+
+/**
+ * Slashing protection backed by a directory of per validator journals instead of a database.
+ *
+ * <p>The directory is locked for the lifetime of the process so it can only be used by a single
+ * signer. Imports are validated in full before any journal is written, but unlike the database a
+ * failure part way through writing an import is not rolled back.
+ */
+public class JournalSlashingProtection implements SlashingProtection {
+  private static final Logger LOG = LogManager.getLogger();
+
+  private static final String FORMAT_VERSION = "5";
+  private static final String LOCK_FILE = "LOCK";
+  private static final String GENESIS_VALIDATORS_ROOT_FILE = "genesis_validators_root";
+  private static final JsonMapper JSON_MAPPER = new InterchangeJsonProvider().getJsonMapper();
+
+  private final Path directory;
+  private final long pruningEpochsToKeep;
+  private final long pruningSlotsPerEpoch;
+  private final Map<Bytes, ValidatorJournal> journals = new ConcurrentHashMap<>();
+  private final AtomicInteger nextValidatorId = new AtomicInteger(1);
+  private final FileLock directoryLock;
+  private volatile Bytes32 genesisValidatorsRoot;
+
+  public JournalSlashingProtection(
+      final Path directory, final long pruningEpochsToKeep, final long pruningSlotsPerEpoch) {
+    this.directory = directory;
+    this.pruningEpochsToKeep = pruningEpochsToKeep;
+    this.pruningSlotsPerEpoch = pruningSlotsPerEpoch;
+    try {
+      Files.createDirectories(directory);
+      final FileChannel lockChannel =
+          FileChannel.open(
+              directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      directoryLock = tryLock(lockChannel);
+      if (directoryLock == null) {
+        lockChannel.close();
+        throw new IllegalStateException(
+            "Slashing protection journal directory " + directory + " is in use by another process");
+      }
+      genesisValidatorsRoot = readGenesisValidatorsRoot().orElse(null);
+    } catch (final IOException e) {
+      throw new IllegalStateException(
+          "Unable to open slashing protection journal directory " + directory, e);
+    }
+  }
+
+  public synchronized void close() throws IOException {
+    for (final ValidatorJournal journal : journals.values()) {
+      journal.close();
+    }
+    journals.clear();
+    directoryLock.channel().close();
+  }
+
+  public List<Validator> registerValidators(final List<Bytes> publicKeys) {
+    return publicKeys.stream()
+        .map(this::journalFor)
+        .map(journal -> new Validator(journal.getValidatorId(), journal.getPublicKey()))
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public boolean maySignAttestation(
+      final Bytes publicKey,
+      final Bytes signingRoot,
+      final UInt64 sourceEpoch,
+      final UInt64 targetEpoch,
+      final Bytes32 genesisValidatorsRoot) {
+    final ValidatorJournal journal = mustGetJournal(publicKey);
+    if (!checkGenesisValidatorsRootAndInsertIfEmpty(genesisValidatorsRoot)) {
+      return false;
+    }
+    return journal.maySignAttestation(signingRoot, sourceEpoch, targetEpoch);
+  }
+
+  @Override
+  public boolean maySignBlock(
+      final Bytes publicKey,
+      final Bytes signingRoot,
+      final UInt64 blockSlot,
+      final Bytes32 genesisValidatorsRoot) {
+    final ValidatorJournal journal = mustGetJournal(publicKey);
+    if (!checkGenesisValidatorsRootAndInsertIfEmpty(genesisValidatorsRoot)) {
+      return false;
+    }
+    return journal.maySignBlock(signingRoot, blockSlot);
+  }
+
+  @Override
+  public boolean hasSlashingProtectionDataFor(final Bytes publicKey) {
+    return Optional.ofNullable(journals.get(publicKey))
+        .map(ValidatorJournal::hasSignedData)
+        .orElse(false);
+  }
+
+  @Override
+  public boolean isEnabledValidator(final Bytes publicKey) {
+    return mustGetJournal(publicKey).isEnabled();
+  }
+
+  @Override
+  public void updateValidatorEnabledStatus(final Bytes publicKey, final boolean enabled) {
+    mustGetJournal(publicKey).setEnabled(enabled);
+  }
+
+  @Override
+  public void prune() {
+    final List<ValidatorJournal> validatorJournals = new ArrayList<>(journals.values());
+    LOG.info("Pruning slashing protection journal for {} validators", validatorJournals.size());
+    validatorJournals.forEach(journal -> journal.prune(pruningEpochsToKeep, pruningSlotsPerEpoch));
+    LOG.info("Pruning slashing protection journal complete");
+  }
+
+  @Override
+  public void importData(final InputStream input) {
+    try {
+      LOG.info("Importing slashing protection journal");
+      importDataInternal(input, Optional.empty());
+      LOG.info("Import complete");
+    } catch (final IOException | UnsupportedOperationException | IllegalArgumentException e) {
+      throw new RuntimeException("Failed to import journal content", e);
+    }
+  }
+
+  @Override
+  public void importDataWithFilter(final InputStream input, final List<String> pubkeys) {
+    try {
+      LOG.info("Importing slashing protection journal for keys: " + String.join(",", pubkeys));
+      importDataInternal(input, Optional.of(pubkeys));
+      LOG.info("Import complete");
+    } catch (final IOException | UnsupportedOperationException | IllegalArgumentException e) {
+      throw new RuntimeException("Failed to import journal content", e);
+    }
+  }
+
+  @Override
+  public void exportData(final OutputStream output) {
+    try {
+      LOG.info("Exporting slashing protection journal");
+      exportInternal(output, Optional.empty());
+      LOG.info("Export complete");
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to export journal content", e);
+    }
+  }
+
+  @Override
+  public void exportDataWithFilter(final OutputStream output, final List<String> pubkeys) {
+    try {
+      LOG.info("Exporting slashing protection journal for keys: " + String.join(",", pubkeys));
+      exportInternal(output, Optional.of(pubkeys));
+      LOG.info("Export complete");
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to export journal content", e);
+    }
+  }
+
+  @Override
+  public long exportDataSince(final OutputStream output, final long checkpoint) {
+    throw new UnsupportedOperationException(
+        "Delta export is not supported by the slashing protection journal");
+  }
+
+  @Override
+  public IncrementalExporter createIncrementalExporter(final OutputStream out) {
+    if (genesisValidatorsRoot == null) {
+      return new EmptyDataIncrementalInterchangeV5Exporter(out);
+    }
+
+    try {
+      return new IncrementalJournalExporter(out);
+    } catch (final IOException e) {
+      throw new RuntimeException(
+          "Failed to initialise incremental exporter for slashing protection data", e);
+    }
+  }
+
+  private void importDataInternal(final InputStream input, final Optional<List<String>> pubkeys)
+      throws IOException {
+    try (final JsonParser jsonParser = JSON_MAPPER.getFactory().createParser(input)) {
+      final ObjectNode rootNode = JSON_MAPPER.readTree(jsonParser);
+
+      final JsonNode metadataJsonNode = rootNode.get("metadata");
+      final Metadata metadata = JSON_MAPPER.treeToValue(metadataJsonNode, Metadata.class);
+
+      if (!metadata.getFormatVersion().equals(FORMAT_VERSION)) {
+        throw new IllegalStateException(
+            "Expecting an interchange_format_version of " + FORMAT_VERSION);
+      }
+
+      final Bytes32 gvr = Bytes32.wrap(metadata.getGenesisValidatorsRoot());
+      final ArrayNode dataNode = rootNode.withArray("data");
+      final List<ImportedValidator> importedValidators = new ArrayList<>();
+      for (int i = 0; i < dataNode.size(); i++) {
+        try {
+          parseValidator(dataNode.get(i), pubkeys).ifPresent(importedValidators::add);
+        } catch (final IllegalArgumentException e) {
+          LOG.error("Failed to parse validator {}, due to {}", i, e.getMessage());
+          throw e;
+        }
+      }
+
+      if (!checkGenesisValidatorsRootAndInsertIfEmpty(gvr)) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Supplied genesis validators root %s does not match value in journal", gvr));
+      }
+
+      importedValidators.forEach(
+          imported -> {
+            final ValidatorJournal journal = journalFor(imported.publicKey);
+            journal.importBlocks(imported.signedBlocks);
+            journal.importAttestations(imported.signedAttestations);
+          });
+    }
+  }
+
+  private Optional<ImportedValidator> parseValidator(
+      final JsonNode node, final Optional<List<String>> pubkeys) throws IOException {
+    if (node.isArray()) {
+      throw new IllegalStateException("Element of 'data' was not an object");
+    }
+    final ObjectNode parentNode = (ObjectNode) node;
+    final String pubKey = parentNode.required("pubkey").textValue();
+
+    if (pubkeys.isPresent() && !pubkeys.get().contains(pubKey)) {
+      LOG.info("Skipping data import for validator " + pubKey);
+      return Optional.empty();
+    }
+
+    final ImportedValidator importedValidator =
+        new ImportedValidator(Bytes.fromHexString(pubKey));
+    for (final JsonNode blockNode : parentNode.withArray("signed_blocks")) {
+      importedValidator.signedBlocks.add(
+          JSON_MAPPER.treeToValue(
+              blockNode,
+              tech.pegasys.web3signer.slashingprotection.interchange.model.SignedBlock.class));
+    }
+    for (final JsonNode attestationNode : parentNode.withArray("signed_attestations")) {
+      importedValidator.signedAttestations.add(
+          JSON_MAPPER.treeToValue(
+              attestationNode,
+              tech.pegasys.web3signer.slashingprotection.interchange.model.SignedAttestation
+                  .class));
+    }
+    return Optional.of(importedValidator);
+  }
+
+  private void exportInternal(final OutputStream out, final Optional<List<String>> pubkeys)
+      throws IOException {
+    try (final JsonGenerator jsonGenerator = JSON_MAPPER.getFactory().createGenerator(out)) {
+      startInterchangeExport(jsonGenerator);
+      for (final ValidatorJournal journal : allJournals()) {
+        populateValidatorRecord(journal, jsonGenerator, pubkeys);
+      }
+      finaliseInterchangeExport(jsonGenerator);
+    }
+  }
+
+  private void startInterchangeExport(final JsonGenerator jsonGenerator) throws IOException {
+    if (genesisValidatorsRoot == null) {
+      throw new RuntimeException("No genesis validators root for slashing protection data");
+    }
+
+    jsonGenerator.writeStartObject();
+    jsonGenerator.writeFieldName("metadata");
+    JSON_MAPPER.writeValue(jsonGenerator, new Metadata(FORMAT_VERSION, genesisValidatorsRoot));
+    jsonGenerator.writeArrayFieldStart("data");
+  }
+
+  private void finaliseInterchangeExport(final JsonGenerator jsonGenerator) throws IOException {
+    // end the data array
+    jsonGenerator.writeEndArray();
+
+    // end the interchange object
+    jsonGenerator.writeEndObject();
+  }
+
+  private void populateValidatorRecord(
+      final ValidatorJournal journal,
+      final JsonGenerator jsonGenerator,
+      final Optional<List<String>> pubkeys)
+      throws IOException {
+    final String publicKey = journal.getPublicKey().toHexString();
+    if (pubkeys.isPresent() && !pubkeys.get().contains(publicKey)) {
+      LOG.info("Skipping data export for validator " + publicKey);
+      return;
+    }
+    final Optional<SigningWatermark> watermark = journal.getLowWatermark();
+    if (watermark.isEmpty()) {
+      LOG.warn("No low watermark available, producing empty export for validator {}", publicKey);
+      return;
+    }
+    LOG.info("Exporting entries for validator {}", publicKey);
+    jsonGenerator.writeStartObject();
+    jsonGenerator.writeStringField("pubkey", publicKey);
+    writeBlocks(journal, watermark.get(), jsonGenerator);
+    writeAttestations(journal, watermark.get(), jsonGenerator);
+    jsonGenerator.writeEndObject();
+  }
+
+  private void writeBlocks(
+      final ValidatorJournal journal,
+      final SigningWatermark watermark,
+      final JsonGenerator jsonGenerator)
+      throws IOException {
+    jsonGenerator.writeArrayFieldStart("signed_blocks");
+    if (watermark.getSlot() == null) {
+      LOG.warn(
+          "No block slot low watermark exists for {}, producing empty block listing",
+          journal.getPublicKey());
+    } else {
+      for (final SignedBlock block : journal.getSignedBlocks()) {
+        if (block.getSlot().compareTo(watermark.getSlot()) >= 0) {
+          JSON_MAPPER.writeValue(
+              jsonGenerator,
+              new tech.pegasys.web3signer.slashingprotection.interchange.model.SignedBlock(
+                  block.getSlot(), block.getSigningRoot().orElse(null)));
+        }
+      }
+    }
+    jsonGenerator.writeEndArray();
+  }
+
+  private void writeAttestations(
+      final ValidatorJournal journal,
+      final SigningWatermark watermark,
+      final JsonGenerator jsonGenerator)
+      throws IOException {
+    jsonGenerator.writeArrayFieldStart("signed_attestations");
+    if (watermark.getSourceEpoch() == null || watermark.getTargetEpoch() == null) {
+      LOG.warn(
+          "Missing attestation low watermark for {}, producing empty attestation listing",
+          journal.getPublicKey());
+    } else {
+      for (final SignedAttestation attestation : journal.getSignedAttestations()) {
+        if (attestation.getSourceEpoch().compareTo(watermark.getSourceEpoch()) >= 0
+            && attestation.getTargetEpoch().compareTo(watermark.getTargetEpoch()) >= 0) {
+          JSON_MAPPER.writeValue(
+              jsonGenerator,
+              new tech.pegasys.web3signer.slashingprotection.interchange.model.SignedAttestation(
+                  attestation.getSourceEpoch(),
+                  attestation.getTargetEpoch(),
+                  attestation.getSigningRoot().orElse(null)));
+        }
+      }
+    }
+    jsonGenerator.writeEndArray();
+  }
+
+  private boolean checkGenesisValidatorsRootAndInsertIfEmpty(final Bytes32 genesisValidatorsRoot) {
+    if (genesisValidatorsRoot.equals(this.genesisValidatorsRoot)) {
+      return true;
+    }
+    return checkAndWriteGenesisValidatorsRoot(genesisValidatorsRoot);
+  }
+
+  private synchronized boolean checkAndWriteGenesisValidatorsRoot(
+      final Bytes32 genesisValidatorsRoot) {
+    if (this.genesisValidatorsRoot == null) {
+      writeGenesisValidatorsRoot(genesisValidatorsRoot);
+      this.genesisValidatorsRoot = genesisValidatorsRoot;
+      return true;
+    }
+    if (!this.genesisValidatorsRoot.equals(genesisValidatorsRoot)) {
+      LOG.warn(
+          "Supplied genesis validators root {} does not match value in journal",
+          genesisValidatorsRoot);
+      return false;
+    }
+    return true;
+  }
+
+  private Optional<Bytes32> readGenesisValidatorsRoot() throws IOException {
+    final Path path = directory.resolve(GENESIS_VALIDATORS_ROOT_FILE);
+    if (!Files.exists(path)) {
+      return Optional.empty();
+    }
+    return Optional.of(
+        Bytes32.fromHexString(Files.readString(path, StandardCharsets.UTF_8).trim()));
+  }
+
+  private void writeGenesisValidatorsRoot(final Bytes32 genesisValidatorsRoot) {
+    final Path path = directory.resolve(GENESIS_VALIDATORS_ROOT_FILE);
+    final Path tempPath = directory.resolve(GENESIS_VALIDATORS_ROOT_FILE + ".tmp");
+    try {
+      try (final FileChannel channel =
+          FileChannel.open(
+              tempPath,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.WRITE)) {
+        channel.write(StandardCharsets.UTF_8.encode(genesisValidatorsRoot.toHexString()));
+        channel.force(true);
+      }
+      Files.move(
+          tempPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Failed to write genesis validators root to journal", e);
+    }
+  }
+
+  private ValidatorJournal mustGetJournal(final Bytes publicKey) {
+    final ValidatorJournal journal = journals.get(publicKey);
+    if (journal == null) {
+      throw new IllegalStateException("Unregistered validator for " + publicKey);
+    }
+    return journal;
+  }
+
+  private ValidatorJournal journalFor(final Bytes publicKey) {
+    return journals.computeIfAbsent(
+        publicKey,
+        key -> {
+          try {
+            return ValidatorJournal.open(directory, nextValidatorId.getAndIncrement(), key);
+          } catch (final IOException e) {
+            throw new UncheckedIOException(
+                "Failed to open slashing protection journal for validator " + key, e);
+          }
+        });
+  }
+
+  private Optional<ValidatorJournal> findJournal(final Bytes publicKey) {
+    if (journals.containsKey(publicKey)
+        || Files.exists(ValidatorJournal.journalPath(directory, publicKey))) {
+      return Optional.of(journalFor(publicKey));
+    }
+    return Optional.empty();
+  }
+
+  private List<ValidatorJournal> allJournals() throws IOException {
+    // include validators which have history in the directory but aren't registered
+    try (final Stream<Path> paths = Files.list(directory)) {
+      paths
+          .map(path -> path.getFileName().toString())
+          .filter(name -> name.endsWith(JOURNAL_SUFFIX))
+          .map(name -> name.substring(0, name.length() - JOURNAL_SUFFIX.length()))
+          .map(Bytes::fromHexString)
+          .forEach(this::journalFor);
+    }
+    return journals.values().stream()
+        .sorted(Comparator.comparingInt(ValidatorJournal::getValidatorId))
+        .collect(Collectors.toList());
+  }
+
+  private static FileLock tryLock(final FileChannel lockChannel) throws IOException {
+    try {
+      return lockChannel.tryLock();
+    } catch (final OverlappingFileLockException e) {
+      return null;
+    }
+  }
+
+  private static class ImportedValidator {
+    private final Bytes publicKey;
+    private final List<tech.pegasys.web3signer.slashingprotection.interchange.model.SignedBlock>
+        signedBlocks = new ArrayList<>();
+    private final List<
+            tech.pegasys.web3signer.slashingprotection.interchange.model.SignedAttestation>
+        signedAttestations = new ArrayList<>();
+
+    private ImportedValidator(final Bytes publicKey) {
+      this.publicKey = publicKey;
+    }
+  }
+
+  private class IncrementalJournalExporter implements IncrementalExporter {
+    private final JsonGenerator jsonGenerator;
+
+    private IncrementalJournalExporter(final OutputStream outputStream) throws IOException {
+      LOG.info("Exporting slashing protection journal");
+      jsonGenerator = JSON_MAPPER.getFactory().createGenerator(outputStream);
+      startInterchangeExport(jsonGenerator);
+    }
+
+    @Override
+    public void export(final String publicKey) {
+      final Optional<ValidatorJournal> journal = findJournal(Bytes.fromHexString(publicKey));
+      if (journal.isPresent()) {
+        try {
+          populateValidatorRecord(journal.get(), jsonGenerator, Optional.of(List.of(publicKey)));
+        } catch (final IOException e) {
+          throw new UncheckedIOException("Failed to construct a validator entry in json", e);
+        }
+      }
+    }
+
+    @Override
+    public void finalise() throws IOException {
+      finaliseInterchangeExport(jsonGenerator);
+      LOG.info("Exporting complete");
+    }
+
+    @Override
+    public void close() throws Exception {
+      jsonGenerator.close();
+    }
+  }
+}
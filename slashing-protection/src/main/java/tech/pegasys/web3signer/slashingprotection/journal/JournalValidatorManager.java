@@ -0,0 +1,52 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection.journal;
+
+import tech.pegasys.web3signer.signing.FileValidatorManager;
+import tech.pegasys.web3signer.signing.ValidatorManager;
+import tech.pegasys.web3signer.slashingprotection.RegisteredValidators;
+import tech.pegasys.web3signer.slashingprotection.SlashingProtection;
+
+import java.util.List;
+
+import org.apache.tuweni.bytes.Bytes;
+
+public class JournalValidatorManager implements ValidatorManager {
+
+  private final FileValidatorManager fileValidatorManager;
+  private final RegisteredValidators registeredValidators;
+  private final SlashingProtection slashingProtection;
+
+  public JournalValidatorManager(
+      final FileValidatorManager fileValidatorManager,
+      final RegisteredValidators registeredValidators,
+      final SlashingProtection slashingProtection) {
+    this.fileValidatorManager = fileValidatorManager;
+    this.registeredValidators = registeredValidators;
+    this.slashingProtection = slashingProtection;
+  }
+
+  @Override
+  public void deleteValidator(final Bytes publicKey) {
+    // First disable the validator in the journal to prevent further signing
+    slashingProtection.updateValidatorEnabledStatus(publicKey, false);
+    fileValidatorManager.deleteValidator(publicKey);
+  }
+
+  @Override
+  public void addValidator(final Bytes publicKey, final String keystore, final String password) {
+    fileValidatorManager.addValidator(publicKey, keystore, password);
+    registeredValidators.registerValidators(List.of(publicKey));
+    slashingProtection.updateValidatorEnabledStatus(publicKey, true);
+  }
+}
@@ -0,0 +1,795 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection.journal;
+
+import static tech.pegasys.web3signer.slashingprotection.journal.JournalIndex.MAX_SLOT;
+import static tech.pegasys.web3signer.slashingprotection.journal.JournalIndex.MAX_SOURCE_EPOCH;
+import static tech.pegasys.web3signer.slashingprotection.journal.JournalIndex.MAX_TARGET_EPOCH;
+import static tech.pegasys.web3signer.slashingprotection.journal.JournalIndex.MIN_SLOT;
+import static tech.pegasys.web3signer.slashingprotection.journal.JournalIndex.MIN_TARGET_EPOCH;
+import static tech.pegasys.web3signer.slashingprotection.journal.JournalIndex.SLOT_WATERMARK;
+import static tech.pegasys.web3signer.slashingprotection.journal.JournalIndex.SOURCE_EPOCH_WATERMARK;
+import static tech.pegasys.web3signer.slashingprotection.journal.JournalIndex.TARGET_EPOCH_WATERMARK;
+
+import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestation;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedBlock;
+import tech.pegasys.web3signer.slashingprotection.dao.SigningWatermark;
+import tech.pegasys.web3signer.slashingprotection.interchange.OptionalMinValueTracker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.units.bigints.UInt64;
+import org.apache.tuweni.units.bigints.UInt64s;
+
+/**
+ * Slashing protection history of a single validator held in an append-only journal file.
+ *
+ * <p>Each record is written as its length, payload and CRC32 checksum and the journal is forced to
+ * disk before a signing request is permitted. A partially written record at the end of the journal
+ * is discarded when it is next opened, while a corrupt record followed by further records fails
+ * the open and leaves the journal untouched. The complete history is held in memory and the {@link
+ * JournalIndex} allows checks for attestations ahead of all existing entries to skip the surround
+ * vote scan. Imported attestations with a source after their target widen that scan to every
+ * earlier target.
+ */
+class ValidatorJournal implements AutoCloseable {
+  private static final Logger LOG = LogManager.getLogger();
+
+  static final String JOURNAL_SUFFIX = ".journal";
+  static final String INDEX_SUFFIX = ".index";
+  private static final String COMPACTION_SUFFIX = ".compact";
+
+  private static final byte BLOCK_RECORD = 1;
+  private static final byte ATTESTATION_RECORD = 2;
+  private static final short NULL_SIGNING_ROOT = -1;
+  private static final int RECORD_OVERHEAD = 2 * Integer.BYTES;
+  private static final int MAX_PAYLOAD_LENGTH = 1 + 2 * Long.BYTES + Short.BYTES + Short.MAX_VALUE;
+
+  private final int validatorId;
+  private final Bytes publicKey;
+  private final Path journalPath;
+  private final JournalIndex index;
+  private final NavigableMap<UInt64, List<SignedBlock>> blocks = new TreeMap<>();
+  private final NavigableMap<UInt64, List<SignedAttestation>> attestations = new TreeMap<>();
+  private FileChannel journal;
+  private boolean hasSourceAfterTarget;
+
+  private ValidatorJournal(
+      final int validatorId,
+      final Bytes publicKey,
+      final Path journalPath,
+      final FileChannel journal,
+      final JournalIndex index) {
+    this.validatorId = validatorId;
+    this.publicKey = publicKey;
+    this.journalPath = journalPath;
+    this.journal = journal;
+    this.index = index;
+  }
+
+  static Path journalPath(final Path directory, final Bytes publicKey) {
+    return directory.resolve(publicKey.toUnprefixedHexString() + JOURNAL_SUFFIX);
+  }
+
+  static ValidatorJournal open(final Path directory, final int validatorId, final Bytes publicKey)
+      throws IOException {
+    final Path journalPath = journalPath(directory, publicKey);
+    final JournalIndex index =
+        JournalIndex.open(directory.resolve(publicKey.toUnprefixedHexString() + INDEX_SUFFIX));
+    final FileChannel journal;
+    try {
+      journal = openJournal(journalPath);
+    } catch (final IOException e) {
+      index.close();
+      throw e;
+    }
+    final ValidatorJournal validatorJournal =
+        new ValidatorJournal(validatorId, publicKey, journalPath, journal, index);
+    try {
+      validatorJournal.replay();
+    } catch (final IOException | RuntimeException e) {
+      validatorJournal.close();
+      throw e;
+    }
+    return validatorJournal;
+  }
+
+  int getValidatorId() {
+    return validatorId;
+  }
+
+  Bytes getPublicKey() {
+    return publicKey;
+  }
+
+  synchronized boolean isEnabled() {
+    return index.isEnabled();
+  }
+
+  synchronized void setEnabled(final boolean enabled) {
+    index.setEnabled(enabled);
+    index.force();
+  }
+
+  synchronized boolean hasSignedData() {
+    return !blocks.isEmpty() || !attestations.isEmpty();
+  }
+
+  synchronized Optional<SigningWatermark> getLowWatermark() {
+    final Optional<UInt64> slot = index.get(SLOT_WATERMARK);
+    final Optional<UInt64> sourceEpoch = index.get(SOURCE_EPOCH_WATERMARK);
+    final Optional<UInt64> targetEpoch = index.get(TARGET_EPOCH_WATERMARK);
+    if (slot.isEmpty() && sourceEpoch.isEmpty() && targetEpoch.isEmpty()) {
+      return Optional.empty();
+    }
+    return Optional.of(
+        new SigningWatermark(
+            validatorId, slot.orElse(null), sourceEpoch.orElse(null), targetEpoch.orElse(null)));
+  }
+
+  synchronized List<SignedBlock> getSignedBlocks() {
+    return flatten(blocks.values());
+  }
+
+  synchronized List<SignedAttestation> getSignedAttestations() {
+    return flatten(attestations.values());
+  }
+
+  synchronized boolean maySignAttestation(
+      final Bytes signingRoot, final UInt64 sourceEpoch, final UInt64 targetEpoch) {
+    if (!index.isEnabled()) {
+      logDisabledValidator();
+      return false;
+    }
+
+    if (sourceEpoch.compareTo(targetEpoch) > 0) {
+      LOG.warn(
+          "Detected sourceEpoch {} greater than targetEpoch {} for {}",
+          sourceEpoch,
+          targetEpoch,
+          publicKey);
+      return false;
+    }
+
+    final Optional<UInt64> sourceEpochWatermark = index.get(SOURCE_EPOCH_WATERMARK);
+    if (sourceEpochWatermark.map(min -> sourceEpoch.compareTo(min) < 0).orElse(false)) {
+      LOG.warn(
+          "Attestation source epoch {} is below minimum existing attestation source epoch {}",
+          sourceEpoch,
+          sourceEpochWatermark.get());
+      return false;
+    }
+
+    final Optional<UInt64> targetEpochWatermark = index.get(TARGET_EPOCH_WATERMARK);
+    if (targetEpochWatermark.map(min -> targetEpoch.compareTo(min) < 0).orElse(false)) {
+      LOG.warn(
+          "Attestation target epoch {} is below minimum existing attestation target epoch {}",
+          targetEpoch,
+          targetEpochWatermark.get());
+      return false;
+    }
+
+    final List<SignedAttestation> existing = attestations.getOrDefault(targetEpoch, List.of());
+    if (existing.stream().anyMatch(a -> !hasSigningRoot(a.getSigningRoot(), signingRoot))) {
+      return false;
+    }
+
+    if (!isAheadOfAllAttestations(sourceEpoch, targetEpoch)) {
+      if (isSurroundedByExistingAttestation(sourceEpoch, targetEpoch)) {
+        LOG.warn(
+            "Detected surrounding attestations for attestation signingRoot={} sourceEpoch={} targetEpoch={} publicKey={}",
+            signingRoot,
+            sourceEpoch,
+            targetEpoch,
+            publicKey);
+        return false;
+      }
+      if (surroundsExistingAttestation(sourceEpoch, targetEpoch)) {
+        LOG.warn(
+            "Detected surrounded attestations for attestation signingRoot={} sourceEpoch={} targetEpoch={} publicKey={}",
+            signingRoot,
+            sourceEpoch,
+            targetEpoch,
+            publicKey);
+        return false;
+      }
+    }
+
+    if (existing.isEmpty()) {
+      writeAttestation(new SignedAttestation(validatorId, sourceEpoch, targetEpoch, signingRoot));
+      if (sourceEpochWatermark.isEmpty() && targetEpochWatermark.isEmpty()) {
+        index.set(SOURCE_EPOCH_WATERMARK, sourceEpoch);
+        index.set(TARGET_EPOCH_WATERMARK, targetEpoch);
+      }
+      sync();
+    }
+    return true;
+  }
+
+  synchronized boolean maySignBlock(final Bytes signingRoot, final UInt64 blockSlot) {
+    if (!index.isEnabled()) {
+      logDisabledValidator();
+      return false;
+    }
+
+    final Optional<UInt64> slotWatermark = index.get(SLOT_WATERMARK);
+    if (slotWatermark.map(min -> blockSlot.compareTo(min) < 0).orElse(false)) {
+      LOG.warn(
+          "Block slot {} is below minimum existing block slot {}", blockSlot, slotWatermark.get());
+      return false;
+    }
+
+    final List<SignedBlock> existing = blocks.getOrDefault(blockSlot, List.of());
+    if (existing.stream().anyMatch(b -> !hasSigningRoot(b.getSigningRoot(), signingRoot))) {
+      return false;
+    }
+
+    if (existing.isEmpty()) {
+      writeBlock(new SignedBlock(validatorId, blockSlot, signingRoot));
+      if (slotWatermark.isEmpty()) {
+        index.set(SLOT_WATERMARK, blockSlot);
+      }
+      sync();
+    }
+    return true;
+  }
+
+  synchronized void importBlocks(
+      final List<tech.pegasys.web3signer.slashingprotection.interchange.model.SignedBlock>
+          jsonBlocks) {
+    final OptionalMinValueTracker minSlotTracker = new OptionalMinValueTracker();
+    for (int i = 0; i < jsonBlocks.size(); i++) {
+      final tech.pegasys.web3signer.slashingprotection.interchange.model.SignedBlock jsonBlock =
+          jsonBlocks.get(i);
+      final List<SignedBlock> existing = blocks.getOrDefault(jsonBlock.getSlot(), List.of());
+      final String blockIdentifierString =
+          String.format("Block with index %d for validator %s", i, publicKey);
+
+      if (jsonBlock.getSigningRoot() == null) {
+        if (existing.stream().anyMatch(b -> b.getSigningRoot().isEmpty())) {
+          LOG.warn("{} - already exists in journal, not imported", blockIdentifierString);
+          continue;
+        }
+      } else if (existing.stream()
+          .anyMatch(b -> !hasSigningRoot(b.getSigningRoot(), jsonBlock.getSigningRoot()))) {
+        LOG.warn("{} - conflicts with an existing entry, not imported", blockIdentifierString);
+        continue;
+      } else if (!existing.isEmpty()) {
+        LOG.debug("{} - already exists in journal, not imported", blockIdentifierString);
+        continue;
+      }
+
+      writeBlock(new SignedBlock(validatorId, jsonBlock.getSlot(), jsonBlock.getSigningRoot()));
+      minSlotTracker.trackValue(jsonBlock.getSlot());
+    }
+
+    if (minSlotTracker.compareTrackedValueTo(index.get(SLOT_WATERMARK)) > 0) {
+      LOG.warn(
+          "Updating Block slot low watermark to {}", minSlotTracker.getTrackedMinValue().get());
+      index.set(SLOT_WATERMARK, minSlotTracker.getTrackedMinValue().get());
+    }
+    sync();
+  }
+
+  synchronized void importAttestations(
+      final List<tech.pegasys.web3signer.slashingprotection.interchange.model.SignedAttestation>
+          jsonAttestations) {
+    final OptionalMinValueTracker minSourceTracker = new OptionalMinValueTracker();
+    final OptionalMinValueTracker minTargetTracker = new OptionalMinValueTracker();
+    for (int i = 0; i < jsonAttestations.size(); i++) {
+      final tech.pegasys.web3signer.slashingprotection.interchange.model.SignedAttestation
+          jsonAttestation = jsonAttestations.get(i);
+      final UInt64 sourceEpoch = jsonAttestation.getSourceEpoch();
+      final UInt64 targetEpoch = jsonAttestation.getTargetEpoch();
+      final List<SignedAttestation> existing = attestations.getOrDefault(targetEpoch, List.of());
+      final String attestationIdentifierString =
+          String.format("Attestation with index %d for validator %s", i, publicKey);
+
+      if (sourceEpoch.compareTo(targetEpoch) > 0) {
+        LOG.warn("{} - source is greater than target epoch", attestationIdentifierString);
+      }
+      if (isSurroundedByExistingAttestation(sourceEpoch, targetEpoch)) {
+        LOG.warn("{} - is surrounded by existing entries", attestationIdentifierString);
+      }
+      if (surroundsExistingAttestation(sourceEpoch, targetEpoch)) {
+        LOG.warn("{} - surrounds an existing entry", attestationIdentifierString);
+      }
+
+      if (jsonAttestation.getSigningRoot() == null) {
+        if (existing.stream().anyMatch(a -> a.getSigningRoot().isEmpty())) {
+          LOG.warn("{} - already exists in journal, not imported", attestationIdentifierString);
+          continue;
+        }
+      } else if (existing.stream()
+          .anyMatch(a -> !hasSigningRoot(a.getSigningRoot(), jsonAttestation.getSigningRoot()))) {
+        LOG.warn(
+            "{} - conflicts with an existing entry, not imported", attestationIdentifierString);
+        continue;
+      } else if (!existing.isEmpty()) {
+        LOG.debug("{} - already exists in journal, not imported", attestationIdentifierString);
+        continue;
+      }
+
+      writeAttestation(
+          new SignedAttestation(
+              validatorId, sourceEpoch, targetEpoch, jsonAttestation.getSigningRoot()));
+      minSourceTracker.trackValue(sourceEpoch);
+      minTargetTracker.trackValue(targetEpoch);
+    }
+
+    final Optional<UInt64> newSourceWatermark =
+        findBestEpochWatermark(minSourceTracker, index.get(SOURCE_EPOCH_WATERMARK));
+    final Optional<UInt64> newTargetWatermark =
+        findBestEpochWatermark(minTargetTracker, index.get(TARGET_EPOCH_WATERMARK));
+    if (newSourceWatermark.isPresent() && newTargetWatermark.isPresent()) {
+      LOG.info("Updating validator {} source epoch to {}", publicKey, newSourceWatermark.get());
+      LOG.info("Updating validator {} target epoch to {}", publicKey, newTargetWatermark.get());
+      index.set(SOURCE_EPOCH_WATERMARK, newSourceWatermark.get());
+      index.set(TARGET_EPOCH_WATERMARK, newTargetWatermark.get());
+    } else if (newSourceWatermark.isPresent() != newTargetWatermark.isPresent()) {
+      throw new RuntimeException(
+          "Inconsistent data - no existing attestation watermark, "
+              + "and import only sets one epoch");
+    }
+    sync();
+  }
+
+  synchronized void prune(final long epochsToKeep, final long slotsPerEpoch) {
+    final long slotsToKeep = epochsToKeep * slotsPerEpoch;
+    boolean pruned = false;
+
+    final Optional<UInt64> slotWatermark =
+        calculateWatermark(
+            slotsToKeep, Optional.ofNullable(lastKey(blocks)), index.get(SLOT_WATERMARK));
+    if (slotWatermark.isPresent()) {
+      final UInt64 nearestSlot = blocks.ceilingKey(slotWatermark.get());
+      if (nearestSlot != null) {
+        index.set(SLOT_WATERMARK, nearestSlot);
+      }
+      final NavigableMap<UInt64, List<SignedBlock>> prunedBlocks =
+          blocks.headMap(index.get(SLOT_WATERMARK).orElseThrow(), false);
+      pruned = !prunedBlocks.isEmpty();
+      prunedBlocks.clear();
+    }
+
+    final Optional<UInt64> targetEpochWatermark =
+        calculateWatermark(
+            epochsToKeep,
+            Optional.ofNullable(lastKey(attestations)),
+            index.get(TARGET_EPOCH_WATERMARK));
+    final Optional<SignedAttestation> nearestAttestation =
+        targetEpochWatermark
+            .map(attestations::ceilingEntry)
+            .map(entry -> entry.getValue().get(0));
+    if (nearestAttestation.isPresent()) {
+      index.set(SOURCE_EPOCH_WATERMARK, nearestAttestation.get().getSourceEpoch());
+      index.set(TARGET_EPOCH_WATERMARK, nearestAttestation.get().getTargetEpoch());
+      final NavigableMap<UInt64, List<SignedAttestation>> prunedAttestations =
+          attestations.headMap(nearestAttestation.get().getTargetEpoch(), false);
+      pruned = pruned || !prunedAttestations.isEmpty();
+      prunedAttestations.clear();
+    }
+
+    // the watermarks must be durable before the entries below them are removed
+    index.force();
+    if (pruned) {
+      try {
+        compact();
+      } catch (final IOException e) {
+        throw new UncheckedIOException("Failed to compact journal for validator " + publicKey, e);
+      }
+      refreshIndex();
+      index.force();
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      journal.close();
+    } finally {
+      index.close();
+    }
+  }
+
+  private void replay() throws IOException {
+    final long size = journal.size();
+    final ByteBuffer buffer = journal.map(MapMode.READ_ONLY, 0, size);
+    int validLength = 0;
+    while (validLength < size) {
+      final Optional<ByteBuffer> payload = readRecord(buffer, validLength);
+      if (payload.isEmpty()) {
+        if (!isTornFinalRecord(buffer, validLength)) {
+          // discarding the records after this one could remove history preventing a slashing
+          throw new IllegalStateException(
+              String.format(
+                  "Slashing protection journal %s is corrupt at offset %d, "
+                      + "it must be repaired or restored before validator %s can be used",
+                  journalPath, validLength, publicKey));
+        }
+        break;
+      }
+      final int recordLength = RECORD_OVERHEAD + payload.get().remaining();
+      applyRecord(payload.get());
+      validLength += recordLength;
+    }
+
+    if (validLength < size) {
+      LOG.warn(
+          "Discarding {} bytes of incomplete slashing protection journal for validator {}",
+          size - validLength,
+          publicKey);
+      journal.truncate(validLength);
+      journal.force(true);
+    }
+    journal.position(validLength);
+
+    refreshIndex();
+    // a failure between writing the journal and its index can leave the watermarks unset
+    if (index.get(SLOT_WATERMARK).isEmpty() && !blocks.isEmpty()) {
+      index.set(SLOT_WATERMARK, blocks.firstKey());
+    }
+    if (index.get(SOURCE_EPOCH_WATERMARK).isEmpty()
+        && index.get(TARGET_EPOCH_WATERMARK).isEmpty()
+        && !attestations.isEmpty()) {
+      final SignedAttestation first = attestations.firstEntry().getValue().get(0);
+      index.set(SOURCE_EPOCH_WATERMARK, first.getSourceEpoch());
+      index.set(TARGET_EPOCH_WATERMARK, first.getTargetEpoch());
+    }
+    index.force();
+  }
+
+  /**
+   * Only the final record can be torn by a crash as records are appended and forced in order. A
+   * record is therefore taken to be torn if it runs to the end of the journal and no intact
+   * record follows it.
+   */
+  private static boolean isTornFinalRecord(final ByteBuffer buffer, final int start) {
+    final int size = buffer.limit();
+    if (size - start >= Integer.BYTES) {
+      final int length = buffer.getInt(start);
+      final boolean lengthIsValid = length > 0 && length <= MAX_PAYLOAD_LENGTH;
+      if (lengthIsValid && (long) start + RECORD_OVERHEAD + length < size) {
+        return false;
+      }
+    }
+    for (int offset = start + 1; offset < size; offset++) {
+      if (readRecord(buffer, offset).isPresent()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Optional<ByteBuffer> readRecord(final ByteBuffer buffer, final int start) {
+    final int size = buffer.limit();
+    if (size - start < RECORD_OVERHEAD) {
+      return Optional.empty();
+    }
+    final int length = buffer.getInt(start);
+    if (length <= 0
+        || length > MAX_PAYLOAD_LENGTH
+        || (long) start + RECORD_OVERHEAD + length > size) {
+      return Optional.empty();
+    }
+    final ByteBuffer payload = buffer.slice(start + Integer.BYTES, length);
+    if (buffer.getInt(start + Integer.BYTES + length) != checksum(payload)) {
+      return Optional.empty();
+    }
+    return Optional.of(payload);
+  }
+
+  private void applyRecord(final ByteBuffer payload) {
+    final byte type = payload.get();
+    switch (type) {
+      case BLOCK_RECORD:
+        final UInt64 slot = readUInt64(payload);
+        addBlock(new SignedBlock(validatorId, slot, readSigningRoot(payload)));
+        break;
+      case ATTESTATION_RECORD:
+        final UInt64 sourceEpoch = readUInt64(payload);
+        final UInt64 targetEpoch = readUInt64(payload);
+        addAttestation(
+            new SignedAttestation(
+                validatorId, sourceEpoch, targetEpoch, readSigningRoot(payload)));
+        break;
+      default:
+        throw new IllegalStateException(
+            "Unknown record type " + type + " in slashing protection journal " + journalPath);
+    }
+  }
+
+  private void writeBlock(final SignedBlock block) {
+    append(encodeBlock(block));
+    addBlock(block);
+    updateMin(MIN_SLOT, block.getSlot());
+    updateMax(MAX_SLOT, block.getSlot());
+  }
+
+  private void writeAttestation(final SignedAttestation attestation) {
+    append(encodeAttestation(attestation));
+    addAttestation(attestation);
+    updateMin(MIN_TARGET_EPOCH, attestation.getTargetEpoch());
+    updateMax(MAX_SOURCE_EPOCH, attestation.getSourceEpoch());
+    updateMax(MAX_TARGET_EPOCH, attestation.getTargetEpoch());
+  }
+
+  private void addBlock(final SignedBlock block) {
+    blocks.computeIfAbsent(block.getSlot(), slot -> new ArrayList<>()).add(block);
+  }
+
+  private void addAttestation(final SignedAttestation attestation) {
+    attestations
+        .computeIfAbsent(attestation.getTargetEpoch(), epoch -> new ArrayList<>())
+        .add(attestation);
+    if (attestation.getSourceEpoch().compareTo(attestation.getTargetEpoch()) > 0) {
+      hasSourceAfterTarget = true;
+    }
+  }
+
+  private void append(final ByteBuffer payload) {
+    try {
+      final long position = journal.position();
+      try {
+        write(journal, payload);
+      } catch (final IOException e) {
+        // drop the partial record so later records aren't hidden behind it on replay
+        journal.truncate(position);
+        throw e;
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Failed to write journal for validator " + publicKey, e);
+    }
+  }
+
+  private void sync() {
+    try {
+      journal.force(false);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Failed to sync journal for validator " + publicKey, e);
+    }
+    index.force();
+  }
+
+  private void compact() throws IOException {
+    final Path compactionPath =
+        journalPath.resolveSibling(journalPath.getFileName() + COMPACTION_SUFFIX);
+    try (final FileChannel compacted =
+        FileChannel.open(
+            compactionPath,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      for (final SignedBlock block : flatten(blocks.values())) {
+        write(compacted, encodeBlock(block));
+      }
+      for (final SignedAttestation attestation : flatten(attestations.values())) {
+        write(compacted, encodeAttestation(attestation));
+      }
+      compacted.force(true);
+    }
+
+    journal.close();
+    Files.move(
+        compactionPath,
+        journalPath,
+        StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+    // the rename is only durable once the directory entry has been forced to disk
+    try (final FileChannel directory =
+        FileChannel.open(journalPath.getParent(), StandardOpenOption.READ)) {
+      directory.force(true);
+    }
+    journal = openJournal(journalPath);
+    journal.position(journal.size());
+  }
+
+  private void refreshIndex() {
+    setOrClear(MIN_SLOT, blocks.isEmpty() ? null : blocks.firstKey());
+    setOrClear(MAX_SLOT, lastKey(blocks));
+    setOrClear(MIN_TARGET_EPOCH, attestations.isEmpty() ? null : attestations.firstKey());
+    setOrClear(MAX_TARGET_EPOCH, lastKey(attestations));
+    setOrClear(
+        MAX_SOURCE_EPOCH,
+        attestations.values().stream()
+            .flatMap(List::stream)
+            .map(SignedAttestation::getSourceEpoch)
+            .max(UInt64::compareTo)
+            .orElse(null));
+  }
+
+  private void setOrClear(final int value, final UInt64 newValue) {
+    if (newValue == null) {
+      index.clear(value);
+    } else {
+      index.set(value, newValue);
+    }
+  }
+
+  private void updateMin(final int value, final UInt64 candidate) {
+    if (index.get(value).map(current -> candidate.compareTo(current) < 0).orElse(true)) {
+      index.set(value, candidate);
+    }
+  }
+
+  private void updateMax(final int value, final UInt64 candidate) {
+    if (index.get(value).map(current -> candidate.compareTo(current) > 0).orElse(true)) {
+      index.set(value, candidate);
+    }
+  }
+
+  private boolean isAheadOfAllAttestations(final UInt64 sourceEpoch, final UInt64 targetEpoch) {
+    // an attestation at or after every existing source and target can't be part of a surround vote
+    final Optional<UInt64> maxSourceEpoch = index.get(MAX_SOURCE_EPOCH);
+    final Optional<UInt64> maxTargetEpoch = index.get(MAX_TARGET_EPOCH);
+    return maxSourceEpoch.isEmpty()
+        || maxTargetEpoch.isEmpty()
+        || (sourceEpoch.compareTo(maxSourceEpoch.get()) >= 0
+            && targetEpoch.compareTo(maxTargetEpoch.get()) >= 0);
+  }
+
+  private boolean isSurroundedByExistingAttestation(
+      final UInt64 sourceEpoch, final UInt64 targetEpoch) {
+    return attestations.tailMap(targetEpoch, false).values().stream()
+        .flatMap(List::stream)
+        .anyMatch(a -> a.getSourceEpoch().compareTo(sourceEpoch) < 0);
+  }
+
+  private boolean surroundsExistingAttestation(
+      final UInt64 sourceEpoch, final UInt64 targetEpoch) {
+    // imported attestations with a source after their target can be surrounded by targets at or
+    // below the source, so these are only excluded when no such attestation is held
+    final NavigableMap<UInt64, List<SignedAttestation>> candidates;
+    if (hasSourceAfterTarget) {
+      candidates = attestations.headMap(targetEpoch, false);
+    } else if (sourceEpoch.compareTo(targetEpoch) >= 0) {
+      return false;
+    } else {
+      candidates = attestations.subMap(sourceEpoch, false, targetEpoch, false);
+    }
+    return candidates.values().stream()
+        .flatMap(List::stream)
+        .anyMatch(a -> a.getSourceEpoch().compareTo(sourceEpoch) > 0);
+  }
+
+  private void logDisabledValidator() {
+    LOG.warn(
+        "Signing attempted for disabled validator {}. To sign with this validator"
+            + " you must import the validator keystore using the key manager import API",
+        publicKey);
+  }
+
+  private static Optional<UInt64> calculateWatermark(
+      final long amountToKeep, final Optional<UInt64> highpoint, final Optional<UInt64> watermark) {
+    return highpoint.flatMap(
+        h ->
+            watermark.map(
+                w -> {
+                  final UInt64 pruningPoint =
+                      h.compareTo(UInt64.valueOf(amountToKeep)) < 0
+                          ? UInt64.ZERO
+                          // add one as we remove below the watermark
+                          : h.subtract(amountToKeep).add(1);
+                  return UInt64s.max(pruningPoint, w);
+                }));
+  }
+
+  private static Optional<UInt64> findBestEpochWatermark(
+      final OptionalMinValueTracker importedMin, final Optional<UInt64> currentWatermark) {
+    if (importedMin.compareTrackedValueTo(currentWatermark) > 0) {
+      return importedMin.getTrackedMinValue();
+    } else {
+      return currentWatermark;
+    }
+  }
+
+  private static boolean hasSigningRoot(
+      final Optional<Bytes> existingSigningRoot, final Bytes signingRoot) {
+    return existingSigningRoot.map(signingRoot::equals).orElse(false);
+  }
+
+  private static <K, V> K lastKey(final NavigableMap<K, V> map) {
+    return map.isEmpty() ? null : map.lastKey();
+  }
+
+  private static <T> List<T> flatten(final Collection<List<T>> values) {
+    return values.stream().flatMap(List::stream).collect(Collectors.toList());
+  }
+
+  private static FileChannel openJournal(final Path journalPath) throws IOException {
+    return FileChannel.open(
+        journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+
+  private static ByteBuffer encodeBlock(final SignedBlock block) {
+    final Optional<Bytes> signingRoot = block.getSigningRoot();
+    final ByteBuffer payload =
+        ByteBuffer.allocate(1 + Long.BYTES + signingRootLength(signingRoot))
+            .put(BLOCK_RECORD)
+            .putLong(block.getSlot().toBytes().toLong());
+    putSigningRoot(payload, signingRoot);
+    return payload.flip();
+  }
+
+  private static ByteBuffer encodeAttestation(final SignedAttestation attestation) {
+    final Optional<Bytes> signingRoot = attestation.getSigningRoot();
+    final ByteBuffer payload =
+        ByteBuffer.allocate(1 + 2 * Long.BYTES + signingRootLength(signingRoot))
+            .put(ATTESTATION_RECORD)
+            .putLong(attestation.getSourceEpoch().toBytes().toLong())
+            .putLong(attestation.getTargetEpoch().toBytes().toLong());
+    putSigningRoot(payload, signingRoot);
+    return payload.flip();
+  }
+
+  private static int signingRootLength(final Optional<Bytes> signingRoot) {
+    return Short.BYTES + signingRoot.map(Bytes::size).orElse(0);
+  }
+
+  private static void putSigningRoot(final ByteBuffer payload, final Optional<Bytes> signingRoot) {
+    if (signingRoot.isEmpty()) {
+      payload.putShort(NULL_SIGNING_ROOT);
+    } else {
+      payload.putShort((short) signingRoot.get().size()).put(signingRoot.get().toArrayUnsafe());
+    }
+  }
+
+  private static Bytes readSigningRoot(final ByteBuffer payload) {
+    final short length = payload.getShort();
+    if (length == NULL_SIGNING_ROOT) {
+      return null;
+    }
+    final byte[] signingRoot = new byte[length];
+    payload.get(signingRoot);
+    return Bytes.wrap(signingRoot);
+  }
+
+  private static UInt64 readUInt64(final ByteBuffer payload) {
+    return UInt64.fromBytes(Bytes.ofUnsignedLong(payload.getLong()));
+  }
+
+  private static void write(final FileChannel channel, final ByteBuffer payload)
+      throws IOException {
+    final int length = payload.remaining();
+    final ByteBuffer record = ByteBuffer.allocate(2 * Integer.BYTES + length);
+    record.putInt(length).put(payload.duplicate()).putInt(checksum(payload)).flip();
+    while (record.hasRemaining()) {
+      channel.write(record);
+    }
+  }
+
+  private static int checksum(final ByteBuffer payload) {
+    final CRC32 crc = new CRC32();
+    crc.update(payload.duplicate());
+    return (int) crc.getValue();
+  }
+}
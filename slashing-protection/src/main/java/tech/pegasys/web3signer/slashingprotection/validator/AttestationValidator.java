@@ -12,6 +12,10 @@
  */
 package tech.pegasys.web3signer.slashingprotection.validator;
 
+import static tech.pegasys.web3signer.slashingprotection.SigningPhaseMetrics.ATTESTATION;
+
+import tech.pegasys.web3signer.slashingprotection.SigningPhaseMetrics;
+import tech.pegasys.web3signer.slashingprotection.SigningPhaseMetrics.Phase;
 import tech.pegasys.web3signer.slashingprotection.dao.LowWatermarkDao;
 import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestation;
 import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestationsDao;
@@ -40,6 +44,7 @@ public class AttestationValidator {
   private final int validatorId;
   private final SignedAttestationsDao signedAttestationsDao;
   private final LowWatermarkDao lowWatermarkDao;
+  private final SigningPhaseMetrics phaseMetrics;
 
   private final Supplier<Optional<SigningWatermark>> watermarkSupplier;
 
@@ -52,6 +57,28 @@ public class AttestationValidator {
       final int validatorId,
       final SignedAttestationsDao signedAttestationsDao,
       final LowWatermarkDao lowWatermarkDao) {
+    this(
+        handle,
+        publicKey,
+        signingRoot,
+        sourceEpoch,
+        targetEpoch,
+        validatorId,
+        signedAttestationsDao,
+        lowWatermarkDao,
+        SigningPhaseMetrics.NO_OP);
+  }
+
+  public AttestationValidator(
+      final Handle handle,
+      final Bytes publicKey,
+      final Bytes signingRoot,
+      final UInt64 sourceEpoch,
+      final UInt64 targetEpoch,
+      final int validatorId,
+      final SignedAttestationsDao signedAttestationsDao,
+      final LowWatermarkDao lowWatermarkDao,
+      final SigningPhaseMetrics phaseMetrics) {
     this.handle = handle;
     this.publicKey = publicKey;
     this.signingRoot = signingRoot;
@@ -60,9 +87,15 @@ public class AttestationValidator {
     this.validatorId = validatorId;
     this.signedAttestationsDao = signedAttestationsDao;
     this.lowWatermarkDao = lowWatermarkDao;
+    this.phaseMetrics = phaseMetrics;
 
     watermarkSupplier =
-        Suppliers.memoize(() -> lowWatermarkDao.findLowWatermarkForValidator(handle, validatorId));
+        Suppliers.memoize(
+            () ->
+                phaseMetrics.time(
+                    ATTESTATION,
+                    Phase.WATERMARK,
+                    () -> lowWatermarkDao.findLowWatermarkForValidator(handle, validatorId)));
   }
 
   public boolean sourceGreaterThanTargetEpoch() {
@@ -78,15 +111,22 @@ public class AttestationValidator {
   }
 
   public boolean alreadyExists() {
-    return signedAttestationsDao
-        .findMatchingAttestation(handle, validatorId, targetEpoch, signingRoot)
-        .isPresent();
+    return phaseMetrics.time(
+        ATTESTATION,
+        Phase.CONFLICT,
+        () ->
+            signedAttestationsDao
+                .findMatchingAttestation(handle, validatorId, targetEpoch, signingRoot)
+                .isPresent());
   }
 
   public void persist() {
     final SignedAttestation signedAttestation =
         new SignedAttestation(validatorId, sourceEpoch, targetEpoch, signingRoot);
-    signedAttestationsDao.insertAttestation(handle, signedAttestation);
+    phaseMetrics.time(
+        ATTESTATION,
+        Phase.INSERT,
+        () -> signedAttestationsDao.insertAttestation(handle, signedAttestation));
 
     // update the watermark if is otherwise blank (assumes database prevents xor on null for epochs)
     if (watermarkSupplier.get().isEmpty()
@@ -96,11 +136,53 @@ public class AttestationValidator {
     }
   }
 
+  public boolean persistIfEnabled() {
+    final SignedAttestation signedAttestation =
+        new SignedAttestation(validatorId, sourceEpoch, targetEpoch, signingRoot);
+    if (!phaseMetrics.time(
+        ATTESTATION,
+        Phase.INSERT,
+        () -> signedAttestationsDao.insertAttestationIfEnabled(handle, signedAttestation))) {
+      return false;
+    }
+
+    if (watermarkSupplier.get().isEmpty()
+        || (watermarkSupplier.get().get().getSourceEpoch() == null
+            && watermarkSupplier.get().get().getTargetEpoch() == null)) {
+      lowWatermarkDao.updateEpochWatermarksFor(handle, validatorId, sourceEpoch, targetEpoch);
+    }
+    return true;
+  }
+
+  public boolean persistIfEnabledAndNotSurrounding() {
+    final SignedAttestation signedAttestation =
+        new SignedAttestation(validatorId, sourceEpoch, targetEpoch, signingRoot);
+    if (!phaseMetrics.time(
+        ATTESTATION,
+        Phase.INSERT,
+        () ->
+            signedAttestationsDao.insertAttestationIfEnabledAndNotSurrounding(
+                handle, signedAttestation))) {
+      return false;
+    }
+
+    if (watermarkSupplier.get().isEmpty()
+        || (watermarkSupplier.get().get().getSourceEpoch() == null
+            && watermarkSupplier.get().get().getTargetEpoch() == null)) {
+      lowWatermarkDao.updateEpochWatermarksFor(handle, validatorId, sourceEpoch, targetEpoch);
+    }
+    return true;
+  }
+
   public boolean directlyConflictsWithExistingEntry() {
-    return !signedAttestationsDao
-        .findAttestationsForEpochWithDifferentSigningRoot(
-            handle, validatorId, targetEpoch, signingRoot)
-        .isEmpty();
+    return phaseMetrics.time(
+        ATTESTATION,
+        Phase.CONFLICT,
+        () ->
+            !signedAttestationsDao
+                .findAttestationsForEpochWithDifferentSigningRoot(
+                    handle, validatorId, targetEpoch, signingRoot)
+                .isEmpty());
   }
 
   public boolean hasSourceOlderThanWatermark() {
@@ -132,8 +214,12 @@ public class AttestationValidator {
   public boolean surroundsExistingAttestation() {
     // check that no previous vote is surrounded by attestation
     final List<SignedAttestation> surroundedAttestations =
-        signedAttestationsDao.findSurroundedAttestations(
-            handle, validatorId, sourceEpoch, targetEpoch);
+        phaseMetrics.time(
+            ATTESTATION,
+            Phase.SURROUND,
+            () ->
+                signedAttestationsDao.findSurroundedAttestations(
+                    handle, validatorId, sourceEpoch, targetEpoch));
     if (!surroundedAttestations.isEmpty()) {
       LOG.warn(
           "Detected surrounded attestations for attestation signingRoot={} sourceEpoch={} targetEpoch={} publicKey={}",
@@ -149,8 +235,12 @@ public class AttestationValidator {
   public boolean isSurroundedByExistingAttestation() {
     // check that no previous vote is surrounding the attestation
     final List<SignedAttestation> surroundingAttestation =
-        signedAttestationsDao.findSurroundingAttestations(
-            handle, validatorId, sourceEpoch, targetEpoch);
+        phaseMetrics.time(
+            ATTESTATION,
+            Phase.SURROUND,
+            () ->
+                signedAttestationsDao.findSurroundingAttestations(
+                    handle, validatorId, sourceEpoch, targetEpoch));
     if (!surroundingAttestation.isEmpty()) {
       LOG.warn(
           "Detected surrounding attestations for attestation signingRoot={} sourceEpoch={} targetEpoch={} publicKey={}",
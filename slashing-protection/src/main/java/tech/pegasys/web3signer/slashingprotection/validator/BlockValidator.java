@@ -12,6 +12,10 @@
  */
 package tech.pegasys.web3signer.slashingprotection.validator;
 
+import static tech.pegasys.web3signer.slashingprotection.SigningPhaseMetrics.BLOCK;
+
+import tech.pegasys.web3signer.slashingprotection.SigningPhaseMetrics;
+import tech.pegasys.web3signer.slashingprotection.SigningPhaseMetrics.Phase;
 import tech.pegasys.web3signer.slashingprotection.dao.LowWatermarkDao;
 import tech.pegasys.web3signer.slashingprotection.dao.SignedBlock;
 import tech.pegasys.web3signer.slashingprotection.dao.SignedBlocksDao;
@@ -37,6 +41,7 @@ public class BlockValidator {
   private final int validatorId;
   private final SignedBlocksDao signedBlocksDao;
   private final LowWatermarkDao lowWatermarkDao;
+  private final SigningPhaseMetrics phaseMetrics;
 
   private final Supplier<Optional<SigningWatermark>> watermarkSupplier;
 
@@ -47,26 +52,59 @@ public class BlockValidator {
       final int validatorId,
       final SignedBlocksDao signedBlocksDao,
       final LowWatermarkDao lowWatermarkDao) {
+    this(
+        handle,
+        signingRoot,
+        blockSlot,
+        validatorId,
+        signedBlocksDao,
+        lowWatermarkDao,
+        SigningPhaseMetrics.NO_OP);
+  }
+
+  public BlockValidator(
+      final Handle handle,
+      final Bytes signingRoot,
+      final UInt64 blockSlot,
+      final int validatorId,
+      final SignedBlocksDao signedBlocksDao,
+      final LowWatermarkDao lowWatermarkDao,
+      final SigningPhaseMetrics phaseMetrics) {
     this.handle = handle;
     this.signingRoot = signingRoot;
     this.blockSlot = blockSlot;
     this.validatorId = validatorId;
     this.signedBlocksDao = signedBlocksDao;
     this.lowWatermarkDao = lowWatermarkDao;
+    this.phaseMetrics = phaseMetrics;
     watermarkSupplier =
-        Suppliers.memoize(() -> lowWatermarkDao.findLowWatermarkForValidator(handle, validatorId));
+        Suppliers.memoize(
+            () ->
+                phaseMetrics.time(
+                    BLOCK,
+                    Phase.WATERMARK,
+                    () -> lowWatermarkDao.findLowWatermarkForValidator(handle, validatorId)));
   }
 
   public boolean directlyConflictsWithExistingEntry() {
-    return !signedBlocksDao
-        .findBlockForSlotWithDifferentSigningRoot(handle, validatorId, blockSlot, signingRoot)
-        .isEmpty();
+    return phaseMetrics.time(
+        BLOCK,
+        Phase.CONFLICT,
+        () ->
+            !signedBlocksDao
+                .findBlockForSlotWithDifferentSigningRoot(
+                    handle, validatorId, blockSlot, signingRoot)
+                .isEmpty());
   }
 
   public boolean alreadyExists() {
-    return signedBlocksDao
-        .findMatchingBlock(handle, validatorId, blockSlot, signingRoot)
-        .isPresent();
+    return phaseMetrics.time(
+        BLOCK,
+        Phase.CONFLICT,
+        () ->
+            signedBlocksDao
+                .findMatchingBlock(handle, validatorId, blockSlot, signingRoot)
+                .isPresent());
   }
 
   public boolean isOlderThanWatermark() {
@@ -81,11 +119,27 @@ public class BlockValidator {
 
   public void persist() {
     final SignedBlock signedBlock = new SignedBlock(validatorId, blockSlot, signingRoot);
-    signedBlocksDao.insertBlockProposal(handle, signedBlock);
+    phaseMetrics.time(
+        BLOCK, Phase.INSERT, () -> signedBlocksDao.insertBlockProposal(handle, signedBlock));
 
     // update the watermark if is otherwise blank
     if (watermarkSupplier.get().isEmpty() || (watermarkSupplier.get().get().getSlot() == null)) {
       lowWatermarkDao.updateSlotWatermarkFor(handle, validatorId, blockSlot);
     }
   }
+
+  public boolean persistIfEnabled() {
+    final SignedBlock signedBlock = new SignedBlock(validatorId, blockSlot, signingRoot);
+    if (!phaseMetrics.time(
+        BLOCK,
+        Phase.INSERT,
+        () -> signedBlocksDao.insertBlockProposalIfEnabled(handle, signedBlock))) {
+      return false;
+    }
+
+    if (watermarkSupplier.get().isEmpty() || (watermarkSupplier.get().get().getSlot() == null)) {
+      lowWatermarkDao.updateSlotWatermarkFor(handle, validatorId, blockSlot);
+    }
+    return true;
+  }
 }
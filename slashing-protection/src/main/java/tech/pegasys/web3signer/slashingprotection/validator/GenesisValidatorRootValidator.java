@@ -34,6 +34,8 @@ public class GenesisValidatorRootValidator {
   private final Jdbi jdbi;
   private final MetadataDao metadataDao;
   private final FailsafeExecutor<Object> failsafeExecutor;
+  // the database value can't change once set so only needs verifying once
+  private volatile Bytes32 verifiedGenesisValidatorsRoot;
 
   public GenesisValidatorRootValidator(final Jdbi jdbi, final MetadataDao metadataDao) {
     this.jdbi = jdbi;
@@ -43,13 +45,26 @@ public class GenesisValidatorRootValidator {
   }
 
   public boolean checkGenesisValidatorsRootAndInsertIfEmpty(Bytes32 genesisValidatorsRoot) {
-    return failsafeExecutor.get(
-        () ->
-            jdbi.inTransaction(
-                READ_COMMITTED, handle -> validateGvr(handle, genesisValidatorsRoot)));
+    if (genesisValidatorsRoot.equals(verifiedGenesisValidatorsRoot)) {
+      return true;
+    }
+
+    final boolean isValidGvr =
+        failsafeExecutor.get(
+            () ->
+                jdbi.inTransaction(
+                    READ_COMMITTED, handle -> validateGvr(handle, genesisValidatorsRoot)));
+    if (isValidGvr) {
+      verifiedGenesisValidatorsRoot = genesisValidatorsRoot;
+    }
+    return isValidGvr;
   }
 
   public boolean genesisValidatorRootExists() {
+    if (verifiedGenesisValidatorsRoot != null) {
+      return true;
+    }
+
     return failsafeExecutor.get(
         () ->
             jdbi.inTransaction(
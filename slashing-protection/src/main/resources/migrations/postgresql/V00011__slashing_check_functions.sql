@@ -0,0 +1,134 @@
+-- Verdict codes returned by the check functions, see SlashingCheckVerdict:
+--   0 signed data inserted
+--   1 matching signed data already exists
+--   2 validator is disabled
+--   3 attestation source epoch is greater than target epoch
+--   4 attestation source epoch is below the low watermark
+--   5 attestation target epoch is below the low watermark
+--   6 conflicts with existing signed data
+--   7 attestation is surrounded by an existing attestation
+--   8 attestation surrounds an existing attestation
+--   9 block slot is below the low watermark
+-- Advisory lock keys match DbLocker.LockType (0 = BLOCK, 1 = ATTESTATION).
+
+CREATE OR REPLACE FUNCTION check_and_insert_attestation(
+  _validator_id INTEGER, _signing_root BYTEA, _source_epoch NUMERIC(20), _target_epoch NUMERIC(20))
+  RETURNS INTEGER AS
+$$
+DECLARE
+  _enabled BOOLEAN;
+  _watermark_source_epoch NUMERIC(20);
+  _watermark_target_epoch NUMERIC(20);
+BEGIN
+  PERFORM pg_advisory_xact_lock(1, _validator_id);
+
+  SELECT enabled INTO _enabled FROM validators WHERE id = _validator_id;
+  IF _enabled IS NOT TRUE THEN
+    RETURN 2;
+  END IF;
+
+  IF _source_epoch > _target_epoch THEN
+    RETURN 3;
+  END IF;
+
+  SELECT source_epoch, target_epoch INTO _watermark_source_epoch, _watermark_target_epoch
+  FROM low_watermarks WHERE validator_id = _validator_id;
+  IF _source_epoch < _watermark_source_epoch THEN
+    RETURN 4;
+  END IF;
+  IF _target_epoch < _watermark_target_epoch THEN
+    RETURN 5;
+  END IF;
+
+  IF EXISTS (
+    SELECT 1 FROM signed_attestations
+    WHERE validator_id = _validator_id AND target_epoch = _target_epoch
+      AND (signing_root <> _signing_root OR signing_root IS NULL)) THEN
+    RETURN 6;
+  END IF;
+
+  IF EXISTS (
+    SELECT 1 FROM signed_attestations
+    WHERE validator_id = _validator_id
+      AND source_epoch < _source_epoch AND target_epoch > _target_epoch) THEN
+    RETURN 7;
+  END IF;
+
+  IF EXISTS (
+    SELECT 1 FROM signed_attestations
+    WHERE validator_id = _validator_id
+      AND source_epoch > _source_epoch AND target_epoch < _target_epoch) THEN
+    RETURN 8;
+  END IF;
+
+  IF EXISTS (
+    SELECT 1 FROM signed_attestations
+    WHERE validator_id = _validator_id AND target_epoch = _target_epoch
+      AND signing_root = _signing_root) THEN
+    RETURN 1;
+  END IF;
+
+  INSERT INTO signed_attestations (validator_id, signing_root, source_epoch, target_epoch)
+  VALUES (_validator_id, _signing_root, _source_epoch, _target_epoch);
+
+  IF _watermark_source_epoch IS NULL AND _watermark_target_epoch IS NULL THEN
+    INSERT INTO low_watermarks (validator_id, source_epoch, target_epoch)
+    VALUES (_validator_id, _source_epoch, _target_epoch)
+    ON CONFLICT (validator_id) DO UPDATE
+      SET source_epoch = _source_epoch, target_epoch = _target_epoch
+      WHERE low_watermarks.source_epoch IS NULL AND low_watermarks.target_epoch IS NULL;
+  END IF;
+
+  RETURN 0;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION check_and_insert_block(
+  _validator_id INTEGER, _signing_root BYTEA, _slot NUMERIC(20))
+  RETURNS INTEGER AS
+$$
+DECLARE
+  _enabled BOOLEAN;
+  _watermark_slot NUMERIC(20);
+BEGIN
+  PERFORM pg_advisory_xact_lock(0, _validator_id);
+
+  SELECT enabled INTO _enabled FROM validators WHERE id = _validator_id;
+  IF _enabled IS NOT TRUE THEN
+    RETURN 2;
+  END IF;
+
+  SELECT slot INTO _watermark_slot FROM low_watermarks WHERE validator_id = _validator_id;
+  IF _slot < _watermark_slot THEN
+    RETURN 9;
+  END IF;
+
+  IF EXISTS (
+    SELECT 1 FROM signed_blocks
+    WHERE validator_id = _validator_id AND slot = _slot
+      AND (signing_root <> _signing_root OR signing_root IS NULL)) THEN
+    RETURN 6;
+  END IF;
+
+  IF EXISTS (
+    SELECT 1 FROM signed_blocks
+    WHERE validator_id = _validator_id AND slot = _slot AND signing_root = _signing_root) THEN
+    RETURN 1;
+  END IF;
+
+  INSERT INTO signed_blocks (validator_id, slot, signing_root)
+  VALUES (_validator_id, _slot, _signing_root);
+
+  IF _watermark_slot IS NULL THEN
+    INSERT INTO low_watermarks (validator_id, slot)
+    VALUES (_validator_id, _slot)
+    ON CONFLICT (validator_id) DO UPDATE
+      SET slot = _slot
+      WHERE low_watermarks.slot IS NULL;
+  END IF;
+
+  RETURN 0;
+END
+$$ LANGUAGE plpgsql;
+
+UPDATE database_version SET version = 11 WHERE id = 1;
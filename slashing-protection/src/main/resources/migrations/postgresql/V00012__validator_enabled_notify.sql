@@ -0,0 +1,20 @@
+CREATE OR REPLACE FUNCTION notify_validator_enabled_status()
+  RETURNS TRIGGER AS
+$$
+BEGIN
+  -- delivered to listeners when the transaction changing the status commits
+  PERFORM pg_notify('validator_enabled_status', NEW.id::text || ',' || NEW.enabled::text);
+  RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER validator_enabled_status_inserted
+  AFTER INSERT ON validators
+  FOR EACH ROW EXECUTE PROCEDURE notify_validator_enabled_status();
+
+CREATE TRIGGER validator_enabled_status_updated
+  AFTER UPDATE OF enabled ON validators
+  FOR EACH ROW WHEN (OLD.enabled IS DISTINCT FROM NEW.enabled)
+  EXECUTE PROCEDURE notify_validator_enabled_status();
+
+UPDATE database_version SET version = 12 WHERE id = 1;
@@ -0,0 +1,77 @@
+-- Partitions signed_blocks and signed_attestations by hash of validator_id. Every query on these
+-- tables filters on a single validator_id so only one partition and its index is touched.
+--
+-- The number of partitions defaults to 16 and can be changed by setting
+-- web3signer.slashing_protection_partitions before running this migration, e.g.
+--   ALTER DATABASE web3signer SET web3signer.slashing_protection_partitions = 64;
+-- or PGOPTIONS='-c web3signer.slashing_protection_partitions=64' when using psql.
+--
+-- The unused id columns are removed as a primary key on a partitioned table must include the
+-- partition key. The unique constraints on (validator_id, slot) and (validator_id, target_epoch)
+-- replace the indexes from V00006.
+
+CREATE TABLE signed_blocks_partitioned (
+    validator_id INTEGER NOT NULL,
+    slot NUMERIC(20) NOT NULL,
+    signing_root BYTEA
+) PARTITION BY HASH (validator_id);
+
+CREATE TABLE signed_attestations_partitioned (
+    validator_id INTEGER,
+    source_epoch NUMERIC(20) NOT NULL,
+    target_epoch NUMERIC(20) NOT NULL,
+    signing_root BYTEA
+) PARTITION BY HASH (validator_id);
+
+DO
+$body$
+DECLARE
+  _partitions integer := COALESCE(
+    NULLIF(current_setting('web3signer.slashing_protection_partitions', true), '')::integer, 16);
+BEGIN
+  IF _partitions < 1 THEN
+    RAISE EXCEPTION 'web3signer.slashing_protection_partitions must be positive, was %', _partitions;
+  END IF;
+
+  FOR _remainder IN 0.._partitions - 1 LOOP
+    EXECUTE format(
+      'CREATE TABLE %I PARTITION OF signed_blocks_partitioned FOR VALUES WITH (MODULUS %s, REMAINDER %s)',
+      'signed_blocks_p' || _remainder, _partitions, _remainder);
+    EXECUTE format(
+      'CREATE TABLE %I PARTITION OF signed_attestations_partitioned FOR VALUES WITH (MODULUS %s, REMAINDER %s)',
+      'signed_attestations_p' || _remainder, _partitions, _remainder);
+  END LOOP;
+END
+$body$;
+
+-- prevent signing against the old tables while the data is copied
+LOCK TABLE signed_blocks, signed_attestations IN EXCLUSIVE MODE;
+
+INSERT INTO signed_blocks_partitioned (validator_id, slot, signing_root)
+SELECT validator_id, slot, signing_root FROM signed_blocks;
+
+INSERT INTO signed_attestations_partitioned (validator_id, source_epoch, target_epoch, signing_root)
+SELECT validator_id, source_epoch, target_epoch, signing_root FROM signed_attestations;
+
+DROP TABLE signed_blocks;
+DROP TABLE signed_attestations;
+
+ALTER TABLE signed_blocks_partitioned RENAME TO signed_blocks;
+ALTER TABLE signed_attestations_partitioned RENAME TO signed_attestations;
+
+-- constraints are created once the data is copied so the indexes are built in bulk
+ALTER TABLE signed_blocks
+ADD CONSTRAINT unique_signed_block
+UNIQUE (validator_id, slot);
+
+ALTER TABLE signed_attestations
+ADD CONSTRAINT unique_signed_attestation
+UNIQUE (validator_id, target_epoch);
+
+ALTER TABLE signed_blocks
+ADD FOREIGN KEY (validator_id) REFERENCES validators(id);
+
+ALTER TABLE signed_attestations
+ADD FOREIGN KEY (validator_id) REFERENCES validators(id);
+
+UPDATE database_version SET version = 13 WHERE id = 1;
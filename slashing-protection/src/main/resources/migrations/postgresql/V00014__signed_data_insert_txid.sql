@@ -0,0 +1,19 @@
+-- Records the transaction which inserted each signed block and attestation so a delta export can
+-- select the entries added since a previous export. A transaction id is used rather than a
+-- sequence as sequence values are allocated before commit, so a checkpoint taken from a sequence
+-- could skip entries from transactions which were still in flight. A checkpoint is instead the
+-- oldest transaction still in flight, txid_snapshot_xmin(txid_current_snapshot()), below which
+-- every entry is already visible.
+--
+-- Existing entries are left as NULL and are only included in exports from checkpoint 0.
+
+ALTER TABLE signed_blocks ADD COLUMN insert_txid BIGINT;
+ALTER TABLE signed_blocks ALTER COLUMN insert_txid SET DEFAULT txid_current();
+
+ALTER TABLE signed_attestations ADD COLUMN insert_txid BIGINT;
+ALTER TABLE signed_attestations ALTER COLUMN insert_txid SET DEFAULT txid_current();
+
+CREATE INDEX ON signed_blocks (insert_txid);
+CREATE INDEX ON signed_attestations (insert_txid);
+
+UPDATE database_version SET version = 14 WHERE id = 1;
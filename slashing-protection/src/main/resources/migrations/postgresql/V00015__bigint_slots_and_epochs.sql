@@ -0,0 +1,145 @@
+-- Stores slots and epochs as BIGINT rather than NUMERIC(20) so they are bound and read as longs
+-- and compared and indexed as int8.
+--
+-- BIGINT is signed so values are stored offset by -2^63, see UInt64ArgumentFactory. Every unsigned
+-- 64 bit value can then be stored and the stored values have the same order as the slots and
+-- epochs, which is all the slashing checks and pruning depend on. Slot or epoch 0 is stored as
+-- -9223372036854775808.
+
+DROP FUNCTION check_and_insert_attestation(INTEGER, BYTEA, NUMERIC, NUMERIC);
+DROP FUNCTION check_and_insert_block(INTEGER, BYTEA, NUMERIC);
+
+ALTER TABLE signed_blocks
+ALTER COLUMN slot TYPE BIGINT USING slot - 9223372036854775808;
+
+ALTER TABLE signed_attestations
+ALTER COLUMN source_epoch TYPE BIGINT USING source_epoch - 9223372036854775808,
+ALTER COLUMN target_epoch TYPE BIGINT USING target_epoch - 9223372036854775808;
+
+ALTER TABLE low_watermarks
+ALTER COLUMN slot TYPE BIGINT USING slot - 9223372036854775808,
+ALTER COLUMN source_epoch TYPE BIGINT USING source_epoch - 9223372036854775808,
+ALTER COLUMN target_epoch TYPE BIGINT USING target_epoch - 9223372036854775808;
+
+-- the check functions from V00011 with BIGINT slots and epochs
+CREATE FUNCTION check_and_insert_attestation(
+  _validator_id INTEGER, _signing_root BYTEA, _source_epoch BIGINT, _target_epoch BIGINT)
+  RETURNS INTEGER AS
+$$
+DECLARE
+  _enabled BOOLEAN;
+  _watermark_source_epoch BIGINT;
+  _watermark_target_epoch BIGINT;
+BEGIN
+  PERFORM pg_advisory_xact_lock(1, _validator_id);
+
+  SELECT enabled INTO _enabled FROM validators WHERE id = _validator_id;
+  IF _enabled IS NOT TRUE THEN
+    RETURN 2;
+  END IF;
+
+  IF _source_epoch > _target_epoch THEN
+    RETURN 3;
+  END IF;
+
+  SELECT source_epoch, target_epoch INTO _watermark_source_epoch, _watermark_target_epoch
+  FROM low_watermarks WHERE validator_id = _validator_id;
+  IF _source_epoch < _watermark_source_epoch THEN
+    RETURN 4;
+  END IF;
+  IF _target_epoch < _watermark_target_epoch THEN
+    RETURN 5;
+  END IF;
+
+  IF EXISTS (
+    SELECT 1 FROM signed_attestations
+    WHERE validator_id = _validator_id AND target_epoch = _target_epoch
+      AND (signing_root <> _signing_root OR signing_root IS NULL)) THEN
+    RETURN 6;
+  END IF;
+
+  IF EXISTS (
+    SELECT 1 FROM signed_attestations
+    WHERE validator_id = _validator_id
+      AND source_epoch < _source_epoch AND target_epoch > _target_epoch) THEN
+    RETURN 7;
+  END IF;
+
+  IF EXISTS (
+    SELECT 1 FROM signed_attestations
+    WHERE validator_id = _validator_id
+      AND source_epoch > _source_epoch AND target_epoch < _target_epoch) THEN
+    RETURN 8;
+  END IF;
+
+  IF EXISTS (
+    SELECT 1 FROM signed_attestations
+    WHERE validator_id = _validator_id AND target_epoch = _target_epoch
+      AND signing_root = _signing_root) THEN
+    RETURN 1;
+  END IF;
+
+  INSERT INTO signed_attestations (validator_id, signing_root, source_epoch, target_epoch)
+  VALUES (_validator_id, _signing_root, _source_epoch, _target_epoch);
+
+  IF _watermark_source_epoch IS NULL AND _watermark_target_epoch IS NULL THEN
+    INSERT INTO low_watermarks (validator_id, source_epoch, target_epoch)
+    VALUES (_validator_id, _source_epoch, _target_epoch)
+    ON CONFLICT (validator_id) DO UPDATE
+      SET source_epoch = _source_epoch, target_epoch = _target_epoch
+      WHERE low_watermarks.source_epoch IS NULL AND low_watermarks.target_epoch IS NULL;
+  END IF;
+
+  RETURN 0;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION check_and_insert_block(
+  _validator_id INTEGER, _signing_root BYTEA, _slot BIGINT)
+  RETURNS INTEGER AS
+$$
+DECLARE
+  _enabled BOOLEAN;
+  _watermark_slot BIGINT;
+BEGIN
+  PERFORM pg_advisory_xact_lock(0, _validator_id);
+
+  SELECT enabled INTO _enabled FROM validators WHERE id = _validator_id;
+  IF _enabled IS NOT TRUE THEN
+    RETURN 2;
+  END IF;
+
+  SELECT slot INTO _watermark_slot FROM low_watermarks WHERE validator_id = _validator_id;
+  IF _slot < _watermark_slot THEN
+    RETURN 9;
+  END IF;
+
+  IF EXISTS (
+    SELECT 1 FROM signed_blocks
+    WHERE validator_id = _validator_id AND slot = _slot
+      AND (signing_root <> _signing_root OR signing_root IS NULL)) THEN
+    RETURN 6;
+  END IF;
+
+  IF EXISTS (
+    SELECT 1 FROM signed_blocks
+    WHERE validator_id = _validator_id AND slot = _slot AND signing_root = _signing_root) THEN
+    RETURN 1;
+  END IF;
+
+  INSERT INTO signed_blocks (validator_id, slot, signing_root)
+  VALUES (_validator_id, _slot, _signing_root);
+
+  IF _watermark_slot IS NULL THEN
+    INSERT INTO low_watermarks (validator_id, slot)
+    VALUES (_validator_id, _slot)
+    ON CONFLICT (validator_id) DO UPDATE
+      SET slot = _slot
+      WHERE low_watermarks.slot IS NULL;
+  END IF;
+
+  RETURN 0;
+END
+$$ LANGUAGE plpgsql;
+
+UPDATE database_version SET version = 15 WHERE id = 1;
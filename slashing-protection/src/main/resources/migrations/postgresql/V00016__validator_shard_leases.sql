@@ -0,0 +1,17 @@
+-- Leases used when instances share the slashing database and each only signs for the validators
+-- in the shards it has leased. A validator's shard is its id modulo the configured shard count.
+-- Expiry times use the database clock so instances don't depend on their own clocks agreeing.
+
+CREATE TABLE validator_shard_leases (
+    shard INTEGER PRIMARY KEY,
+    owner TEXT,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT to_timestamp(0)
+);
+
+-- heartbeats of the instances taking part, used to decide each instance's fair share of shards
+CREATE TABLE signer_instances (
+    instance_id TEXT PRIMARY KEY,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+UPDATE database_version SET version = 16 WHERE id = 1;
@@ -0,0 +1,32 @@
+-- Optional GiST index on each attestation's epochs as an int8range alongside validator_id, used
+-- when --slashing-protection-surround-index-enabled is set. Surround checks become containment
+-- probes on the range rather than scans of the validator's attestations below or above the target
+-- epoch, so their cost doesn't grow with the retained history.
+--
+-- The index is only created when web3signer.slashing_protection_surround_index is set to true
+-- before running this migration, e.g.
+--   ALTER DATABASE web3signer SET web3signer.slashing_protection_surround_index = true;
+-- or PGOPTIONS='-c web3signer.slashing_protection_surround_index=true' when using psql. It can be
+-- created later by running the statements in the block below.
+--
+-- The range is [source_epoch, target_epoch) so no bound is adjusted and the full offset BIGINT
+-- range is safe. Attestations with equal epochs, and imported ones with the source after the
+-- target, have an empty range and the checks recheck the epochs of every row the index returns.
+-- btree_gist provides the GiST operator class for validator_id.
+--
+-- Surround votes are not rejected with an exclusion constraint as these are not supported on
+-- partitioned tables and interchange imports must still be able to store them.
+
+DO
+$body$
+BEGIN
+  IF COALESCE(NULLIF(current_setting('web3signer.slashing_protection_surround_index', true), '')::boolean, false) THEN
+    CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+    CREATE INDEX signed_attestations_epoch_range ON signed_attestations
+    USING gist (validator_id, int8range(LEAST(source_epoch, target_epoch), target_epoch));
+  END IF;
+END
+$body$;
+
+UPDATE database_version SET version = 17 WHERE id = 1;
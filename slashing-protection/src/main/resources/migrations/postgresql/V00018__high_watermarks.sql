@@ -0,0 +1,65 @@
+-- The highest slot and epochs signed by each validator, maintained by triggers on every insert into
+-- signed_blocks and signed_attestations whichever instance or import inserts it. A block above the
+-- slot, or an attestation with source at or above the source and target above the target, can't
+-- conflict with, surround or be surrounded by anything already signed, so it is checked with a
+-- single primary key read rather than the conflict and surround queries.
+--
+-- Pruning only removes entries below the low watermark, so the high watermark is never lowered.
+
+CREATE TABLE high_watermarks (
+    validator_id INTEGER PRIMARY KEY REFERENCES validators(id),
+    slot BIGINT,
+    source_epoch BIGINT,
+    target_epoch BIGINT
+);
+
+CREATE FUNCTION update_block_high_watermark()
+  RETURNS TRIGGER AS
+$$
+BEGIN
+  INSERT INTO high_watermarks (validator_id, slot)
+  VALUES (NEW.validator_id, NEW.slot)
+  ON CONFLICT (validator_id) DO UPDATE
+    SET slot = EXCLUDED.slot
+    WHERE high_watermarks.slot IS NULL OR high_watermarks.slot < EXCLUDED.slot;
+  RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION update_attestation_high_watermark()
+  RETURNS TRIGGER AS
+$$
+BEGIN
+  INSERT INTO high_watermarks (validator_id, source_epoch, target_epoch)
+  VALUES (NEW.validator_id, NEW.source_epoch, NEW.target_epoch)
+  ON CONFLICT (validator_id) DO UPDATE
+    SET source_epoch = GREATEST(high_watermarks.source_epoch, EXCLUDED.source_epoch),
+      target_epoch = GREATEST(high_watermarks.target_epoch, EXCLUDED.target_epoch)
+    WHERE high_watermarks.source_epoch IS NULL OR high_watermarks.target_epoch IS NULL
+      OR high_watermarks.source_epoch < EXCLUDED.source_epoch
+      OR high_watermarks.target_epoch < EXCLUDED.target_epoch;
+  RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER signed_block_high_watermark
+  AFTER INSERT ON signed_blocks
+  FOR EACH ROW EXECUTE PROCEDURE update_block_high_watermark();
+
+CREATE TRIGGER signed_attestation_high_watermark
+  AFTER INSERT ON signed_attestations
+  FOR EACH ROW EXECUTE PROCEDURE update_attestation_high_watermark();
+
+-- prevent signing while the existing entries are read, those inserted afterwards use the triggers
+LOCK TABLE signed_blocks, signed_attestations IN SHARE ROW EXCLUSIVE MODE;
+
+INSERT INTO high_watermarks (validator_id, slot)
+SELECT validator_id, MAX(slot) FROM signed_blocks GROUP BY validator_id;
+
+INSERT INTO high_watermarks (validator_id, source_epoch, target_epoch)
+SELECT validator_id, MAX(source_epoch), MAX(target_epoch) FROM signed_attestations
+GROUP BY validator_id
+ON CONFLICT (validator_id) DO UPDATE
+  SET source_epoch = EXCLUDED.source_epoch, target_epoch = EXCLUDED.target_epoch;
+
+UPDATE database_version SET version = 18 WHERE id = 1;
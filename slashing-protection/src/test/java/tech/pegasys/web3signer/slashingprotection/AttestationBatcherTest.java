@@ -0,0 +1,159 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.spy;
+
+import tech.pegasys.web3signer.slashingprotection.dao.LowWatermarkDao;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestationsDao;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import db.DatabaseSetupExtension;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.units.bigints.UInt64;
+import org.hyperledger.besu.metrics.noop.NoOpMetricsSystem;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(DatabaseSetupExtension.class)
+class AttestationBatcherTest {
+  private static final Bytes SIGNING_ROOT = Bytes.of(3);
+  private static final long BATCH_WINDOW_MICROSECONDS = 200_000;
+
+  private final SignedAttestationsDao signedAttestationsDao = spy(new SignedAttestationsDao());
+
+  @Test
+  void concurrentChecksForDifferentValidatorsAreEvaluatedInOneBatch(
+      final Jdbi jdbi, final Handle handle) {
+    insertValidators(handle, 3);
+    final AttestationBatcher batcher =
+        createBatcher(jdbi, 3, AttestationBatcher.DEFAULT_RESULT_TIMEOUT);
+    batcher.start();
+
+    final List<CompletableFuture<Boolean>> results = new ArrayList<>();
+    for (int validatorId = 1; validatorId <= 3; validatorId++) {
+      results.add(maySignAttestation(batcher, validatorId, 10, 20));
+    }
+
+    assertThat(results.stream().map(CompletableFuture::join)).containsOnly(true);
+    assertThat(batchSizes()).containsExactly(3);
+    assertThat(signedAttestationsDao.findAllAttestationsSignedBy(handle, 1)).hasSize(1);
+  }
+
+  @Test
+  void duplicateValidatorIsCarriedOverAndCheckedAgainstEarlierBatch(
+      final Jdbi jdbi, final Handle handle) {
+    insertValidators(handle, 2);
+    final AttestationBatcher batcher =
+        createBatcher(jdbi, 10, AttestationBatcher.DEFAULT_RESULT_TIMEOUT);
+    batcher.start();
+
+    final CompletableFuture<Boolean> first = maySignAttestation(batcher, 1, 5, 10);
+    final CompletableFuture<Boolean> second = maySignAttestation(batcher, 1, 4, 11);
+    final CompletableFuture<Boolean> other = maySignAttestation(batcher, 2, 4, 11);
+
+    // whichever check is evaluated first is recorded and the other surrounds or is surrounded by it
+    assertThat(List.of(first.join(), second.join())).containsExactlyInAnyOrder(true, false);
+    assertThat(other.join()).isTrue();
+    assertThat(batchSizes()).containsExactly(2, 1);
+  }
+
+  @Test
+  void failureEvaluatingBatchFailsWaitingChecksAndLaterBatchesAreEvaluated(
+      final Jdbi jdbi, final Handle handle) {
+    insertValidators(handle, 1);
+    final AttestationBatcher batcher =
+        createBatcher(jdbi, 1, AttestationBatcher.DEFAULT_RESULT_TIMEOUT);
+    batcher.start();
+    final Error error = new Error("batch failed");
+    doThrow(error).when(signedAttestationsDao).findSlashingStatusForAttestations(any(), anyList());
+
+    assertThatThrownBy(() -> maySignAttestation(batcher, 1, 10, 20).join()).hasRootCause(error);
+
+    doCallRealMethod()
+        .when(signedAttestationsDao)
+        .findSlashingStatusForAttestations(any(), anyList());
+    assertThat(maySignAttestation(batcher, 1, 10, 20).join()).isTrue();
+  }
+
+  @Test
+  void checkIsAbandonedWhenNoResultArrivesWithinTimeout(final Jdbi jdbi, final Handle handle) {
+    insertValidators(handle, 1);
+    final AttestationBatcher batcher = createBatcher(jdbi, 1, Duration.ofMillis(100));
+
+    assertThatThrownBy(
+            () ->
+                batcher.maySignAttestation(
+                    Bytes.of(1), 1, SIGNING_ROOT, UInt64.valueOf(10), UInt64.valueOf(20)))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageStartingWith("Timed out waiting for attestation slashing check");
+    assertThat(signedAttestationsDao.findAllAttestationsSignedBy(handle, 1)).isEmpty();
+  }
+
+  private AttestationBatcher createBatcher(
+      final Jdbi jdbi, final int maxBatchSize, final Duration resultTimeout) {
+    return new AttestationBatcher(
+        jdbi,
+        signedAttestationsDao,
+        new LowWatermarkDao(),
+        BATCH_WINDOW_MICROSECONDS,
+        maxBatchSize,
+        resultTimeout,
+        new NoOpMetricsSystem());
+  }
+
+  private CompletableFuture<Boolean> maySignAttestation(
+      final AttestationBatcher batcher,
+      final int validatorId,
+      final long sourceEpoch,
+      final long targetEpoch) {
+    return CompletableFuture.supplyAsync(
+        () ->
+            batcher.maySignAttestation(
+                Bytes.of(validatorId),
+                validatorId,
+                SIGNING_ROOT,
+                UInt64.valueOf(sourceEpoch),
+                UInt64.valueOf(targetEpoch)));
+  }
+
+  private List<Integer> batchSizes() {
+    return mockingDetails(signedAttestationsDao).getInvocations().stream()
+        .filter(i -> i.getMethod().getName().equals("findSlashingStatusForAttestations"))
+        .map(i -> i.<List<?>>getArgument(1).size())
+        .collect(Collectors.toList());
+  }
+
+  private void insertValidators(final Handle handle, final int count) {
+    for (int validatorId = 1; validatorId <= count; validatorId++) {
+      handle.execute(
+          "INSERT INTO validators (id, public_key) VALUES (?, ?)",
+          validatorId,
+          Bytes.of(validatorId));
+    }
+  }
+}
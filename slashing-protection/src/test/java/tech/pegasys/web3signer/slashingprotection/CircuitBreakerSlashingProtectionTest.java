@@ -0,0 +1,218 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import tech.pegasys.web3signer.slashingprotection.CircuitBreakerSlashingProtection.State;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.bytes.Bytes32;
+import org.apache.tuweni.units.bigints.UInt64;
+import org.hyperledger.besu.metrics.noop.NoOpMetricsSystem;
+import org.jdbi.v3.core.ConnectionException;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerSlashingProtectionTest {
+  private static final Bytes PUBLIC_KEY = Bytes.of(42);
+  private static final Bytes SIGNING_ROOT = Bytes.of(3);
+  private static final Bytes32 GVR = Bytes32.leftPad(Bytes.of(100));
+  private static final long SLOW_CALL_THRESHOLD_MILLIS = 100;
+  private static final long OPEN_DURATION_MILLIS = 1000;
+
+  private final SlashingProtection delegate = mock(SlashingProtection.class);
+  private final AtomicLong now = new AtomicLong();
+
+  @Test
+  void checksArePassedToDelegateWhileClosed() {
+    final CircuitBreakerSlashingProtection breaker = createBreaker(50, 4);
+    when(delegate.maySignBlock(any(), any(), any(), any())).thenReturn(true);
+    when(delegate.maySignAttestation(any(), any(), any(), any(), any())).thenReturn(false);
+
+    assertThat(maySignBlock(breaker)).isTrue();
+    assertThat(maySignAttestation(breaker)).isFalse();
+    assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+  }
+
+  @Test
+  void opensWhenDatabaseFailuresReachThreshold() {
+    final CircuitBreakerSlashingProtection breaker = createBreaker(50, 4);
+    when(delegate.maySignBlock(any(), any(), any(), any()))
+        .thenReturn(true, true)
+        .thenThrow(new ConnectionException(new SQLException("connection refused")));
+
+    maySignBlock(breaker);
+    maySignBlock(breaker);
+    assertThatThrownBy(() -> maySignBlock(breaker)).isInstanceOf(ConnectionException.class);
+    assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+    assertThatThrownBy(() -> maySignBlock(breaker)).isInstanceOf(ConnectionException.class);
+    assertThat(breaker.getState()).isEqualTo(State.OPEN);
+
+    assertThatThrownBy(() -> maySignBlock(breaker))
+        .isInstanceOf(SlashingProtectionUnavailableException.class);
+    assertThatThrownBy(() -> maySignAttestation(breaker))
+        .isInstanceOf(SlashingProtectionUnavailableException.class);
+    verify(delegate, times(4)).maySignBlock(any(), any(), any(), any());
+    verify(delegate, times(0)).maySignAttestation(any(), any(), any(), any(), any());
+  }
+
+  @Test
+  void opensWhenSlowChecksReachThreshold() {
+    final CircuitBreakerSlashingProtection breaker = createBreaker(100, 2);
+    when(delegate.maySignBlock(any(), any(), any(), any()))
+        .thenAnswer(
+            invocation -> {
+              advance(SLOW_CALL_THRESHOLD_MILLIS);
+              return true;
+            });
+
+    assertThat(maySignBlock(breaker)).isTrue();
+    assertThat(maySignBlock(breaker)).isTrue();
+
+    assertThat(breaker.getState()).isEqualTo(State.OPEN);
+  }
+
+  @Test
+  void checkStuckInFlightIsCountedAsSlowBeforeItCompletes() {
+    final CircuitBreakerSlashingProtection breaker = createBreaker(100, 1);
+    when(delegate.maySignBlock(any(), any(), any(), any()))
+        .thenAnswer(
+            invocation -> {
+              advance(SLOW_CALL_THRESHOLD_MILLIS);
+              // a check arriving while this one is still waiting on the database is rejected
+              assertThatThrownBy(() -> maySignAttestation(breaker))
+                  .isInstanceOf(SlashingProtectionUnavailableException.class);
+              return true;
+            });
+
+    assertThat(maySignBlock(breaker)).isTrue();
+
+    assertThat(breaker.getState()).isEqualTo(State.OPEN);
+    verify(delegate, times(0)).maySignAttestation(any(), any(), any(), any(), any());
+  }
+
+  @Test
+  void successfulProbeClosesBreaker() {
+    final CircuitBreakerSlashingProtection breaker = openBreaker();
+    doReturn(true).when(delegate).maySignBlock(any(), any(), any(), any());
+
+    advance(OPEN_DURATION_MILLIS);
+    assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+    assertThat(maySignBlock(breaker)).isTrue();
+
+    assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+    assertThat(maySignBlock(breaker)).isTrue();
+  }
+
+  @Test
+  void failedProbeReopensBreaker() {
+    final CircuitBreakerSlashingProtection breaker = openBreaker();
+
+    advance(OPEN_DURATION_MILLIS);
+    assertThatThrownBy(() -> maySignBlock(breaker)).isInstanceOf(ConnectionException.class);
+
+    assertThat(breaker.getState()).isEqualTo(State.OPEN);
+    advance(OPEN_DURATION_MILLIS - 1);
+    assertThatThrownBy(() -> maySignBlock(breaker))
+        .isInstanceOf(SlashingProtectionUnavailableException.class);
+  }
+
+  @Test
+  void onlyOneProbeIsLetThroughWhileHalfOpen() {
+    final CircuitBreakerSlashingProtection breaker = openBreaker();
+    doAnswer(
+            invocation -> {
+              assertThatThrownBy(() -> maySignAttestation(breaker))
+                  .isInstanceOf(SlashingProtectionUnavailableException.class);
+              return true;
+            })
+        .when(delegate)
+        .maySignBlock(any(), any(), any(), any());
+
+    advance(OPEN_DURATION_MILLIS);
+    assertThat(maySignBlock(breaker)).isTrue();
+
+    assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+  }
+
+  @Test
+  void nonDatabaseErrorsDoNotOpenBreaker() {
+    final CircuitBreakerSlashingProtection breaker = createBreaker(50, 2);
+    when(delegate.maySignBlock(any(), any(), any(), any()))
+        .thenThrow(new IllegalArgumentException("Unregistered validator"));
+
+    for (int i = 0; i < 3; i++) {
+      assertThatThrownBy(() -> maySignBlock(breaker))
+          .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+  }
+
+  @Test
+  void otherOperationsArePassedToDelegateWhileOpen() {
+    final CircuitBreakerSlashingProtection breaker = openBreaker();
+    when(delegate.isEnabledValidator(PUBLIC_KEY)).thenReturn(true);
+
+    assertThat(breaker.isEnabledValidator(PUBLIC_KEY)).isTrue();
+    breaker.prune();
+
+    verify(delegate).prune();
+  }
+
+  private CircuitBreakerSlashingProtection openBreaker() {
+    final CircuitBreakerSlashingProtection breaker = createBreaker(100, 1);
+    when(delegate.maySignBlock(any(), any(), any(), any()))
+        .thenThrow(new ConnectionException(new SQLException("connection refused")));
+    assertThatThrownBy(() -> maySignBlock(breaker)).isInstanceOf(ConnectionException.class);
+    assertThat(breaker.getState()).isEqualTo(State.OPEN);
+    return breaker;
+  }
+
+  private CircuitBreakerSlashingProtection createBreaker(
+      final int failureRateThreshold, final int windowSize) {
+    return new CircuitBreakerSlashingProtection(
+        delegate,
+        failureRateThreshold,
+        SLOW_CALL_THRESHOLD_MILLIS,
+        windowSize,
+        OPEN_DURATION_MILLIS,
+        new NoOpMetricsSystem(),
+        now::get);
+  }
+
+  private void advance(final long millis) {
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+  }
+
+  private boolean maySignBlock(final SlashingProtection slashingProtection) {
+    return slashingProtection.maySignBlock(PUBLIC_KEY, SIGNING_ROOT, UInt64.valueOf(10), GVR);
+  }
+
+  private boolean maySignAttestation(final SlashingProtection slashingProtection) {
+    return slashingProtection.maySignAttestation(
+        PUBLIC_KEY, SIGNING_ROOT, UInt64.valueOf(1), UInt64.valueOf(2), GVR);
+  }
+}
@@ -37,10 +37,8 @@ import tech.pegasys.web3signer.slashingprotection.dao.SigningWatermark;
 import tech.pegasys.web3signer.slashingprotection.dao.ValidatorsDao;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
-import com.google.common.collect.HashBiMap;
 import db.DatabaseSetupExtension;
 import org.apache.tuweni.bytes.Bytes;
 import org.apache.tuweni.bytes.Bytes32;
@@ -92,8 +90,7 @@ public class DbSlashingProtectionTest {
             lowWatermarkDao,
             1,
             1,
-            new RegisteredValidators(
-                slashingJdbi, validatorsDao, HashBiMap.create(Map.of(PUBLIC_KEY1, VALIDATOR_ID))));
+            new RegisteredValidators(slashingJdbi, validatorsDao, registeredValidatorsIndex()));
     lenient().when(metadataDao.findGenesisValidatorsRoot(any())).thenReturn(Optional.of(GVR));
     lenient().when(validatorsDao.isEnabled(any(), eq(VALIDATOR_ID))).thenReturn(true);
   }
@@ -169,7 +166,7 @@ public class DbSlashingProtectionTest {
             lowWatermarkDao,
             0,
             0,
-            new RegisteredValidators(jdbi, validatorsDao));
+            new RegisteredValidators(jdbi, validatorsDao, new PublicKeyIndex()));
 
     assertThatThrownBy(
             () -> dbSlashingProtection.maySignBlock(PUBLIC_KEY1, SIGNING_ROOT, SLOT, GVR))
@@ -327,6 +324,97 @@ public class DbSlashingProtectionTest {
     verify(signedAttestationsDao).insertAttestation(any(), refEq(attestation));
   }
 
+  @Test
+  public void attestationIsCheckedForSurroundVotesByInsertWithSurroundIndex() {
+    final SignedAttestation attestation =
+        new SignedAttestation(VALIDATOR_ID, SOURCE_EPOCH, TARGET_EPOCH, SIGNING_ROOT);
+    when(signedAttestationsDao.isSurroundIndexEnabled()).thenReturn(true);
+    when(signedAttestationsDao.findAttestationsForEpochWithDifferentSigningRoot(
+            any(), anyInt(), any(), any()))
+        .thenReturn(emptyList());
+    when(signedAttestationsDao.insertAttestationIfEnabledAndNotSurrounding(any(), any()))
+        .thenReturn(true);
+
+    assertThat(
+            dbSlashingProtection.maySignAttestation(
+                PUBLIC_KEY1, SIGNING_ROOT, SOURCE_EPOCH, TARGET_EPOCH, GVR))
+        .isTrue();
+    verify(signedAttestationsDao)
+        .insertAttestationIfEnabledAndNotSurrounding(any(), refEq(attestation));
+    verify(signedAttestationsDao, never())
+        .findSurroundingAttestations(any(), anyInt(), any(), any());
+    verify(signedAttestationsDao, never())
+        .findSurroundedAttestations(any(), anyInt(), any(), any());
+  }
+
+  @Test
+  public void attestationCannotSignWhenInsertFindsSurroundVoteWithSurroundIndex() {
+    when(signedAttestationsDao.isSurroundIndexEnabled()).thenReturn(true);
+    when(signedAttestationsDao.findAttestationsForEpochWithDifferentSigningRoot(
+            any(), anyInt(), any(), any()))
+        .thenReturn(emptyList());
+    when(signedAttestationsDao.insertAttestationIfEnabledAndNotSurrounding(any(), any()))
+        .thenReturn(false);
+
+    assertThat(
+            dbSlashingProtection.maySignAttestation(
+                PUBLIC_KEY1, SIGNING_ROOT, SOURCE_EPOCH, TARGET_EPOCH, GVR))
+        .isFalse();
+    verify(lowWatermarkDao, never()).updateEpochWatermarksFor(any(), anyInt(), any(), any());
+  }
+
+  @Test
+  public void attestationAheadOfHighWatermarkIsInsertedWithoutConflictOrSurroundChecks() {
+    final SignedAttestation attestation =
+        new SignedAttestation(VALIDATOR_ID, SOURCE_EPOCH, TARGET_EPOCH, SIGNING_ROOT);
+    insertHighWatermark(null, SOURCE_EPOCH, TARGET_EPOCH.subtract(1));
+
+    assertThat(
+            dbSlashingProtection.maySignAttestation(
+                PUBLIC_KEY1, SIGNING_ROOT, SOURCE_EPOCH, TARGET_EPOCH, GVR))
+        .isTrue();
+    verify(signedAttestationsDao).insertAttestation(any(), refEq(attestation));
+    verify(signedAttestationsDao, never())
+        .findAttestationsForEpochWithDifferentSigningRoot(any(), anyInt(), any(), any());
+    verify(signedAttestationsDao, never())
+        .findSurroundingAttestations(any(), anyInt(), any(), any());
+    verify(signedAttestationsDao, never())
+        .findSurroundedAttestations(any(), anyInt(), any(), any());
+  }
+
+  @Test
+  public void attestationNotAheadOfHighWatermarkIsChecked() {
+    insertHighWatermark(null, SOURCE_EPOCH.add(1), TARGET_EPOCH.subtract(1));
+    when(signedAttestationsDao.findAttestationsForEpochWithDifferentSigningRoot(
+            any(), anyInt(), any(), any()))
+        .thenReturn(emptyList());
+    when(signedAttestationsDao.findSurroundingAttestations(any(), anyInt(), any(), any()))
+        .thenReturn(emptyList());
+    when(signedAttestationsDao.findSurroundedAttestations(any(), anyInt(), any(), any()))
+        .thenReturn(
+            List.of(
+                new SignedAttestation(
+                    VALIDATOR_ID, SOURCE_EPOCH.add(1), TARGET_EPOCH.subtract(1), SIGNING_ROOT)));
+
+    assertThat(
+            dbSlashingProtection.maySignAttestation(
+                PUBLIC_KEY1, SIGNING_ROOT, SOURCE_EPOCH, TARGET_EPOCH, GVR))
+        .isFalse();
+    verify(signedAttestationsDao, never()).insertAttestation(any(), any());
+  }
+
+  @Test
+  public void blockAboveHighWatermarkIsInsertedWithoutConflictCheck() {
+    insertHighWatermark(SLOT.subtract(1), null, null);
+
+    assertThat(dbSlashingProtection.maySignBlock(PUBLIC_KEY1, SIGNING_ROOT, SLOT, GVR)).isTrue();
+    verify(signedBlocksDao)
+        .insertBlockProposal(any(), refEq(new SignedBlock(VALIDATOR_ID, SLOT, SIGNING_ROOT)));
+    verify(signedBlocksDao, never())
+        .findBlockForSlotWithDifferentSigningRoot(any(), anyInt(), any(), any());
+    verify(signedBlocksDao, never()).findMatchingBlock(any(), anyInt(), any(), any());
+  }
+
   @Test
   public void attestationCannotSignWhenNoRegisteredValidator(final Jdbi jdbi) {
     final DbSlashingProtection dbSlashingProtection =
@@ -340,7 +428,7 @@ public class DbSlashingProtectionTest {
             lowWatermarkDao,
             0,
             0,
-            new RegisteredValidators(jdbi, validatorsDao));
+            new RegisteredValidators(jdbi, validatorsDao, new PublicKeyIndex()));
 
     assertThatThrownBy(
             () ->
@@ -586,4 +674,27 @@ public class DbSlashingProtectionTest {
         .inTransaction(eq(TransactionIsolationLevel.READ_UNCOMMITTED), any());
     verifyNoInteractions(slashingJdbi);
   }
+
+  private PublicKeyIndex registeredValidatorsIndex() {
+    final PublicKeyIndex index = new PublicKeyIndex();
+    index.put(PUBLIC_KEY1, VALIDATOR_ID);
+    return index;
+  }
+
+  private void insertHighWatermark(
+      final UInt64 slot, final UInt64 sourceEpoch, final UInt64 targetEpoch) {
+    slashingJdbi.useHandle(
+        h -> {
+          h.execute(
+              "INSERT INTO validators (id, public_key) VALUES (?, ?)", VALIDATOR_ID, PUBLIC_KEY1);
+          h.createUpdate(
+                  "INSERT INTO high_watermarks (validator_id, slot, source_epoch, target_epoch) "
+                      + "VALUES (?, ?, ?, ?)")
+              .bind(0, VALIDATOR_ID)
+              .bindByType(1, slot, UInt64.class)
+              .bindByType(2, sourceEpoch, UInt64.class)
+              .bindByType(3, targetEpoch, UInt64.class)
+              .execute();
+        });
+  }
 }
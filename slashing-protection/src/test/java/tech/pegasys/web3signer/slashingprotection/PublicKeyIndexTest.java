@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.bytes.Bytes48;
+import org.junit.jupiter.api.Test;
+
+class PublicKeyIndexTest {
+
+  private final PublicKeyIndex index = new PublicKeyIndex();
+
+  @Test
+  void indexedKeysAreFoundInBothDirections() {
+    index.put(publicKey(1), 10);
+    index.put(publicKey(2), 20);
+
+    assertThat(index.get(publicKey(1))).isEqualTo(10);
+    assertThat(index.get(publicKey(2))).isEqualTo(20);
+    assertThat(index.getPublicKey(10)).contains(publicKey(1));
+    assertThat(index.getPublicKey(20)).contains(publicKey(2));
+    assertThat(index.validatorIds()).isEqualTo(Set.of(10, 20));
+  }
+
+  @Test
+  void unknownKeysAndIdsAreNotFound() {
+    index.put(publicKey(1), 10);
+
+    assertThat(index.get(publicKey(2))).isEqualTo(PublicKeyIndex.NOT_FOUND);
+    assertThat(index.contains(publicKey(2))).isFalse();
+    assertThat(index.getPublicKey(11)).isEmpty();
+    assertThat(index.getPublicKey(1_000_000)).isEmpty();
+  }
+
+  @Test
+  void keysOfDifferentLengthsAreDistinct() {
+    index.put(Bytes.of(1), 1);
+    index.put(Bytes.of(1, 0), 2);
+
+    assertThat(index.get(Bytes.of(1))).isEqualTo(1);
+    assertThat(index.get(Bytes.of(1, 0))).isEqualTo(2);
+  }
+
+  @Test
+  void reindexingKeyWithSameIdDoesNotAddEntry() {
+    index.put(publicKey(1), 10);
+    index.put(publicKey(1), 10);
+
+    assertThat(index.size()).isEqualTo(1);
+  }
+
+  @Test
+  void allKeysAreFoundAfterIndexGrows() {
+    IntStream.range(0, 10_000).forEach(i -> index.put(publicKey(i), i + 1));
+
+    assertThat(index.size()).isEqualTo(10_000);
+    assertThat(IntStream.range(0, 10_000)).allMatch(i -> index.get(publicKey(i)) == i + 1);
+    assertThat(IntStream.range(0, 10_000))
+        .allMatch(i -> index.getPublicKey(i + 1).orElseThrow().equals(publicKey(i)));
+  }
+
+  private static Bytes publicKey(final int i) {
+    return Bytes48.leftPad(Bytes.ofUnsignedInt(i));
+  }
+}
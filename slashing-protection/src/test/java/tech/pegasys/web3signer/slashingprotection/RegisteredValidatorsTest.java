@@ -17,16 +17,19 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
+import tech.pegasys.web3signer.slashingprotection.dao.Validator;
 import tech.pegasys.web3signer.slashingprotection.dao.ValidatorsDao;
 
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
 import db.DatabaseSetupExtension;
 import org.apache.tuweni.bytes.Bytes;
+import org.hyperledger.besu.metrics.noop.NoOpMetricsSystem;
 import org.jdbi.v3.core.Jdbi;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -39,12 +42,13 @@ class RegisteredValidatorsTest {
   private static final Bytes PUBLIC_KEY1 = Bytes.of(42);
   private static final Bytes PUBLIC_KEY2 = Bytes.of(43);
   private static final Bytes PUBLIC_KEY3 = Bytes.of(44);
+  private static final Bytes PUBLIC_KEY4 = Bytes.of(45);
   @Mock private ValidatorsDao validatorsDao;
   @Mock private Jdbi mockJdbi;
 
   @Test
   public void retrievesValidatorIdForRegisteredValidator() {
-    final BiMap<Bytes, Integer> registeredValidatorsMap = HashBiMap.create();
+    final PublicKeyIndex registeredValidatorsMap = new PublicKeyIndex();
     final RegisteredValidators registeredValidators =
         new RegisteredValidators(mockJdbi, validatorsDao, registeredValidatorsMap);
     registeredValidatorsMap.put(PUBLIC_KEY1, 1);
@@ -57,13 +61,13 @@ class RegisteredValidatorsTest {
   @Test
   public void retrievesEmptyValidatorIdForUnregisteredValidator() {
     final RegisteredValidators registeredValidators =
-        new RegisteredValidators(mockJdbi, validatorsDao, HashBiMap.create());
+        new RegisteredValidators(mockJdbi, validatorsDao, new PublicKeyIndex());
     assertThat(registeredValidators.getValidatorIdForPublicKey(PUBLIC_KEY3)).isEmpty();
   }
 
   @Test
   public void mustRetrieveReturnsValidatorIdForRegisteredValidator() {
-    final BiMap<Bytes, Integer> registeredValidatorsMap = HashBiMap.create();
+    final PublicKeyIndex registeredValidatorsMap = new PublicKeyIndex();
     final RegisteredValidators registeredValidators =
         new RegisteredValidators(mockJdbi, validatorsDao, registeredValidatorsMap);
     registeredValidatorsMap.put(PUBLIC_KEY1, 1);
@@ -76,7 +80,7 @@ class RegisteredValidatorsTest {
   @Test
   public void mustRetrieveThrowsErrorsForUnregisteredValidator() {
     final RegisteredValidators registeredValidators =
-        new RegisteredValidators(mockJdbi, validatorsDao, HashBiMap.create());
+        new RegisteredValidators(mockJdbi, validatorsDao, new PublicKeyIndex());
     assertThatThrownBy(() -> registeredValidators.mustGetValidatorIdForPublicKey(PUBLIC_KEY3))
         .isInstanceOf(IllegalStateException.class)
         .hasMessage("Unregistered validator for " + PUBLIC_KEY3);
@@ -84,7 +88,7 @@ class RegisteredValidatorsTest {
 
   @Test
   public void retrievesPublicKeyForRegisteredValidator() {
-    final BiMap<Bytes, Integer> registeredValidatorsMap = HashBiMap.create();
+    final PublicKeyIndex registeredValidatorsMap = new PublicKeyIndex();
     final RegisteredValidators registeredValidators =
         new RegisteredValidators(mockJdbi, validatorsDao, registeredValidatorsMap);
     registeredValidatorsMap.put(PUBLIC_KEY1, 1);
@@ -97,13 +101,13 @@ class RegisteredValidatorsTest {
   @Test
   public void retrievesEmptyPublicKeyForUnregisteredValidator() {
     final RegisteredValidators registeredValidators =
-        new RegisteredValidators(mockJdbi, validatorsDao, HashBiMap.create());
+        new RegisteredValidators(mockJdbi, validatorsDao, new PublicKeyIndex());
     assertThat(registeredValidators.getPublicKeyForValidatorId(1)).isEmpty();
   }
 
   @Test
   public void retrievesAllValidatorIds() {
-    final BiMap<Bytes, Integer> registeredValidatorsMap = HashBiMap.create();
+    final PublicKeyIndex registeredValidatorsMap = new PublicKeyIndex();
     final RegisteredValidators registeredValidators =
         new RegisteredValidators(mockJdbi, validatorsDao, registeredValidatorsMap);
     registeredValidatorsMap.put(PUBLIC_KEY1, 1);
@@ -115,19 +119,48 @@ class RegisteredValidatorsTest {
 
   @Test
   public void registersValidatorsThatAreNotAlreadyInDb(final Jdbi jdbi) {
-    final BiMap<Bytes, Integer> registeredValidatorsMap = HashBiMap.create();
+    final PublicKeyIndex registeredValidatorsMap = new PublicKeyIndex();
     final RegisteredValidators registeredValidators =
         new RegisteredValidators(jdbi, validatorsDao, registeredValidatorsMap);
 
     when(validatorsDao.registerValidators(any(), any())).thenCallRealMethod();
 
     registeredValidators.registerValidators(List.of(PUBLIC_KEY1));
-    assertThat(registeredValidatorsMap).hasSize(1);
+    assertThat(registeredValidatorsMap.size()).isEqualTo(1);
 
     registeredValidators.registerValidators(List.of(PUBLIC_KEY1, PUBLIC_KEY2, PUBLIC_KEY3));
-    assertThat(registeredValidatorsMap).hasSize(3);
+    assertThat(registeredValidatorsMap.size()).isEqualTo(3);
     // because 'id' is a sequence, the values will be 1, 2, 3
-    assertThat(registeredValidatorsMap)
-        .isEqualTo(Map.of(PUBLIC_KEY1, 1, PUBLIC_KEY2, 2, PUBLIC_KEY3, 3));
+    assertThat(registeredValidatorsMap.get(PUBLIC_KEY1)).isEqualTo(1);
+    assertThat(registeredValidatorsMap.get(PUBLIC_KEY2)).isEqualTo(2);
+    assertThat(registeredValidatorsMap.get(PUBLIC_KEY3)).isEqualTo(3);
+  }
+
+  @Test
+  public void onlyRegistersValidatorsNotAlreadyRegisteredInChunks() {
+    final List<List<Bytes>> registeredChunks = new CopyOnWriteArrayList<>();
+    final AtomicInteger nextId = new AtomicInteger(1);
+    final RegisteredValidators registeredValidators =
+        new RegisteredValidators(
+            chunk -> {
+              registeredChunks.add(chunk);
+              return chunk.stream()
+                  .map(publicKey -> new Validator(nextId.getAndIncrement(), publicKey))
+                  .collect(Collectors.toList());
+            },
+            new PublicKeyIndex(),
+            Optional.empty(),
+            2,
+            2,
+            new NoOpMetricsSystem());
+
+    registeredValidators.registerValidators(List.of(PUBLIC_KEY1));
+    registeredValidators.registerValidators(
+        List.of(PUBLIC_KEY1, PUBLIC_KEY2, PUBLIC_KEY3, PUBLIC_KEY4));
+
+    assertThat(registeredChunks)
+        .containsExactlyInAnyOrder(
+            List.of(PUBLIC_KEY1), List.of(PUBLIC_KEY2, PUBLIC_KEY3), List.of(PUBLIC_KEY4));
+    assertThat(registeredValidators.validatorIds()).isEqualTo(Set.of(1, 2, 3, 4));
   }
 }
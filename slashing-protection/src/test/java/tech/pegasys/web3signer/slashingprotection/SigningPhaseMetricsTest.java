@@ -0,0 +1,97 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import tech.pegasys.web3signer.slashingprotection.DbLocker.LockType;
+
+import org.hyperledger.besu.plugin.services.MetricsSystem;
+import org.hyperledger.besu.plugin.services.metrics.Counter;
+import org.hyperledger.besu.plugin.services.metrics.LabelledMetric;
+import org.hyperledger.besu.plugin.services.metrics.OperationTimer;
+import org.hyperledger.besu.plugin.services.metrics.OperationTimer.TimingContext;
+import org.jdbi.v3.core.Handle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SigningPhaseMetricsTest {
+  private final MetricsSystem metricsSystem = mock(MetricsSystem.class);
+  private final OperationTimer timer = mock(OperationTimer.class);
+  private final TimingContext timingContext = mock(TimingContext.class);
+  private final Counter counter = mock(Counter.class);
+  private final Handle handle = mock(Handle.class);
+
+  @SuppressWarnings("unchecked")
+  private final LabelledMetric<OperationTimer> labelledTimer = mock(LabelledMetric.class);
+
+  @SuppressWarnings("unchecked")
+  private final LabelledMetric<Counter> labelledCounter = mock(LabelledMetric.class);
+
+  @BeforeEach
+  void setup() {
+    when(metricsSystem.createLabelledTimer(any(), anyString(), anyString(), any()))
+        .thenReturn(labelledTimer);
+    when(metricsSystem.createLabelledCounter(any(), anyString(), anyString(), any()))
+        .thenReturn(labelledCounter);
+    when(labelledTimer.labels(any())).thenReturn(timer);
+    when(labelledCounter.labels(any())).thenReturn(counter);
+    when(timer.startTimer()).thenReturn(timingContext);
+  }
+
+  @Test
+  void phaseIsTimedWithOperationAndPhaseLabels() {
+    final SigningPhaseMetrics phaseMetrics = new SigningPhaseMetrics(metricsSystem, 100);
+
+    phaseMetrics.time(SigningPhaseMetrics.ATTESTATION, SigningPhaseMetrics.Phase.SURROUND, () -> 1);
+
+    verify(labelledTimer).labels("attestation", "surround");
+    verify(timingContext).close();
+  }
+
+  @Test
+  void lockWaitAboveThresholdIsCounted() {
+    doAnswer(
+            invocation -> {
+              Thread.sleep(5);
+              return 0;
+            })
+        .when(handle)
+        .execute(anyString(), any());
+    final SigningPhaseMetrics phaseMetrics = new SigningPhaseMetrics(metricsSystem, 1);
+
+    phaseMetrics.lockForValidator(handle, LockType.BLOCK, 1);
+
+    verify(handle).execute(eq("SELECT pg_advisory_xact_lock(?, ?)"), any());
+    verify(labelledTimer).labels("block", "lock");
+    verify(labelledCounter).labels("block");
+    verify(counter).inc();
+  }
+
+  @Test
+  void lockWaitBelowThresholdIsNotCounted() {
+    final SigningPhaseMetrics phaseMetrics = new SigningPhaseMetrics(metricsSystem, 60_000);
+
+    phaseMetrics.lockForValidator(handle, LockType.ATTESTATION, 1);
+
+    verify(labelledTimer).labels("attestation", "lock");
+    verify(counter, never()).inc();
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import tech.pegasys.web3signer.slashingprotection.dao.ValidatorsDao;
+
+import java.util.List;
+
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Test;
+
+class ValidatorEnabledStatusCacheTest {
+  private final ValidatorEnabledStatusCache cache =
+      new ValidatorEnabledStatusCache(mock(Jdbi.class), mock(ValidatorsDao.class));
+
+  @Test
+  void noValidatorIsEnabledUntilStatusIsLoaded() {
+    assertThat(cache.isEnabled(1)).isFalse();
+
+    cache.load(List.of(1, 3));
+
+    assertThat(cache.isEnabled(1)).isTrue();
+    assertThat(cache.isEnabled(2)).isFalse();
+    assertThat(cache.isEnabled(3)).isTrue();
+  }
+
+  @Test
+  void notificationsUpdateEnabledStatus() {
+    cache.load(List.of(1));
+
+    cache.apply("1,false");
+    cache.apply("2,true");
+
+    assertThat(cache.isEnabled(1)).isFalse();
+    assertThat(cache.isEnabled(2)).isTrue();
+  }
+
+  @Test
+  void invalidNotificationsAreIgnored() {
+    cache.load(List.of(1));
+
+    cache.apply("1");
+    cache.apply("x,false");
+
+    assertThat(cache.isEnabled(1)).isTrue();
+  }
+}
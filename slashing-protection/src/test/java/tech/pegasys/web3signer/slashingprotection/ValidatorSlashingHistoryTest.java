@@ -0,0 +1,156 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.web3signer.slashingprotection.ValidatorSlashingHistory.CheckResult;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedAttestation;
+import tech.pegasys.web3signer.slashingprotection.dao.SignedBlock;
+import tech.pegasys.web3signer.slashingprotection.dao.SigningWatermark;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.units.bigints.UInt64;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ValidatorSlashingHistoryTest {
+  private static final int VALIDATOR_ID = 1;
+  private static final Bytes PUBLIC_KEY = Bytes.of(42);
+  private static final Bytes SIGNING_ROOT = Bytes.of(3);
+  private static final Bytes OTHER_SIGNING_ROOT = Bytes.of(4);
+
+  private ValidatorSlashingHistory history;
+
+  @BeforeEach
+  void setup() {
+    history = new ValidatorSlashingHistory(VALIDATOR_ID, 10, 320);
+    history.loadAttestationHistory(
+        Optional.of(new SigningWatermark(VALIDATOR_ID, null, epoch(5), epoch(6))),
+        UInt64.ZERO,
+        List.of(attestation(5, 6, SIGNING_ROOT), attestation(10, 20, SIGNING_ROOT)),
+        false);
+    history.loadBlockHistory(
+        Optional.of(new SigningWatermark(VALIDATOR_ID, epoch(5), null, null)),
+        UInt64.ZERO,
+        List.of(new SignedBlock(VALIDATOR_ID, epoch(5), SIGNING_ROOT)));
+  }
+
+  @Test
+  void attestationAheadOfHistoryIsPermitted() {
+    assertThat(check(20, 21, SIGNING_ROOT)).isEqualTo(CheckResult.PERMITTED_NEW);
+  }
+
+  @Test
+  void matchingAttestationIsPermittedAsExisting() {
+    assertThat(check(10, 20, SIGNING_ROOT)).isEqualTo(CheckResult.PERMITTED_EXISTING);
+  }
+
+  @Test
+  void attestationWithDifferentSigningRootForSameTargetIsRejected() {
+    assertThat(check(10, 20, OTHER_SIGNING_ROOT)).isEqualTo(CheckResult.REJECTED);
+  }
+
+  @Test
+  void surroundingAttestationIsRejected() {
+    assertThat(check(9, 21, SIGNING_ROOT)).isEqualTo(CheckResult.REJECTED);
+  }
+
+  @Test
+  void surroundedAttestationIsRejected() {
+    assertThat(check(11, 19, SIGNING_ROOT)).isEqualTo(CheckResult.REJECTED);
+  }
+
+  @Test
+  void attestationBelowWatermarkIsRejected() {
+    assertThat(check(4, 7, SIGNING_ROOT)).isEqualTo(CheckResult.REJECTED);
+  }
+
+  @Test
+  void attestationWithSourceGreaterThanTargetIsRejected() {
+    assertThat(check(22, 21, SIGNING_ROOT)).isEqualTo(CheckResult.REJECTED);
+  }
+
+  @Test
+  void attestationReachingBelowCachedWindowIsUnknown() {
+    history.recordAttestation(attestation(40, 41, SIGNING_ROOT));
+
+    assertThat(check(30, 42, SIGNING_ROOT)).isEqualTo(CheckResult.UNKNOWN);
+    assertThat(check(41, 42, SIGNING_ROOT)).isEqualTo(CheckResult.PERMITTED_NEW);
+  }
+
+  @Test
+  void recordedAttestationIsUsedInLaterChecks() {
+    history.recordAttestation(attestation(20, 21, SIGNING_ROOT));
+
+    assertThat(check(20, 21, OTHER_SIGNING_ROOT)).isEqualTo(CheckResult.REJECTED);
+    assertThat(check(19, 22, SIGNING_ROOT)).isEqualTo(CheckResult.REJECTED);
+  }
+
+  @Test
+  void emptyWatermarkIsInitialisedFromFirstRecordedAttestation() {
+    history.loadAttestationHistory(Optional.empty(), UInt64.ZERO, List.of(), false);
+    assertThat(history.hasEmptyEpochWatermark()).isTrue();
+
+    history.recordAttestation(attestation(3, 4, SIGNING_ROOT));
+
+    assertThat(history.hasEmptyEpochWatermark()).isFalse();
+    assertThat(check(2, 5, SIGNING_ROOT)).isEqualTo(CheckResult.REJECTED);
+  }
+
+  @Test
+  void attestationChecksForValidatorWithImportedSourceAfterTargetAreUnknown() {
+    // the database rejects 26 -> 35 as surrounding the imported 30 -> 25
+    history.loadAttestationHistory(
+        Optional.of(new SigningWatermark(VALIDATOR_ID, null, epoch(5), epoch(6))),
+        UInt64.ZERO,
+        List.of(attestation(10, 20, SIGNING_ROOT), attestation(30, 25, SIGNING_ROOT)),
+        true);
+
+    assertThat(check(26, 35, SIGNING_ROOT)).isEqualTo(CheckResult.UNKNOWN);
+    assertThat(check(40, 41, SIGNING_ROOT)).isEqualTo(CheckResult.UNKNOWN);
+  }
+
+  @Test
+  void blockChecksUseCachedHistory() {
+    assertThat(history.checkBlock(SIGNING_ROOT, epoch(4))).isEqualTo(CheckResult.REJECTED);
+    assertThat(history.checkBlock(SIGNING_ROOT, epoch(5)))
+        .isEqualTo(CheckResult.PERMITTED_EXISTING);
+    assertThat(history.checkBlock(OTHER_SIGNING_ROOT, epoch(5))).isEqualTo(CheckResult.REJECTED);
+    assertThat(history.checkBlock(SIGNING_ROOT, epoch(6))).isEqualTo(CheckResult.PERMITTED_NEW);
+  }
+
+  @Test
+  void blockBelowCachedWindowIsUnknown() {
+    history.recordBlock(new SignedBlock(VALIDATOR_ID, epoch(1000), SIGNING_ROOT));
+
+    assertThat(history.checkBlock(SIGNING_ROOT, epoch(679))).isEqualTo(CheckResult.UNKNOWN);
+    assertThat(history.checkBlock(SIGNING_ROOT, epoch(680))).isEqualTo(CheckResult.PERMITTED_NEW);
+  }
+
+  private CheckResult check(final long source, final long target, final Bytes signingRoot) {
+    return history.checkAttestation(PUBLIC_KEY, signingRoot, epoch(source), epoch(target));
+  }
+
+  private static SignedAttestation attestation(
+      final long source, final long target, final Bytes signingRoot) {
+    return new SignedAttestation(VALIDATOR_ID, epoch(source), epoch(target), signingRoot);
+  }
+
+  private static UInt64 epoch(final long value) {
+    return UInt64.valueOf(value);
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Optional;
+
+import db.DatabaseSetupExtension;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.units.bigints.UInt64;
+import org.jdbi.v3.core.Handle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(DatabaseSetupExtension.class)
+public class HighWatermarkDaoTest {
+
+  private final HighWatermarkDao highWatermarkDao = new HighWatermarkDao();
+  private final SignedBlocksDao signedBlocksDao = new SignedBlocksDao();
+  private final SignedAttestationsDao signedAttestationsDao = new SignedAttestationsDao();
+
+  @Test
+  public void validatorWithNothingSignedHasNoHighWatermark(final Handle handle) {
+    insertValidator(handle, Bytes.of(100), 1);
+
+    assertThat(highWatermarkDao.findHighWatermarkForValidator(handle, 1)).isEmpty();
+  }
+
+  @Test
+  public void highWatermarkIsTheHighestSlotSigned(final Handle handle) {
+    insertValidator(handle, Bytes.of(100), 1);
+    signedBlocksDao.insertBlockProposal(handle, new SignedBlock(1, UInt64.valueOf(5), Bytes.of(1)));
+    signedBlocksDao.insertBlockProposal(handle, new SignedBlock(1, UInt64.valueOf(3), Bytes.of(1)));
+
+    final Optional<SigningWatermark> watermark =
+        highWatermarkDao.findHighWatermarkForValidator(handle, 1);
+    assertThat(watermark).isNotEmpty();
+    assertThat(watermark.get().getSlot()).isEqualTo(UInt64.valueOf(5));
+    assertThat(watermark.get().getSourceEpoch()).isNull();
+    assertThat(watermark.get().getTargetEpoch()).isNull();
+  }
+
+  @Test
+  public void highWatermarkIsTheHighestSourceAndTargetEpochsSigned(final Handle handle) {
+    insertValidator(handle, Bytes.of(100), 1);
+    signedBlocksDao.insertBlockProposal(handle, new SignedBlock(1, UInt64.valueOf(5), Bytes.of(1)));
+    signedAttestationsDao.insertAttestations(
+        handle,
+        List.of(
+            new SignedAttestation(1, UInt64.valueOf(4), UInt64.valueOf(6), Bytes.of(1)),
+            new SignedAttestation(1, UInt64.valueOf(5), UInt64.valueOf(5), Bytes.of(1)),
+            new SignedAttestation(1, UInt64.valueOf(2), UInt64.valueOf(3), Bytes.of(1))));
+
+    final Optional<SigningWatermark> watermark =
+        highWatermarkDao.findHighWatermarkForValidator(handle, 1);
+    assertThat(watermark).isNotEmpty();
+    assertThat(watermark.get().getSlot()).isEqualTo(UInt64.valueOf(5));
+    assertThat(watermark.get().getSourceEpoch()).isEqualTo(UInt64.valueOf(5));
+    assertThat(watermark.get().getTargetEpoch()).isEqualTo(UInt64.valueOf(6));
+  }
+
+  @Test
+  public void highWatermarksAreKeptPerValidator(final Handle handle) {
+    insertValidator(handle, Bytes.of(100), 1);
+    insertValidator(handle, Bytes.of(101), 2);
+    signedBlocksDao.insertBlockProposal(handle, new SignedBlock(1, UInt64.valueOf(5), Bytes.of(1)));
+    signedBlocksDao.insertBlockProposal(handle, new SignedBlock(2, UInt64.valueOf(7), Bytes.of(1)));
+
+    assertThat(highWatermarkDao.findHighWatermarkForValidator(handle, 1).get().getSlot())
+        .isEqualTo(UInt64.valueOf(5));
+    assertThat(highWatermarkDao.findHighWatermarkForValidator(handle, 2).get().getSlot())
+        .isEqualTo(UInt64.valueOf(7));
+  }
+
+  private void insertValidator(final Handle handle, final Bytes publicKey, final int validatorId) {
+    handle.execute("INSERT INTO validators (id, public_key) VALUES (?, ?)", validatorId, publicKey);
+  }
+}
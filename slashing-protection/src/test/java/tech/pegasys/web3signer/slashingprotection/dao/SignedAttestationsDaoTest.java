@@ -30,6 +30,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 public class SignedAttestationsDaoTest {
 
   private final SignedAttestationsDao signedAttestationsDao = new SignedAttestationsDao();
+  private final SignedAttestationsDao surroundIndexDao = new SignedAttestationsDao(true);
   private final ValidatorsDao validatorsDao = new ValidatorsDao();
   private final LowWatermarkDao lowWatermarkDao = new LowWatermarkDao();
 
@@ -261,6 +262,18 @@ public class SignedAttestationsDaoTest {
     assertThat(signedAttestationsDao.findMaxTargetEpoch(handle, 3)).isEmpty();
   }
 
+  @Test
+  public void findsAttestationWithSourceAfterTargetForValidator(final Handle handle) {
+    insertValidator(handle, Bytes.of(1), 1);
+    insertValidator(handle, Bytes.of(2), 2);
+    insertAttestation(handle, 1, Bytes.of(1), UInt64.valueOf(2), UInt64.valueOf(3));
+    insertAttestation(handle, 2, Bytes.of(1), UInt64.valueOf(2), UInt64.valueOf(3));
+    insertAttestation(handle, 2, Bytes.of(2), UInt64.valueOf(6), UInt64.valueOf(4));
+
+    assertThat(signedAttestationsDao.hasAttestationWithSourceAfterTarget(handle, 1)).isFalse();
+    assertThat(signedAttestationsDao.hasAttestationWithSourceAfterTarget(handle, 2)).isTrue();
+  }
+
   @Test
   public void findsNearestAttestationForTargetEpoch(final Handle handle) {
     insertValidator(handle, Bytes.of(1), 1);
@@ -280,6 +293,206 @@ public class SignedAttestationsDaoTest {
         .isEqualToComparingFieldByField(attestation(1, 7, 8, 1));
   }
 
+  @Test
+  public void attestationIsOnlyInsertedForEnabledValidator(final Handle handle) {
+    insertValidator(handle, Bytes.of(1), 1);
+    insertValidator(handle, Bytes.of(2), 2);
+    validatorsDao.setEnabled(handle, 2, false);
+
+    assertThat(signedAttestationsDao.insertAttestationIfEnabled(handle, attestation(1, 2, 3, 1)))
+        .isTrue();
+    assertThat(signedAttestationsDao.insertAttestationIfEnabled(handle, attestation(2, 2, 3, 1)))
+        .isFalse();
+
+    assertThat(signedAttestationsDao.findAllAttestationsSignedBy(handle, 1)).hasSize(1);
+    assertThat(signedAttestationsDao.findAllAttestationsSignedBy(handle, 2)).isEmpty();
+  }
+
+  @Test
+  public void canInsertMultipleAttestationsInABatch(final Handle handle) {
+    insertValidator(handle, Bytes.of(1), 1);
+    insertValidator(handle, Bytes.of(2), 2);
+    signedAttestationsDao.insertAttestations(
+        handle, List.of(attestation(1, 2, 3, 1), attestation(2, 4, 5, 2)));
+
+    assertThat(signedAttestationsDao.findAllAttestationsSignedBy(handle, 1))
+        .usingFieldByFieldElementComparator()
+        .containsExactly(attestation(1, 2, 3, 1));
+    assertThat(signedAttestationsDao.findAllAttestationsSignedBy(handle, 2))
+        .usingFieldByFieldElementComparator()
+        .containsExactly(attestation(2, 4, 5, 2));
+  }
+
+  @Test
+  public void slashingStatusIsFoundForEachValidatorInABatch(final Handle handle) {
+    insertValidator(handle, Bytes.of(1), 1);
+    insertValidator(handle, Bytes.of(2), 2);
+    insertValidator(handle, Bytes.of(3), 3);
+    insertValidator(handle, Bytes.of(4), 4);
+    insertAttestation(handle, 1, Bytes.of(1), UInt64.valueOf(2), UInt64.valueOf(3));
+    insertAttestation(handle, 2, Bytes.of(1), UInt64.valueOf(2), UInt64.valueOf(3));
+    insertAttestation(handle, 3, Bytes.of(1), UInt64.valueOf(2), UInt64.valueOf(5));
+    lowWatermarkDao.updateEpochWatermarksFor(handle, 4, UInt64.valueOf(2), UInt64.valueOf(3));
+
+    final Map<Integer, AttestationSlashingStatus> statuses =
+        signedAttestationsDao
+            .findSlashingStatusForAttestations(
+                handle,
+                List.of(
+                    attestation(1, 2, 3, 1),
+                    attestation(2, 2, 3, 2),
+                    attestation(3, 3, 4, 1),
+                    attestation(4, 6, 7, 1)))
+            .stream()
+            .collect(Collectors.toMap(AttestationSlashingStatus::getValidatorId, s -> s));
+
+    assertThat(statuses).hasSize(4);
+    assertThat(statuses.get(1).isAlreadyExists()).isTrue();
+    assertThat(statuses.get(1).isConflicts()).isFalse();
+    assertThat(statuses.get(2).isAlreadyExists()).isFalse();
+    assertThat(statuses.get(2).isConflicts()).isTrue();
+    assertThat(statuses.get(3).isSurrounded()).isTrue();
+    assertThat(statuses.get(3).isSurrounds()).isFalse();
+    assertThat(statuses.get(4).isEnabled()).isTrue();
+    assertThat(statuses.get(4).getWatermarkSourceEpoch()).isEqualTo(UInt64.valueOf(2));
+    assertThat(statuses.get(4).getWatermarkTargetEpoch()).isEqualTo(UInt64.valueOf(3));
+    assertThat(statuses.get(4).isSurrounded()).isFalse();
+    assertThat(statuses.get(4).isSurrounds()).isFalse();
+  }
+
+  @Test
+  public void surroundIndexIsFoundOnceCreated(final Handle handle) {
+    assertThat(signedAttestationsDao.hasSurroundIndex(handle)).isFalse();
+
+    createSurroundIndex(handle);
+
+    assertThat(signedAttestationsDao.hasSurroundIndex(handle)).isTrue();
+  }
+
+  @Test
+  public void surroundIndexFindsSurroundingAndSurroundedAttestations(final Handle handle) {
+    createSurroundIndex(handle);
+    insertValidator(handle, Bytes.of(1), 1);
+    surroundIndexDao.insertAttestation(handle, attestation(1, 2, 9, 1));
+    surroundIndexDao.insertAttestation(handle, attestation(1, 1, 10, 2));
+    surroundIndexDao.insertAttestation(handle, attestation(1, 5, 5, 3));
+
+    assertThat(surroundIndexDao.findSurroundingAttestations(handle, 1, epoch(3), epoch(7)))
+        .usingFieldByFieldElementComparator()
+        .containsExactly(attestation(1, 1, 10, 2));
+    assertThat(surroundIndexDao.findSurroundingAttestations(handle, 1, epoch(1), epoch(7)))
+        .isEmpty();
+    assertThat(surroundIndexDao.findSurroundingAttestations(handle, 1, epoch(3), epoch(10)))
+        .isEmpty();
+
+    // the attestation with equal epochs has an empty range but is still found
+    assertThat(surroundIndexDao.findSurroundedAttestations(handle, 1, epoch(4), epoch(6)))
+        .usingFieldByFieldElementComparator()
+        .containsExactly(attestation(1, 5, 5, 3));
+    assertThat(surroundIndexDao.findSurroundedAttestations(handle, 1, epoch(0), epoch(11)))
+        .usingFieldByFieldElementComparator()
+        .containsExactly(attestation(1, 1, 10, 2));
+    assertThat(surroundIndexDao.findSurroundedAttestations(handle, 1, epoch(5), epoch(6)))
+        .isEmpty();
+    assertThat(surroundIndexDao.findSurroundedAttestations(handle, 1, epoch(6), epoch(6)))
+        .isEmpty();
+  }
+
+  @Test
+  public void surroundIndexChecksHandleMinimumAndMaximumEpochs(final Handle handle) {
+    createSurroundIndex(handle);
+    insertValidator(handle, Bytes.of(1), 1);
+    surroundIndexDao.insertAttestation(
+        handle, new SignedAttestation(1, UInt64.ZERO, UInt64.MAX_VALUE, Bytes.of(1)));
+
+    assertThat(surroundIndexDao.findSurroundingAttestations(handle, 1, epoch(1), epoch(2)))
+        .hasSize(1);
+    assertThat(surroundIndexDao.findSurroundingAttestations(handle, 1, UInt64.ZERO, epoch(2)))
+        .isEmpty();
+    assertThat(
+            surroundIndexDao.findSurroundingAttestations(
+                handle, 1, epoch(1), UInt64.MAX_VALUE))
+        .isEmpty();
+    assertThat(
+            surroundIndexDao.findSurroundedAttestations(
+                handle, 1, UInt64.MAX_VALUE, UInt64.MAX_VALUE))
+        .isEmpty();
+  }
+
+  @Test
+  public void surroundVotesAreNotInsertedWithSurroundIndex(final Handle handle) {
+    createSurroundIndex(handle);
+    insertValidator(handle, Bytes.of(1), 1);
+    insertValidator(handle, Bytes.of(2), 2);
+    validatorsDao.setEnabled(handle, 2, false);
+    surroundIndexDao.insertAttestation(handle, attestation(1, 3, 6, 1));
+
+    assertThat(
+            surroundIndexDao.insertAttestationIfEnabledAndNotSurrounding(
+                handle, attestation(1, 2, 7, 2)))
+        .isFalse();
+    assertThat(
+            surroundIndexDao.insertAttestationIfEnabledAndNotSurrounding(
+                handle, attestation(1, 4, 5, 2)))
+        .isFalse();
+    assertThat(
+            surroundIndexDao.insertAttestationIfEnabledAndNotSurrounding(
+                handle, attestation(1, 6, 7, 2)))
+        .isTrue();
+    assertThat(
+            surroundIndexDao.insertAttestationIfEnabledAndNotSurrounding(
+                handle, attestation(2, 6, 7, 2)))
+        .isFalse();
+
+    assertThat(surroundIndexDao.findAllAttestationsSignedBy(handle, 1))
+        .usingFieldByFieldElementComparator()
+        .containsExactlyInAnyOrder(attestation(1, 3, 6, 1), attestation(1, 6, 7, 2));
+    assertThat(surroundIndexDao.findAllAttestationsSignedBy(handle, 2)).isEmpty();
+  }
+
+  @Test
+  public void slashingStatusUsesSurroundIndex(final Handle handle) {
+    createSurroundIndex(handle);
+    insertValidator(handle, Bytes.of(1), 1);
+    insertValidator(handle, Bytes.of(2), 2);
+    insertAttestation(handle, 1, Bytes.of(1), UInt64.valueOf(2), UInt64.valueOf(5));
+    insertAttestation(handle, 2, Bytes.of(1), UInt64.valueOf(3), UInt64.valueOf(4));
+
+    final Map<Integer, AttestationSlashingStatus> statuses =
+        surroundIndexDao
+            .findSlashingStatusForAttestations(
+                handle, List.of(attestation(1, 3, 4, 1), attestation(2, 2, 5, 1)))
+            .stream()
+            .collect(Collectors.toMap(AttestationSlashingStatus::getValidatorId, s -> s));
+
+    assertThat(statuses.get(1).isSurrounded()).isTrue();
+    assertThat(statuses.get(1).isSurrounds()).isFalse();
+    assertThat(statuses.get(2).isSurrounded()).isFalse();
+    assertThat(statuses.get(2).isSurrounds()).isTrue();
+  }
+
+  @Test
+  public void attestationQueryForValidatorOnlyScansOnePartition(final Handle handle) {
+    final List<String> plan =
+        handle
+            .createQuery(
+                "EXPLAIN SELECT validator_id, source_epoch, target_epoch, signing_root "
+                    + "FROM signed_attestations WHERE validator_id = ? AND target_epoch = ?")
+            .bind(0, 1)
+            .bind(1, UInt64.valueOf(4))
+            .mapTo(String.class)
+            .list();
+
+    assertThat(plan.stream().filter(line -> line.contains("signed_attestations_p"))).hasSize(1);
+  }
+
+  private void createSurroundIndex(final Handle handle) {
+    handle.execute("CREATE EXTENSION IF NOT EXISTS btree_gist");
+    handle.execute(
+        "CREATE INDEX signed_attestations_epoch_range ON signed_attestations "
+            + "USING gist (validator_id, int8range(LEAST(source_epoch, target_epoch), target_epoch))");
+  }
+
   private void insertValidator(final Handle handle, final Bytes publicKey, final int validatorId) {
     handle.execute("INSERT INTO validators (id, public_key) VALUES (?, ?)", validatorId, publicKey);
   }
@@ -308,4 +521,8 @@ public class SignedAttestationsDaoTest {
         UInt64.valueOf(targetEpoch),
         Bytes.of(signingRoot));
   }
+
+  private static UInt64 epoch(final int value) {
+    return UInt64.valueOf(value);
+  }
 }
@@ -90,6 +90,21 @@ public class SignedBlocksDaoTest {
         .isEqualToComparingFieldByField(new SignedBlock(3, UInt64.MIN_VALUE, Bytes.of(102)));
   }
 
+  @Test
+  public void slotsKeepTheirOrderAcrossSignedLongRange(final Handle handle) {
+    insertValidator(handle, Bytes.of(100), 1);
+    final UInt64 maxSignedLong = UInt64.valueOf(Long.MAX_VALUE);
+    signedBlocksDao.insertBlockProposal(handle, new SignedBlock(1, UInt64.ZERO, Bytes.of(1)));
+    signedBlocksDao.insertBlockProposal(handle, new SignedBlock(1, maxSignedLong, Bytes.of(1)));
+    signedBlocksDao.insertBlockProposal(
+        handle, new SignedBlock(1, maxSignedLong.add(1), Bytes.of(1)));
+
+    assertThat(signedBlocksDao.findMaxSlot(handle, 1)).contains(maxSignedLong.add(1));
+    assertThat(signedBlocksDao.findNearestBlockWithSlot(handle, 1, UInt64.ONE))
+        .map(SignedBlock::getSlot)
+        .contains(maxSignedLong);
+  }
+
   @Test
   public void canCreateBlocksWithNoSigningRoot(final Handle handle) {
     insertValidator(handle, Bytes.of(100), 1);
@@ -206,12 +221,26 @@ public class SignedBlocksDaoTest {
         .isEqualToComparingFieldByField(block(7, 1));
   }
 
+  @Test
+  public void blockIsOnlyInsertedForEnabledValidator(final Handle handle) {
+    insertValidator(handle, Bytes.of(100), 1);
+    final SignedBlock signedBlock = block(3, 1);
+
+    new ValidatorsDao().setEnabled(handle, 1, false);
+    assertThat(signedBlocksDao.insertBlockProposalIfEnabled(handle, signedBlock)).isFalse();
+    assertThat(signedBlocksDao.findAllBlockSignedBy(handle, 1)).isEmpty();
+
+    new ValidatorsDao().setEnabled(handle, 1, true);
+    assertThat(signedBlocksDao.insertBlockProposalIfEnabled(handle, signedBlock)).isTrue();
+    assertThat(signedBlocksDao.findAllBlockSignedBy(handle, 1)).hasSize(1);
+  }
+
   private void insertBlock(
       final Handle handle, final int validatorId, final int slot, final Bytes signingRoot) {
     handle.execute(
         "INSERT INTO signed_blocks (validator_id, slot, signing_root) VALUES (?, ?, ?)",
         validatorId,
-        slot,
+        UInt64.valueOf(slot),
         signingRoot);
   }
 
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import db.DatabaseSetupExtension;
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.units.bigints.UInt64;
+import org.jdbi.v3.core.Handle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(DatabaseSetupExtension.class)
+public class SlashingCheckDaoTest {
+
+  private final SlashingCheckDao slashingCheckDao = new SlashingCheckDao();
+  private final SignedAttestationsDao signedAttestationsDao = new SignedAttestationsDao();
+  private final SignedBlocksDao signedBlocksDao = new SignedBlocksDao();
+  private final LowWatermarkDao lowWatermarkDao = new LowWatermarkDao();
+  private final ValidatorsDao validatorsDao = new ValidatorsDao();
+
+  @Test
+  public void newAttestationIsInsertedAndInitialisesWatermark(final Handle handle) {
+    insertValidator(handle, Bytes.of(100), 1);
+
+    assertThat(checkAttestation(handle, 2, 3, 1)).isEqualTo(SlashingCheckVerdict.SIGNED);
+
+    assertThat(
+            signedAttestationsDao.findMatchingAttestation(
+                handle, 1, UInt64.valueOf(3), Bytes.of(1)))
+        .isPresent();
+    final SigningWatermark watermark =
+        lowWatermarkDao.findLowWatermarkForValidator(handle, 1).get();
+    assertThat(watermark.getSourceEpoch()).isEqualTo(UInt64.valueOf(2));
+    assertThat(watermark.getTargetEpoch()).isEqualTo(UInt64.valueOf(3));
+  }
+
+  @Test
+  public void repeatedAttestationIsAlreadySigned(final Handle handle) {
+    insertValidator(handle, Bytes.of(100), 1);
+    checkAttestation(handle, 2, 3, 1);
+
+    assertThat(checkAttestation(handle, 2, 3, 1)).isEqualTo(SlashingCheckVerdict.ALREADY_SIGNED);
+  }
+
+  @Test
+  public void slashableAttestationsAreRejected(final Handle handle) {
+    insertValidator(handle, Bytes.of(100), 1);
+    checkAttestation(handle, 5, 10, 1);
+
+    assertThat(checkAttestation(handle, 6, 5, 1))
+        .isEqualTo(SlashingCheckVerdict.SOURCE_GREATER_THAN_TARGET);
+    assertThat(checkAttestation(handle, 4, 11, 1))
+        .isEqualTo(SlashingCheckVerdict.SOURCE_BELOW_WATERMARK);
+    assertThat(checkAttestation(handle, 5, 9, 1))
+        .isEqualTo(SlashingCheckVerdict.TARGET_BELOW_WATERMARK);
+    assertThat(checkAttestation(handle, 5, 10, 2))
+        .isEqualTo(SlashingCheckVerdict.CONFLICTS_WITH_EXISTING);
+  }
+
+  @Test
+  public void surroundingAttestationsAreRejected(final Handle handle) {
+    insertValidator(handle, Bytes.of(100), 1);
+    checkAttestation(handle, 5, 10, 1);
+    checkAttestation(handle, 10, 20, 1);
+
+    assertThat(checkAttestation(handle, 11, 19, 1))
+        .isEqualTo(SlashingCheckVerdict.SURROUNDED_BY_EXISTING);
+    assertThat(checkAttestation(handle, 9, 21, 1))
+        .isEqualTo(SlashingCheckVerdict.SURROUNDS_EXISTING);
+  }
+
+  @Test
+  public void disabledValidatorIsRejected(final Handle handle) {
+    insertValidator(handle, Bytes.of(100), 1);
+    validatorsDao.setEnabled(handle, 1, false);
+
+    assertThat(checkAttestation(handle, 2, 3, 1))
+        .isEqualTo(SlashingCheckVerdict.VALIDATOR_DISABLED);
+    assertThat(slashingCheckDao.checkAndInsertBlock(handle, 1, Bytes.of(1), UInt64.valueOf(3)))
+        .isEqualTo(SlashingCheckVerdict.VALIDATOR_DISABLED);
+  }
+
+  @Test
+  public void blockChecksAreAppliedAndNewBlockInserted(final Handle handle) {
+    insertValidator(handle, Bytes.of(100), 1);
+
+    assertThat(slashingCheckDao.checkAndInsertBlock(handle, 1, Bytes.of(1), UInt64.valueOf(3)))
+        .isEqualTo(SlashingCheckVerdict.SIGNED);
+    assertThat(signedBlocksDao.findMatchingBlock(handle, 1, UInt64.valueOf(3), Bytes.of(1)))
+        .isPresent();
+    assertThat(lowWatermarkDao.findLowWatermarkForValidator(handle, 1).get().getSlot())
+        .isEqualTo(UInt64.valueOf(3));
+
+    assertThat(slashingCheckDao.checkAndInsertBlock(handle, 1, Bytes.of(1), UInt64.valueOf(3)))
+        .isEqualTo(SlashingCheckVerdict.ALREADY_SIGNED);
+    assertThat(slashingCheckDao.checkAndInsertBlock(handle, 1, Bytes.of(2), UInt64.valueOf(3)))
+        .isEqualTo(SlashingCheckVerdict.CONFLICTS_WITH_EXISTING);
+    assertThat(slashingCheckDao.checkAndInsertBlock(handle, 1, Bytes.of(1), UInt64.valueOf(2)))
+        .isEqualTo(SlashingCheckVerdict.SLOT_BELOW_WATERMARK);
+  }
+
+  private SlashingCheckVerdict checkAttestation(
+      final Handle handle, final int sourceEpoch, final int targetEpoch, final int signingRoot) {
+    return slashingCheckDao.checkAndInsertAttestation(
+        handle,
+        1,
+        Bytes.of(signingRoot),
+        UInt64.valueOf(sourceEpoch),
+        UInt64.valueOf(targetEpoch));
+  }
+
+  private void insertValidator(final Handle handle, final Bytes publicKey, final int validatorId) {
+    handle.execute("INSERT INTO validators (id, public_key) VALUES (?, ?)", validatorId, publicKey);
+  }
+}
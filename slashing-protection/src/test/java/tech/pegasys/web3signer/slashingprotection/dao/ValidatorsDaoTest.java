@@ -16,6 +16,7 @@ import static db.DatabaseUtil.MIGRATIONS_LOCATION;
 import static org.assertj.core.api.Assertions.assertThat;
 import static tech.pegasys.web3signer.slashingprotection.dao.DatabaseVersionDao.VALIDATOR_ENABLE_FLAG_VERSION;
 
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -29,6 +30,8 @@ import org.jdbi.v3.core.Handle;
 import org.jdbi.v3.core.Jdbi;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
 
 @ExtendWith(DatabaseSetupExtension.class)
 public class ValidatorsDaoTest {
@@ -165,6 +168,35 @@ public class ValidatorsDaoTest {
     assertThat(new ValidatorsDao().hasSigned(handle, 1)).isFalse();
   }
 
+  @Test
+  public void findsEnabledValidatorIds(final Handle handle) {
+    insertValidator(handle, 1, Bytes.of(1));
+    insertValidator(handle, 2, Bytes.of(2));
+    insertValidator(handle, 3, Bytes.of(3));
+
+    final ValidatorsDao validatorsDao = new ValidatorsDao();
+    validatorsDao.setEnabled(handle, 2, false);
+
+    assertThat(validatorsDao.findEnabledValidatorIds(handle)).containsExactlyInAnyOrder(1, 3);
+  }
+
+  @Test
+  public void enabledStatusChangesAreNotified(final Handle handle) throws SQLException {
+    handle.execute("LISTEN validator_enabled_status");
+    insertValidator(handle, 1, Bytes.of(1));
+
+    final ValidatorsDao validatorsDao = new ValidatorsDao();
+    validatorsDao.setEnabled(handle, 1, false);
+    validatorsDao.setEnabled(handle, 1, false);
+    validatorsDao.setEnabled(handle, 1, true);
+
+    final PGNotification[] notifications =
+        handle.getConnection().unwrap(PGConnection.class).getNotifications();
+    assertThat(notifications)
+        .extracting(PGNotification::getParameter)
+        .containsExactly("1,true", "1,false", "1,true");
+  }
+
   @Test
   public void hasSignedReturnsTrueWhenSignedBlock(final Handle handle) {
     insertValidator(handle, 1, Bytes.of(9));
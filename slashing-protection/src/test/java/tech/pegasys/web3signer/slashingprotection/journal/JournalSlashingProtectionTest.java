@@ -0,0 +1,270 @@
+/*
+ * Copyright 2022 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.web3signer.slashingprotection.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.apache.tuweni.bytes.Bytes;
+import org.apache.tuweni.bytes.Bytes32;
+import org.apache.tuweni.units.bigints.UInt64;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalSlashingProtectionTest {
+  private static final Bytes PUBLIC_KEY = Bytes.of(42);
+  private static final Bytes SIGNING_ROOT = Bytes.of(3);
+  private static final Bytes OTHER_SIGNING_ROOT = Bytes.of(4);
+  private static final Bytes32 GVR = Bytes32.leftPad(Bytes.of(100));
+
+  @TempDir Path journalDirectory;
+
+  private JournalSlashingProtection slashingProtection;
+
+  @BeforeEach
+  void setup() {
+    slashingProtection = open();
+  }
+
+  @AfterEach
+  void teardown() throws IOException {
+    slashingProtection.close();
+  }
+
+  @Test
+  void attestationChecksMatchDatabaseRules() {
+    assertThat(maySignAttestation(10, 20, SIGNING_ROOT)).isTrue();
+
+    assertThat(maySignAttestation(10, 20, SIGNING_ROOT)).isTrue();
+    assertThat(maySignAttestation(10, 20, OTHER_SIGNING_ROOT)).isFalse();
+    assertThat(maySignAttestation(9, 21, SIGNING_ROOT)).isFalse();
+    assertThat(maySignAttestation(11, 19, SIGNING_ROOT)).isFalse();
+    assertThat(maySignAttestation(9, 19, SIGNING_ROOT)).isFalse();
+    assertThat(maySignAttestation(22, 21, SIGNING_ROOT)).isFalse();
+    assertThat(maySignAttestation(20, 21, SIGNING_ROOT)).isTrue();
+  }
+
+  @Test
+  void blockChecksMatchDatabaseRules() {
+    assertThat(maySignBlock(10, SIGNING_ROOT)).isTrue();
+
+    assertThat(maySignBlock(10, SIGNING_ROOT)).isTrue();
+    assertThat(maySignBlock(10, OTHER_SIGNING_ROOT)).isFalse();
+    assertThat(maySignBlock(9, SIGNING_ROOT)).isFalse();
+    assertThat(maySignBlock(11, OTHER_SIGNING_ROOT)).isTrue();
+  }
+
+  @Test
+  void signingIsRejectedForMismatchedGenesisValidatorsRoot() {
+    assertThat(maySignBlock(10, SIGNING_ROOT)).isTrue();
+
+    assertThat(
+            slashingProtection.maySignBlock(
+                PUBLIC_KEY, SIGNING_ROOT, UInt64.valueOf(11), Bytes32.ZERO))
+        .isFalse();
+  }
+
+  @Test
+  void signingIsRejectedForUnregisteredValidator() {
+    assertThatThrownBy(
+            () ->
+                slashingProtection.maySignBlock(
+                    Bytes.of(1), SIGNING_ROOT, UInt64.valueOf(10), GVR))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void disabledValidatorCannotSign() {
+    slashingProtection.updateValidatorEnabledStatus(PUBLIC_KEY, false);
+
+    assertThat(slashingProtection.isEnabledValidator(PUBLIC_KEY)).isFalse();
+    assertThat(maySignBlock(10, SIGNING_ROOT)).isFalse();
+    assertThat(maySignAttestation(1, 2, SIGNING_ROOT)).isFalse();
+  }
+
+  @Test
+  void historyAndStatusAreRestoredWhenReopened() throws IOException {
+    assertThat(maySignAttestation(10, 20, SIGNING_ROOT)).isTrue();
+    assertThat(maySignBlock(10, SIGNING_ROOT)).isTrue();
+    slashingProtection.updateValidatorEnabledStatus(PUBLIC_KEY, false);
+    slashingProtection.close();
+
+    slashingProtection = open();
+
+    assertThat(slashingProtection.hasSlashingProtectionDataFor(PUBLIC_KEY)).isTrue();
+    assertThat(slashingProtection.isEnabledValidator(PUBLIC_KEY)).isFalse();
+    slashingProtection.updateValidatorEnabledStatus(PUBLIC_KEY, true);
+    assertThat(maySignAttestation(10, 20, OTHER_SIGNING_ROOT)).isFalse();
+    assertThat(maySignAttestation(9, 21, SIGNING_ROOT)).isFalse();
+    assertThat(maySignBlock(10, OTHER_SIGNING_ROOT)).isFalse();
+  }
+
+  @Test
+  void incompleteRecordAtEndOfJournalIsDiscarded() throws IOException {
+    assertThat(maySignAttestation(10, 20, SIGNING_ROOT)).isTrue();
+    slashingProtection.close();
+    final Path journal = ValidatorJournal.journalPath(journalDirectory, PUBLIC_KEY);
+    final long validLength = Files.size(journal);
+    Files.write(journal, new byte[] {0, 0, 0, 30, 2, 0, 0}, StandardOpenOption.APPEND);
+
+    slashingProtection = open();
+
+    assertThat(Files.size(journal)).isEqualTo(validLength);
+    assertThat(maySignAttestation(10, 20, OTHER_SIGNING_ROOT)).isFalse();
+    assertThat(maySignAttestation(20, 21, SIGNING_ROOT)).isTrue();
+  }
+
+  @Test
+  void finalRecordWithBadChecksumIsDiscarded() throws IOException {
+    assertThat(maySignAttestation(10, 20, SIGNING_ROOT)).isTrue();
+    slashingProtection.close();
+    final Path journal = ValidatorJournal.journalPath(journalDirectory, PUBLIC_KEY);
+    final long validLength = Files.size(journal);
+    slashingProtection = open();
+    assertThat(maySignAttestation(20, 21, SIGNING_ROOT)).isTrue();
+    slashingProtection.close();
+    final byte[] content = Files.readAllBytes(journal);
+    content[content.length - 1] ^= 1;
+    Files.write(journal, content);
+
+    slashingProtection = open();
+
+    assertThat(Files.size(journal)).isEqualTo(validLength);
+    assertThat(maySignAttestation(10, 20, OTHER_SIGNING_ROOT)).isFalse();
+  }
+
+  @Test
+  void corruptRecordBeforeEndOfJournalFailsOpenAndLeavesJournalIntact() throws IOException {
+    assertThat(maySignAttestation(10, 20, SIGNING_ROOT)).isTrue();
+    assertThat(maySignAttestation(20, 21, SIGNING_ROOT)).isTrue();
+    slashingProtection.close();
+    final Path journal = ValidatorJournal.journalPath(journalDirectory, PUBLIC_KEY);
+    final byte[] content = Files.readAllBytes(journal);
+    // corrupt the payload of the first record so only the second record is intact
+    content[Integer.BYTES + 1] ^= 1;
+    Files.write(journal, content);
+
+    slashingProtection = new JournalSlashingProtection(journalDirectory, 4, 1);
+
+    assertThatThrownBy(() -> slashingProtection.registerValidators(List.of(PUBLIC_KEY)))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("is corrupt at offset 0");
+    assertThat(Files.readAllBytes(journal)).isEqualTo(content);
+  }
+
+  @Test
+  void directoryCannotBeUsedByTwoInstances() {
+    assertThatThrownBy(this::open).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void pruningRemovesEntriesBelowNewWatermarks() throws IOException {
+    for (int i = 0; i < 10; i++) {
+      assertThat(maySignAttestation(i, i + 1, SIGNING_ROOT)).isTrue();
+      assertThat(maySignBlock(i, SIGNING_ROOT)).isTrue();
+    }
+
+    slashingProtection.prune();
+
+    assertThat(maySignAttestation(6, 7, OTHER_SIGNING_ROOT)).isFalse();
+    assertThat(maySignBlock(5, SIGNING_ROOT)).isFalse();
+    assertThat(maySignBlock(6, SIGNING_ROOT)).isTrue();
+    assertThat(exportedJson())
+        .contains("\"slot\":\"6\"")
+        .doesNotContain("\"slot\":\"5\"")
+        .contains("\"target_epoch\":\"7\"")
+        .doesNotContain("\"target_epoch\":\"6\"");
+
+    slashingProtection.close();
+    slashingProtection = open();
+    assertThat(exportedJson()).doesNotContain("\"slot\":\"5\"");
+  }
+
+  @Test
+  void exportedDataCanBeImportedIntoNewJournal() throws IOException {
+    assertThat(maySignAttestation(10, 20, SIGNING_ROOT)).isTrue();
+    assertThat(maySignBlock(10, SIGNING_ROOT)).isTrue();
+    final String exported = exportedJson();
+    slashingProtection.close();
+
+    slashingProtection =
+        new JournalSlashingProtection(journalDirectory.resolve("imported"), 4, 1);
+    slashingProtection.importData(new ByteArrayInputStream(exported.getBytes()));
+
+    assertThat(slashingProtection.hasSlashingProtectionDataFor(PUBLIC_KEY)).isTrue();
+    assertThat(maySignAttestation(9, 21, SIGNING_ROOT)).isFalse();
+    assertThat(maySignBlock(9, SIGNING_ROOT)).isFalse();
+    assertThat(maySignBlock(10, OTHER_SIGNING_ROOT)).isFalse();
+    assertThat(exportedJson()).isEqualTo(exported);
+  }
+
+  @Test
+  void attestationSurroundingImportedAttestationWithSourceAfterTargetIsRejected() {
+    final String interchange =
+        String.format(
+            "{\"metadata\":{\"interchange_format_version\":\"5\","
+                + "\"genesis_validators_root\":\"%s\"},"
+                + "\"data\":[{\"pubkey\":\"%s\",\"signed_blocks\":[],"
+                + "\"signed_attestations\":["
+                + "{\"source_epoch\":\"10\",\"target_epoch\":\"20\"},"
+                + "{\"source_epoch\":\"30\",\"target_epoch\":\"25\"}]}]}",
+            GVR.toHexString(), PUBLIC_KEY.toHexString());
+    slashingProtection.importData(new ByteArrayInputStream(interchange.getBytes()));
+
+    assertThat(maySignAttestation(26, 35, SIGNING_ROOT)).isFalse();
+    assertThat(maySignAttestation(31, 41, SIGNING_ROOT)).isTrue();
+  }
+
+  @Test
+  void importWithDifferentGenesisValidatorsRootIsRejected() {
+    assertThat(maySignBlock(10, SIGNING_ROOT)).isTrue();
+    final String exported = exportedJson().replace(GVR.toHexString(), Bytes32.ZERO.toHexString());
+
+    assertThatThrownBy(
+            () -> slashingProtection.importData(new ByteArrayInputStream(exported.getBytes())))
+        .hasMessage("Failed to import journal content");
+  }
+
+  private JournalSlashingProtection open() {
+    final JournalSlashingProtection journalSlashingProtection =
+        new JournalSlashingProtection(journalDirectory, 4, 1);
+    journalSlashingProtection.registerValidators(List.of(PUBLIC_KEY));
+    return journalSlashingProtection;
+  }
+
+  private boolean maySignAttestation(
+      final long sourceEpoch, final long targetEpoch, final Bytes signingRoot) {
+    return slashingProtection.maySignAttestation(
+        PUBLIC_KEY, signingRoot, UInt64.valueOf(sourceEpoch), UInt64.valueOf(targetEpoch), GVR);
+  }
+
+  private boolean maySignBlock(final long slot, final Bytes signingRoot) {
+    return slashingProtection.maySignBlock(PUBLIC_KEY, signingRoot, UInt64.valueOf(slot), GVR);
+  }
+
+  private String exportedJson() {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    slashingProtection.exportData(output);
+    return output.toString();
+  }
+}
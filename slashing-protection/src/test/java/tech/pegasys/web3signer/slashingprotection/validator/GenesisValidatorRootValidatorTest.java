@@ -13,6 +13,10 @@
 package tech.pegasys.web3signer.slashingprotection.validator;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import tech.pegasys.web3signer.slashingprotection.dao.MetadataDao;
 
@@ -56,6 +60,35 @@ class GenesisValidatorRootValidatorTest {
         .isFalse();
   }
 
+  @Test
+  void verifiedGVRIsNotReadFromDatabaseAgain(final Jdbi jdbi) {
+    final MetadataDao metadataDao = spy(new MetadataDao());
+    final GenesisValidatorRootValidator gvrValidator =
+        new GenesisValidatorRootValidator(jdbi, metadataDao);
+    final Bytes32 genesisValidatorsRoot = Bytes32.leftPad(Bytes.of(3));
+
+    assertThat(gvrValidator.checkGenesisValidatorsRootAndInsertIfEmpty(genesisValidatorsRoot))
+        .isTrue();
+    assertThat(gvrValidator.checkGenesisValidatorsRootAndInsertIfEmpty(genesisValidatorsRoot))
+        .isTrue();
+    assertThat(gvrValidator.genesisValidatorRootExists()).isTrue();
+
+    verify(metadataDao, times(1)).findGenesisValidatorsRoot(any());
+  }
+
+  @Test
+  void differentGVRIsRejectedAfterVerifiedGVRIsCached(final Jdbi jdbi) {
+    final GenesisValidatorRootValidator gvrValidator =
+        new GenesisValidatorRootValidator(jdbi, new MetadataDao());
+
+    assertThat(
+            gvrValidator.checkGenesisValidatorsRootAndInsertIfEmpty(Bytes32.leftPad(Bytes.of(3))))
+        .isTrue();
+    assertThat(
+            gvrValidator.checkGenesisValidatorsRootAndInsertIfEmpty(Bytes32.leftPad(Bytes.of(4))))
+        .isFalse();
+  }
+
   @Test
   void genesisValidatorRootExistsReturnsFalseWhenMetadataIsEmpty(final Jdbi jdbi) {
     final GenesisValidatorRootValidator gvrValidator =
@@ -117,6 +117,106 @@ public class TestSlashingProtectionParameters implements SlashingProtectionParam
     return dbPassword;
   }
 
+  @Override
+  public boolean isReactiveClientEnabled() {
+    return false;
+  }
+
+  @Override
+  public int getReactiveClientPoolSize() {
+    return 10;
+  }
+
+  @Override
+  public long getSlowLockWaitThresholdMilliseconds() {
+    return 100;
+  }
+
+  @Override
+  public boolean isConcurrentSigningEnabled() {
+    return false;
+  }
+
+  @Override
+  public boolean isSignatureCacheEnabled() {
+    return false;
+  }
+
+  @Override
+  public long getSignatureCacheSize() {
+    return 10_000;
+  }
+
+  @Override
+  public long getSignatureCacheExpirySeconds() {
+    return 768;
+  }
+
+  @Override
+  public boolean isShardLeasingEnabled() {
+    return false;
+  }
+
+  @Override
+  public int getShardCount() {
+    return 64;
+  }
+
+  @Override
+  public long getShardLeaseDurationMilliseconds() {
+    return 10_000;
+  }
+
+  @Override
+  public int getRegistrationChunkSize() {
+    return 1000;
+  }
+
+  @Override
+  public int getRegistrationThreads() {
+    return 1;
+  }
+
+  @Override
+  public boolean isSurroundIndexEnabled() {
+    return false;
+  }
+
+  @Override
+  public boolean isCircuitBreakerEnabled() {
+    return false;
+  }
+
+  @Override
+  public int getCircuitBreakerFailureRateThreshold() {
+    return 50;
+  }
+
+  @Override
+  public long getCircuitBreakerSlowCallThresholdMilliseconds() {
+    return 1000;
+  }
+
+  @Override
+  public int getCircuitBreakerWindowSize() {
+    return 100;
+  }
+
+  @Override
+  public long getCircuitBreakerOpenDurationMilliseconds() {
+    return 10_000;
+  }
+
+  @Override
+  public String getDbReplicaUrl() {
+    return null;
+  }
+
+  @Override
+  public long getDbReplicaMaxLagMilliseconds() {
+    return 1000;
+  }
+
   @Override
   public boolean isPruningEnabled() {
     return pruningEnabled;
@@ -161,4 +261,94 @@ public class TestSlashingProtectionParameters implements SlashingProtectionParam
   public long getDbHealthCheckIntervalMilliseconds() {
     return dbHealthCheckIntervalMilliseconds;
   }
+
+  @Override
+  public boolean isHistoryCacheEnabled() {
+    return false;
+  }
+
+  @Override
+  public long getHistoryCacheEpochs() {
+    return 32;
+  }
+
+  @Override
+  public boolean isAttestationBatchingEnabled() {
+    return false;
+  }
+
+  @Override
+  public long getAttestationBatchWindowMicroseconds() {
+    return 500;
+  }
+
+  @Override
+  public int getAttestationBatchMaxSize() {
+    return 500;
+  }
+
+  @Override
+  public boolean isDbFunctionsEnabled() {
+    return false;
+  }
+
+  @Override
+  public boolean isEnabledStatusCacheEnabled() {
+    return false;
+  }
+
+  @Override
+  public Path getJournalPath() {
+    return null;
+  }
+
+  @Override
+  public boolean isPruningChunkedEnabled() {
+    return false;
+  }
+
+  @Override
+  public int getPruningThreads() {
+    return 4;
+  }
+
+  @Override
+  public int getPruningChunkSize() {
+    return 1000;
+  }
+
+  @Override
+  public long getPruningMaxRowsPerSecond() {
+    return 50_000;
+  }
+
+  @Override
+  public boolean isInlinePruningEnabled() {
+    return false;
+  }
+
+  @Override
+  public int getInlinePruningMaxRows() {
+    return 10;
+  }
+
+  @Override
+  public int getImportBatchSize() {
+    return 0;
+  }
+
+  @Override
+  public int getImportThreads() {
+    return 1;
+  }
+
+  @Override
+  public boolean isImportStagingEnabled() {
+    return false;
+  }
+
+  @Override
+  public int getExportThreads() {
+    return 1;
+  }
 }